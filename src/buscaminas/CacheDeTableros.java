@@ -0,0 +1,248 @@
+package buscaminas;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import matricesDispersas.MatrizDeBits;
+
+/**
+ * Clase que guarda los {@link TableroGenerado} más usados, para no volver a
+ * generar las minas de los campos que se juegan muchas veces (por ejemplo en
+ * pruebas de rendimiento o torneos).
+ * <p>
+ * Cada tablero se identifica por los parámetros con los que se generó: tamaño,
+ * número de minas, semilla, primera casilla despejada y si se garantizó una
+ * apertura. Los tableros se guardan en orden de uso, y si los bytes guardados
+ * superan la {@link #capacidad}, se eliminan los que llevan más tiempo sin
+ * usarse.
+ * <p>
+ * Todos los métodos están sincronizados, por lo que varios hilos pueden usar el
+ * mismo cache.
+ *
+ * @author sneyd
+ *
+ * @see CampoDeMinas#setCacheDeTableros(CacheDeTableros)
+ */
+public class CacheDeTableros {
+
+	/**
+	 * Parámetros de generación de un tablero.
+	 */
+	private static class Clave {
+		private final int m, n, minas, fila, columna;
+		private final long semilla;
+		private final boolean aperturaGarantizada;
+
+		private Clave(int m, int n, int minas, long semilla, int fila, int columna, boolean aperturaGarantizada) {
+			this.m = m;
+			this.n = n;
+			this.minas = minas;
+			this.semilla = semilla;
+			this.fila = fila;
+			this.columna = columna;
+			this.aperturaGarantizada = aperturaGarantizada;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Clave)) {
+				return false;
+			}
+			Clave otra = (Clave) o;
+			return m == otra.m && n == otra.n && minas == otra.minas && semilla == otra.semilla
+					&& fila == otra.fila && columna == otra.columna
+					&& aperturaGarantizada == otra.aperturaGarantizada;
+		}
+
+		@Override
+		public int hashCode() {
+			long h = semilla;
+			h = h * 31 + m;
+			h = h * 31 + n;
+			h = h * 31 + minas;
+			h = h * 31 + fila;
+			h = h * 31 + columna;
+			h = h * 31 + (aperturaGarantizada ? 1 : 0);
+			return Long.hashCode(GeneradorDeMinas.siguienteSemilla(h));
+		}
+	}
+
+	/**
+	 * Tableros guardados, en orden de uso (el primero es el que lleva más tiempo
+	 * sin usarse).
+	 */
+	private final LinkedHashMap<Clave, TableroGenerado> tableros;
+
+	/**
+	 * Número máximo de bytes de los tableros guardados.
+	 */
+	private final long capacidad;
+
+	/**
+	 * Número de bytes de los tableros guardados.
+	 */
+	private long bytes;
+
+	/**
+	 * Número de búsquedas que encontraron el tablero.
+	 */
+	private long aciertos;
+
+	/**
+	 * Número de búsquedas que no encontraron el tablero.
+	 */
+	private long fallos;
+
+	/**
+	 * Número de tableros eliminados para liberar espacio.
+	 */
+	private long expulsiones;
+
+	/**
+	 * Constructor de un cache vacío.
+	 *
+	 * @param capacidad Número máximo de bytes de los tableros guardados.
+	 */
+	public CacheDeTableros(long capacidad) {
+		assert capacidad > 0;
+		this.tableros = new LinkedHashMap<>(16, 0.75f, true);
+		this.capacidad = capacidad;
+	}
+
+	/**
+	 * Busca el tablero generado con los parámetros entregados.
+	 *
+	 * @param m                   Número de filas.
+	 * @param n                   Número de columnas.
+	 * @param minas               Número de minas.
+	 * @param semilla             Semilla.
+	 * @param fila                Fila de la primera casilla despejada.
+	 * @param columna             Columna de la primera casilla despejada.
+	 * @param aperturaGarantizada Indica si se garantizó una apertura.
+	 * @return {@link TableroGenerado}, o <code>null</code> si no está guardado.
+	 */
+	public synchronized TableroGenerado buscar(int m, int n, int minas, long semilla, int fila, int columna,
+			boolean aperturaGarantizada) {
+		TableroGenerado tablero = tableros.get(new Clave(m, n, minas, semilla, fila, columna, aperturaGarantizada));
+
+		if (tablero == null) {
+			fallos++;
+		} else {
+			aciertos++;
+		}
+		return tablero;
+	}
+
+	/**
+	 * Devuelve el tablero generado con los parámetros entregados, generándolo y
+	 * guardándolo si no está guardado.
+	 *
+	 * @param m                   Número de filas.
+	 * @param n                   Número de columnas.
+	 * @param minas               Número de minas.
+	 * @param semilla             Semilla.
+	 * @param fila                Fila de la primera casilla despejada.
+	 * @param columna             Columna de la primera casilla despejada.
+	 * @param aperturaGarantizada Indica si se garantiza una apertura.
+	 * @return {@link TableroGenerado}.
+	 */
+	public TableroGenerado obtener(int m, int n, int minas, long semilla, int fila, int columna,
+			boolean aperturaGarantizada) {
+		TableroGenerado tablero = buscar(m, n, minas, semilla, fila, columna, aperturaGarantizada);
+
+		// si no está guardado se genera fuera del cerrojo
+		if (tablero == null) {
+			MatrizDeBits mapaDeMinas = new MatrizDeBits(m, n);
+			GeneradorDeMinas.generar(minas,
+					GeneradorDeMinas.zonaExcluida(m, n, minas, fila, columna, aperturaGarantizada), semilla,
+					mapaDeMinas);
+			tablero = new TableroGenerado(mapaDeMinas, minas, semilla, fila, columna, aperturaGarantizada);
+			guardar(tablero);
+		}
+		return tablero;
+	}
+
+	/**
+	 * Guarda un tablero, eliminando los que llevan más tiempo sin usarse si se
+	 * supera la {@link #capacidad}. Un tablero más grande que la capacidad no se
+	 * guarda.
+	 *
+	 * @param tablero {@link TableroGenerado} a guardar.
+	 */
+	public synchronized void guardar(TableroGenerado tablero) {
+		Clave clave = new Clave(tablero.getNumFilas(), tablero.getNumColumnas(), tablero.getNumMinas(),
+				tablero.getSemilla(), tablero.getFila(), tablero.getColumna(), tablero.getAperturaGarantizada());
+
+		if (tablero.getBytes() > capacidad) {
+			return;
+		}
+
+		TableroGenerado anterior = tableros.put(clave, tablero);
+		if (anterior != null) {
+			bytes -= anterior.getBytes();
+		}
+		bytes += tablero.getBytes();
+
+		// se eliminan los tableros que llevan más tiempo sin usarse
+		Iterator<Map.Entry<Clave, TableroGenerado>> it = tableros.entrySet().iterator();
+		while (bytes > capacidad) {
+			bytes -= it.next().getValue().getBytes();
+			it.remove();
+			expulsiones++;
+		}
+	}
+
+	/**
+	 * Elimina todos los tableros guardados. Las métricas se conservan.
+	 */
+	public synchronized void limpiar() {
+		tableros.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Devuelve el número de tableros guardados.
+	 *
+	 * @return Número de tableros.
+	 */
+	public synchronized int getNumTableros() {
+		return tableros.size();
+	}
+
+	/**
+	 * Devuelve el número de bytes de los tableros guardados.
+	 *
+	 * @return Bytes guardados.
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Devuelve el número de búsquedas que encontraron el tablero.
+	 *
+	 * @return Número de aciertos.
+	 */
+	public synchronized long getAciertos() {
+		return aciertos;
+	}
+
+	/**
+	 * Devuelve el número de búsquedas que no encontraron el tablero.
+	 *
+	 * @return Número de fallos.
+	 */
+	public synchronized long getFallos() {
+		return fallos;
+	}
+
+	/**
+	 * Devuelve el número de tableros eliminados para liberar espacio.
+	 *
+	 * @return Número de expulsiones.
+	 */
+	public synchronized long getExpulsiones() {
+		return expulsiones;
+	}
+}
@@ -0,0 +1,190 @@
+package buscaminas;
+
+import java.util.Arrays;
+
+import buscaminas.CampoDeMinas.EstadoDeCasilla;
+
+/**
+ * Clase con las casillas que cambiaron de estado en una jugada de un
+ * {@link CampoDeMinas}, junto con su nuevo estado y su valor.
+ * <p>
+ * Cada casilla se guarda como el índice <code>i * n + j</code> en un arreglo de
+ * enteros, y su estado y su valor en arreglos de bytes, que crecen al doble
+ * cuando se llenan. El valor solo se guarda para las casillas descubiertas, en
+ * las demás es 0.
+ * <p>
+ * Si la jugada terminó el juego, todas las casillas cambian a
+ * {@link EstadoDeCasilla#descubierta}, y en lugar de listarlas se indica con
+ * {@link #esCompleto()}.
+ *
+ * @author sneyd
+ *
+ * @see ObservadorDeCambios
+ */
+public class CambiosDeCasillas {
+
+	/**
+	 * Estados de casilla en el orden de sus ordinales.
+	 */
+	private static final EstadoDeCasilla[] ESTADOS = EstadoDeCasilla.values();
+
+	/**
+	 * Número de columnas del campo de minas.
+	 */
+	private final int n;
+
+	/**
+	 * Índices <code>i * n + j</code> de las casillas que cambiaron, en el orden en
+	 * que cambiaron.
+	 */
+	private int[] casillas;
+
+	/**
+	 * Ordinal del nuevo {@link EstadoDeCasilla} de cada casilla.
+	 */
+	private byte[] estados;
+
+	/**
+	 * Valor de cada casilla descubierta, o 0 si no está descubierta.
+	 */
+	private byte[] valores;
+
+	/**
+	 * Número de casillas que cambiaron.
+	 */
+	private int tamano;
+
+	/**
+	 * Indica si cambiaron todas las casillas del campo de minas.
+	 */
+	private boolean completo;
+
+	/**
+	 * Constructor de un conjunto de cambios vacío.
+	 *
+	 * @param n Número de columnas del campo de minas.
+	 */
+	CambiosDeCasillas(int n) {
+		this.n = n;
+		this.casillas = new int[16];
+		this.estados = new byte[16];
+		this.valores = new byte[16];
+	}
+
+	/**
+	 * Agrega el cambio de la casilla (<b>i</b>, <b>j</b>).
+	 *
+	 * @param i      Fila de la casilla.
+	 * @param j      Columna de la casilla.
+	 * @param estado Nuevo {@link EstadoDeCasilla}.
+	 * @param valor  Valor de la casilla si está descubierta, de lo contrario 0.
+	 */
+	void agregar(int i, int j, EstadoDeCasilla estado, int valor) {
+
+		// si se llenaron los arreglos se duplica su tamaño
+		if (tamano == casillas.length) {
+			casillas = Arrays.copyOf(casillas, 2 * tamano);
+			estados = Arrays.copyOf(estados, 2 * tamano);
+			valores = Arrays.copyOf(valores, 2 * tamano);
+		}
+		casillas[tamano] = i * n + j;
+		estados[tamano] = (byte) estado.ordinal();
+		valores[tamano] = (byte) valor;
+		tamano++;
+	}
+
+	/**
+	 * Indica que cambiaron todas las casillas del campo de minas.
+	 */
+	void setCompleto() {
+		this.completo = true;
+	}
+
+	/**
+	 * Elimina todos los cambios, conservando los arreglos.
+	 */
+	void limpiar() {
+		this.tamano = 0;
+		this.completo = false;
+	}
+
+	/**
+	 * Devuelve el número de casillas que cambiaron. Si {@link #esCompleto()},
+	 * puede no incluir todas las casillas del campo.
+	 *
+	 * @return Número de cambios.
+	 */
+	public int getTamano() {
+		return tamano;
+	}
+
+	/**
+	 * Indica si cambiaron todas las casillas del campo de minas, porque se terminó
+	 * el juego.
+	 *
+	 * @return <code>true</code> si cambiaron todas las casillas.
+	 */
+	public boolean esCompleto() {
+		return completo;
+	}
+
+	/**
+	 * Devuelve la fila de la casilla del cambio <b>k</b>.
+	 *
+	 * @param k Índice del cambio, entre 0 y {@link #getTamano()} - 1.
+	 * @return Fila de la casilla.
+	 * @throws IndexOutOfBoundsException Si <b>k</b> está por fuera de los cambios.
+	 */
+	public int getFila(int k) throws IndexOutOfBoundsException {
+		return casillas[verificar(k)] / n;
+	}
+
+	/**
+	 * Devuelve la columna de la casilla del cambio <b>k</b>.
+	 *
+	 * @param k Índice del cambio, entre 0 y {@link #getTamano()} - 1.
+	 * @return Columna de la casilla.
+	 * @throws IndexOutOfBoundsException Si <b>k</b> está por fuera de los cambios.
+	 */
+	public int getColumna(int k) throws IndexOutOfBoundsException {
+		return casillas[verificar(k)] % n;
+	}
+
+	/**
+	 * Devuelve el nuevo estado de la casilla del cambio <b>k</b>.
+	 *
+	 * @param k Índice del cambio, entre 0 y {@link #getTamano()} - 1.
+	 * @return {@link EstadoDeCasilla}.
+	 * @throws IndexOutOfBoundsException Si <b>k</b> está por fuera de los cambios.
+	 */
+	public EstadoDeCasilla getEstado(int k) throws IndexOutOfBoundsException {
+		return ESTADOS[estados[verificar(k)]];
+	}
+
+	/**
+	 * Devuelve el valor de la casilla del cambio <b>k</b>: <b>-1</b> si es una
+	 * mina, de lo contrario el número de minas alrededor. Si la casilla no quedó
+	 * descubierta, devuelve 0.
+	 *
+	 * @param k Índice del cambio, entre 0 y {@link #getTamano()} - 1.
+	 * @return Valor de la casilla.
+	 * @throws IndexOutOfBoundsException Si <b>k</b> está por fuera de los cambios.
+	 */
+	public int getValor(int k) throws IndexOutOfBoundsException {
+		return valores[verificar(k)];
+	}
+
+	/**
+	 * Verifica que <b>k</b> sea el índice de un cambio.
+	 *
+	 * @param k Índice a verificar.
+	 * @return <b>k</b>.
+	 * @throws IndexOutOfBoundsException Si <b>k</b> está por fuera de los cambios.
+	 */
+	private int verificar(int k) throws IndexOutOfBoundsException {
+		if (k < 0 || tamano <= k) {
+			throw new IndexOutOfBoundsException();
+		}
+		return k;
+	}
+}
@@ -1,11 +1,21 @@
 package buscaminas;
 
-import java.util.Random;
+import java.util.Arrays;
 import java.util.Scanner;
-
+import java.util.SplittableRandom;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.stream.IntStream;
+
+import matricesDispersas.MatrizDeBits;
 import matricesDispersas.MatrizForma1;
 import matricesDispersas.NodoDoble;
 import matricesDispersas.Tripleta;
+import matricesDispersas.ValorPorPosicion;
 
 /**
  * Clase que representa el campo de minas del buscaminas, usando matrices
@@ -27,12 +37,16 @@ import matricesDispersas.Tripleta;
  * <p>
  * La {@link MatrizForma1} {@link #estadoDeCasillas} contiene el estado de cada
  * casilla, y su nulo es {@link EstadoDeCasilla#oculta}.
+ * <p>
+ * Según el {@link ModoDeNumeros}, la matriz dispersa puede no contener los
+ * números (ni las minas), en ese caso los números se calculan a partir de
+ * {@link #mapaDeMinas} al consultarlos con {@link #get(int, int)}.
  * 
  * @author sneyd
  *
  * @see #CampoDeMinas(int, int, int)
  */
-public class CampoDeMinas extends MatrizForma1 {
+public class CampoDeMinas extends MatrizForma1 implements TableroDeMinas {
 
 	/**
 	 * Enumerado para controlar el estado del campo de minas.
@@ -59,6 +73,52 @@ public class CampoDeMinas extends MatrizForma1 {
 		posibleMina, oculta, descubierta
 	}
 
+	/**
+	 * Enumerado para controlar cómo se guardan los números del campo de minas.
+	 * <p>
+	 * Sus valores son: <br>
+	 * - materializados: la matriz dispersa contiene las minas y todos los números
+	 * diferentes de 0 desde que se genera el campo. <br>
+	 * - perezosos: solo se guarda {@link CampoDeMinas#mapaDeMinas}, y el número de
+	 * cada casilla se calcula al consultarlo. <br>
+	 * - memorizados: como perezosos, pero el número de cada casilla que se
+	 * descubre se guarda en la matriz dispersa.
+	 */
+	public enum ModoDeNumeros {
+		materializados, perezosos, memorizados
+	}
+
+	/**
+	 * Enumerado con el resultado de cada jugada de
+	 * {@link CampoDeMinas#jugar(int[], byte[])}.
+	 * <p>
+	 * Sus valores son: <br>
+	 * - sinCambios: la jugada no cambió ninguna casilla. <br>
+	 * - conCambios: la jugada cambió alguna casilla y el juego sigue. <br>
+	 * - perdido: la jugada descubrió una mina. <br>
+	 * - ganado: la jugada descubrió la última casilla sin mina.
+	 */
+	public enum ResultadoDeJugada {
+		sinCambios, conCambios, perdido, ganado
+	}
+
+	/**
+	 * Código de la jugada {@link #tocarCasilla(int, int)} en
+	 * {@link #jugar(int[], byte[])}.
+	 */
+	public static final int TOCAR = 0;
+
+	/**
+	 * Código de la jugada {@link #posibleMina(int, int)} en
+	 * {@link #jugar(int[], byte[])}.
+	 */
+	public static final int MARCAR = 1;
+
+	/**
+	 * Resultados de jugada en el orden de sus ordinales.
+	 */
+	private static final ResultadoDeJugada[] RESULTADOS = ResultadoDeJugada.values();
+
 	/**
 	 * Indica el estado actual del campo de minas.
 	 */
@@ -74,6 +134,27 @@ public class CampoDeMinas extends MatrizForma1 {
 	 */
 	private int posiblesMinas;
 
+	/**
+	 * Número de casillas descubiertas. Se actualiza en
+	 * {@link #setEstadoDeCasilla(int, int, EstadoDeCasilla)} cada vez que una
+	 * casilla cambia de estado, por lo que no es necesario recorrer
+	 * {@link #estadoDeCasillas} para saber cuántas casillas se han descubierto.
+	 */
+	private int casillasDescubiertas;
+
+	/**
+	 * Número de casillas marcadas como posibles minas alrededor de cada casilla,
+	 * en la posición <code>i * n + j</code>. Se actualiza en
+	 * {@link #setEstadoDeCasilla(int, int, EstadoDeCasilla)} al marcar o desmarcar
+	 * una casilla, de modo que para saber si se pueden despejar los vecinos de un
+	 * número basta con consultar este arreglo.
+	 * <p>
+	 * Es <code>null</code> hasta que se marca la primera casilla, pues sin marcas
+	 * todos los contadores son 0, y en campos grandes el arreglo ocupa un byte por
+	 * casilla aunque el jugador nunca marque.
+	 */
+	private byte[] marcasVecinas;
+
 	/**
 	 * Para almacenar la posición de la primera casilla despejada.
 	 * 
@@ -87,17 +168,213 @@ public class CampoDeMinas extends MatrizForma1 {
 	 */
 	private boolean yaCreado;
 
+	/**
+	 * Indica si al generar el campo de minas se excluyen también los vecinos de la
+	 * primera casilla despejada, de modo que esta siempre abra un área del campo.
+	 * 
+	 * @see GeneradorDeMinas#zonaExcluida(int, int, int, int, int, boolean)
+	 */
+	private boolean aperturaGarantizada;
+
+	/**
+	 * Indica cómo se guardan los números del campo de minas.
+	 * 
+	 * @see ModoDeNumeros
+	 */
+	private ModoDeNumeros modoDeNumeros;
+
 	/**
 	 * Matriz dispersa que indica el estado de cada casilla usando el enumerado
-	 * {@link EstadoDeCasilla}.
+	 * {@link EstadoDeCasilla}. Durante el juego es {@link #estadoEnJuego}, y al
+	 * terminar es {@link #estadoTerminado}.
 	 */
 	private MatrizForma1 estadoDeCasillas;
 
 	/**
-	 * {@link Random} para generar las minas aleatoriamente dentro del rango de la
-	 * matriz.
+	 * Matriz dispersa con el estado de las casillas durante el juego. Se crea una
+	 * sola vez y se limpia al reiniciar.
+	 */
+	private final MatrizForma1 estadoEnJuego;
+
+	/**
+	 * Matriz dispersa sin elementos cuyo nulo es {@link EstadoDeCasilla#descubierta},
+	 * que representa el estado de las casillas al terminar el juego. Se crea la
+	 * primera vez que se termina un juego y se reutiliza en los siguientes.
+	 */
+	private MatrizForma1 estadoTerminado;
+
+	/**
+	 * {@link MatrizDeBits} con las casillas que tienen minas. Se crea al generar el
+	 * campo de minas.
+	 */
+	private MatrizDeBits mapaDeMinas;
+
+	/**
+	 * Aperturas del campo de minas (regiones de ceros junto con su borde). Se
+	 * calculan al generar el campo de minas, siempre que
+	 * {@link #usarIndiceDeAperturas} sea <code>true</code>.
+	 * 
+	 * @see #despejarCeros(int, int)
+	 */
+	private IndiceDeAperturas indiceDeAperturas;
+
+	/**
+	 * Indica si al generar el campo de minas se calcula el
+	 * {@link #indiceDeAperturas}. Es <code>false</code> por defecto, pues el
+	 * índice recorre todo el campo y guarda un entero por casilla al generarlo.
+	 */
+	private boolean usarIndiceDeAperturas;
+
+	/**
+	 * Número de ceros de cada apertura que no están ocultos (marcados como posibles
+	 * minas o descubiertos). Se actualiza en
+	 * {@link #setEstadoDeCasilla(int, int, EstadoDeCasilla)}. Una apertura sin
+	 * bloqueos se puede descubrir completa directamente desde el índice.
+	 */
+	private int[] bloqueos;
+
+	/**
+	 * Indica si al generar el campo de minas se prepara el {@link #despejador}
+	 * para despejar en paralelo las aperturas grandes.
+	 */
+	private boolean despejeParalelo;
+
+	/**
+	 * {@link DespejeParalelo} con el que se calculan las aperturas de al menos
+	 * {@link #UMBRAL_PARALELO} casillas, o si no hay {@link #indiceDeAperturas}, lo
+	 * que falta de las cascadas que pasan de {@link #CASCADA_SECUENCIAL} casillas.
+	 * Es <code>null</code> si no se usa el despeje paralelo.
+	 */
+	private DespejeParalelo despejador;
+
+	/**
+	 * Tamaño mínimo de una apertura para despejarla en paralelo. Las aperturas más
+	 * pequeñas se despejan más rápido desde el {@link #indiceDeAperturas}. También
+	 * es el número mínimo de casillas del campo para materializar sus números en
+	 * paralelo.
+	 */
+	private static final int UMBRAL_PARALELO = 1 << 16;
+
+	/**
+	 * Número de casillas que una cascada descubre con la pila antes de pasar al
+	 * {@link #despejador}, cuando no hay {@link #indiceDeAperturas} para saber de
+	 * antemano el tamaño de la apertura.
 	 */
-	private Random rand = new Random();
+	private static final int CASCADA_SECUENCIAL = 1 << 12;
+
+	/**
+	 * Semilla con la que se generan las minas.
+	 * 
+	 * @see GeneradorDeMinas#generar(int, int[], long, MatrizDeBits)
+	 */
+	private long semilla;
+
+	/**
+	 * {@link ObservadorDeCambios} al que se le entregan los {@link #cambios} de
+	 * cada jugada, o <code>null</code> si no hay.
+	 */
+	private ObservadorDeCambios observador;
+
+	/**
+	 * Casillas que cambiaron en la jugada actual. Solo se registran si hay
+	 * {@link #observador}, se publican vistas o hay {@link #eventos}, de lo
+	 * contrario es <code>null</code>.
+	 */
+	private CambiosDeCasillas cambios;
+
+	/**
+	 * Última {@link VistaDeCampo} publicada, o <code>null</code> si no se publican
+	 * vistas. Solo la modifica el hilo que juega, y los demás hilos la leen sin
+	 * cerrojos.
+	 */
+	private volatile VistaDeCampo vista;
+
+	/**
+	 * Publicador de los {@link EventoDeJuego} del campo de minas, o
+	 * <code>null</code> si nadie los ha pedido. Cada suscriptor tiene su propio
+	 * buffer de {@link Flow#defaultBufferSize()} eventos.
+	 */
+	private SubmissionPublisher<EventoDeJuego> eventos;
+
+	/**
+	 * Publicador que se entrega a los suscriptores, y que los envuelve en un
+	 * {@link SuscriptorDeEventos} antes de suscribirlos a {@link #eventos}.
+	 */
+	private Flow.Publisher<EventoDeJuego> publicadorDeEventos;
+
+	/**
+	 * Número de eventos que no se entregaron porque el buffer del suscriptor
+	 * estaba lleno.
+	 */
+	private final LongAdder eventosDescartados = new LongAdder();
+
+	/**
+	 * Tiempo máximo, en milisegundos, que se espera a que haya espacio en el
+	 * buffer de un suscriptor para entregarle el final de una cascada o del juego.
+	 */
+	private static final long ESPERA_DE_EVENTOS = 100;
+
+	/**
+	 * Casillas de los ceros que iniciaron cascadas en la jugada actual, con el
+	 * número de casillas que descubrió cada una, de a dos enteros:
+	 * <code>i * n + j</code> y el tamaño. Solo se registran si hay
+	 * {@link #eventos}.
+	 */
+	private int[] cascadas = new int[4];
+
+	/**
+	 * Número de enteros usados en {@link #cascadas}.
+	 */
+	private int numCascadas;
+
+	/**
+	 * Hash de Zobrist de las casillas descubiertas y marcadas: la o exclusiva de
+	 * las {@link #claveZobrist(int, EstadoDeCasilla, int)} de todas las casillas
+	 * que no están ocultas. Se actualiza con cada cambio de estado de una casilla
+	 * mientras se juega.
+	 */
+	private long hash;
+
+	/**
+	 * Hash de Zobrist con todas las casillas descubiertas, que es el de un juego
+	 * terminado. Depende de las minas, y se calcula en {@link #getHash()} la
+	 * primera vez que se pide con el juego terminado, no al terminarlo, para no
+	 * recorrer todo el campo durante la jugada. Vale 0 si aún no se ha calculado.
+	 */
+	private long hashTerminado;
+
+	/**
+	 * {@link CacheDeTableros} en el que se buscan las minas antes de generarlas, y
+	 * en el que se guardan las generadas, o <code>null</code> si no se usa.
+	 */
+	private CacheDeTableros cacheDeTableros;
+
+	/**
+	 * Tablero con el que se creó el campo de minas, cuyas minas se usan en el
+	 * primer juego en lugar de generarlas. Es <code>null</code> después de
+	 * reiniciar con un tablero nuevo.
+	 */
+	private TableroGenerado tableroInicial;
+
+	/**
+	 * {@link PreGenerador} del que se toman las minas antes de buscarlas en el
+	 * cache o generarlas, o <code>null</code> si no se usa.
+	 */
+	private PreGenerador preGenerador;
+
+	/**
+	 * Indica si la {@link #semilla} la entregó quien creó el campo de minas. En
+	 * ese caso no se usa el {@link #preGenerador}, cuyas semillas son aleatorias,
+	 * para que la secuencia de tableros se pueda reproducir.
+	 */
+	private boolean semillaFija;
+
+	/**
+	 * Indica si las minas del tablero actual se generaron con la {@link #semilla}
+	 * sin excluir ninguna casilla, como las del {@link #preGenerador}, en lugar de
+	 * excluir la zona de la primera casilla despejada.
+	 */
+	private boolean semillaSinExclusion;
 
 	/**
 	 * Constructor. Inicializa el campo de minas. A diferencia del otro constructor,
@@ -117,6 +394,42 @@ public class CampoDeMinas extends MatrizForma1 {
 	 *              &lt; <b><i>m</i></b> * <b><i>n</i></b>).
 	 */
 	public CampoDeMinas(int m, int n, int minas) {
+		this(m, n, minas, new SplittableRandom().nextLong());
+		this.semillaFija = false;
+	}
+
+	/**
+	 * Constructor. Inicializa el campo de minas igual que
+	 * {@link #CampoDeMinas(int, int, int)}, pero las minas se generan a partir de
+	 * la <b>semilla</b> entregada, por lo que el campo se puede volver a crear
+	 * despejando la misma primera casilla.
+	 * 
+	 * @param m       Número de filas del campo de minas.
+	 * @param n       Número de columnas del campo de minas
+	 * @param minas   Número de minas que se crearán en el campo de minas.
+	 * @param semilla Semilla con la que se generan las minas.
+	 */
+	public CampoDeMinas(int m, int n, int minas, long semilla) {
+		this(m, n, minas, semilla, false);
+	}
+
+	/**
+	 * Constructor. Inicializa el campo de minas igual que
+	 * {@link #CampoDeMinas(int, int, int, long)}, pero si <b>sinExclusion</b> es
+	 * <code>true</code> las minas se generan con la <b>semilla</b> sin excluir
+	 * ninguna casilla, que es como se generan las del {@link PreGenerador}. Así se
+	 * puede volver a crear un tablero a partir de {@link #getSemilla()} y
+	 * {@link #getSemillaSinExclusion()}. Si la primera casilla despejada queda con
+	 * minas en su zona excluida, las minas se generan excluyéndola.
+	 * 
+	 * @param m            Número de filas del campo de minas.
+	 * @param n            Número de columnas del campo de minas
+	 * @param minas        Número de minas que se crearán en el campo de minas.
+	 * @param semilla      Semilla con la que se generan las minas.
+	 * @param sinExclusion Indica si las minas se generan sin excluir ninguna
+	 *                     casilla.
+	 */
+	public CampoDeMinas(int m, int n, int minas, long semilla, boolean sinExclusion) {
 		// crea la matriz dispersa
 		super(m, n, 0);
 
@@ -127,128 +440,324 @@ public class CampoDeMinas extends MatrizForma1 {
 		this.estado = Estado.noIniciado;
 		this.minas = minas;
 		this.posiblesMinas = 0;
+		this.casillasDescubiertas = 0;
+		this.marcasVecinas = null;
 		this.primerDespeje = null;
 		this.yaCreado = false;
-		this.estadoDeCasillas = new MatrizForma1(m, n, EstadoDeCasilla.oculta);
+		this.aperturaGarantizada = false;
+		this.modoDeNumeros = ModoDeNumeros.materializados;
+		this.usarIndiceDeAperturas = false;
+		this.despejeParalelo = false;
+		this.semilla = semilla;
+		this.semillaFija = true;
+		this.semillaSinExclusion = sinExclusion;
+		this.estadoEnJuego = new MatrizForma1(m, n, EstadoDeCasilla.oculta);
+		this.estadoDeCasillas = this.estadoEnJuego;
 	}
 
 	/**
-	 * Genera el campo de minas de forma aleatoria.
+	 * Constructor. Inicializa el campo de minas con las minas de un
+	 * {@link TableroGenerado}, que se usan al despejar la primera casilla sin
+	 * volver a generarlas. La primera casilla despejada debería ser la del
+	 * tablero, pues es la que se dejó sin mina: si se despeja otra y el tablero
+	 * tiene minas en su zona excluida, las minas se generan como en
+	 * {@link #CampoDeMinas(int, int, int, long)}.
+	 * 
+	 * @param tablero {@link TableroGenerado} con las minas del campo.
 	 */
-	private void generarCampoDeMinas() {
-
-		// se generan las minas aleatoriamente
-		for (int i = 0; i < this.minas; i++) {
-			generarMina();
-		}
+	public CampoDeMinas(TableroGenerado tablero) {
+		this(tablero.getNumFilas(), tablero.getNumColumnas(), tablero.getNumMinas(), tablero.getSemilla(),
+				tablero.getFila() < 0);
+		this.aperturaGarantizada = tablero.getAperturaGarantizada();
+		this.tableroInicial = tablero;
 	}
 
 	/**
-	 * Pone una mina en una posición aleatoria y actualiza las casillas alrededor
-	 * sumando 1.
+	 * Genera el campo de minas de forma aleatoria, sin poner minas en la primera
+	 * casilla despejada (ni en sus vecinos si {@link #aperturaGarantizada} es
+	 * <code>true</code>).
+	 * <p>
+	 * La generación se hace en tres pasos: <br>
+	 * - Se escogen todas las minas en {@link #mapaDeMinas}, o se copian del
+	 * {@link #tableroInicial}, del {@link #preGenerador} o del
+	 * {@link #cacheDeTableros} si están. <br>
+	 * - Se cuentan las minas alrededor de cada casilla, fila por fila. <br>
+	 * - Se anexan las casillas diferentes de 0 a la matriz dispersa en orden por
+	 * filas.
+	 * <p>
+	 * Si el {@link #modoDeNumeros} no es {@link ModoDeNumeros#materializados}, solo
+	 * se hace el primer paso. Al final se calcula el {@link #indiceDeAperturas} si
+	 * {@link #usarIndiceDeAperturas} es <code>true</code>.
+	 * 
+	 * @see GeneradorDeMinas
+	 * @see #materializarNumeros()
 	 */
-	private void generarMina() {
-		int f, c, m, n;
-		NodoDoble nodoX;
-		Tripleta cMina, casillaX;
+	private void generarCampoDeMinas() {
+		int m, n;
+		int[] excluidas;
 
 		m = getNumFilas();
 		n = getNumColumnas();
 
-		// se generan la fila y columna dentro del rango de la matriz
-		f = rand.nextInt(m);
-		c = rand.nextInt(n);
+		// se reutiliza el mapa de minas del tablero anterior
+		if (this.mapaDeMinas == null) {
+			this.mapaDeMinas = new MatrizDeBits(m, n);
+		} else {
+			this.mapaDeMinas.limpiar();
+		}
+
+		excluidas = GeneradorDeMinas.zonaExcluida(m, n, this.minas, primerDespeje[0], primerDespeje[1],
+				aperturaGarantizada);
+
+		// las minas se toman del tablero inicial, del pregenerador o del cache si
+		// están, de lo contrario se generan. Si el tablero inicial tiene minas en la
+		// zona excluida de la primera casilla, no se usa
+		TableroGenerado tablero = this.tableroInicial;
+		boolean generado = false;
+		if (tablero != null && !tablero.sinMinasEn(excluidas)) {
+			tablero = null;
+			this.semillaSinExclusion = false;
+		}
+		if (tablero == null && this.semillaSinExclusion) {
+			GeneradorDeMinas.generar(this.minas, new int[0], this.semilla, this.mapaDeMinas);
+			generado = sinMinasEn(excluidas);
+			if (!generado) {
+				this.mapaDeMinas.limpiar();
+				this.semillaSinExclusion = false;
+			}
+		}
+		if (tablero == null && !generado && this.preGenerador != null && !this.semillaFija) {
+			tablero = this.preGenerador.tomar(m, n, this.minas, primerDespeje[0], primerDespeje[1],
+					aperturaGarantizada);
+			if (tablero != null) {
+				this.semilla = tablero.getSemilla();
+				this.semillaSinExclusion = true;
+			}
+		}
+		if (tablero == null && !generado && this.cacheDeTableros != null) {
+			tablero = this.cacheDeTableros.buscar(m, n, this.minas, this.semilla, primerDespeje[0],
+					primerDespeje[1], aperturaGarantizada);
+		}
+		if (tablero != null) {
+			tablero.copiarEn(this.mapaDeMinas);
+		} else if (!generado) {
+			GeneradorDeMinas.generar(this.minas, excluidas, this.semilla, this.mapaDeMinas);
+			if (this.cacheDeTableros != null) {
+				this.cacheDeTableros.guardar(new TableroGenerado(this.mapaDeMinas, this.minas, this.semilla,
+						primerDespeje[0], primerDespeje[1], aperturaGarantizada));
+			}
+		}
+		if (modoDeNumeros == ModoDeNumeros.materializados) {
+			materializarNumeros();
+		}
 
-		if (primerDespeje != null) {
+		// el índice, los bloqueos y el despejador del tablero anterior se reutilizan,
+		// y como se recalculan aquí, no importa lo que se haya registrado en ellos
+		// antes de generar las minas
+		if (usarIndiceDeAperturas) {
+			if (this.indiceDeAperturas == null) {
+				this.indiceDeAperturas = new IndiceDeAperturas(this.mapaDeMinas);
+			} else {
+				this.indiceDeAperturas.recalcular(this.mapaDeMinas);
+			}
+			if (this.bloqueos == null || this.bloqueos.length < this.indiceDeAperturas.getNumAperturas()) {
+				this.bloqueos = new int[this.indiceDeAperturas.getNumAperturas()];
+			} else {
+				Arrays.fill(this.bloqueos, 0);
+			}
+		} else {
+			this.indiceDeAperturas = null;
+			this.bloqueos = null;
+		}
 
-			// si la primera casilla despejada es donde se quiere generar la mina
-			if (primerDespeje[0] == f && primerDespeje[1] == c) {
+		if (despejeParalelo) {
+			if (this.despejador == null) {
+				this.despejador = new DespejeParalelo(this.mapaDeMinas, ForkJoinPool.commonPool());
+			} else {
+				this.despejador.recalcular(this.mapaDeMinas);
+			}
+		} else {
+			this.despejador = null;
+		}
+		contarMarcasPrevias();
+	}
 
-				// se genera en otro lugar para asegurar que nunca se pierde al empezar la
-				// partida
-				generarMina();
-				return;
+	/**
+	 * Indica si ninguna de las <b>casillas</b> tiene mina en {@link #mapaDeMinas}.
+	 * 
+	 * @param casillas Índices <code>i * n + j</code> de las casillas.
+	 * @return <code>true</code> si todas las casillas están libres.
+	 */
+	private boolean sinMinasEn(int[] casillas) {
+		int n = getNumColumnas();
+
+		for (int c : casillas) {
+			if (this.mapaDeMinas.get(c / n, c % n)) {
+				return false;
 			}
 		}
+		return true;
+	}
 
-		nodoX = getNodo(f, c);
+	/**
+	 * Registra en los {@link #bloqueos} de cada apertura y en el
+	 * {@link #despejador} las casillas que ya se marcaron como posibles minas
+	 * antes de generar el campo de minas, recorriendo solo los nodos de
+	 * {@link #estadoDeCasillas}.
+	 */
+	private void contarMarcasPrevias() {
+		int m;
+		NodoDoble nodoFila, nodoX;
+		Tripleta tripletaT;
 
-		// si ya existe un nodo en esa posición
-		if (nodoX != null) {
-			casillaX = (Tripleta) nodoX.getD();
+		m = getNumFilas();
+		nodoFila = this.estadoDeCasillas.getPrimerNodo();
 
-			// si ese nodo es una mina, se genera otra mina con diferente posición, y se
-			// cancela la creación de la mina actual
-			if (casillaX.getValor().equals(-1)) {
-				generarMina();
-				return;
-			} else { // si es un numero, se reemplaza con una mina
-				cMina = new Tripleta(f, c, -1);
-				nodoX.setD(cMina);
-			}
-		} else { // si no existe, se crea una mina
-			cMina = new Tripleta(f, c, -1);
-			nodoX = new NodoDoble(cMina);
-			conectar(nodoX, true);
-		}
-
-		// se aumenta en uno las casillas alrededor siempre que no sean minas
-		for (int i = f - 1; i <= f + 1; i++) {
-			for (int j = c - 1; j <= c + 1; j++) {
-				try {
-					sumarACasilla(i, j, 1);
-				} catch (IndexOutOfBoundsException e) {
+		for (int i = 0; i < m; i++) {
+			nodoX = nodoFila.getLd();
+			while (nodoX != nodoFila) {
+				tripletaT = (Tripleta) nodoX.getD();
+				int j = tripletaT.getColumna();
+				if (this.indiceDeAperturas != null && this.indiceDeAperturas.getApertura(i, j) >= 0) {
+					this.bloqueos[this.indiceDeAperturas.getApertura(i, j)]++;
 				}
+				if (this.despejador != null) {
+					this.despejador.setBloqueada(i, j, true);
+				}
+				nodoX = nodoX.getLd();
 			}
-		}
 
+			tripletaT = (Tripleta) nodoFila.getD();
+			nodoFila = (NodoDoble) tripletaT.getValor();
+		}
 	}
 
 	/**
-	 * Suma <b>num</b> a la casilla del {@link NodoDoble} con fila y columna
-	 * (<b>i</b>, <b>j</b>). Esto es util para actualizar las casillas vecinas al
-	 * añadir y eliminar minas a conveniencia.
+	 * Asigna en la matriz dispersa las minas de {@link #mapaDeMinas} y los números
+	 * diferentes de 0.
 	 * <p>
-	 * Si la casilla es una mina, se deja intacta. <br>
-	 * Si <b>i</b> o <b>j</b> estan fuera de la matriz, no se hace nada.
+	 * Las casillas diferentes de 0 son las que tienen alguna mina en su ventana de
+	 * 3x3, y se calculan palabra por palabra dilatando {@link #mapaDeMinas}, junto
+	 * con los números de cada fila con {@link ContadorDeVecinos}. Luego se asignan
+	 * todas de una vez con
+	 * {@link MatrizForma1#setPorMascara(MatrizDeBits, ValorPorPosicion)}. Ambos
+	 * pasos se hacen en paralelo por filas.
 	 * <p>
-	 * Este método es utilizado por el método {@link #generarMina()} para actualizar
-	 * las casillas alrededor de una mina creada, y por
-	 * {@link #tocarCasilla(int, int)} para asegurar que la primera casilla que se
-	 * toca no sea una mina.
-	 * 
-	 * @param i         Fila de la casilla.
-	 * @param j         Columna de la casilla.
-	 * @param num Número a sumar a la casilla.
+	 * Si el campo tiene menos de {@link #UMBRAL_PARALELO} casillas, los números se
+	 * calculan fila por fila con {@link ContadorDeVecinos} y se anexan en orden,
+	 * reutilizando los nodos de tableros anteriores.
 	 */
-	private void sumarACasilla(int i, int j, int num) {
-		int m, n;
+	private void materializarNumeros() {
+		int m, n, w;
+		long mascaraFinal;
+		MatrizDeBits noCeros;
+		byte[][] numeros;
+
 		m = getNumFilas();
 		n = getNumColumnas();
 
-		// si (i, j) esta por fuera de la matriz
-		if (i < 0 || m <= i || j < 0 || n <= j) {
+		if (m * n < UMBRAL_PARALELO) {
+			byte[] fila = new byte[n];
+			for (int i = 0; i < m; i++) {
+				ContadorDeVecinos.contarFila(mapaDeMinas, i, fila);
+				for (int j = 0; j < n; j++) {
+					if (mapaDeMinas.get(i, j)) {
+						anexar(i, j, -1);
+					} else if (fila[j] != 0) {
+						anexar(i, j, (int) fila[j]);
+					}
+				}
+			}
 			return;
 		}
 
-		NodoDoble nodoX;
-		Tripleta casillaX;
-		nodoX = getNodo(i, j);
+		noCeros = new MatrizDeBits(m, n);
+		numeros = new byte[m][n];
+		w = noCeros.getPalabrasPorFila();
+		mascaraFinal = noCeros.getMascaraFinal();
+
+		IntStream.range(0, m).parallel().forEach(i -> {
+			for (int k = 0; k < w; k++) {
+				long palabra = CampoDeMinasBits.dilatar(mapaDeMinas, i, k);
+				noCeros.setPalabra(i, k, k == w - 1 ? palabra & mascaraFinal : palabra);
+			}
+			ContadorDeVecinos.contarFila(mapaDeMinas, i, numeros[i]);
+		});
+
+		setPorMascara(noCeros, (i, j) -> mapaDeMinas.get(i, j) ? -1 : (int) numeros[i][j]);
+	}
+
+	/**
+	 * Calcula las métricas de dificultad del campo de minas (3BV, aperturas e
+	 * islas) a partir de {@link #mapaDeMinas}.
+	 * 
+	 * @return {@link MetricasDeTablero}, o <code>null</code> si las minas aún no se
+	 *         han generado.
+	 */
+	public MetricasDeTablero getMetricas() {
+		// si se reinicia sin haber jugado, yaCreado es true pero no hay minas
+		if (mapaDeMinas == null || (!yaCreado && primerDespeje == null)) {
+			return null;
+		}
+		return MetricasDeTablero.calcular(mapaDeMinas);
+	}
+
+	/**
+	 * Comprueba que los números de la matriz dispersa correspondan a las minas de
+	 * {@link #mapaDeMinas}, recorriendo cada fila de la matriz una sola vez y
+	 * comparándola con los números calculados por {@link ContadorDeVecinos}.
+	 * <p>
+	 * Solo aplica si los números están {@link ModoDeNumeros#materializados}, en
+	 * los otros modos los números siempre se calculan de las minas.
+	 * 
+	 * @return <code>true</code> si la matriz dispersa contiene exactamente las
+	 *         minas y los números diferentes de 0 del campo de minas.
+	 */
+	public boolean numerosValidos() {
+		int m, n, v;
+		byte[] fila;
+		NodoDoble nodoFila, nodoX;
+		Tripleta tripletaT;
+
+		if (mapaDeMinas == null || modoDeNumeros != ModoDeNumeros.materializados) {
+			return true;
+		}
+
+		m = getNumFilas();
+		n = getNumColumnas();
+		fila = new byte[n];
+		nodoFila = getPrimerNodo();
+
+		for (int i = 0; i < m; i++) {
+			ContadorDeVecinos.contarFila(mapaDeMinas, i, fila);
+			nodoX = nodoFila.getLd();
+
+			for (int j = 0; j < n; j++) {
+				v = mapaDeMinas.get(i, j) ? -1 : fila[j];
+				if (v == 0) {
+					continue;
+				}
 
-		// Si no existe el nodo con posición (i,j) se crea uno y se aumenta a 1 su valor
-		if (nodoX == null) {
-			casillaX = new Tripleta(i, j, 1);
-			nodoX = new NodoDoble(casillaX);
-			conectar(nodoX, false);
-		} else { // si ya existe
+				// el siguiente nodo de la fila debe ser esta casilla, con este valor
+				if (nodoX == nodoFila) {
+					return false;
+				}
+				tripletaT = (Tripleta) nodoX.getD();
+				if (tripletaT.getColumna() != j || !tripletaT.getValor().equals(v)) {
+					return false;
+				}
+				nodoX = nodoX.getLd();
+			}
 
-			casillaX = (Tripleta) nodoX.getD();
+			// no deben quedar nodos en la fila
+			if (nodoX != nodoFila) {
+				return false;
+			}
 
-			// si no es una mina se aumenta su valor
-			if (!casillaX.getValor().equals(-1)) {
-				casillaX.setValor((int) casillaX.getValor() + 1);
-			} // else: es mina, por lo tanto se deja intacta
+			tripletaT = (Tripleta) nodoFila.getD();
+			nodoFila = (NodoDoble) tripletaT.getValor();
 		}
+		return true;
 	}
 
 	/**
@@ -263,7 +772,7 @@ public class CampoDeMinas extends MatrizForma1 {
 	 *                                   de la matriz.
 	 */
 	public void tocarCasilla(int i, int j) throws IndexOutOfBoundsException {
-		int m, n, marcadas, v;
+		int m, n;
 		m = getNumFilas();
 		n = getNumColumnas();
 
@@ -277,33 +786,34 @@ public class CampoDeMinas extends MatrizForma1 {
 			return;
 		}
 
-		v = (int) get(i, j);
+		if (this.cambios != null) {
+			this.cambios.limpiar();
+		}
+		tocar(i, j);
+		publicarCambios();
+	}
+
+	/**
+	 * Despeja la casilla (<b>i</b>, <b>j</b>) si está oculta, o sus vecinos si
+	 * está descubierta y tiene suficientes marcas alrededor. No verifica el rango
+	 * ni el estado del juego, ni publica los cambios.
+	 * 
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 */
+	private void tocar(int i, int j) {
+		int n, v;
+		n = getNumColumnas();
+
+		v = valorDeCasilla(i, j);
 
 		EstadoDeCasilla estado = getEstadoDeCasilla(i, j);
 		switch (estado) {
 		case descubierta:
 
-			// si es cero no se hace nada
-			if (v == 0) {
-				return;
-			}
-
-			marcadas = 0;
-
-			// se cuentan las minas marcadas y las casilla ocultas alrededor de esta
-			for (int ii = i - 1; ii <= i + 1; ii++) {
-				for (int jj = j - 1; jj <= j + 1; jj++) {
-					try {
-						if (esPosibleMina(ii, jj)) {
-							marcadas++;
-						}
-					} catch (IndexOutOfBoundsException e) {
-					}
-				}
-			}
-
-			// si las minas marcadas son mayores o iguales al número
-			if (marcadas >= v) {
+			// si es cero no se hace nada, si las minas marcadas alrededor son mayores o
+			// iguales al número se despejan los vecinos
+			if (v != 0 && marcasVecinas != null && marcasVecinas[i * n + j] >= v) {
 				despejarVecinos(i, j);
 			}
 
@@ -354,74 +864,516 @@ public class CampoDeMinas extends MatrizForma1 {
 		}
 
 		if (!esCasillaDescubierta(i, j)) {
-			if (esPosibleMina(i, j)) {
-				setEstadoDeCasilla(i, j, EstadoDeCasilla.oculta);
-				this.posiblesMinas--;
-			} else {
-				setEstadoDeCasilla(i, j, EstadoDeCasilla.posibleMina);
-				this.posiblesMinas++;
+			if (this.cambios != null) {
+				this.cambios.limpiar();
 			}
+			marcar(i, j);
+			publicarCambios();
 		}
 	}
 
 	/**
-	 * Despeja la casilla ubicada en la posición (<b>i</b>, <b>j</b>) en el campo de
-	 * minas, siempre que este oculta.
-	 * <p>
-	 * Si <b>i</b> o <b>j</b> están por fuera de rango ocurrirá una excepción.
+	 * Marca o desmarca como posible mina la casilla (<b>i</b>, <b>j</b>) si no
+	 * está descubierta. No verifica el rango ni el estado del juego, ni publica
+	 * los cambios.
 	 * 
-	 * @param i Fila de la casilla a despejar.
-	 * @param j Columna de la casilla a despejar.
-	 * @throws IndexOutOfBoundsException Si (<b>i</b>, <b>j</b>) están por fuera de
-	 *                                   la matriz.
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
 	 */
-	private void despejarCasilla(int i, int j) throws IndexOutOfBoundsException {
-		int m = getNumFilas();
-		int n = getNumColumnas();
-
-		// si (i, j) esta por fuera de la matriz
-		if (i < 0 || m <= i || j < 0 || n <= j) {
-			throw new IndexOutOfBoundsException();
+	private void marcar(int i, int j) {
+		if (esPosibleMina(i, j)) {
+			setEstadoDeCasilla(i, j, EstadoDeCasilla.oculta);
+		} else if (!esCasillaDescubierta(i, j)) {
+			setEstadoDeCasilla(i, j, EstadoDeCasilla.posibleMina);
 		}
+	}
 
-		// si esta marcada como posible mina o esta descubierta
-		if (esPosibleMina(i, j) || esCasillaDescubierta(i, j)) {
-			return;
+	/**
+	 * Aplica en orden un lote de jugadas, como si se llamara
+	 * {@link #tocarCasilla(int, int)} o {@link #posibleMina(int, int)} con cada
+	 * una, pero verificando el rango de todas antes de aplicar la primera.
+	 * <p>
+	 * La jugada <b>k</b> ocupa las posiciones <code>3k</code>, <code>3k + 1</code>
+	 * y <code>3k + 2</code> de <b>jugadas</b>: su código ({@link #TOCAR} o
+	 * {@link #MARCAR}), su fila y su columna. El lote se detiene en la jugada que
+	 * termina el juego, y las siguientes no se aplican.
+	 * <p>
+	 * Si hay {@link #observador}, recibe una sola vez los cambios de todo el lote,
+	 * en el orden en que ocurrieron (una casilla puede aparecer más de una vez).
+	 * 
+	 * @param jugadas    Jugadas empaquetadas de a tres enteros.
+	 * @param resultados Arreglo en el que se guarda el ordinal del
+	 *                   {@link ResultadoDeJugada} de cada jugada aplicada, o
+	 *                   <code>null</code> si no se necesitan.
+	 * @return Número de jugadas aplicadas.
+	 * @throws IndexOutOfBoundsException Si alguna jugada está por fuera del campo
+	 *                                   de minas.
+	 * @throws IllegalArgumentException  Si alguna jugada tiene un código
+	 *                                   desconocido, si el tamaño de
+	 *                                   <b>jugadas</b> no es múltiplo de 3, o si
+	 *                                   <b>resultados</b> tiene menos posiciones
+	 *                                   que jugadas.
+	 */
+	public int jugar(int[] jugadas, byte[] resultados) throws IndexOutOfBoundsException, IllegalArgumentException {
+		int m, n, total, aplicadas;
+
+		m = getNumFilas();
+		n = getNumColumnas();
+
+		if (jugadas.length % 3 != 0) {
+			throw new IllegalArgumentException();
+		}
+		total = jugadas.length / 3;
+		if (resultados != null && resultados.length < total) {
+			throw new IllegalArgumentException();
+		}
+
+		// se verifican todas las jugadas antes de aplicar alguna
+		for (int k = 0; k < jugadas.length; k += 3) {
+			int i = jugadas[k + 1];
+			int j = jugadas[k + 2];
+
+			// si (i, j) esta por fuera de la matriz
+			if (i < 0 || m <= i || j < 0 || n <= j) {
+				throw new IndexOutOfBoundsException();
+			}
+			if (jugadas[k] != TOCAR && jugadas[k] != MARCAR) {
+				throw new IllegalArgumentException();
+			}
 		}
 
 		// si ya se terminó el juego o no se ha iniciado
 		if (getEstado() != Estado.iniciado) {
+			return 0;
+		}
+
+		if (this.cambios != null) {
+			this.cambios.limpiar();
+		}
+
+		aplicadas = 0;
+		while (aplicadas < total && getEstado() == Estado.iniciado) {
+			int k = 3 * aplicadas;
+			int descubiertas = this.casillasDescubiertas;
+			int marcadas = this.posiblesMinas;
+
+			if (jugadas[k] == TOCAR) {
+				tocar(jugadas[k + 1], jugadas[k + 2]);
+			} else {
+				marcar(jugadas[k + 1], jugadas[k + 2]);
+			}
+
+			// toda jugada que cambia alguna casilla cambia alguno de los contadores
+			if (resultados != null) {
+				ResultadoDeJugada resultado;
+				if (getEstado() == Estado.perdido) {
+					resultado = ResultadoDeJugada.perdido;
+				} else if (getEstado() == Estado.ganado) {
+					resultado = ResultadoDeJugada.ganado;
+				} else if (descubiertas != this.casillasDescubiertas || marcadas != this.posiblesMinas) {
+					resultado = ResultadoDeJugada.conCambios;
+				} else {
+					resultado = ResultadoDeJugada.sinCambios;
+				}
+				resultados[aplicadas] = (byte) resultado.ordinal();
+			}
+			aplicadas++;
+		}
+
+		publicarCambios();
+		return aplicadas;
+	}
+
+	/**
+	 * Devuelve el {@link ResultadoDeJugada} guardado por
+	 * {@link #jugar(int[], byte[])} como su ordinal.
+	 * 
+	 * @param ordinal Ordinal del resultado.
+	 * @return {@link ResultadoDeJugada}.
+	 */
+	public static ResultadoDeJugada getResultado(byte ordinal) {
+		return RESULTADOS[ordinal];
+	}
+
+	/**
+	 * Si algo cambió en la jugada, publica la siguiente {@link #vista} y entrega
+	 * los {@link #cambios} al {@link #observador}, si los hay.
+	 */
+	private void publicarCambios() {
+
+		// si no se registran cambios o no cambió nada
+		if (this.cambios == null || (this.cambios.getTamano() == 0 && !this.cambios.esCompleto())) {
 			return;
 		}
+		if (this.vista != null) {
+			this.vista = this.vista.siguiente(this.cambios, this);
+		}
+		if (this.observador != null) {
+			this.observador.casillasCambiadas(this.cambios);
+		}
+		if (this.eventos != null) {
+			if (this.eventos.hasSubscribers()) {
+				publicarEventos();
+			}
+			this.numCascadas = 0;
+		}
+	}
 
-		// se añade esta posición como descubierta a el estado de la casilla
-		setEstadoDeCasilla(i, j, EstadoDeCasilla.descubierta);
+	/**
+	 * Publica los {@link #eventos} de la jugada a partir de los {@link #cambios} y
+	 * las {@link #cascadas}: el inicio de cada cascada, todas las casillas
+	 * descubiertas en un solo evento, el final de cada cascada, cada marca, y por
+	 * último si se ganó o perdió el juego.
+	 * <p>
+	 * Los eventos se ofrecen sin esperar a los suscriptores, por lo que si el
+	 * buffer de un suscriptor está lleno, el evento se descarta para ese
+	 * suscriptor y se cuenta en {@link #eventosDescartados}. Las casillas
+	 * descubiertas que se descartan no se pierden: el {@link SuscriptorDeEventos}
+	 * las entrega con su siguiente evento de casillas descubiertas. Los finales de
+	 * cascada, los del juego y las casillas descubiertas en la última jugada se
+	 * ofrecen esperando hasta {@link #ESPERA_DE_EVENTOS} milisegundos.
+	 */
+	private void publicarEventos() {
+		int n = getNumColumnas();
+		boolean terminado = getEstado() == Estado.ganado || getEstado() == Estado.perdido;
+		EventoDeJuego descubiertas;
+
+		for (int k = 0; k < numCascadas; k += 2) {
+			ofrecer(EventoDeJuego.deCasilla(EventoDeJuego.Tipo.cascadaIniciada, n, cascadas[k] / n,
+					cascadas[k] % n, EstadoDeCasilla.descubierta, 0));
+		}
+
+		descubiertas = EventoDeJuego.descubiertas(this.cambios, n);
+		if (descubiertas != null) {
+			ofrecer(descubiertas, terminado);
+		}
+
+		for (int k = 0; k < numCascadas; k += 2) {
+			ofrecer(EventoDeJuego.deCasilla(EventoDeJuego.Tipo.cascadaTerminada, n, cascadas[k] / n,
+					cascadas[k] % n, EstadoDeCasilla.descubierta, cascadas[k + 1]), true);
+		}
+
+		for (int k = 0; k < this.cambios.getTamano(); k++) {
+			if (this.cambios.getEstado(k) != EstadoDeCasilla.descubierta) {
+				ofrecer(EventoDeJuego.deCasilla(EventoDeJuego.Tipo.marcaCambiada, n, this.cambios.getFila(k),
+						this.cambios.getColumna(k), this.cambios.getEstado(k), 0));
+			}
+		}
+
+		if (getEstado() == Estado.ganado) {
+			ofrecer(EventoDeJuego.sinCasillas(EventoDeJuego.Tipo.juegoGanado), true);
+		} else if (getEstado() == Estado.perdido) {
+			ofrecer(EventoDeJuego.sinCasillas(EventoDeJuego.Tipo.juegoPerdido), true);
+		}
+	}
+
+	/**
+	 * Ofrece un evento a los suscriptores de {@link #eventos} sin esperar.
+	 * 
+	 * @param evento Evento a publicar.
+	 */
+	private void ofrecer(EventoDeJuego evento) {
+		ofrecer(evento, false);
+	}
+
+	/**
+	 * Ofrece un evento a los suscriptores de {@link #eventos}. Si un suscriptor
+	 * tiene el buffer lleno, las casillas descubiertas se le guardan para el
+	 * siguiente evento de casillas descubiertas, y los demás eventos se descartan.
+	 * 
+	 * @param evento  Evento a publicar.
+	 * @param esperar Si se espera hasta {@link #ESPERA_DE_EVENTOS} milisegundos a
+	 *                que haya espacio en el buffer.
+	 */
+	private void ofrecer(EventoDeJuego evento, boolean esperar) {
+		BiPredicate<Flow.Subscriber<? super EventoDeJuego>, ? super EventoDeJuego> alDescartar = (suscriptor,
+				descartado) -> {
+			if (descartado.getTipo() == EventoDeJuego.Tipo.casillasDescubiertas
+					&& suscriptor instanceof SuscriptorDeEventos) {
+				((SuscriptorDeEventos) suscriptor).descartar(descartado);
+			} else {
+				this.eventosDescartados.increment();
+			}
+			return false;
+		};
+
+		if (esperar) {
+			this.eventos.offer(evento, ESPERA_DE_EVENTOS, TimeUnit.MILLISECONDS, alDescartar);
+		} else {
+			this.eventos.offer(evento, alDescartar);
+		}
+	}
+
+	/**
+	 * Despeja la casilla ubicada en la posición (<b>i</b>, <b>j</b>) en el campo de
+	 * minas, siempre que este oculta.
+	 * <p>
+	 * Si <b>i</b> o <b>j</b> están por fuera de rango ocurrirá una excepción.
+	 * 
+	 * @param i Fila de la casilla a despejar.
+	 * @param j Columna de la casilla a despejar.
+	 * @throws IndexOutOfBoundsException Si (<b>i</b>, <b>j</b>) están por fuera de
+	 *                                   la matriz.
+	 */
+	private void despejarCasilla(int i, int j) throws IndexOutOfBoundsException {
+		int m = getNumFilas();
+		int n = getNumColumnas();
+
+		// si (i, j) esta por fuera de la matriz
+		if (i < 0 || m <= i || j < 0 || n <= j) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		// si esta marcada como posible mina o esta descubierta
+		if (esPosibleMina(i, j) || esCasillaDescubierta(i, j)) {
+			return;
+		}
 
-		// si existe una casilla en la posición (i,j)
-		NodoDoble nodoX = getNodo(i, j);
-		if (nodoX != null) {
+		// si ya se terminó el juego o no se ha iniciado
+		if (getEstado() != Estado.iniciado) {
+			return;
+		}
 
-			// si es una mina
-			Tripleta cX = (Tripleta) nodoX.getD();
-			if (cX.getValor().equals(-1)) {
+		int v = valorDeCasilla(i, j);
+		if (v == -1) { // es una mina
 
-				// si no se ha ganado aún, se establece el estado como perdido.
-				if (getEstado() == Estado.iniciado) {
-					setEstado(Estado.perdido);
-					estadoDeCasillas = new MatrizForma1(m, n, EstadoDeCasilla.descubierta);
-					return;
+			// se añade esta posición como descubierta a el estado de la casilla
+			setEstadoDeCasilla(i, j, EstadoDeCasilla.descubierta);
+
+			// si no se ha ganado aún, se establece el estado como perdido.
+			if (getEstado() == Estado.iniciado) {
+				terminar(Estado.perdido);
+				return;
+			}
+		} else if (v == 0) { // es cero
+
+			int antes = this.casillasDescubiertas;
+			despejarCeros(i, j);
+
+			// se registra la cascada para los eventos
+			if (this.eventos != null) {
+				if (numCascadas == cascadas.length) {
+					cascadas = Arrays.copyOf(cascadas, 2 * numCascadas);
 				}
+				cascadas[numCascadas++] = i * n + j;
+				cascadas[numCascadas++] = this.casillasDescubiertas - antes;
 			}
-		} else { // es cero
+		} else {
 
-			despejarVecinos(i, j);
+			descubrir(i, j, v);
 		}
 
 		// si las casillas descubiertas son iguales a las casillas sin minas, se procede
 		// a ganar
-		if (estadoDeCasillas.getNumElementos() - this.posiblesMinas == m * n - minas) {
-			setEstado(Estado.ganado);
-			estadoDeCasillas = new MatrizForma1(m, n, EstadoDeCasilla.descubierta);
+		if (this.casillasDescubiertas == m * n - minas) {
+			terminar(Estado.ganado);
+		}
+	}
+
+	/**
+	 * Descubre la casilla oculta (<b>i</b>, <b>j</b>), que no es una mina, y guarda
+	 * su número si los números están {@link ModoDeNumeros#memorizados}.
+	 * 
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @param v Valor de la casilla.
+	 */
+	private void descubrir(int i, int j, int v) {
+		setEstadoDeCasilla(i, j, EstadoDeCasilla.descubierta);
+
+		// se guarda el número de la casilla descubierta
+		if (v != 0 && modoDeNumeros == ModoDeNumeros.memorizados) {
+			super.set(i, j, v);
+		}
+	}
+
+	/**
+	 * Despeja el 0 oculto en la posición (<b>i</b>, <b>j</b>) junto con toda la
+	 * región que se abre a partir de él.
+	 * <p>
+	 * Si la apertura del 0 no tiene {@link #bloqueos}, se descubren directamente
+	 * las casillas guardadas en el {@link #indiceDeAperturas}, sin calcular la
+	 * cascada. De lo contrario (o si no hay índice) la región se recorre con una
+	 * pila de casillas pendientes, deteniéndose en las casillas marcadas como
+	 * posibles minas o ya descubiertas.
+	 * <p>
+	 * Si hay {@link #despejador} y la apertura es grande, la región se calcula en
+	 * paralelo y se descubre de una vez. Si no hay índice para saber el tamaño de
+	 * la apertura, se empieza con la pila, y solo cuando ya se descubrieron
+	 * {@link #CASCADA_SECUENCIAL} casillas los ceros ocultos que faltan se despejan
+	 * en paralelo; así las cascadas pequeñas no hacen trabajo proporcional a todo el
+	 * campo.
+	 * 
+	 * @param i Fila del 0.
+	 * @param j Columna del 0.
+	 */
+	private void despejarCeros(int i, int j) {
+		int m, n, r, tope, descubiertas;
+		int[] pila;
+
+		m = getNumFilas();
+		n = getNumColumnas();
+
+		// si la apertura es grande se despeja en paralelo
+		if (despejador != null && indiceDeAperturas != null
+				&& indiceDeAperturas.getTamano(indiceDeAperturas.getApertura(i, j)) >= UMBRAL_PARALELO) {
+			despejarEnParalelo(i, j);
+			return;
+		}
+
+		// si la apertura está intacta, se descubre toda desde el índice
+		if (indiceDeAperturas != null) {
+			r = indiceDeAperturas.getApertura(i, j);
+			if (bloqueos[r] == 0) {
+				int inicio = indiceDeAperturas.getInicio(r);
+				int fin = inicio + indiceDeAperturas.getTamano(r);
+				for (int k = inicio; k < fin; k++) {
+					int c = indiceDeAperturas.getCasilla(k);
+					int ii = c / n;
+					int jj = c % n;
+
+					// los ceros de la apertura están ocultos, pero su borde puede estar marcado
+					// o descubierto
+					if (getEstadoDeCasilla(ii, jj) == EstadoDeCasilla.oculta) {
+						descubrir(ii, jj, k - inicio < indiceDeAperturas.getNumCeros(r) ? 0 : valorDeCasilla(ii, jj));
+					}
+				}
+				return;
+			}
+		}
+
+		// se recorre la región, la pila guarda los ceros descubiertos cuyos vecinos
+		// faltan por despejar
+		pila = new int[16];
+		tope = 0;
+		descubiertas = 1;
+		descubrir(i, j, 0);
+		pila[tope++] = i * n + j;
+
+		while (tope > 0) {
+			int c = pila[--tope];
+			int fila = c / n;
+			int columna = c % n;
+
+			for (int ii = Vecindario.desde(fila); ii <= Vecindario.hasta(fila, m); ii++) {
+				for (int jj = Vecindario.desde(columna); jj <= Vecindario.hasta(columna, n); jj++) {
+
+					// si esta marcada como posible mina o esta descubierta
+					if (getEstadoDeCasilla(ii, jj) != EstadoDeCasilla.oculta) {
+						continue;
+					}
+
+					// los vecinos de un 0 nunca son minas
+					int v = valorDeCasilla(ii, jj);
+
+					// si la cascada ya es grande, el resto de la región de este 0 se despeja en
+					// paralelo
+					if (v == 0 && despejador != null && descubiertas >= CASCADA_SECUENCIAL) {
+						despejarEnParalelo(ii, jj);
+						continue;
+					}
+
+					descubrir(ii, jj, v);
+					descubiertas++;
+					if (v == 0) {
+						if (tope == pila.length) {
+							pila = Arrays.copyOf(pila, 2 * tope);
+						}
+						pila[tope++] = ii * n + jj;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Despeja con el {@link #despejador} el 0 oculto en la posición (<b>i</b>,
+	 * <b>j</b>), y descubre de una vez todas las casillas de la región en
+	 * {@link #estadoDeCasillas} con
+	 * {@link MatrizForma1#setPorMascara(MatrizDeBits, int, int, int, int, ValorPorPosicion)}.
+	 * Solo se recorren las teselas que revisó el despejador, de modo que el trabajo
+	 * es proporcional a la región y no a todo el campo.
+	 * 
+	 * @param i Fila del 0.
+	 * @param j Columna del 0.
+	 */
+	private void despejarEnParalelo(int i, int j) {
+		int n, filaDesde, filaHasta, palabraDesde, palabraHasta;
+		int[] teselas;
+		MatrizDeBits nuevas;
+
+		this.casillasDescubiertas += despejador.despejar(i, j);
+		nuevas = despejador.getNuevas();
+		teselas = despejador.getTeselasConNuevas();
+
+		// la región queda dentro del rectángulo que cubre las teselas revisadas
+		filaDesde = getNumFilas();
+		filaHasta = 0;
+		palabraDesde = nuevas.getPalabrasPorFila();
+		palabraHasta = 0;
+		for (int t : teselas) {
+			filaDesde = Math.min(filaDesde, despejador.getFilaInicial(t));
+			filaHasta = Math.max(filaHasta, despejador.getFilaFinal(t));
+			palabraDesde = Math.min(palabraDesde, despejador.getPalabraInicial(t));
+			palabraHasta = Math.max(palabraHasta, despejador.getPalabraFinal(t));
+		}
+		this.estadoDeCasillas.setPorMascara(nuevas, filaDesde, filaHasta, palabraDesde, palabraHasta,
+				(ii, jj) -> EstadoDeCasilla.descubierta);
+
+		// todos los ceros descubiertos son de la apertura de (i, j)
+		if (indiceDeAperturas != null) {
+			this.bloqueos[indiceDeAperturas.getApertura(i, j)] += despejador.getCerosDespejados();
+		}
+
+		// se actualiza el hash, se guardan los números descubiertos y se registran los
+		// cambios
+		n = getNumColumnas();
+		for (int t : teselas) {
+			for (int ii = despejador.getFilaInicial(t); ii < despejador.getFilaFinal(t); ii++) {
+				for (int k = despejador.getPalabraInicial(t); k < despejador.getPalabraFinal(t); k++) {
+					long palabra = nuevas.getPalabra(ii, k);
+					while (palabra != 0) {
+						int jj = k * Long.SIZE + Long.numberOfTrailingZeros(palabra);
+						palabra &= palabra - 1;
+
+						int v = valorDeCasilla(ii, jj);
+						this.hash ^= claveZobrist(ii * n + jj, EstadoDeCasilla.descubierta, v);
+						if (v != 0 && modoDeNumeros == ModoDeNumeros.memorizados) {
+							super.set(ii, jj, v);
+						}
+						if (this.cambios != null) {
+							this.cambios.agregar(ii, jj, EstadoDeCasilla.descubierta, v);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Termina el juego estableciendo el <b>estado</b> entregado y descubriendo
+	 * todas las casillas del campo de minas. Los contadores de casillas se
+	 * actualizan de acuerdo a esto.
+	 * 
+	 * @param estado {@link Estado#ganado} o {@link Estado#perdido}.
+	 */
+	private void terminar(Estado estado) {
+		int m, n;
+		m = getNumFilas();
+		n = getNumColumnas();
+
+		setEstado(estado);
+		if (this.estadoTerminado == null) {
+			this.estadoTerminado = new MatrizForma1(m, n, EstadoDeCasilla.descubierta);
+		}
+		this.estadoDeCasillas = this.estadoTerminado;
+		if (this.cambios != null) {
+			this.cambios.setCompleto();
+		}
+		this.casillasDescubiertas = m * n;
+		this.posiblesMinas = 0;
+		if (this.marcasVecinas != null) {
+			Arrays.fill(this.marcasVecinas, (byte) 0);
 		}
 	}
 
@@ -436,14 +1388,13 @@ public class CampoDeMinas extends MatrizForma1 {
 	 * @param j Columna de la casilla alrededor de la cual se despeja.
 	 */
 	private void despejarVecinos(int i, int j) {
+		int m = getNumFilas();
+		int n = getNumColumnas();
 
 		// se despejan las casillas alrededor de esta
-		for (int ii = i - 1; ii <= i + 1; ii++) {
-			for (int jj = j - 1; jj <= j + 1; jj++) {
-				try {
-					despejarCasilla(ii, jj);
-				} catch (IndexOutOfBoundsException e) {
-				}
+		for (int ii = Vecindario.desde(i); ii <= Vecindario.hasta(i, m); ii++) {
+			for (int jj = Vecindario.desde(j); jj <= Vecindario.hasta(j, n); jj++) {
+				despejarCasilla(ii, jj);
 			}
 		}
 	}
@@ -455,6 +1406,9 @@ public class CampoDeMinas extends MatrizForma1 {
 	public void iniciar() {
 		if (getEstado() == Estado.noIniciado) {
 			setEstado(Estado.iniciado);
+			if (this.vista != null) {
+				this.vista = this.vista.conEstado(this);
+			}
 		}
 	}
 
@@ -463,16 +1417,118 @@ public class CampoDeMinas extends MatrizForma1 {
 	 * {@link Estado#noIniciado}. También reinicia las {@link #posiblesMinas}.
 	 */
 	public void reiniciar() {
-		int m, n;
-		m = getNumFilas();
-		n = getNumColumnas();
+		reiniciar(false);
+	}
 
-		this.estadoDeCasillas = new MatrizForma1(m, n, EstadoDeCasilla.oculta);
+	/**
+	 * Oculta todas las casillas nuevamente y establece el estado como
+	 * {@link Estado#noIniciado}, reutilizando las matrices del campo de minas en
+	 * vez de crear nuevas.
+	 * <p>
+	 * Si <b>nuevoTablero</b> es <code>true</code>, también se eliminan las minas,
+	 * y se generan otras al despejar la primera casilla, con una semilla nueva
+	 * derivada de la anterior (por lo que la secuencia de tableros sigue siendo
+	 * reproducible si la semilla se entregó al crear el campo, pues entonces no se
+	 * usa el {@link #preGenerador}). El {@link #indiceDeAperturas} y el {@link #despejador} se
+	 * conservan, y se recalculan con las minas nuevas al generarlas.
+	 * 
+	 * @param nuevoTablero <code>true</code> para generar un nuevo tablero,
+	 *                     <code>false</code> para volver a jugar el mismo.
+	 */
+	public void reiniciar(boolean nuevoTablero) {
+		this.estadoEnJuego.limpiar();
+		this.estadoDeCasillas = this.estadoEnJuego;
 		setEstado(Estado.noIniciado);
 		this.posiblesMinas = 0;
+		this.casillasDescubiertas = 0;
+		this.hash = 0L;
+		if (this.marcasVecinas != null) {
+			Arrays.fill(this.marcasVecinas, (byte) 0);
+		}
+		if (this.bloqueos != null) {
+			Arrays.fill(this.bloqueos, 0);
+		}
+		if (this.despejador != null) {
+			this.despejador.limpiar();
+		}
 		this.primerDespeje = null;
-		;
 		this.yaCreado = true;
+
+		if (nuevoTablero) {
+			limpiar();
+			if (this.mapaDeMinas != null) {
+				this.mapaDeMinas.limpiar();
+			}
+			this.hashTerminado = 0L;
+			this.semilla = GeneradorDeMinas.siguienteSemilla(this.semilla);
+			this.semillaSinExclusion = false;
+			this.tableroInicial = null;
+			this.yaCreado = false;
+		}
+		if (this.vista != null) {
+			this.vista = VistaDeCampo.inicial(this, this.vista.getVersion() + 1);
+		}
+	}
+
+	/**
+	 * Devuelve el valor de la casilla en la posición (<b>i</b>, <b>j</b>),
+	 * calculándolo a partir de {@link #mapaDeMinas}, por lo que no es necesario
+	 * recorrer la matriz dispersa. Si aún no se ha generado el campo de minas,
+	 * todas las casillas valen 0.
+	 * 
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return <b>-1</b> si la casilla es una mina, de lo contrario el número de
+	 *         minas alrededor de la casilla.
+	 */
+	private int valorDeCasilla(int i, int j) {
+		if (mapaDeMinas == null) {
+			return 0;
+		}
+		if (mapaDeMinas.get(i, j)) {
+			return -1;
+		}
+		return mapaDeMinas.contarVecinos(i, j);
+	}
+
+	/**
+	 * Devuelve el valor de la casilla en la posición (<b>i</b>, <b>j</b>): <b>-1</b>
+	 * si es una mina, de lo contrario el número de minas alrededor.
+	 * <p>
+	 * Si los números están {@link ModoDeNumeros#materializados} se buscan en la
+	 * matriz dispersa. Si están {@link ModoDeNumeros#memorizados}, se buscan en la
+	 * matriz dispersa los de las casillas ya descubiertas, y los demás se calculan
+	 * a partir de {@link #mapaDeMinas}, igual que si son
+	 * {@link ModoDeNumeros#perezosos}.
+	 * 
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return Valor de la casilla.
+	 */
+	@Override
+	public Object get(int i, int j) {
+		if (modoDeNumeros == ModoDeNumeros.materializados) {
+			return super.get(i, j);
+		}
+
+		// solo se guardan los números diferentes de 0 de las casillas descubiertas,
+		// por lo que un 0 en la matriz dispersa se calcula
+		if (modoDeNumeros == ModoDeNumeros.memorizados) {
+			Object valor = super.get(i, j);
+			if (((Number) valor).intValue() != 0) {
+				return valor;
+			}
+		}
+
+		int m = getNumFilas();
+		int n = getNumColumnas();
+
+		// si (i, j) esta por fuera de la matriz
+		if (i < 0 || m <= i || j < 0 || n <= j) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		return valorDeCasilla(i, j);
 	}
 
 	/**
@@ -512,6 +1568,228 @@ public class CampoDeMinas extends MatrizForma1 {
 		return this.posiblesMinas;
 	}
 
+	/**
+	 * Devuelve el número de casillas descubiertas.
+	 * 
+	 * @return {@link #casillasDescubiertas}.
+	 */
+	public int getCasillasDescubiertas() {
+		return this.casillasDescubiertas;
+	}
+
+	/**
+	 * Devuelve el número de casillas ocultas, sin contar las marcadas como
+	 * posibles minas.
+	 * 
+	 * @return Número de casillas ocultas.
+	 */
+	public int getCasillasOcultas() {
+		return getNumFilas() * getNumColumnas() - this.casillasDescubiertas - this.posiblesMinas;
+	}
+
+	/**
+	 * Establece si la primera casilla despejada debe abrir un área del campo, o
+	 * sea, si al generar el campo de minas también se excluyen sus vecinos. Solo
+	 * tiene efecto si se llama antes de despejar la primera casilla.
+	 * 
+	 * @param aperturaGarantizada <code>true</code> para excluir también los
+	 *                            vecinos de la primera casilla despejada.
+	 */
+	public void setAperturaGarantizada(boolean aperturaGarantizada) {
+		this.aperturaGarantizada = aperturaGarantizada;
+	}
+
+	/**
+	 * Establece cómo se guardan los números del campo de minas. Solo tiene efecto
+	 * si se llama antes de despejar la primera casilla.
+	 * 
+	 * @param modoDeNumeros {@link ModoDeNumeros} a usar.
+	 */
+	public void setModoDeNumeros(ModoDeNumeros modoDeNumeros) {
+		this.modoDeNumeros = modoDeNumeros;
+	}
+
+	/**
+	 * Establece si al generar el campo de minas se calculan sus aperturas. Solo
+	 * tiene efecto si se llama antes de despejar la primera casilla.
+	 * <p>
+	 * Por defecto no se calculan. Conviene calcularlas cuando se juegan muchas
+	 * partidas sobre el mismo tablero o se despejan aperturas muy grandes, pues la
+	 * primera jugada tarda más pero cada apertura intacta se descubre sin recorrer
+	 * la región.
+	 * 
+	 * @param usarIndiceDeAperturas <code>true</code> para calcular las aperturas.
+	 * 
+	 * @see IndiceDeAperturas
+	 */
+	public void setIndiceDeAperturas(boolean usarIndiceDeAperturas) {
+		this.usarIndiceDeAperturas = usarIndiceDeAperturas;
+	}
+
+	/**
+	 * Establece si las aperturas grandes se despejan en paralelo, en el
+	 * {@link ForkJoinPool#commonPool()}. Solo tiene efecto si se llama antes de
+	 * despejar la primera casilla.
+	 * 
+	 * @param despejeParalelo <code>true</code> para despejar en paralelo.
+	 * 
+	 * @see DespejeParalelo
+	 */
+	public void setDespejeParalelo(boolean despejeParalelo) {
+		this.despejeParalelo = despejeParalelo;
+	}
+
+	/**
+	 * Establece el {@link ObservadorDeCambios} que recibe, después de cada
+	 * {@link #tocarCasilla(int, int)} o {@link #posibleMina(int, int)}, las
+	 * casillas que cambiaron con su nuevo estado y su valor.
+	 * 
+	 * @param observador {@link ObservadorDeCambios}, o <code>null</code> para dejar
+	 *                   de registrar los cambios.
+	 */
+	public void setObservadorDeCambios(ObservadorDeCambios observador) {
+		this.observador = observador;
+		registrarCambios();
+	}
+
+	/**
+	 * Establece si después de cada jugada se publica una {@link VistaDeCampo}
+	 * inmutable del campo de minas, que otros hilos pueden consultar con
+	 * {@link #getVista()} sin detener el juego.
+	 * 
+	 * @param publicarVistas <code>true</code> para publicar vistas.
+	 */
+	public void setPublicarVistas(boolean publicarVistas) {
+		if (!publicarVistas) {
+			this.vista = null;
+		} else if (this.vista == null) {
+			this.vista = VistaDeCampo.de(this, 0);
+		}
+		registrarCambios();
+	}
+
+	/**
+	 * Devuelve la última {@link VistaDeCampo} publicada. Puede llamarse desde
+	 * cualquier hilo, y la vista no cambia aunque se siga jugando.
+	 * 
+	 * @return Vista del campo de minas, o <code>null</code> si no se publican
+	 *         vistas.
+	 */
+	public VistaDeCampo getVista() {
+		return this.vista;
+	}
+
+	/**
+	 * Establece el {@link CacheDeTableros} en el que se buscan las minas al
+	 * generar el campo, según el tamaño, la semilla, la primera casilla despejada y
+	 * si se garantiza una apertura. Si no están, se generan y se guardan en el
+	 * cache.
+	 * 
+	 * @param cacheDeTableros {@link CacheDeTableros}, o <code>null</code> para
+	 *                        generar siempre las minas.
+	 */
+	public void setCacheDeTableros(CacheDeTableros cacheDeTableros) {
+		this.cacheDeTableros = cacheDeTableros;
+	}
+
+	/**
+	 * Establece el {@link PreGenerador} del que se toman las minas al despejar la
+	 * primera casilla, para no generarlas durante la jugada, y se empieza a
+	 * pregenerar el tamaño de este campo. Si no tiene un tablero válido para la
+	 * primera casilla, las minas se buscan en el cache o se generan.
+	 * <p>
+	 * Solo se usa si el campo se creó sin semilla, con
+	 * {@link #CampoDeMinas(int, int, int)}, para no romper la reproducibilidad de
+	 * los campos con semilla. Las minas pregeneradas no dependen de la primera
+	 * casilla: la {@link #getSemilla() semilla} pasa a ser la del tablero
+	 * pregenerado y {@link #getSemillaSinExclusion()} devuelve <code>true</code>,
+	 * y para volver a crearlas se usa
+	 * {@link #CampoDeMinas(int, int, int, long, boolean)}.
+	 * 
+	 * @param preGenerador {@link PreGenerador}, o <code>null</code> para no usarlo.
+	 */
+	public void setPreGenerador(PreGenerador preGenerador) {
+		this.preGenerador = preGenerador;
+		if (preGenerador != null) {
+			preGenerador.preparar(getNumFilas(), getNumColumnas(), this.minas);
+		}
+	}
+
+	/**
+	 * Devuelve el publicador de los {@link EventoDeJuego} del campo de minas, al
+	 * que pueden suscribirse registros, métricas, interfaces o espectadores. Los
+	 * eventos se entregan en otros hilos, por lo que los suscriptores no detienen
+	 * el juego, y cada suscriptor pide los eventos a su propio ritmo. Un
+	 * suscriptor que se atrasa puede perder eventos intermedios, pero no casillas
+	 * descubiertas, y recibe los finales de cascada y de juego salvo que se atrase
+	 * más de {@link #ESPERA_DE_EVENTOS} milisegundos.
+	 * 
+	 * @return Publicador de eventos.
+	 */
+	public Flow.Publisher<EventoDeJuego> getEventos() {
+		if (this.eventos == null) {
+			SubmissionPublisher<EventoDeJuego> publicador = new SubmissionPublisher<>();
+			this.eventos = publicador;
+			this.publicadorDeEventos = suscriptor -> publicador.subscribe(new SuscriptorDeEventos(suscriptor));
+			registrarCambios();
+		}
+		return this.publicadorDeEventos;
+	}
+
+	/**
+	 * Termina el publicador de eventos, avisando a los suscriptores con
+	 * {@link Flow.Subscriber#onComplete()}. Se crea uno nuevo si se vuelven a
+	 * pedir los eventos.
+	 */
+	public void cerrarEventos() {
+		if (this.eventos != null) {
+			this.eventos.close();
+			this.eventos = null;
+			this.publicadorDeEventos = null;
+			this.numCascadas = 0;
+			registrarCambios();
+		}
+	}
+
+	/**
+	 * Devuelve el número de eventos que no se entregaron a algún suscriptor porque
+	 * su buffer estaba lleno. No cuenta las casillas descubiertas que se
+	 * entregaron después con otro evento.
+	 * 
+	 * @return Número de eventos descartados.
+	 */
+	public long getEventosDescartados() {
+		return this.eventosDescartados.sum();
+	}
+
+	/**
+	 * Crea o descarta {@link #cambios} según si hay {@link #observador}, se
+	 * publican vistas o hay {@link #eventos}.
+	 */
+	private void registrarCambios() {
+		if (this.observador == null && this.vista == null && this.eventos == null) {
+			this.cambios = null;
+		} else if (this.cambios == null) {
+			this.cambios = new CambiosDeCasillas(getNumColumnas());
+		}
+	}
+
+	/**
+	 * Devuelve las aperturas del campo de minas, con las que se puede saber cuántas
+	 * aperturas hay y el tamaño de cada una.
+	 * 
+	 * @return {@link IndiceDeAperturas}, o <code>null</code> si aún no se ha
+	 *         generado el campo de minas o no se calcularon sus aperturas.
+	 */
+	public IndiceDeAperturas getIndiceDeAperturas() {
+
+		// después de reiniciar con un nuevo tablero el índice es el del anterior
+		if (!yaCreado && primerDespeje == null) {
+			return null;
+		}
+		return this.indiceDeAperturas;
+	}
+
 	/**
 	 * Devuelve el número de minas que contiene el campo de minas.
 	 * 
@@ -521,6 +1799,29 @@ public class CampoDeMinas extends MatrizForma1 {
 		return this.minas;
 	}
 
+	/**
+	 * Devuelve la semilla con la que se generan las minas. Si las minas vienen del
+	 * {@link #preGenerador}, es la del tablero pregenerado, que se generó sin
+	 * excluir casillas (ver {@link #getSemillaSinExclusion()}).
+	 * 
+	 * @return {@link #semilla}.
+	 */
+	public long getSemilla() {
+		return this.semilla;
+	}
+
+	/**
+	 * Indica si las minas del tablero actual se generaron con la
+	 * {@link #getSemilla() semilla} sin excluir ninguna casilla, como las del
+	 * {@link PreGenerador}. Para volver a crear el tablero se entregan ambos
+	 * valores a {@link #CampoDeMinas(int, int, int, long, boolean)}.
+	 * 
+	 * @return {@link #semillaSinExclusion}.
+	 */
+	public boolean getSemillaSinExclusion() {
+		return this.semillaSinExclusion;
+	}
+
 	/**
 	 * Establece el estado del campo de minas.
 	 * 
@@ -545,7 +1846,11 @@ public class CampoDeMinas extends MatrizForma1 {
 	}
 
 	/**
-	 * Establece el estado de la casilla en la posición (<b>i</b>, <b>j</b>).
+	 * Establece el estado de la casilla en la posición (<b>i</b>, <b>j</b>), y
+	 * actualiza los contadores {@link #casillasDescubiertas},
+	 * {@link #posiblesMinas}, {@link #marcasVecinas} y {@link #bloqueos} según el
+	 * estado anterior y el nuevo. También informa el cambio al
+	 * {@link #despejador}.
 	 * 
 	 * @param i      Fila de la casilla.
 	 * @param j      Columna de la casilla.
@@ -554,7 +1859,131 @@ public class CampoDeMinas extends MatrizForma1 {
 	 * @see #estadoDeCasillas
 	 */
 	private void setEstadoDeCasilla(int i, int j, EstadoDeCasilla estado) {
+		EstadoDeCasilla anterior = (EstadoDeCasilla) this.estadoDeCasillas.get(i, j);
+
+		// si el estado no cambia no hay nada que actualizar
+		if (anterior == estado) {
+			return;
+		}
+
+		// se cambia la clave de la casilla en el hash, las descubiertas incluyen su
+		// valor
+		int c = i * getNumColumnas() + j;
+		int v = anterior == EstadoDeCasilla.descubierta || estado == EstadoDeCasilla.descubierta
+				? valorDeCasilla(i, j)
+				: 0;
+		this.hash ^= claveZobrist(c, anterior, v) ^ claveZobrist(c, estado, v);
+
+		// se descuenta el estado anterior
+		if (anterior == EstadoDeCasilla.descubierta) {
+			this.casillasDescubiertas--;
+		} else if (anterior == EstadoDeCasilla.posibleMina) {
+			this.posiblesMinas--;
+			sumarMarcaAVecinos(i, j, -1);
+		}
+
+		// se cuenta el nuevo estado
+		if (estado == EstadoDeCasilla.descubierta) {
+			this.casillasDescubiertas++;
+		} else if (estado == EstadoDeCasilla.posibleMina) {
+			this.posiblesMinas++;
+			sumarMarcaAVecinos(i, j, 1);
+		}
+
+		// si es un 0, se actualizan los bloqueos de su apertura
+		if (this.indiceDeAperturas != null && this.indiceDeAperturas.getApertura(i, j) >= 0) {
+			if (anterior == EstadoDeCasilla.oculta) {
+				this.bloqueos[this.indiceDeAperturas.getApertura(i, j)]++;
+			} else if (estado == EstadoDeCasilla.oculta) {
+				this.bloqueos[this.indiceDeAperturas.getApertura(i, j)]--;
+			}
+		}
+		if (this.despejador != null) {
+			this.despejador.setBloqueada(i, j, estado != EstadoDeCasilla.oculta);
+		}
+
 		this.estadoDeCasillas.set(i, j, estado);
+
+		if (this.cambios != null) {
+			this.cambios.agregar(i, j, estado, estado == EstadoDeCasilla.descubierta ? v : 0);
+		}
+	}
+
+	/**
+	 * Devuelve la clave de Zobrist de la casilla <b>c</b> (<code>i * n + j</code>)
+	 * con el <b>estado</b> entregado, y con su valor <b>v</b> si está descubierta.
+	 * Las claves se calculan mezclando los bits de la casilla, el estado y el
+	 * valor, en lugar de guardarlas en una tabla, y las casillas ocultas tienen
+	 * clave 0.
+	 * 
+	 * @param c      Índice de la casilla.
+	 * @param estado {@link EstadoDeCasilla} de la casilla.
+	 * @param v      Valor de la casilla, de -1 a 8. Solo se usa si está
+	 *               descubierta.
+	 * @return Clave de 64 bits.
+	 */
+	private static long claveZobrist(int c, EstadoDeCasilla estado, int v) {
+		if (estado == EstadoDeCasilla.oculta) {
+			return 0L;
+		}
+
+		// las marcas usan el código 0 y las descubiertas su valor más 2
+		int codigo = estado == EstadoDeCasilla.posibleMina ? 0 : v + 2;
+		return GeneradorDeMinas.siguienteSemilla(16L * c + codigo);
+	}
+
+	/**
+	 * Devuelve el hash de Zobrist de las casillas descubiertas, con sus valores, y
+	 * de las marcadas como posibles minas, sin recorrer el campo. Dos juegos del
+	 * mismo tamaño con las mismas casillas descubiertas y marcadas, y los mismos
+	 * números en las descubiertas, tienen el mismo hash.
+	 * <p>
+	 * Al terminar el juego todas las casillas están descubiertas, y el hash es el
+	 * de ese estado. Se calcula recorriendo el campo la primera vez que se pide
+	 * para cada tablero, por lo que esa llamada cuesta O(<i>m</i> * <i>n</i>).
+	 * 
+	 * @return Hash de 64 bits del estado visible del campo de minas.
+	 */
+	public long getHash() {
+		if (getEstado() != Estado.ganado && getEstado() != Estado.perdido) {
+			return this.hash;
+		}
+		if (this.hashTerminado == 0L) {
+			int m = getNumFilas();
+			int n = getNumColumnas();
+			byte[] fila = new byte[n];
+			for (int i = 0; i < m; i++) {
+				ContadorDeVecinos.contarFila(mapaDeMinas, i, fila);
+				for (int j = 0; j < n; j++) {
+					this.hashTerminado ^= claveZobrist(i * n + j, EstadoDeCasilla.descubierta,
+							mapaDeMinas.get(i, j) ? -1 : fila[j]);
+				}
+			}
+		}
+		return this.hashTerminado;
+	}
+
+	/**
+	 * Suma <b>num</b> al número de marcas alrededor de cada vecino de la casilla
+	 * (<b>i</b>, <b>j</b>), creando {@link #marcasVecinas} con la primera marca.
+	 * 
+	 * @param i   Fila de la casilla marcada o desmarcada.
+	 * @param j   Columna de la casilla marcada o desmarcada.
+	 * @param num 1 si se marcó la casilla, -1 si se desmarcó.
+	 */
+	private void sumarMarcaAVecinos(int i, int j, int num) {
+		int m = getNumFilas();
+		int n = getNumColumnas();
+
+		if (this.marcasVecinas == null) {
+			this.marcasVecinas = new byte[m * n];
+		}
+
+		for (int ii = Vecindario.desde(i); ii <= Vecindario.hasta(i, m); ii++) {
+			for (int jj = Vecindario.desde(j); jj <= Vecindario.hasta(j, n); jj++) {
+				marcasVecinas[ii * n + jj] += num;
+			}
+		}
 	}
 
 	/**
@@ -592,33 +2021,18 @@ public class CampoDeMinas extends MatrizForma1 {
 	 * Imprime en la consola el campo de minas en forma de cuadrícula, incluyendo
 	 * sus índices, tanto de las filas, como de las columnas. También imprime el
 	 * número de posibles minas en una esquina.
+	 * <p>
+	 * El valor de cada casilla se calcula con {@link #valorDeCasilla(int, int)},
+	 * por lo que se imprime igual sin importar el {@link ModoDeNumeros}.
 	 */
 	@Override
 	public void showAsArrayOfArrays() {
-		NodoDoble nodoFila, nodoP;
-		Tripleta tripletaT, casillaX;
-		int f, c, m, n;
-		Object v;
+		int m, n, v;
 		String output;
 
 		m = getNumFilas();
 		n = getNumColumnas();
 
-		// se ubica en la primera fila
-		nodoFila = getPrimerNodo();
-		nodoP = nodoFila.getLd();
-
-		// busca el primer nodo que no tenga valor nulo
-		while (nodoFila != getNodoCabeza() && nodoP == nodoFila) {
-			tripletaT = (Tripleta) nodoFila.getD();
-			nodoFila = (NodoDoble) tripletaT.getValor();
-			nodoP = nodoFila.getLd();
-		}
-		tripletaT = (Tripleta) nodoP.getD();
-		f = tripletaT.getFila();
-		c = tripletaT.getColumna();
-		v = tripletaT.getValor();
-
 		// espacios a añadir por cada linea para que quede organizado
 		int spacesToAdd = (int) Math.floor(Math.log10(getNumFilas()));
 
@@ -656,47 +2070,14 @@ public class CampoDeMinas extends MatrizForma1 {
 					output = "%s|";
 				}
 
-				// si el nodoP no es un nodo fila, y tampoco el nodo cabeza
-				if (nodoFila != getNodoCabeza() && nodoP != nodoFila) {
-
-					// si la fila y columna coinciden con el nodoP
-					if (i == f && j == c) {
-						casillaX = (Tripleta) tripletaT;
-
-						// se imprime según sea mina o no, y según su estado
-						if (casillaX.getValor().equals(-1)) {
-							imprimirCasilla(i, j, output, "*");
-						} else {
-							imprimirCasilla(i, j, output, Integer.toString((int) v));
-						}
-
-						// se avanza al siguiente nodo
-						nodoP = nodoP.getLd();
-
-						// si no hay más nodos en la fila se avanza al siguiente nodo con valor
-						// diferente de nulo
-						while (nodoFila != getNodoCabeza() && nodoP == nodoFila) {
-							tripletaT = (Tripleta) nodoFila.getD();
-							nodoFila = (NodoDoble) tripletaT.getValor();
-							nodoP = nodoFila.getLd();
-						}
-
-						// si se encontró un nodo antes de recorrer toda la matriz
-						if (nodoP != null) {
-							tripletaT = (Tripleta) nodoP.getD();
-							f = tripletaT.getFila();
-							c = tripletaT.getColumna();
-							v = tripletaT.getValor();
-						}
-					} else { // si no se ha llegado al nodo con fila y columna (i,j)
-
-						// se imprime nulo según su estado
-						imprimirCasilla(i, j, output, " ");
-					}
-				} else { // no hay más nodos con valor diferente a nulo
-
-					// se imprime nulo según su estado
+				// se imprime según sea mina, número o cero, y según su estado
+				v = valorDeCasilla(i, j);
+				if (v == -1) {
+					imprimirCasilla(i, j, output, "*");
+				} else if (v == 0) {
 					imprimirCasilla(i, j, output, " ");
+				} else {
+					imprimirCasilla(i, j, output, Integer.toString(v));
 				}
 			}
 		}
@@ -0,0 +1,583 @@
+package buscaminas;
+
+import java.util.SplittableRandom;
+
+import buscaminas.CampoDeMinas.Estado;
+import buscaminas.CampoDeMinas.EstadoDeCasilla;
+import matricesDispersas.MatrizDeBits;
+
+/**
+ * Clase que representa el campo de minas del buscaminas usando matrices de
+ * bits, como alternativa a {@link CampoDeMinas} cuando se necesitan muchas
+ * jugadas por segundo (por ejemplo, para bots que resuelven el campo).
+ * <p>
+ * Las minas, las casillas descubiertas y las marcadas como posibles minas se
+ * guardan cada una en una {@link MatrizDeBits}, por lo que consultar una
+ * casilla no requiere recorrer ninguna lista.
+ * <p>
+ * Al despejar un 0, la cascada se calcula con operaciones sobre palabras de 64
+ * bits: la región de ceros se dilata repetidamente (enmascarada con los ceros
+ * ocultos) hasta que deja de crecer, y al final se descubre la región junto con
+ * su borde de números, que es una dilatación más de la región. Los contadores
+ * de casillas se actualizan contando bits.
+ * 
+ * @author sneyd
+ *
+ * @see TableroDeMinas
+ */
+public class CampoDeMinasBits implements TableroDeMinas {
+
+	/**
+	 * Número de filas del campo de minas.
+	 */
+	private final int m;
+
+	/**
+	 * Número de columnas del campo de minas.
+	 */
+	private final int n;
+
+	/**
+	 * Número de minas que contiene el campo de minas.
+	 */
+	private final int minas;
+
+	/**
+	 * Indica el estado actual del campo de minas.
+	 */
+	private Estado estado;
+
+	/**
+	 * Número de casilla marcadas como posibles minas.
+	 */
+	private int posiblesMinas;
+
+	/**
+	 * Número de casillas descubiertas.
+	 */
+	private int casillasDescubiertas;
+
+	/**
+	 * Para almacenar la posición de la primera casilla despejada.
+	 */
+	private int primerDespeje[];
+
+	/**
+	 * Con esta variable se controla que no se generen nuevas minas al tocar de
+	 * nuevo la primera casilla oculta.
+	 */
+	private boolean yaCreado;
+
+	/**
+	 * Indica si al generar el campo de minas se excluyen también los vecinos de la
+	 * primera casilla despejada.
+	 */
+	private boolean aperturaGarantizada;
+
+	/**
+	 * Casillas con minas. Se crea al generar el campo de minas.
+	 */
+	private MatrizDeBits mapaDeMinas;
+
+	/**
+	 * Casillas que no son minas y no tienen minas alrededor. Se crea al generar el
+	 * campo de minas.
+	 */
+	private MatrizDeBits ceros;
+
+	/**
+	 * Casillas descubiertas.
+	 */
+	private final MatrizDeBits descubiertas;
+
+	/**
+	 * Casillas marcadas como posibles minas.
+	 */
+	private final MatrizDeBits marcadas;
+
+	/**
+	 * Matriz auxiliar para calcular la región de ceros de una cascada. Está vacía
+	 * fuera de {@link #despejarRegion(int, int)}.
+	 */
+	private final MatrizDeBits region;
+
+	/**
+	 * Pila de filas pendientes por procesar en {@link #despejarRegion(int, int)}.
+	 */
+	private final int[] pendientes;
+
+	/**
+	 * Indica qué filas están en {@link #pendientes}.
+	 */
+	private final boolean[] enPendientes;
+
+	/**
+	 * Semilla con la que se generan las minas.
+	 */
+	private final long semilla;
+
+	/**
+	 * Constructor. Inicializa el campo de minas, las minas se generan al despejar
+	 * la primera casilla, igual que en {@link CampoDeMinas#CampoDeMinas(int, int, int)}.
+	 * 
+	 * @param m     Número de filas del campo de minas.
+	 * @param n     Número de columnas del campo de minas
+	 * @param minas Número de minas que se crearán en el campo de minas. <br>
+	 *              Debe estar dentro del rango de la matriz (0 &lt; <b>minas</b>
+	 *              &lt; <b><i>m</i></b> * <b><i>n</i></b>).
+	 */
+	public CampoDeMinasBits(int m, int n, int minas) {
+		this(m, n, minas, new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Constructor. Inicializa el campo de minas con la <b>semilla</b> entregada,
+	 * igual que en {@link CampoDeMinas#CampoDeMinas(int, int, int, long)}, por lo
+	 * que con la misma semilla ambos generan las mismas minas.
+	 * 
+	 * @param m       Número de filas del campo de minas.
+	 * @param n       Número de columnas del campo de minas
+	 * @param minas   Número de minas que se crearán en el campo de minas.
+	 * @param semilla Semilla con la que se generan las minas.
+	 */
+	public CampoDeMinasBits(int m, int n, int minas, long semilla) {
+
+		// se comprueba que el número de minas este dentro del rango de la matriz
+		assert (0 < minas && minas < m * n)
+				: "el número de minas debe ser menor al número total de casillas y mayor a cero";
+
+		this.m = m;
+		this.n = n;
+		this.minas = minas;
+		this.semilla = semilla;
+		this.estado = Estado.noIniciado;
+		this.posiblesMinas = 0;
+		this.casillasDescubiertas = 0;
+		this.primerDespeje = null;
+		this.yaCreado = false;
+		this.aperturaGarantizada = false;
+		this.descubiertas = new MatrizDeBits(m, n);
+		this.marcadas = new MatrizDeBits(m, n);
+		this.region = new MatrizDeBits(m, n);
+		this.pendientes = new int[m];
+		this.enPendientes = new boolean[m];
+	}
+
+	/**
+	 * Genera las minas y calcula {@link #ceros} como el complemento de la
+	 * dilatación de las minas.
+	 */
+	private void generarCampoDeMinas() {
+		int[] excluidas;
+		int w;
+		long mascara;
+
+		excluidas = GeneradorDeMinas.zonaExcluida(m, n, this.minas, primerDespeje[0], primerDespeje[1],
+				aperturaGarantizada);
+
+		this.mapaDeMinas = new MatrizDeBits(m, n);
+		GeneradorDeMinas.generar(this.minas, excluidas, this.semilla, this.mapaDeMinas);
+
+		this.ceros = new MatrizDeBits(m, n);
+		w = ceros.getPalabrasPorFila();
+		mascara = ceros.getMascaraFinal();
+		for (int i = 0; i < m; i++) {
+			for (int k = 0; k < w; k++) {
+				long palabra = ~dilatar(mapaDeMinas, i, k);
+				if (k == w - 1) {
+					palabra &= mascara;
+				}
+				ceros.setPalabra(i, k, palabra);
+			}
+		}
+	}
+
+	@Override
+	public void tocarCasilla(int i, int j) throws IndexOutOfBoundsException {
+
+		// si (i, j) esta por fuera de la matriz
+		if (i < 0 || m <= i || j < 0 || n <= j) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		// si ya se terminó el juego o no se ha iniciado
+		if (getEstado() != Estado.iniciado) {
+			return;
+		}
+
+		if (descubiertas.get(i, j)) {
+			int v = valorDeCasilla(i, j);
+
+			// si las minas marcadas alrededor son mayores o iguales al número
+			if (v > 0 && marcadas.contarVecinos(i, j) >= v) {
+				despejarVecinos(i, j);
+			}
+		} else if (!marcadas.get(i, j)) {
+
+			// si es la primera casilla que se toca se genera el campo de minas
+			if (yaCreado == false && primerDespeje == null) {
+				primerDespeje = new int[] { i, j };
+				generarCampoDeMinas();
+			}
+			despejarCasilla(i, j);
+		}
+	}
+
+	@Override
+	public void posibleMina(int i, int j) throws IndexOutOfBoundsException {
+
+		// si (i, j) esta por fuera de la matriz
+		if (i < 0 || m <= i || j < 0 || n <= j) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		// si ya se terminó el juego o no se ha iniciado
+		if (getEstado() != Estado.iniciado) {
+			return;
+		}
+
+		if (!descubiertas.get(i, j)) {
+			if (marcadas.get(i, j)) {
+				marcadas.set(i, j, false);
+				this.posiblesMinas--;
+			} else {
+				marcadas.set(i, j, true);
+				this.posiblesMinas++;
+			}
+		}
+	}
+
+	/**
+	 * Despeja la casilla (<b>i</b>, <b>j</b>) siempre que este oculta. Si es un 0,
+	 * se despeja toda su región con {@link #despejarRegion(int, int)}.
+	 * 
+	 * @param i Fila de la casilla a despejar.
+	 * @param j Columna de la casilla a despejar.
+	 */
+	private void despejarCasilla(int i, int j) {
+
+		// si esta marcada como posible mina o esta descubierta, o el juego terminó
+		if (marcadas.get(i, j) || descubiertas.get(i, j) || getEstado() != Estado.iniciado) {
+			return;
+		}
+
+		if (mapaDeMinas.get(i, j)) {
+			terminar(Estado.perdido);
+			return;
+		}
+
+		if (ceros.get(i, j)) {
+			despejarRegion(i, j);
+		} else {
+			descubiertas.set(i, j, true);
+			this.casillasDescubiertas++;
+		}
+
+		// si las casillas descubiertas son iguales a las casillas sin minas, se gana
+		if (this.casillasDescubiertas == m * n - minas) {
+			terminar(Estado.ganado);
+		}
+	}
+
+	/**
+	 * Despeja las casillas alrededor de la casilla (<b>i</b>, <b>j</b>).
+	 * 
+	 * @param i Fila de la casilla alrededor de la cual se despeja.
+	 * @param j Columna de la casilla alrededor de la cual se despeja.
+	 */
+	private void despejarVecinos(int i, int j) {
+		for (int ii = Vecindario.desde(i); ii <= Vecindario.hasta(i, m); ii++) {
+			for (int jj = Vecindario.desde(j); jj <= Vecindario.hasta(j, n); jj++) {
+				despejarCasilla(ii, jj);
+			}
+		}
+	}
+
+	/**
+	 * Despeja la región de ceros que contiene la casilla (<b>i</b>, <b>j</b>) y su
+	 * borde de números.
+	 * <p>
+	 * La región crece dilatándose, dentro de los ceros que no están descubiertos
+	 * ni marcados, hasta que deja de cambiar. Solo se vuelven a procesar las filas
+	 * vecinas de una fila que cambió, usando una pila de filas pendientes. Al
+	 * procesar una fila se rellenan de una vez los tramos horizontales de ceros
+	 * dentro de cada palabra, recorriendo la fila en ambos sentidos para pasar de
+	 * una palabra a otra.
+	 * 
+	 * @param i Fila de un 0 oculto.
+	 * @param j Columna de un 0 oculto.
+	 */
+	private void despejarRegion(int i, int j) {
+		int w = region.getPalabrasPorFila();
+		long mascara = region.getMascaraFinal();
+		int lo = i, hi = i, tope = 0;
+
+		region.set(i, j, true);
+		pendientes[tope++] = i;
+		enPendientes[i] = true;
+		if (i > 0) {
+			pendientes[tope++] = i - 1;
+			enPendientes[i - 1] = true;
+		}
+		if (i + 1 < m) {
+			pendientes[tope++] = i + 1;
+			enPendientes[i + 1] = true;
+		}
+
+		while (tope > 0) {
+			int r = pendientes[--tope];
+			enPendientes[r] = false;
+
+			if (crecerFila(r, w)) {
+				lo = Math.min(lo, r);
+				hi = Math.max(hi, r);
+
+				// las filas vecinas pueden crecer con los nuevos bits de esta fila
+				for (int f = Vecindario.desde(r); f <= Vecindario.hasta(r, m); f++) {
+					if (!enPendientes[f]) {
+						pendientes[tope++] = f;
+						enPendientes[f] = true;
+					}
+				}
+			}
+		}
+
+		// se descubre la región con su borde, y se limpia la matriz auxiliar
+		for (int r = Math.max(lo - 1, 0); r <= Math.min(hi + 1, m - 1); r++) {
+			for (int k = 0; k < w; k++) {
+				long nuevas = dilatar(region, r, k) & ~marcadas.getPalabra(r, k) & ~descubiertas.getPalabra(r, k);
+				if (k == w - 1) {
+					nuevas &= mascara;
+				}
+				descubiertas.setPalabra(r, k, descubiertas.getPalabra(r, k) | nuevas);
+				this.casillasDescubiertas += Long.bitCount(nuevas);
+			}
+		}
+		for (int r = lo; r <= hi; r++) {
+			for (int k = 0; k < w; k++) {
+				region.setPalabra(r, k, 0L);
+			}
+		}
+	}
+
+	/**
+	 * Hace crecer la región en la fila <b>r</b> a partir de las filas vecinas,
+	 * hasta que la fila deja de cambiar.
+	 * 
+	 * @param r Fila a procesar.
+	 * @param w Número de palabras por fila.
+	 * @return <code>true</code> si la fila cambió.
+	 */
+	private boolean crecerFila(int r, int w) {
+		boolean cambio = false, cambioEnPasada = true, haciaLaDerecha = true;
+
+		while (cambioEnPasada) {
+			cambioEnPasada = false;
+			for (int t = 0; t < w; t++) {
+				int k = haciaLaDerecha ? t : w - 1 - t;
+				long libres = ceros.getPalabra(r, k) & ~marcadas.getPalabra(r, k) & ~descubiertas.getPalabra(r, k);
+				long actual = region.getPalabra(r, k);
+				long nueva = rellenar(actual | (dilatar(region, r, k) & libres), libres);
+
+				if (nueva != actual) {
+					region.setPalabra(r, k, nueva);
+					cambioEnPasada = true;
+				}
+			}
+			cambio |= cambioEnPasada;
+			haciaLaDerecha = !haciaLaDerecha;
+		}
+		return cambio;
+	}
+
+	/**
+	 * Extiende los bits de <b>semillas</b> a todo el tramo de bits consecutivos
+	 * de <b>libres</b> que los contiene, dentro de una misma palabra.
+	 * <p>
+	 * Sumar las semillas a los libres propaga un acarreo desde cada semilla hasta
+	 * el final de su tramo, lo que cambia justo los bits del tramo por encima de la
+	 * semilla. Para el otro sentido se hace lo mismo con los bits invertidos.
+	 * 
+	 * @param semillas Bits de la región, contenidos en <b>libres</b>.
+	 * @param libres   Bits por los que puede crecer la región.
+	 * @return Bits de los tramos de <b>libres</b> que contienen alguna semilla.
+	 */
+	static long rellenar(long semillas, long libres) {
+		long arriba = ((libres + semillas) ^ libres) & libres;
+		long libresR = Long.reverse(libres);
+		long abajo = Long.reverse(((libresR + Long.reverse(semillas)) ^ libresR) & libresR);
+		return semillas | arriba | abajo;
+	}
+
+	/**
+	 * Dilata horizontalmente la palabra <b>k</b> de la fila <b>i</b>: cada bit
+	 * queda encendido si él o alguno de sus vecinos izquierdo o derecho lo está.
+	 * 
+	 * @param bits {@link MatrizDeBits} a dilatar.
+	 * @param i    Fila de la palabra.
+	 * @param k    Índice de la palabra dentro de la fila.
+	 * @return Palabra dilatada, puede tener encendidos bits por fuera de la
+	 *         matriz.
+	 */
+	private static long dilatarHorizontal(MatrizDeBits bits, int i, int k) {
+		long x = bits.getPalabra(i, k);
+		long izquierda = x << 1;
+		long derecha = x >>> 1;
+
+		if (k > 0) {
+			izquierda |= bits.getPalabra(i, k - 1) >>> 63;
+		}
+		if (k + 1 < bits.getPalabrasPorFila()) {
+			derecha |= bits.getPalabra(i, k + 1) << 63;
+		}
+		return x | izquierda | derecha;
+	}
+
+	/**
+	 * Dilata la palabra <b>k</b> de la fila <b>i</b> en una ventana de 3x3: cada
+	 * bit queda encendido si él o alguno de sus vecinos lo está.
+	 * 
+	 * @param bits {@link MatrizDeBits} a dilatar.
+	 * @param i    Fila de la palabra.
+	 * @param k    Índice de la palabra dentro de la fila.
+	 * @return Palabra dilatada, puede tener encendidos bits por fuera de la
+	 *         matriz.
+	 */
+	static long dilatar(MatrizDeBits bits, int i, int k) {
+		long palabra = dilatarHorizontal(bits, i, k);
+		if (i > 0) {
+			palabra |= dilatarHorizontal(bits, i - 1, k);
+		}
+		if (i + 1 < bits.getNumFilas()) {
+			palabra |= dilatarHorizontal(bits, i + 1, k);
+		}
+		return palabra;
+	}
+
+	/**
+	 * Termina el juego estableciendo el <b>estado</b> entregado y descubriendo
+	 * todas las casillas del campo de minas.
+	 * 
+	 * @param estado {@link Estado#ganado} o {@link Estado#perdido}.
+	 */
+	private void terminar(Estado estado) {
+		this.estado = estado;
+		this.casillasDescubiertas = m * n;
+		this.posiblesMinas = 0;
+	}
+
+	/**
+	 * Devuelve el valor de la casilla en la posición (<b>i</b>, <b>j</b>). Si aún
+	 * no se ha generado el campo de minas, todas las casillas valen 0.
+	 * 
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return <b>-1</b> si la casilla es una mina, de lo contrario el número de
+	 *         minas alrededor de la casilla.
+	 */
+	private int valorDeCasilla(int i, int j) {
+		if (mapaDeMinas == null) {
+			return 0;
+		}
+		if (mapaDeMinas.get(i, j)) {
+			return -1;
+		}
+		return mapaDeMinas.contarVecinos(i, j);
+	}
+
+	@Override
+	public Object get(int i, int j) {
+
+		// si (i, j) esta por fuera de la matriz
+		if (i < 0 || m <= i || j < 0 || n <= j) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		return valorDeCasilla(i, j);
+	}
+
+	@Override
+	public void iniciar() {
+		if (getEstado() == Estado.noIniciado) {
+			this.estado = Estado.iniciado;
+		}
+	}
+
+	@Override
+	public void reiniciar() {
+		descubiertas.limpiar();
+		marcadas.limpiar();
+		this.estado = Estado.noIniciado;
+		this.posiblesMinas = 0;
+		this.casillasDescubiertas = 0;
+		this.primerDespeje = null;
+		this.yaCreado = true;
+	}
+
+	@Override
+	public Estado getEstado() {
+		return this.estado;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Al terminar el juego todas las casillas están descubiertas.
+	 */
+	@Override
+	public EstadoDeCasilla getEstadoDeCasilla(int i, int j) {
+
+		// si (i, j) esta por fuera de la matriz
+		if (i < 0 || m <= i || j < 0 || n <= j) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		if (estado == Estado.ganado || estado == Estado.perdido || descubiertas.get(i, j)) {
+			return EstadoDeCasilla.descubierta;
+		}
+		if (marcadas.get(i, j)) {
+			return EstadoDeCasilla.posibleMina;
+		}
+		return EstadoDeCasilla.oculta;
+	}
+
+	@Override
+	public int getNumFilas() {
+		return this.m;
+	}
+
+	@Override
+	public int getNumColumnas() {
+		return this.n;
+	}
+
+	@Override
+	public int getNumMinas() {
+		return this.minas;
+	}
+
+	@Override
+	public long getSemilla() {
+		return this.semilla;
+	}
+
+	@Override
+	public int getPosiblesMinas() {
+		return this.posiblesMinas;
+	}
+
+	@Override
+	public int getCasillasDescubiertas() {
+		return this.casillasDescubiertas;
+	}
+
+	@Override
+	public int getCasillasOcultas() {
+		return m * n - this.casillasDescubiertas - this.posiblesMinas;
+	}
+
+	@Override
+	public void setAperturaGarantizada(boolean aperturaGarantizada) {
+		this.aperturaGarantizada = aperturaGarantizada;
+	}
+}
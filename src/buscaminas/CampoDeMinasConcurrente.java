@@ -0,0 +1,622 @@
+package buscaminas;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import buscaminas.CampoDeMinas.Estado;
+import buscaminas.CampoDeMinas.EstadoDeCasilla;
+import matricesDispersas.MatrizDeBits;
+
+/**
+ * Clase que representa un campo de minas en el que pueden jugar varios hilos a
+ * la vez, por ejemplo varios jugadores en un juego cooperativo.
+ * <p>
+ * Como en {@link CampoDeMinasBits}, las minas, las casillas descubiertas y las
+ * marcadas se guardan en matrices de bits. El campo se divide en teselas de
+ * {@link #LADO}x{@link #LADO} casillas, y cada tesela tiene su propio cerrojo.
+ * Como una tesela tiene el ancho de una palabra, cada palabra de las matrices
+ * pertenece a una sola tesela, y se modifica solo con su cerrojo. Así, las
+ * jugadas en regiones diferentes del campo se hacen en paralelo.
+ * <p>
+ * Una jugada toma los cerrojos de las teselas que necesita en orden ascendente.
+ * Si una cascada necesita una tesela menor que alguna de las que ya tiene y no
+ * puede tomarla de inmediato, suelta todas y las vuelve a tomar en orden, de
+ * modo que ningún par de hilos se bloquea mutuamente. La cascada puede seguir
+ * después, pues las casillas descubiertas no vuelven a ocultarse durante el
+ * juego.
+ * <p>
+ * Las jugadas no toman ningún cerrojo global, para no compartir una palabra
+ * entre todos los hilos. Las minas las genera, con un cerrojo propio, la primera
+ * jugada que toca una casilla oculta y sin marca, mientras tiene los cerrojos de
+ * sus teselas. El reinicio toma los cerrojos de todas las teselas en orden y
+ * cambia la {@link #partida}, de modo que una jugada que suelta sus cerrojos y
+ * los vuelve a tomar sabe si el campo se reinició mientras tanto. El estado del
+ * juego cambia con operaciones atómicas, por lo que solo una jugada puede ganar
+ * o perder el juego.
+ * <p>
+ * Las consultas de casillas no toman cerrojos, por lo que pueden no reflejar
+ * las jugadas que se están haciendo en ese momento.
+ *
+ * @author sneyd
+ *
+ * @see TableroDeMinas
+ */
+public class CampoDeMinasConcurrente implements TableroDeMinas {
+
+	/**
+	 * Número de filas y de columnas de una tesela.
+	 */
+	private static final int LADO = 64;
+
+	/**
+	 * Número de filas del campo de minas.
+	 */
+	private final int m;
+
+	/**
+	 * Número de columnas del campo de minas.
+	 */
+	private final int n;
+
+	/**
+	 * Número de minas que contiene el campo de minas.
+	 */
+	private final int minas;
+
+	/**
+	 * Semilla con la que se generan las minas.
+	 */
+	private final long semilla;
+
+	/**
+	 * Indica el estado actual del campo de minas.
+	 */
+	private final AtomicReference<Estado> estado;
+
+	/**
+	 * Número de casillas marcadas como posibles minas mientras se juega.
+	 */
+	private final AtomicInteger posiblesMinas;
+
+	/**
+	 * Número de casillas descubiertas mientras se juega.
+	 */
+	private final AtomicInteger casillasDescubiertas;
+
+	/**
+	 * Indica si al generar el campo de minas se excluyen también los vecinos de la
+	 * primera casilla despejada.
+	 */
+	private volatile boolean aperturaGarantizada;
+
+	/**
+	 * Casillas con minas. Se crea al despejar la primera casilla, con el cerrojo
+	 * {@link #generacion}, y no cambia después.
+	 */
+	private volatile MatrizDeBits mapaDeMinas;
+
+	/**
+	 * Casillas descubiertas. Cada palabra se modifica solo con el cerrojo de su
+	 * tesela.
+	 */
+	private final MatrizDeBits descubiertas;
+
+	/**
+	 * Casillas marcadas como posibles minas. Cada palabra se modifica solo con el
+	 * cerrojo de su tesela.
+	 */
+	private final MatrizDeBits marcadas;
+
+	/**
+	 * Número de teselas en cada fila de teselas.
+	 */
+	private final int teselasPorFila;
+
+	/**
+	 * Cerrojo de cada tesela, en orden por filas.
+	 */
+	private final ReentrantLock[] teselas;
+
+	/**
+	 * Cerrojo con el que se generan las minas. Se toma teniendo cerrojos de
+	 * teselas, y mientras se tiene no se toma ningún otro.
+	 */
+	private final ReentrantLock generacion;
+
+	/**
+	 * Número de veces que se ha reiniciado el campo. Solo cambia con los cerrojos
+	 * de todas las teselas, por lo que no cambia mientras una jugada tenga alguno.
+	 */
+	private volatile int partida;
+
+	/**
+	 * Cerrojos de tesela que tiene una jugada, ordenados ascendentemente.
+	 */
+	private class Cerrojos {
+
+		/**
+		 * {@link CampoDeMinasConcurrente#partida} en la que empezó la jugada.
+		 */
+		private final int partida = CampoDeMinasConcurrente.this.partida;
+
+		/**
+		 * Índices de las teselas tomadas, ordenados ascendentemente.
+		 */
+		private int[] tomadas = new int[4];
+
+		/**
+		 * Número de teselas tomadas.
+		 */
+		private int cuantas;
+
+		/**
+		 * Toma el cerrojo de la tesela <b>t</b>, si no lo tiene ya. Si <b>t</b> es
+		 * menor que alguna tesela tomada y está ocupada, suelta todas y las vuelve a
+		 * tomar en orden junto con <b>t</b>.
+		 *
+		 * @param t Índice de la tesela.
+		 */
+		private void tomar(int t) {
+			int pos = Arrays.binarySearch(tomadas, 0, cuantas, t);
+
+			// si ya se tiene
+			if (pos >= 0) {
+				return;
+			}
+			pos = -pos - 1;
+
+			if (pos == cuantas) {
+				// si es mayor que todas se puede esperar por ella
+				teselas[t].lock();
+				agregar(pos, t);
+			} else if (teselas[t].tryLock()) {
+				agregar(pos, t);
+			} else {
+				soltar();
+				agregar(pos, t);
+				for (int k = 0; k < cuantas; k++) {
+					teselas[tomadas[k]].lock();
+				}
+			}
+		}
+
+		/**
+		 * Toma los cerrojos de las teselas de la casilla (<b>i</b>, <b>j</b>) y sus
+		 * vecinos, que son como máximo 4.
+		 *
+		 * @param i Fila de la casilla.
+		 * @param j Columna de la casilla.
+		 */
+		private void tomarVecindario(int i, int j) {
+			int filaMin = Vecindario.desde(i) / LADO;
+			int filaMax = Vecindario.hasta(i, m) / LADO;
+			int columnaMin = Vecindario.desde(j) / LADO;
+			int columnaMax = Vecindario.hasta(j, n) / LADO;
+
+			for (int f = filaMin; f <= filaMax; f++) {
+				for (int c = columnaMin; c <= columnaMax; c++) {
+					tomar(f * teselasPorFila + c);
+				}
+			}
+		}
+
+		/**
+		 * Indica si el campo no se ha reiniciado desde que empezó la jugada. Debe
+		 * llamarse con algún cerrojo tomado, después de tomarlo.
+		 *
+		 * @return <code>true</code> si la jugada sigue en la misma partida.
+		 */
+		private boolean vigentes() {
+			return partida == CampoDeMinasConcurrente.this.partida;
+		}
+
+		/**
+		 * Inserta <b>t</b> en la posición <b>pos</b> de {@link #tomadas}.
+		 *
+		 * @param pos Posición en la que se inserta.
+		 * @param t   Índice de la tesela.
+		 */
+		private void agregar(int pos, int t) {
+			if (cuantas == tomadas.length) {
+				tomadas = Arrays.copyOf(tomadas, 2 * cuantas);
+			}
+			System.arraycopy(tomadas, pos, tomadas, pos + 1, cuantas - pos);
+			tomadas[pos] = t;
+			cuantas++;
+		}
+
+		/**
+		 * Suelta todos los cerrojos tomados, sin olvidar cuáles eran.
+		 */
+		private void soltar() {
+			for (int k = 0; k < cuantas; k++) {
+				teselas[tomadas[k]].unlock();
+			}
+		}
+	}
+
+	/**
+	 * Constructor. Inicializa el campo de minas, las minas se generan al despejar
+	 * la primera casilla.
+	 *
+	 * @param m     Número de filas del campo de minas.
+	 * @param n     Número de columnas del campo de minas
+	 * @param minas Número de minas que se crearán en el campo de minas. <br>
+	 *              Debe estar dentro del rango de la matriz (0 &lt; <b>minas</b>
+	 *              &lt; <b><i>m</i></b> * <b><i>n</i></b>).
+	 */
+	public CampoDeMinasConcurrente(int m, int n, int minas) {
+		this(m, n, minas, new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Constructor. Inicializa el campo de minas con la <b>semilla</b> entregada,
+	 * por lo que genera las mismas minas que {@link CampoDeMinas} y
+	 * {@link CampoDeMinasBits} con la misma semilla y primera casilla.
+	 *
+	 * @param m       Número de filas del campo de minas.
+	 * @param n       Número de columnas del campo de minas
+	 * @param minas   Número de minas que se crearán en el campo de minas.
+	 * @param semilla Semilla con la que se generan las minas.
+	 */
+	public CampoDeMinasConcurrente(int m, int n, int minas, long semilla) {
+
+		// se comprueba que el número de minas este dentro del rango de la matriz
+		assert (0 < minas && minas < m * n)
+				: "el número de minas debe ser menor al número total de casillas y mayor a cero";
+
+		this.m = m;
+		this.n = n;
+		this.minas = minas;
+		this.semilla = semilla;
+		this.estado = new AtomicReference<>(Estado.noIniciado);
+		this.posiblesMinas = new AtomicInteger();
+		this.casillasDescubiertas = new AtomicInteger();
+		this.descubiertas = new MatrizDeBits(m, n);
+		this.marcadas = new MatrizDeBits(m, n);
+		this.teselasPorFila = (n + LADO - 1) / LADO;
+		this.teselas = new ReentrantLock[((m + LADO - 1) / LADO) * teselasPorFila];
+		for (int t = 0; t < teselas.length; t++) {
+			this.teselas[t] = new ReentrantLock();
+		}
+		this.generacion = new ReentrantLock();
+	}
+
+	/**
+	 * Genera las minas con el cerrojo {@link #generacion}, si ningún otro hilo las
+	 * ha generado, dejando libre la primera casilla despejada. Se llama con los
+	 * cerrojos de las teselas de (<b>i</b>, <b>j</b>) tomados, para que nadie la
+	 * marque mientras tanto.
+	 *
+	 * @param i Fila de la primera casilla despejada.
+	 * @param j Columna de la primera casilla despejada.
+	 */
+	private void generarCampoDeMinas(int i, int j) {
+		generacion.lock();
+		try {
+			if (this.mapaDeMinas == null) {
+				int[] excluidas = GeneradorDeMinas.zonaExcluida(m, n, this.minas, i, j, aperturaGarantizada);
+				MatrizDeBits mapa = new MatrizDeBits(m, n);
+				GeneradorDeMinas.generar(this.minas, excluidas, this.semilla, mapa);
+				this.mapaDeMinas = mapa;
+			}
+		} finally {
+			generacion.unlock();
+		}
+	}
+
+	@Override
+	public void tocarCasilla(int i, int j) throws IndexOutOfBoundsException {
+
+		// si (i, j) esta por fuera de la matriz
+		if (i < 0 || m <= i || j < 0 || n <= j) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		// si ya se terminó el juego o no se ha iniciado
+		if (getEstado() != Estado.iniciado) {
+			return;
+		}
+
+		Cerrojos cerrojos = new Cerrojos();
+		try {
+			cerrojos.tomarVecindario(i, j);
+
+			// si se reinició el campo mientras se esperaban los cerrojos
+			if (!cerrojos.vigentes()) {
+				return;
+			}
+
+			// las minas se generan con la primera casilla oculta y sin marca que se toca,
+			// igual que en CampoDeMinas
+			if (this.mapaDeMinas == null) {
+				if (marcadas.get(i, j)) {
+					return;
+				}
+				generarCampoDeMinas(i, j);
+			}
+
+			if (descubiertas.get(i, j)) {
+				int v = valorDeCasilla(i, j);
+
+				// si las minas marcadas alrededor son mayores o iguales al número
+				if (v > 0 && marcadas.contarVecinos(i, j) >= v) {
+					for (int ii = Vecindario.desde(i); ii <= Vecindario.hasta(i, m); ii++) {
+						for (int jj = Vecindario.desde(j); jj <= Vecindario.hasta(j, n); jj++) {
+							despejarCasilla(ii, jj, cerrojos);
+						}
+					}
+				}
+			} else {
+				despejarCasilla(i, j, cerrojos);
+			}
+		} finally {
+			cerrojos.soltar();
+		}
+	}
+
+	@Override
+	public void posibleMina(int i, int j) throws IndexOutOfBoundsException {
+
+		// si (i, j) esta por fuera de la matriz
+		if (i < 0 || m <= i || j < 0 || n <= j) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		ReentrantLock tesela = teselas[tesela(i, j)];
+		tesela.lock();
+		try {
+
+			// si ya se terminó el juego o no se ha iniciado
+			if (getEstado() != Estado.iniciado || descubiertas.get(i, j)) {
+				return;
+			}
+
+			if (marcadas.get(i, j)) {
+				marcadas.set(i, j, false);
+				this.posiblesMinas.decrementAndGet();
+			} else {
+				marcadas.set(i, j, true);
+				this.posiblesMinas.incrementAndGet();
+			}
+		} finally {
+			tesela.unlock();
+		}
+	}
+
+	/**
+	 * Despeja la casilla (<b>i</b>, <b>j</b>) siempre que este oculta. Si es un 0,
+	 * se despeja toda su región recorriéndola con una pila de ceros pendientes, y
+	 * tomando los cerrojos de las teselas a medida que la región las alcanza. Si
+	 * al tomarlos el campo se reinició, la cascada se abandona sin contarla.
+	 *
+	 * @param i        Fila de la casilla a despejar.
+	 * @param j        Columna de la casilla a despejar.
+	 * @param cerrojos Cerrojos de la jugada, que incluyen la tesela de (<b>i</b>,
+	 *                 <b>j</b>).
+	 */
+	private void despejarCasilla(int i, int j, Cerrojos cerrojos) {
+		int nuevas, tope;
+		int[] pila;
+
+		// si esta marcada como posible mina o esta descubierta, o el juego terminó o
+		// se reinició
+		if (!cerrojos.vigentes() || marcadas.get(i, j) || descubiertas.get(i, j)
+				|| getEstado() != Estado.iniciado) {
+			return;
+		}
+
+		if (mapaDeMinas.get(i, j)) {
+			terminar(Estado.perdido);
+			return;
+		}
+
+		descubiertas.set(i, j, true);
+		nuevas = 1;
+
+		if (mapaDeMinas.contarVecinos(i, j) == 0) {
+			pila = new int[16];
+			tope = 0;
+			pila[tope++] = i * n + j;
+
+			while (tope > 0) {
+				int c = pila[--tope];
+				int fila = c / n;
+				int columna = c % n;
+
+				cerrojos.tomarVecindario(fila, columna);
+				if (!cerrojos.vigentes()) {
+					return;
+				}
+				for (int ii = Vecindario.desde(fila); ii <= Vecindario.hasta(fila, m); ii++) {
+					for (int jj = Vecindario.desde(columna); jj <= Vecindario.hasta(columna, n); jj++) {
+
+						// si esta marcada como posible mina o esta descubierta
+						if (marcadas.get(ii, jj) || descubiertas.get(ii, jj)) {
+							continue;
+						}
+
+						// los vecinos de un 0 nunca son minas
+						descubiertas.set(ii, jj, true);
+						nuevas++;
+						if (mapaDeMinas.contarVecinos(ii, jj) == 0) {
+							if (tope == pila.length) {
+								pila = Arrays.copyOf(pila, 2 * tope);
+							}
+							pila[tope++] = ii * n + jj;
+						}
+					}
+				}
+			}
+		}
+
+		// si las casillas descubiertas son iguales a las casillas sin minas, se gana
+		if (this.casillasDescubiertas.addAndGet(nuevas) == m * n - minas) {
+			terminar(Estado.ganado);
+		}
+	}
+
+	/**
+	 * Termina el juego con el <b>estado</b> entregado, siempre que no lo haya
+	 * terminado otra jugada.
+	 *
+	 * @param estado {@link Estado#ganado} o {@link Estado#perdido}.
+	 */
+	private void terminar(Estado estado) {
+		this.estado.compareAndSet(Estado.iniciado, estado);
+	}
+
+	/**
+	 * Devuelve el índice de la tesela que contiene la casilla (<b>i</b>,
+	 * <b>j</b>).
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return Índice de la tesela.
+	 */
+	private int tesela(int i, int j) {
+		return (i / LADO) * teselasPorFila + j / LADO;
+	}
+
+	/**
+	 * Devuelve el valor de la casilla en la posición (<b>i</b>, <b>j</b>). Si aún
+	 * no se ha generado el campo de minas, todas las casillas valen 0.
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return <b>-1</b> si la casilla es una mina, de lo contrario el número de
+	 *         minas alrededor de la casilla.
+	 */
+	private int valorDeCasilla(int i, int j) {
+		MatrizDeBits mapa = this.mapaDeMinas;
+		if (mapa == null) {
+			return 0;
+		}
+		if (mapa.get(i, j)) {
+			return -1;
+		}
+		return mapa.contarVecinos(i, j);
+	}
+
+	@Override
+	public Object get(int i, int j) {
+
+		// si (i, j) esta por fuera de la matriz
+		if (i < 0 || m <= i || j < 0 || n <= j) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		return valorDeCasilla(i, j);
+	}
+
+	@Override
+	public void iniciar() {
+		this.estado.compareAndSet(Estado.noIniciado, Estado.iniciado);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Toma los cerrojos de todas las teselas en orden, por lo que espera a que las
+	 * jugadas en curso los suelten, y conserva las minas. Las jugadas que estaban
+	 * esperando un cerrojo se abandonan al tomarlo.
+	 */
+	@Override
+	public void reiniciar() {
+		for (ReentrantLock tesela : teselas) {
+			tesela.lock();
+		}
+		try {
+			descubiertas.limpiar();
+			marcadas.limpiar();
+			this.posiblesMinas.set(0);
+			this.casillasDescubiertas.set(0);
+			this.estado.set(Estado.noIniciado);
+			this.partida++;
+		} finally {
+			for (ReentrantLock tesela : teselas) {
+				tesela.unlock();
+			}
+		}
+	}
+
+	@Override
+	public Estado getEstado() {
+		return this.estado.get();
+	}
+
+	/**
+	 * Indica si el juego terminó, ganado o perdido.
+	 *
+	 * @return <code>true</code> si el juego terminó.
+	 */
+	private boolean terminado() {
+		Estado actual = getEstado();
+		return actual == Estado.ganado || actual == Estado.perdido;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Al terminar el juego todas las casillas están descubiertas.
+	 */
+	@Override
+	public EstadoDeCasilla getEstadoDeCasilla(int i, int j) {
+
+		// si (i, j) esta por fuera de la matriz
+		if (i < 0 || m <= i || j < 0 || n <= j) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		if (terminado() || descubiertas.get(i, j)) {
+			return EstadoDeCasilla.descubierta;
+		}
+		if (marcadas.get(i, j)) {
+			return EstadoDeCasilla.posibleMina;
+		}
+		return EstadoDeCasilla.oculta;
+	}
+
+	@Override
+	public int getNumFilas() {
+		return this.m;
+	}
+
+	@Override
+	public int getNumColumnas() {
+		return this.n;
+	}
+
+	@Override
+	public int getNumMinas() {
+		return this.minas;
+	}
+
+	@Override
+	public long getSemilla() {
+		return this.semilla;
+	}
+
+	@Override
+	public int getPosiblesMinas() {
+		return terminado() ? 0 : this.posiblesMinas.get();
+	}
+
+	@Override
+	public int getCasillasDescubiertas() {
+		return terminado() ? m * n : this.casillasDescubiertas.get();
+	}
+
+	@Override
+	public int getCasillasOcultas() {
+		return m * n - getCasillasDescubiertas() - getPosiblesMinas();
+	}
+
+	@Override
+	public void setAperturaGarantizada(boolean aperturaGarantizada) {
+		this.aperturaGarantizada = aperturaGarantizada;
+	}
+}
@@ -0,0 +1,754 @@
+package buscaminas;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import buscaminas.CampoDeMinas.Estado;
+import buscaminas.CampoDeMinas.EstadoDeCasilla;
+import matricesDispersas.MatrizDeBits;
+
+/**
+ * Clase que representa un campo de minas sin límites, dividido en sectores de
+ * {@link #LADO} x {@link #LADO} casillas.
+ * <p>
+ * Las minas de cada sector se generan la primera vez que se necesitan, a partir
+ * de la semilla del campo y de las coordenadas del sector, por lo que siempre son
+ * las mismas y no es necesario guardarlas. Los números del borde de un sector se
+ * calculan con las minas de los sectores vecinos, así que son consistentes entre
+ * sectores. Los sectores que nunca se han tocado no ocupan memoria.
+ * <p>
+ * Los sectores con casillas descubiertas o marcadas se guardan completos hasta
+ * un máximo de {@link #sectoresEnMemoria}; al superarlo, el sector usado hace
+ * más tiempo se compacta, guardando solo sus casillas descubiertas y marcadas, y
+ * se vuelve a expandir si se vuelve a usar. Los sectores compactados también
+ * tienen un máximo, {@link #sectoresCompactos}; al superarlo, el compactado usado
+ * hace más tiempo se comprime aún más, guardando solo las filas que no se pueden
+ * deducir de sus minas (ver {@link #comprimir(long[], MatrizDeBits)}). Un sector
+ * terminado ocupa así tres palabras, y ninguna casilla descubierta o marcada se
+ * pierde, por largo que sea el juego.
+ * <p>
+ * Las casillas alrededor de (0, 0) nunca tienen minas, de modo que el primer
+ * despeje en el origen siempre abre un área del campo. Como una apertura puede
+ * ser muy grande, cada despeje descubre como máximo {@link #limiteDeCascada}
+ * casillas; al tocar un 0 descubierto se continúa descubriendo alrededor de él.
+ *
+ * @author sneyd
+ *
+ * @see CampoDeMinas
+ */
+public class CampoInfinito {
+
+	/**
+	 * Número de filas y columnas de cada sector, una palabra de 64 bits por fila.
+	 */
+	public static final int LADO = Long.SIZE;
+
+	/**
+	 * Clase que guarda el estado de un sector del campo.
+	 */
+	private static class Sector {
+
+		/**
+		 * Minas del sector.
+		 */
+		private final MatrizDeBits minas;
+
+		/**
+		 * Casillas descubiertas y marcadas como posibles minas del sector.
+		 */
+		private final MatrizDeBits descubiertas, marcadas;
+
+		Sector(MatrizDeBits minas) {
+			this.minas = minas;
+			this.descubiertas = new MatrizDeBits(LADO, LADO);
+			this.marcadas = new MatrizDeBits(LADO, LADO);
+		}
+
+		/**
+		 * Indica si el sector no tiene casillas descubiertas ni marcadas.
+		 *
+		 * @return <code>true</code> si el sector no tiene estado que guardar.
+		 */
+		boolean vacio() {
+			return descubiertas.contar() == 0 && marcadas.contar() == 0;
+		}
+
+		/**
+		 * Guarda las casillas descubiertas y marcadas en un solo arreglo.
+		 *
+		 * @return Las {@link #LADO} palabras de casillas descubiertas, seguidas de las
+		 *         marcadas si hay alguna.
+		 */
+		long[] compactar() {
+			boolean conMarcas = marcadas.contar() > 0;
+			long[] compacto = new long[conMarcas ? 2 * LADO : LADO];
+			for (int i = 0; i < LADO; i++) {
+				compacto[i] = descubiertas.getPalabra(i, 0);
+				if (conMarcas) {
+					compacto[LADO + i] = marcadas.getPalabra(i, 0);
+				}
+			}
+			return compacto;
+		}
+
+		/**
+		 * Recupera las casillas descubiertas y marcadas de un sector compactado.
+		 *
+		 * @param compacto Arreglo creado por {@link #compactar()}.
+		 */
+		void expandir(long[] compacto) {
+			for (int i = 0; i < LADO; i++) {
+				descubiertas.setPalabra(i, 0, compacto[i]);
+				if (compacto.length > LADO) {
+					marcadas.setPalabra(i, 0, compacto[LADO + i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Semilla del campo de minas.
+	 */
+	private final long semilla;
+
+	/**
+	 * Número de minas de cada sector.
+	 */
+	private final int minasPorSector;
+
+	/**
+	 * Número máximo de sectores que se guardan completos.
+	 */
+	private final int sectoresEnMemoria;
+
+	/**
+	 * Número máximo de sectores que se guardan compactados, antes de comprimir el
+	 * usado hace más tiempo.
+	 */
+	private final int sectoresCompactos;
+
+	/**
+	 * Número máximo de casillas que se descubren en un despeje.
+	 */
+	private final int limiteDeCascada;
+
+	/**
+	 * Sectores guardados completos, en orden de uso (el primero es el usado hace
+	 * más tiempo).
+	 */
+	private final LinkedHashMap<Long, Sector> sectores;
+
+	/**
+	 * Sectores compactados, en orden de uso.
+	 */
+	private final LinkedHashMap<Long, long[]> compactos;
+
+	/**
+	 * Sectores comprimidos con {@link #comprimir(long[], MatrizDeBits)}.
+	 */
+	private final HashMap<Long, long[]> comprimidos;
+
+	/**
+	 * Minas de los sectores usados recientemente, para calcular los números del
+	 * borde de los sectores sin generar una y otra vez las minas de sus vecinos.
+	 */
+	private final LinkedHashMap<Long, MatrizDeBits> minasRecientes;
+
+	/**
+	 * Estado del campo de minas.
+	 */
+	private Estado estado;
+
+	/**
+	 * Número de casillas descubiertas y de posibles minas.
+	 */
+	private long casillasDescubiertas, posiblesMinas;
+
+	/**
+	 * Pila de casillas pendientes de la cascada, cada una como
+	 * <code>fila &lt;&lt; 32 | columna</code>.
+	 */
+	private long[] pila;
+
+	/**
+	 * Constructor. Crea un campo de minas sin límites, que guarda compactados
+	 * hasta <code>16 * sectoresEnMemoria</code> sectores.
+	 *
+	 * @param semilla           Semilla con la que se generan las minas de los
+	 *                          sectores.
+	 * @param minasPorSector    Número de minas de cada sector, entre 1 y
+	 *                          <code>LADO * LADO - 9</code>.
+	 * @param sectoresEnMemoria Número máximo de sectores que se guardan completos.
+	 * @param limiteDeCascada   Número máximo de casillas que se descubren en un
+	 *                          despeje.
+	 */
+	public CampoInfinito(long semilla, int minasPorSector, int sectoresEnMemoria, int limiteDeCascada) {
+		this(semilla, minasPorSector, sectoresEnMemoria, 16 * sectoresEnMemoria, limiteDeCascada);
+	}
+
+	/**
+	 * Constructor. Crea un campo de minas sin límites.
+	 *
+	 * @param semilla           Semilla con la que se generan las minas de los
+	 *                          sectores.
+	 * @param minasPorSector    Número de minas de cada sector, entre 1 y
+	 *                          <code>LADO * LADO - 9</code>.
+	 * @param sectoresEnMemoria Número máximo de sectores que se guardan completos.
+	 * @param sectoresCompactos Número máximo de sectores que se guardan
+	 *                          compactados, antes de comprimir el usado hace más
+	 *                          tiempo.
+	 * @param limiteDeCascada   Número máximo de casillas que se descubren en un
+	 *                          despeje.
+	 */
+	public CampoInfinito(long semilla, int minasPorSector, int sectoresEnMemoria, int sectoresCompactos,
+			int limiteDeCascada) {
+		assert (0 < minasPorSector && minasPorSector <= LADO * LADO - 9)
+				: "el número de minas por sector debe estar entre 1 y LADO * LADO - 9";
+		assert (sectoresEnMemoria > 0 && sectoresCompactos >= 0 && limiteDeCascada > 0);
+
+		this.semilla = semilla;
+		this.minasPorSector = minasPorSector;
+		this.sectoresEnMemoria = sectoresEnMemoria;
+		this.sectoresCompactos = sectoresCompactos;
+		this.limiteDeCascada = limiteDeCascada;
+		this.pila = new long[64];
+		this.estado = Estado.noIniciado;
+
+		this.sectores = new LinkedHashMap<Long, Sector>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			// al superar el límite se compacta el sector usado hace más tiempo
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Sector> masAntiguo) {
+				if (size() <= CampoInfinito.this.sectoresEnMemoria) {
+					return false;
+				}
+				if (!masAntiguo.getValue().vacio()) {
+					compactos.put(masAntiguo.getKey(), masAntiguo.getValue().compactar());
+				}
+				return true;
+			}
+		};
+
+		this.compactos = new LinkedHashMap<Long, long[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			// al superar el límite se comprime el sector compactado usado hace más tiempo
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, long[]> masAntiguo) {
+				if (size() <= CampoInfinito.this.sectoresCompactos) {
+					return false;
+				}
+				long clave = masAntiguo.getKey();
+				comprimidos.put(clave, comprimir(masAntiguo.getValue(), generarMinas(clave)));
+				return true;
+			}
+		};
+
+		this.comprimidos = new HashMap<>();
+
+		this.minasRecientes = new LinkedHashMap<Long, MatrizDeBits>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, MatrizDeBits> masAntiguo) {
+				return size() > 4 * CampoInfinito.this.sectoresEnMemoria;
+			}
+		};
+	}
+
+	/**
+	 * Establece el estado del campo de minas como iniciado.
+	 */
+	public void iniciar() {
+		if (this.estado == Estado.noIniciado) {
+			this.estado = Estado.iniciado;
+		}
+	}
+
+	/**
+	 * Oculta todas las casillas nuevamente y establece el estado como
+	 * {@link Estado#noIniciado}. Las minas siguen siendo las mismas.
+	 */
+	public void reiniciar() {
+		this.sectores.clear();
+		this.compactos.clear();
+		this.comprimidos.clear();
+		this.estado = Estado.noIniciado;
+		this.casillasDescubiertas = 0;
+		this.posiblesMinas = 0;
+	}
+
+	/**
+	 * Despeja la casilla en la posición (<b>i</b>, <b>j</b>) si está oculta. Si
+	 * está descubierta, despeja sus vecinos siempre que las posibles minas a su
+	 * alrededor sean al menos su número (para un 0 continúa la cascada).
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 */
+	public void tocarCasilla(int i, int j) {
+		if (this.estado != Estado.iniciado) {
+			return;
+		}
+
+		switch (getEstadoDeCasilla(i, j)) {
+		case descubierta:
+			int v = valorDeCasilla(i, j);
+			if (contarMarcasVecinas(i, j) >= v) {
+				int tope = 0;
+				for (int ii = i - 1; ii <= i + 1; ii++) {
+					for (int jj = j - 1; jj <= j + 1; jj++) {
+						tope = apilar(tope, ii, jj);
+					}
+				}
+				despejar(tope);
+			}
+			break;
+
+		case oculta:
+			despejar(apilar(0, i, j));
+			break;
+
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Marca o desmarca la casilla en la posición (<b>i</b>, <b>j</b>) como posible
+	 * mina, siempre que no esté descubierta.
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 */
+	public void posibleMina(int i, int j) {
+		if (this.estado != Estado.iniciado) {
+			return;
+		}
+
+		Sector sector = sector(i, j);
+		int fi = Math.floorMod(i, LADO);
+		int cj = Math.floorMod(j, LADO);
+
+		if (!sector.descubiertas.get(fi, cj)) {
+			boolean marcada = sector.marcadas.get(fi, cj);
+			sector.marcadas.set(fi, cj, !marcada);
+			this.posiblesMinas += marcada ? -1 : 1;
+		}
+	}
+
+	/**
+	 * Despeja las casillas de la pila, y los vecinos de los ceros que se
+	 * descubran, hasta vaciar la pila o descubrir {@link #limiteDeCascada}
+	 * casillas.
+	 *
+	 * @param tope Número de casillas en la pila.
+	 */
+	private void despejar(int tope) {
+		int descubiertas = 0;
+
+		while (tope > 0 && descubiertas < limiteDeCascada) {
+			long casilla = pila[--tope];
+			int i = (int) (casilla >> 32);
+			int j = (int) casilla;
+
+			Sector sector = sector(i, j);
+			int fi = Math.floorMod(i, LADO);
+			int cj = Math.floorMod(j, LADO);
+
+			// si esta marcada como posible mina o esta descubierta
+			if (sector.descubiertas.get(fi, cj) || sector.marcadas.get(fi, cj)) {
+				continue;
+			}
+
+			sector.descubiertas.set(fi, cj, true);
+			this.casillasDescubiertas++;
+			descubiertas++;
+
+			int v = valorDeCasilla(i, j);
+			if (v == -1) {
+				this.estado = Estado.perdido;
+				return;
+			} else if (v == 0) {
+				for (int ii = i - 1; ii <= i + 1; ii++) {
+					for (int jj = j - 1; jj <= j + 1; jj++) {
+						tope = apilar(tope, ii, jj);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Agrega la casilla (<b>i</b>, <b>j</b>) a la pila, agrandándola si hace
+	 * falta.
+	 *
+	 * @param tope Número de casillas en la pila.
+	 * @param i    Fila de la casilla.
+	 * @param j    Columna de la casilla.
+	 * @return Nuevo número de casillas en la pila.
+	 */
+	private int apilar(int tope, int i, int j) {
+		if (tope == pila.length) {
+			pila = Arrays.copyOf(pila, 2 * tope);
+		}
+		pila[tope] = ((long) i << 32) | (j & 0xFFFFFFFFL);
+		return tope + 1;
+	}
+
+	/**
+	 * Devuelve el valor de la casilla en la posición (<b>i</b>, <b>j</b>).
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return <b>-1</b> si la casilla es una mina, de lo contrario el número de
+	 *         minas alrededor de la casilla.
+	 */
+	public int get(int i, int j) {
+		return valorDeCasilla(i, j);
+	}
+
+	/**
+	 * Calcula el valor de la casilla (<b>i</b>, <b>j</b>). Si la casilla no está
+	 * en el borde de su sector, basta con las minas del sector.
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return Valor de la casilla.
+	 */
+	private int valorDeCasilla(int i, int j) {
+		int fi = Math.floorMod(i, LADO);
+		int cj = Math.floorMod(j, LADO);
+		MatrizDeBits minas = minas(Math.floorDiv(i, LADO), Math.floorDiv(j, LADO));
+
+		if (minas.get(fi, cj)) {
+			return -1;
+		}
+		if (0 < fi && fi < LADO - 1 && 0 < cj && cj < LADO - 1) {
+			return minas.contarVecinos(fi, cj);
+		}
+
+		int cuenta = 0;
+		for (int ii = i - 1; ii <= i + 1; ii++) {
+			for (int jj = j - 1; jj <= j + 1; jj++) {
+				if (esMina(ii, jj)) {
+					cuenta++;
+				}
+			}
+		}
+		return cuenta;
+	}
+
+	/**
+	 * Indica si la casilla (<b>i</b>, <b>j</b>) es una mina.
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return <code>true</code> si la casilla es una mina.
+	 */
+	private boolean esMina(int i, int j) {
+		return minas(Math.floorDiv(i, LADO), Math.floorDiv(j, LADO)).get(Math.floorMod(i, LADO),
+				Math.floorMod(j, LADO));
+	}
+
+	/**
+	 * Cuenta las casillas marcadas como posibles minas alrededor de la casilla
+	 * (<b>i</b>, <b>j</b>).
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return Número de posibles minas alrededor.
+	 */
+	private int contarMarcasVecinas(int i, int j) {
+		int cuenta = 0;
+		for (int ii = i - 1; ii <= i + 1; ii++) {
+			for (int jj = j - 1; jj <= j + 1; jj++) {
+				if (getEstadoDeCasilla(ii, jj) == EstadoDeCasilla.posibleMina) {
+					cuenta++;
+				}
+			}
+		}
+		return cuenta;
+	}
+
+	/**
+	 * Devuelve el estado de la casilla en la posición (<b>i</b>, <b>j</b>), sin
+	 * crear su sector si no existe.
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return {@link EstadoDeCasilla}.
+	 */
+	public EstadoDeCasilla getEstadoDeCasilla(int i, int j) {
+		long clave = clave(Math.floorDiv(i, LADO), Math.floorDiv(j, LADO));
+		int fi = Math.floorMod(i, LADO);
+		int cj = Math.floorMod(j, LADO);
+		Sector sector = sectores.get(clave);
+
+		if (sector != null) {
+			if (sector.descubiertas.get(fi, cj)) {
+				return EstadoDeCasilla.descubierta;
+			}
+			return sector.marcadas.get(fi, cj) ? EstadoDeCasilla.posibleMina : EstadoDeCasilla.oculta;
+		}
+
+		long[] compacto = compactos.get(clave);
+		if (compacto != null) {
+			if ((compacto[fi] >>> cj & 1L) != 0) {
+				return EstadoDeCasilla.descubierta;
+			}
+			if (compacto.length > LADO && (compacto[LADO + fi] >>> cj & 1L) != 0) {
+				return EstadoDeCasilla.posibleMina;
+			}
+			return EstadoDeCasilla.oculta;
+		}
+
+		long[] comprimido = comprimidos.get(clave);
+		if (comprimido != null) {
+			long bit = 1L << fi;
+			// si la fila esta terminada, todas sus casillas sin mina estan descubiertas
+			if ((comprimido[1] & bit) != 0) {
+				if (!generarMinas(clave).get(fi, cj)) {
+					return EstadoDeCasilla.descubierta;
+				}
+			} else if ((comprimido[0] & bit) != 0
+					&& (comprimido[3 + Long.bitCount(comprimido[0] & (bit - 1))] >>> cj & 1L) != 0) {
+				return EstadoDeCasilla.descubierta;
+			}
+			if ((comprimido[2] & bit) != 0 && (comprimido[3 + Long.bitCount(comprimido[0])
+					+ Long.bitCount(comprimido[2] & (bit - 1))] >>> cj & 1L) != 0) {
+				return EstadoDeCasilla.posibleMina;
+			}
+		}
+		return EstadoDeCasilla.oculta;
+	}
+
+	/**
+	 * Comprime un sector compactado. Las filas sin casillas descubiertas no se
+	 * guardan, ni tampoco las terminadas, cuyas casillas descubiertas son todas
+	 * las que no tienen mina; solo se guardan las demás filas y las que tienen
+	 * casillas marcadas.
+	 *
+	 * @param compacto Arreglo creado por {@link Sector#compactar()}.
+	 * @param minas    Minas del sector.
+	 * @return Máscara de las filas descubiertas guardadas, máscara de las filas
+	 *         terminadas y máscara de las filas marcadas guardadas, seguidas de las
+	 *         palabras guardadas de las casillas descubiertas y de las marcadas.
+	 */
+	private static long[] comprimir(long[] compacto, MatrizDeBits minas) {
+		long parciales = 0, terminadas = 0, conMarcas = 0;
+		for (int i = 0; i < LADO; i++) {
+			long sinMinas = ~minas.getPalabra(i, 0);
+			if (compacto[i] != 0) {
+				if (compacto[i] == sinMinas) {
+					terminadas |= 1L << i;
+				} else {
+					parciales |= 1L << i;
+				}
+			}
+			if (compacto.length > LADO && compacto[LADO + i] != 0) {
+				conMarcas |= 1L << i;
+			}
+		}
+
+		long[] comprimido = new long[3 + Long.bitCount(parciales) + Long.bitCount(conMarcas)];
+		comprimido[0] = parciales;
+		comprimido[1] = terminadas;
+		comprimido[2] = conMarcas;
+		int k = 3;
+		for (long filas = parciales; filas != 0; filas &= filas - 1) {
+			comprimido[k++] = compacto[Long.numberOfTrailingZeros(filas)];
+		}
+		for (long filas = conMarcas; filas != 0; filas &= filas - 1) {
+			comprimido[k++] = compacto[LADO + Long.numberOfTrailingZeros(filas)];
+		}
+		return comprimido;
+	}
+
+	/**
+	 * Recupera un sector compactado a partir de uno comprimido.
+	 *
+	 * @param comprimido Arreglo creado por {@link #comprimir(long[], MatrizDeBits)}.
+	 * @param minas      Minas del sector.
+	 * @return Arreglo como el que crea {@link Sector#compactar()}.
+	 */
+	private static long[] descomprimir(long[] comprimido, MatrizDeBits minas) {
+		long[] compacto = new long[comprimido[2] != 0 ? 2 * LADO : LADO];
+		for (long filas = comprimido[1]; filas != 0; filas &= filas - 1) {
+			int i = Long.numberOfTrailingZeros(filas);
+			compacto[i] = ~minas.getPalabra(i, 0);
+		}
+		int k = 3;
+		for (long filas = comprimido[0]; filas != 0; filas &= filas - 1) {
+			compacto[Long.numberOfTrailingZeros(filas)] = comprimido[k++];
+		}
+		for (long filas = comprimido[2]; filas != 0; filas &= filas - 1) {
+			compacto[LADO + Long.numberOfTrailingZeros(filas)] = comprimido[k++];
+		}
+		return compacto;
+	}
+
+	/**
+	 * Devuelve el sector que contiene la casilla (<b>i</b>, <b>j</b>), creándolo o
+	 * expandiéndolo si no está completo en memoria.
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return {@link Sector} de la casilla.
+	 */
+	private Sector sector(int i, int j) {
+		int si = Math.floorDiv(i, LADO);
+		int sj = Math.floorDiv(j, LADO);
+		long clave = clave(si, sj);
+		Sector sector = sectores.get(clave);
+
+		if (sector == null) {
+			sector = new Sector(minas(si, sj));
+			long[] compacto = compactos.remove(clave);
+			if (compacto == null) {
+				long[] comprimido = comprimidos.remove(clave);
+				if (comprimido != null) {
+					compacto = descomprimir(comprimido, sector.minas);
+				}
+			}
+			if (compacto != null) {
+				sector.expandir(compacto);
+			}
+			sectores.put(clave, sector);
+		}
+		return sector;
+	}
+
+	/**
+	 * Devuelve las minas del sector (<b>si</b>, <b>sj</b>), generándolas si no
+	 * están en memoria.
+	 * <p>
+	 * Las minas se generan con {@link GeneradorDeMinas} a partir de una semilla
+	 * que mezcla la semilla del campo con las coordenadas del sector, excluyendo
+	 * las casillas del sector que están alrededor de (0, 0).
+	 *
+	 * @param si Fila del sector.
+	 * @param sj Columna del sector.
+	 * @return {@link MatrizDeBits} con las minas del sector.
+	 */
+	private MatrizDeBits minas(int si, int sj) {
+		long clave = clave(si, sj);
+		Sector sector = sectores.get(clave);
+		if (sector != null) {
+			return sector.minas;
+		}
+		return generarMinas(clave);
+	}
+
+	/**
+	 * Devuelve las minas del sector con la <b>clave</b> dada, generándolas si no
+	 * están entre las usadas recientemente. No consulta los sectores completos,
+	 * para poder usarse mientras se compacta uno de ellos.
+	 *
+	 * @param clave Clave del sector.
+	 * @return {@link MatrizDeBits} con las minas del sector.
+	 */
+	private MatrizDeBits generarMinas(long clave) {
+		int si = (int) (clave >> 32);
+		int sj = (int) clave;
+		MatrizDeBits minas = minasRecientes.get(clave);
+		if (minas == null) {
+			int[] excluidas = new int[9];
+			int k = 0;
+			for (int i = -1; i <= 1; i++) {
+				for (int j = -1; j <= 1; j++) {
+					if (Math.floorDiv(i, LADO) == si && Math.floorDiv(j, LADO) == sj) {
+						excluidas[k++] = Math.floorMod(i, LADO) * LADO + Math.floorMod(j, LADO);
+					}
+				}
+			}
+			excluidas = Arrays.copyOf(excluidas, k);
+			Arrays.sort(excluidas);
+
+			minas = new MatrizDeBits(LADO, LADO);
+			// la clave se mezcla antes de combinarla con la semilla, para que sectores
+			// vecinos tengan semillas sin relación entre sí
+			GeneradorDeMinas.generar(minasPorSector, excluidas,
+					GeneradorDeMinas.siguienteSemilla(semilla ^ GeneradorDeMinas.siguienteSemilla(clave)), minas);
+			minasRecientes.put(clave, minas);
+		}
+		return minas;
+	}
+
+	/**
+	 * Clave de un sector en los mapas.
+	 *
+	 * @param si Fila del sector.
+	 * @param sj Columna del sector.
+	 * @return <code>si &lt;&lt; 32 | sj</code>.
+	 */
+	private static long clave(int si, int sj) {
+		return ((long) si << 32) | (sj & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Retorna el estado del campo de minas.
+	 *
+	 * @return {@link Estado} del campo de minas.
+	 */
+	public Estado getEstado() {
+		return this.estado;
+	}
+
+	/**
+	 * Devuelve la semilla del campo de minas.
+	 *
+	 * @return {@link #semilla}.
+	 */
+	public long getSemilla() {
+		return this.semilla;
+	}
+
+	/**
+	 * Devuelve el número de casillas descubiertas.
+	 *
+	 * @return {@link #casillasDescubiertas}.
+	 */
+	public long getCasillasDescubiertas() {
+		return this.casillasDescubiertas;
+	}
+
+	/**
+	 * Devuelve el número de casillas marcadas como posibles minas.
+	 *
+	 * @return {@link #posiblesMinas}.
+	 */
+	public long getPosiblesMinas() {
+		return this.posiblesMinas;
+	}
+
+	/**
+	 * Devuelve el número de sectores guardados completos en memoria.
+	 *
+	 * @return Número de sectores completos.
+	 */
+	public int getSectoresEnMemoria() {
+		return this.sectores.size();
+	}
+
+	/**
+	 * Devuelve el número de sectores compactados.
+	 *
+	 * @return Número de sectores compactados.
+	 */
+	public int getSectoresCompactos() {
+		return this.compactos.size();
+	}
+
+	/**
+	 * Devuelve el número de sectores comprimidos.
+	 *
+	 * @return Número de sectores comprimidos.
+	 */
+	public int getSectoresComprimidos() {
+		return this.comprimidos.size();
+	}
+}
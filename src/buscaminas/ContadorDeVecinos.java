@@ -0,0 +1,108 @@
+package buscaminas;
+
+import matricesDispersas.MatrizDeBits;
+
+/**
+ * Clase con el núcleo que calcula los números de un campo de minas a partir de
+ * la {@link MatrizDeBits} de sus minas.
+ * <p>
+ * El número de una casilla es la suma de las minas en la ventana de 3x3 que la
+ * rodea. En lugar de sumar casilla por casilla, se calculan 8 casillas a la vez
+ * (SWAR, <i>SIMD within a register</i>): cada byte de un <code>long</code> es el
+ * contador de una casilla. Los 8 bits de minas de una ventana se expanden a 8
+ * bytes con {@link #EXPANDIR}, y las 9 expansiones de la ventana (3 filas por 3
+ * desplazamientos) se suman en paralelo, sin que ningún byte pase de 9.
+ * 
+ * @author sneyd
+ *
+ * @see CampoDeMinas
+ */
+public class ContadorDeVecinos {
+
+	/**
+	 * Tabla que expande cada byte a un <code>long</code> en el que el byte
+	 * <b>t</b> vale el bit <b>t</b> del byte original.
+	 */
+	private static final long[] EXPANDIR = new long[256];
+
+	static {
+		for (int b = 0; b < 256; b++) {
+			long expandido = 0L;
+			for (int t = 0; t < 8; t++) {
+				if ((b & (1 << t)) != 0) {
+					expandido |= 1L << (8 * t);
+				}
+			}
+			EXPANDIR[b] = expandido;
+		}
+	}
+
+	/**
+	 * Calcula, para cada columna de la fila <b>i</b>, el número de minas en la
+	 * ventana de 3x3 centrada en la casilla. Si la casilla es una mina, el conteo
+	 * la incluye.
+	 * 
+	 * @param minas   {@link MatrizDeBits} con las minas del campo.
+	 * @param i       Fila a calcular.
+	 * @param destino Arreglo en el que se guardan los conteos, de tamaño al menos
+	 *                igual al número de columnas.
+	 */
+	public static void contarFila(MatrizDeBits minas, int i, byte[] destino) {
+		int n = minas.getNumColumnas();
+		int w = minas.getPalabrasPorFila();
+		int filaMin = Vecindario.desde(i);
+		int filaMax = Vecindario.hasta(i, minas.getNumFilas());
+
+		for (int k = 0; k < w; k++) {
+
+			// por cada fila de la ventana se preparan los bits de los vecinos izquierdo y
+			// derecho de cada columna de la palabra
+			long centro0 = 0L, izquierda0 = 0L, derecha0 = 0L;
+			long centro1 = 0L, izquierda1 = 0L, derecha1 = 0L;
+			long centro2 = 0L, izquierda2 = 0L, derecha2 = 0L;
+			int filas = 0;
+			for (int f = filaMin; f <= filaMax; f++) {
+				long x = minas.getPalabra(f, k);
+				long izquierda = x << 1;
+				long derecha = x >>> 1;
+				if (k > 0) {
+					izquierda |= minas.getPalabra(f, k - 1) >>> 63;
+				}
+				if (k + 1 < w) {
+					derecha |= minas.getPalabra(f, k + 1) << 63;
+				}
+				if (filas == 0) {
+					centro0 = x;
+					izquierda0 = izquierda;
+					derecha0 = derecha;
+				} else if (filas == 1) {
+					centro1 = x;
+					izquierda1 = izquierda;
+					derecha1 = derecha;
+				} else {
+					centro2 = x;
+					izquierda2 = izquierda;
+					derecha2 = derecha;
+				}
+				filas++;
+			}
+
+			// se suman 8 columnas a la vez, un byte por columna
+			int jBase = k << 6;
+			for (int q = 0; q < 8 && jBase + 8 * q < n; q++) {
+				int d = 8 * q;
+				long suma = EXPANDIR[(int) (centro0 >>> d) & 0xFF] + EXPANDIR[(int) (izquierda0 >>> d) & 0xFF]
+						+ EXPANDIR[(int) (derecha0 >>> d) & 0xFF] + EXPANDIR[(int) (centro1 >>> d) & 0xFF]
+						+ EXPANDIR[(int) (izquierda1 >>> d) & 0xFF] + EXPANDIR[(int) (derecha1 >>> d) & 0xFF]
+						+ EXPANDIR[(int) (centro2 >>> d) & 0xFF] + EXPANDIR[(int) (izquierda2 >>> d) & 0xFF]
+						+ EXPANDIR[(int) (derecha2 >>> d) & 0xFF];
+
+				int j = jBase + d;
+				int hasta = Math.min(8, n - j);
+				for (int t = 0; t < hasta; t++) {
+					destino[j + t] = (byte) (suma >>> (8 * t));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,601 @@
+package buscaminas;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import matricesDispersas.MatrizDeBits;
+
+/**
+ * Clase que calcula en paralelo las casillas que se descubren al despejar un 0,
+ * para campos de minas muy grandes en los que una sola apertura puede tener
+ * millones de casillas.
+ * <p>
+ * El campo se divide en teselas de {@link #FILAS_POR_TESELA} filas por
+ * {@link #PALABRAS_POR_TESELA} palabras de 64 columnas. La región de ceros se
+ * guarda en un {@link AtomicLongArray} compartido, y crece por rondas: en cada
+ * ronda las teselas activas se procesan en paralelo en un {@link ForkJoinPool},
+ * cada una hasta que deja de cambiar, leyendo los bordes de sus vecinas. Cada
+ * palabra solo la escribe la tarea de su tesela, y una tesela que cambió activa
+ * a sus vecinas para la siguiente ronda. Como la región solo crece y no depende
+ * del orden en que se procesen las teselas, el resultado es el mismo que el del
+ * despeje secuencial.
+ * <p>
+ * Las casillas descubiertas o marcadas como posibles minas se deben informar con
+ * {@link #setBloqueada(int, int, boolean)}, ya que la región no pasa por ellas.
+ *
+ * @author sneyd
+ *
+ * @see CampoDeMinas#setDespejeParalelo(boolean)
+ */
+public class DespejeParalelo {
+
+	/**
+	 * Número de filas de cada tesela.
+	 */
+	private static final int FILAS_POR_TESELA = 64;
+
+	/**
+	 * Número de palabras de 64 columnas de cada tesela.
+	 */
+	private static final int PALABRAS_POR_TESELA = 4;
+
+	/**
+	 * Número de filas y de columnas del campo de minas.
+	 */
+	private final int m, n;
+
+	/**
+	 * Número de palabras por fila.
+	 */
+	private final int w;
+
+	/**
+	 * Número de teselas por columna y por fila del campo.
+	 */
+	private final int teselasVerticales, teselasHorizontales;
+
+	/**
+	 * Casillas con valor 0.
+	 */
+	private final MatrizDeBits ceros;
+
+	/**
+	 * Casillas descubiertas o marcadas como posibles minas.
+	 */
+	private final MatrizDeBits bloqueadas;
+
+	/**
+	 * Casillas descubiertas en el último despeje.
+	 */
+	private final MatrizDeBits nuevas;
+
+	/**
+	 * Región de ceros que está creciendo, con la misma distribución de palabras
+	 * que una {@link MatrizDeBits}.
+	 */
+	private final AtomicLongArray region;
+
+	/**
+	 * Teselas activas en la siguiente ronda, y teselas en las que creció la
+	 * región.
+	 */
+	private final boolean[] siguientes, tocadas;
+
+	/**
+	 * Teselas en las que quedaron casillas en {@link #nuevas} en el último despeje.
+	 */
+	private int[] teselasConNuevas;
+
+	/**
+	 * Número de ceros descubiertos en el último despeje.
+	 */
+	private int cerosDespejados;
+
+	/**
+	 * {@link ForkJoinPool} en el que se ejecutan las tareas.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor. Calcula los ceros del campo a partir de sus <b>minas</b>.
+	 *
+	 * @param minas {@link MatrizDeBits} con las minas del campo.
+	 * @param pool  {@link ForkJoinPool} en el que se hace el despeje.
+	 */
+	public DespejeParalelo(MatrizDeBits minas, ForkJoinPool pool) {
+		this.m = minas.getNumFilas();
+		this.n = minas.getNumColumnas();
+		this.w = minas.getPalabrasPorFila();
+		this.teselasVerticales = (m + FILAS_POR_TESELA - 1) / FILAS_POR_TESELA;
+		this.teselasHorizontales = (w + PALABRAS_POR_TESELA - 1) / PALABRAS_POR_TESELA;
+		this.ceros = new MatrizDeBits(m, n);
+		this.bloqueadas = new MatrizDeBits(m, n);
+		this.nuevas = new MatrizDeBits(m, n);
+		this.region = new AtomicLongArray(m * w);
+		this.siguientes = new boolean[teselasVerticales * teselasHorizontales];
+		this.tocadas = new boolean[teselasVerticales * teselasHorizontales];
+		this.teselasConNuevas = new int[0];
+		this.pool = pool;
+		calcularCeros(minas);
+	}
+
+	/**
+	 * Vuelve a calcular los ceros con otras <b>minas</b> del mismo tamaño, para un
+	 * nuevo tablero, reutilizando las matrices del despeje. También desbloquea
+	 * todas las casillas.
+	 *
+	 * @param minas {@link MatrizDeBits} con las minas del campo, del mismo tamaño
+	 *              que las anteriores.
+	 */
+	public void recalcular(MatrizDeBits minas) {
+		assert (minas.getNumFilas() == m && minas.getNumColumnas() == n)
+				: "las minas deben tener el mismo tamaño que las anteriores";
+
+		calcularCeros(minas);
+		this.bloqueadas.limpiar();
+		this.nuevas.limpiar();
+		this.teselasConNuevas = new int[0];
+	}
+
+	/**
+	 * Calcula {@link #ceros} como las casillas sin minas en su ventana de 3x3.
+	 *
+	 * @param minas {@link MatrizDeBits} con las minas del campo.
+	 */
+	private void calcularCeros(MatrizDeBits minas) {
+		long mascara = ceros.getMascaraFinal();
+		for (int i = 0; i < m; i++) {
+			for (int k = 0; k < w; k++) {
+				long palabra = ~CampoDeMinasBits.dilatar(minas, i, k);
+				if (k == w - 1) {
+					palabra &= mascara;
+				}
+				ceros.setPalabra(i, k, palabra);
+			}
+		}
+	}
+
+	/**
+	 * Marca o desmarca la casilla (<b>i</b>, <b>j</b>) como bloqueada, o sea,
+	 * descubierta o marcada como posible mina.
+	 *
+	 * @param i         Fila de la casilla.
+	 * @param j         Columna de la casilla.
+	 * @param bloqueada <code>true</code> si la casilla no está oculta.
+	 */
+	public void setBloqueada(int i, int j, boolean bloqueada) {
+		this.bloqueadas.set(i, j, bloqueada);
+	}
+
+	/**
+	 * Desbloquea todas las casillas, para cuando se reinicia el juego.
+	 */
+	public void limpiar() {
+		this.bloqueadas.limpiar();
+	}
+
+	/**
+	 * Calcula las casillas que se descubren al despejar el 0 oculto en la posición
+	 * (<b>i</b>, <b>j</b>): la región de ceros ocultos que lo contiene y su borde,
+	 * sin las casillas bloqueadas. Las casillas quedan en {@link #getNuevas()} y
+	 * se bloquean.
+	 *
+	 * @param i Fila de un 0 oculto.
+	 * @param j Columna de un 0 oculto.
+	 * @return Número de casillas descubiertas.
+	 */
+	public int despejar(int i, int j) {
+		int[] activas, porRevisar;
+		int inicial;
+
+		// se limpian las casillas del despeje anterior
+		pool.invoke(new Tarea(Fase.limpiarNuevas, teselasConNuevas, 0, teselasConNuevas.length));
+
+		region.set(i * w + j / Long.SIZE, 1L << j);
+		inicial = tesela(i / FILAS_POR_TESELA, j / Long.SIZE / PALABRAS_POR_TESELA);
+		tocadas[inicial] = true;
+
+		// el 0 inicial puede estar en el borde de su tesela, y su región seguir solo
+		// en las vecinas, por lo que en la primera ronda también se activan ellas
+		marcarVecinas(inicial);
+		activas = tomarSiguientes();
+
+		// rondas de crecimiento hasta que ninguna tesela cambie
+		while (activas.length > 0) {
+			pool.invoke(new Tarea(Fase.crecer, activas, 0, activas.length));
+			activas = tomarSiguientes();
+		}
+
+		// se descubren las teselas tocadas y sus vecinas, ya que el borde de la región
+		// puede estar en ellas
+		for (int t = 0; t < tocadas.length; t++) {
+			if (tocadas[t]) {
+				marcarVecinas(t);
+			}
+		}
+		porRevisar = tomarSiguientes();
+
+		Tarea descubrir = new Tarea(Fase.descubrir, porRevisar, 0, porRevisar.length);
+		pool.invoke(descubrir);
+		this.teselasConNuevas = porRevisar;
+
+		// se limpia la región para el siguiente despeje
+		pool.invoke(new Tarea(Fase.limpiarRegion, porRevisar, 0, porRevisar.length));
+		for (int t : porRevisar) {
+			tocadas[t] = false;
+		}
+
+		this.cerosDespejados = descubrir.ceros.get();
+		return descubrir.descubiertas.get();
+	}
+
+	/**
+	 * Retorna las casillas descubiertas en el último despeje.
+	 *
+	 * @return {@link MatrizDeBits} con las casillas descubiertas. Se reutiliza en
+	 *         el siguiente despeje.
+	 */
+	public MatrizDeBits getNuevas() {
+		return this.nuevas;
+	}
+
+	/**
+	 * Retorna las teselas revisadas en el último despeje. Las casillas de
+	 * {@link #getNuevas()} están todas dentro de ellas, así que basta con recorrer
+	 * estas teselas para encontrarlas.
+	 *
+	 * @return Índices de las teselas, en orden. No se debe modificar.
+	 */
+	public int[] getTeselasConNuevas() {
+		return this.teselasConNuevas;
+	}
+
+	/**
+	 * Retorna la primera fila de la tesela <b>t</b>.
+	 *
+	 * @param t Tesela.
+	 * @return Fila inicial de la tesela.
+	 */
+	public int getFilaInicial(int t) {
+		return (t / teselasHorizontales) * FILAS_POR_TESELA;
+	}
+
+	/**
+	 * Retorna la fila siguiente a la última de la tesela <b>t</b>.
+	 *
+	 * @param t Tesela.
+	 * @return Fila final (exclusiva) de la tesela.
+	 */
+	public int getFilaFinal(int t) {
+		return Math.min(getFilaInicial(t) + FILAS_POR_TESELA, m);
+	}
+
+	/**
+	 * Retorna la primera palabra de columnas de la tesela <b>t</b>.
+	 *
+	 * @param t Tesela.
+	 * @return Palabra inicial de la tesela.
+	 */
+	public int getPalabraInicial(int t) {
+		return (t % teselasHorizontales) * PALABRAS_POR_TESELA;
+	}
+
+	/**
+	 * Retorna la palabra de columnas siguiente a la última de la tesela <b>t</b>.
+	 *
+	 * @param t Tesela.
+	 * @return Palabra final (exclusiva) de la tesela.
+	 */
+	public int getPalabraFinal(int t) {
+		return Math.min(getPalabraInicial(t) + PALABRAS_POR_TESELA, w);
+	}
+
+	/**
+	 * Retorna el número de ceros descubiertos en el último despeje.
+	 *
+	 * @return Número de ceros de la región despejada.
+	 */
+	public int getCerosDespejados() {
+		return this.cerosDespejados;
+	}
+
+	/**
+	 * Fases del despeje que se ejecutan en paralelo por teselas.
+	 */
+	private enum Fase {
+		limpiarNuevas, crecer, descubrir, limpiarRegion
+	}
+
+	/**
+	 * Tarea que aplica una {@link Fase} a un rango de teselas, dividiéndolo en
+	 * mitades hasta llegar a una sola tesela.
+	 */
+	private class Tarea extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Fase fase;
+		private final int[] teselas;
+		private final int desde, hasta;
+
+		/**
+		 * Contadores de la fase {@link Fase#descubrir}, compartidos por las subtareas.
+		 */
+		private final AtomicInteger descubiertas, ceros;
+
+		Tarea(Fase fase, int[] teselas, int desde, int hasta) {
+			this(fase, teselas, desde, hasta, new AtomicInteger(), new AtomicInteger());
+		}
+
+		private Tarea(Fase fase, int[] teselas, int desde, int hasta, AtomicInteger descubiertas,
+				AtomicInteger ceros) {
+			this.fase = fase;
+			this.teselas = teselas;
+			this.desde = desde;
+			this.hasta = hasta;
+			this.descubiertas = descubiertas;
+			this.ceros = ceros;
+		}
+
+		@Override
+		protected void compute() {
+			if (hasta - desde > 1) {
+				int mitad = (desde + hasta) >>> 1;
+				invokeAll(new Tarea(fase, teselas, desde, mitad, descubiertas, ceros),
+						new Tarea(fase, teselas, mitad, hasta, descubiertas, ceros));
+				return;
+			}
+			if (hasta == desde) {
+				return;
+			}
+
+			int t = teselas[desde];
+			switch (fase) {
+			case limpiarNuevas:
+				limpiarTesela(t, false);
+				break;
+			case crecer:
+				if (crecerTesela(t)) {
+					tocadas[t] = true;
+					marcarVecinas(t);
+				}
+				break;
+			case descubrir:
+				descubrirTesela(t, this);
+				break;
+			case limpiarRegion:
+				limpiarTesela(t, true);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Hace crecer la región dentro de la tesela <b>t</b> hasta que deja de cambiar,
+	 * usando una pila de filas pendientes como en {@link CampoDeMinasBits}.
+	 *
+	 * @param t Tesela a procesar.
+	 * @return <code>true</code> si la región cambió en la tesela.
+	 */
+	private boolean crecerTesela(int t) {
+		int f0 = getFilaInicial(t);
+		int f1 = getFilaFinal(t);
+		int k0 = getPalabraInicial(t);
+		int k1 = getPalabraFinal(t);
+		int[] pendientes = new int[f1 - f0];
+		boolean[] enPendientes = new boolean[f1 - f0];
+		int tope = 0;
+		boolean cambio = false;
+
+		// al inicio cualquier fila puede crecer desde las teselas vecinas
+		for (int r = f1 - 1; r >= f0; r--) {
+			pendientes[tope++] = r;
+			enPendientes[r - f0] = true;
+		}
+
+		while (tope > 0) {
+			int r = pendientes[--tope];
+			enPendientes[r - f0] = false;
+
+			if (crecerFila(r, k0, k1)) {
+				cambio = true;
+
+				// las filas vecinas dentro de la tesela pueden crecer con esta
+				for (int f = Math.max(r - 1, f0); f <= Math.min(r + 1, f1 - 1); f++) {
+					if (!enPendientes[f - f0]) {
+						pendientes[tope++] = f;
+						enPendientes[f - f0] = true;
+					}
+				}
+			}
+		}
+		return cambio;
+	}
+
+	/**
+	 * Hace crecer la región en la fila <b>r</b>, entre las palabras <b>k0</b> y
+	 * <b>k1</b>, hasta que deja de cambiar.
+	 *
+	 * @param r  Fila a procesar.
+	 * @param k0 Primera palabra de la tesela.
+	 * @param k1 Palabra siguiente a la última de la tesela.
+	 * @return <code>true</code> si la fila cambió.
+	 */
+	private boolean crecerFila(int r, int k0, int k1) {
+		boolean cambio = false, cambioEnPasada = true, haciaLaDerecha = true;
+
+		while (cambioEnPasada) {
+			cambioEnPasada = false;
+			for (int x = k0; x < k1; x++) {
+				int k = haciaLaDerecha ? x : k1 - 1 - (x - k0);
+				long libres = ceros.getPalabra(r, k) & ~bloqueadas.getPalabra(r, k);
+				long actual = region.get(r * w + k);
+				long nueva = CampoDeMinasBits.rellenar(actual | (dilatar(r, k) & libres), libres);
+
+				if (nueva != actual) {
+					region.set(r * w + k, nueva);
+					cambioEnPasada = true;
+				}
+			}
+			cambio |= cambioEnPasada;
+			haciaLaDerecha = !haciaLaDerecha;
+		}
+		return cambio;
+	}
+
+	/**
+	 * Descubre las casillas de la tesela <b>t</b> que están en la región o junto a
+	 * ella, y no están bloqueadas.
+	 *
+	 * @param t     Tesela a procesar.
+	 * @param tarea Tarea con los contadores a actualizar.
+	 */
+	private void descubrirTesela(int t, Tarea tarea) {
+		int f0 = getFilaInicial(t);
+		int f1 = getFilaFinal(t);
+		int k0 = getPalabraInicial(t);
+		int k1 = getPalabraFinal(t);
+		long mascara = nuevas.getMascaraFinal();
+		int descubiertas = 0, cerosEnRegion = 0;
+
+		for (int r = f0; r < f1; r++) {
+			for (int k = k0; k < k1; k++) {
+				long palabra = dilatar(r, k) & ~bloqueadas.getPalabra(r, k);
+				if (k == w - 1) {
+					palabra &= mascara;
+				}
+				if (palabra != 0) {
+					nuevas.setPalabra(r, k, palabra);
+					bloqueadas.setPalabra(r, k, bloqueadas.getPalabra(r, k) | palabra);
+					descubiertas += Long.bitCount(palabra);
+					cerosEnRegion += Long.bitCount(region.get(r * w + k));
+				}
+			}
+		}
+		tarea.descubiertas.addAndGet(descubiertas);
+		tarea.ceros.addAndGet(cerosEnRegion);
+	}
+
+	/**
+	 * Limpia las palabras de la tesela <b>t</b> en la región o en
+	 * {@link #nuevas}.
+	 *
+	 * @param t      Tesela a limpiar.
+	 * @param region <code>true</code> para limpiar la región, <code>false</code>
+	 *               para limpiar {@link #nuevas}.
+	 */
+	private void limpiarTesela(int t, boolean region) {
+		int f0 = getFilaInicial(t);
+		int f1 = getFilaFinal(t);
+		int k0 = getPalabraInicial(t);
+		int k1 = getPalabraFinal(t);
+
+		for (int r = f0; r < f1; r++) {
+			for (int k = k0; k < k1; k++) {
+				if (region) {
+					this.region.set(r * w + k, 0L);
+				} else {
+					nuevas.setPalabra(r, k, 0L);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Retorna las teselas activas para la siguiente ronda, y las desactiva en
+	 * {@link #siguientes}.
+	 *
+	 * @return Índices de las teselas activas, en orden.
+	 */
+	private int[] tomarSiguientes() {
+		int cuantas = 0;
+		int[] teselas;
+
+		for (int t = 0; t < siguientes.length; t++) {
+			if (siguientes[t]) {
+				cuantas++;
+			}
+		}
+		teselas = new int[cuantas];
+		cuantas = 0;
+		for (int t = 0; t < siguientes.length; t++) {
+			if (siguientes[t]) {
+				teselas[cuantas++] = t;
+				siguientes[t] = false;
+			}
+		}
+		return teselas;
+	}
+
+	/**
+	 * Activa para la siguiente ronda las teselas vecinas de la tesela <b>t</b>, y
+	 * la tesela misma.
+	 *
+	 * @param t Tesela.
+	 */
+	private void marcarVecinas(int t) {
+		int ti = t / teselasHorizontales;
+		int tk = t % teselasHorizontales;
+
+		for (int a = Vecindario.desde(ti); a <= Vecindario.hasta(ti, teselasVerticales); a++) {
+			for (int b = Vecindario.desde(tk); b <= Vecindario.hasta(tk, teselasHorizontales); b++) {
+				siguientes[tesela(a, b)] = true;
+			}
+		}
+	}
+
+	/**
+	 * Retorna el índice de la tesela en la fila de teselas <b>a</b> y la columna
+	 * de teselas <b>b</b>.
+	 *
+	 * @param a Fila de teselas.
+	 * @param b Columna de teselas.
+	 * @return Índice de la tesela.
+	 */
+	private int tesela(int a, int b) {
+		return a * teselasHorizontales + b;
+	}
+
+	/**
+	 * Dilata la palabra <b>k</b> de la fila <b>i</b> de la región en una ventana de
+	 * 3x3.
+	 *
+	 * @param i Fila de la palabra.
+	 * @param k Índice de la palabra dentro de la fila.
+	 * @return Palabra dilatada, puede tener encendidos bits por fuera de la
+	 *         matriz.
+	 */
+	private long dilatar(int i, int k) {
+		long palabra = dilatarHorizontal(i, k);
+		if (i > 0) {
+			palabra |= dilatarHorizontal(i - 1, k);
+		}
+		if (i + 1 < m) {
+			palabra |= dilatarHorizontal(i + 1, k);
+		}
+		return palabra;
+	}
+
+	/**
+	 * Dilata horizontalmente la palabra <b>k</b> de la fila <b>i</b> de la región.
+	 *
+	 * @param i Fila de la palabra.
+	 * @param k Índice de la palabra dentro de la fila.
+	 * @return Palabra dilatada.
+	 */
+	private long dilatarHorizontal(int i, int k) {
+		long x = region.get(i * w + k);
+		long izquierda = x << 1;
+		long derecha = x >>> 1;
+
+		if (k > 0) {
+			izquierda |= region.get(i * w + k - 1) >>> 63;
+		}
+		if (k + 1 < w) {
+			derecha |= region.get(i * w + k + 1) << 63;
+		}
+		return x | izquierda | derecha;
+	}
+}
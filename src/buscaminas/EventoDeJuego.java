@@ -0,0 +1,247 @@
+package buscaminas;
+
+import java.util.Arrays;
+
+import buscaminas.CampoDeMinas.EstadoDeCasilla;
+
+/**
+ * Clase inmutable con un evento de un juego de {@link CampoDeMinas}, que se
+ * publica a los suscriptores de {@link CampoDeMinas#getEventos()}.
+ * <p>
+ * Las casillas descubiertas en una jugada se agrupan en un solo evento
+ * {@link Tipo#casillasDescubiertas}, en lugar de un evento por casilla, para
+ * que una cascada grande no llene los buffers de los suscriptores.
+ *
+ * @author sneyd
+ */
+public class EventoDeJuego {
+
+	/**
+	 * Enumerado con los tipos de evento.
+	 * <p>
+	 * Sus valores son: <br>
+	 * - casillasDescubiertas: casillas descubiertas en una jugada, con sus
+	 * valores. <br>
+	 * - marcaCambiada: una casilla se marcó o desmarcó como posible mina. <br>
+	 * - cascadaIniciada: se despejó un 0, cuya casilla es la del evento. <br>
+	 * - cascadaTerminada: terminó la cascada del 0 del evento, y
+	 * {@link EventoDeJuego#getTamano()} es el número de casillas que descubrió.
+	 * <br>
+	 * - juegoGanado: se descubrió la última casilla sin mina. <br>
+	 * - juegoPerdido: se descubrió una mina.
+	 */
+	public enum Tipo {
+		casillasDescubiertas, marcaCambiada, cascadaIniciada, cascadaTerminada, juegoGanado, juegoPerdido
+	}
+
+	/**
+	 * Estados de casilla en el orden de sus ordinales.
+	 */
+	private static final EstadoDeCasilla[] ESTADOS = EstadoDeCasilla.values();
+
+	/**
+	 * Tipo del evento.
+	 */
+	private final Tipo tipo;
+
+	/**
+	 * Número de columnas del campo de minas.
+	 */
+	private final int n;
+
+	/**
+	 * Índices <code>i * n + j</code> de las casillas del evento.
+	 */
+	private final int[] casillas;
+
+	/**
+	 * Ordinal del {@link EstadoDeCasilla} de cada casilla.
+	 */
+	private final byte[] estados;
+
+	/**
+	 * Valor de cada casilla descubierta, o 0.
+	 */
+	private final byte[] valores;
+
+	/**
+	 * Número de casillas descubiertas por una cascada.
+	 */
+	private final int tamano;
+
+	/**
+	 * Constructor de un evento.
+	 *
+	 * @param tipo     Tipo del evento.
+	 * @param n        Número de columnas del campo de minas.
+	 * @param casillas Índices de las casillas.
+	 * @param estados  Ordinales de los estados de las casillas.
+	 * @param valores  Valores de las casillas.
+	 * @param tamano   Número de casillas descubiertas por una cascada.
+	 */
+	private EventoDeJuego(Tipo tipo, int n, int[] casillas, byte[] estados, byte[] valores, int tamano) {
+		this.tipo = tipo;
+		this.n = n;
+		this.casillas = casillas;
+		this.estados = estados;
+		this.valores = valores;
+		this.tamano = tamano;
+	}
+
+	/**
+	 * Crea un evento con la casilla (<b>i</b>, <b>j</b>).
+	 *
+	 * @param tipo   Tipo del evento.
+	 * @param n      Número de columnas del campo de minas.
+	 * @param i      Fila de la casilla.
+	 * @param j      Columna de la casilla.
+	 * @param estado Estado de la casilla.
+	 * @param tamano Número de casillas descubiertas por una cascada, o 0.
+	 * @return Evento creado.
+	 */
+	static EventoDeJuego deCasilla(Tipo tipo, int n, int i, int j, EstadoDeCasilla estado, int tamano) {
+		return new EventoDeJuego(tipo, n, new int[] { i * n + j }, new byte[] { (byte) estado.ordinal() },
+				new byte[1], tamano);
+	}
+
+	/**
+	 * Crea un evento sin casillas.
+	 *
+	 * @param tipo Tipo del evento.
+	 * @return Evento creado.
+	 */
+	static EventoDeJuego sinCasillas(Tipo tipo) {
+		return new EventoDeJuego(tipo, 1, new int[0], new byte[0], new byte[0], 0);
+	}
+
+	/**
+	 * Crea un evento {@link Tipo#casillasDescubiertas} con las casillas que
+	 * quedaron descubiertas en <b>cambios</b>.
+	 *
+	 * @param cambios Cambios de una jugada.
+	 * @param n       Número de columnas del campo de minas.
+	 * @return Evento creado, o <code>null</code> si no se descubrió ninguna
+	 *         casilla.
+	 */
+	static EventoDeJuego descubiertas(CambiosDeCasillas cambios, int n) {
+		int total = 0;
+		int[] casillas = new int[cambios.getTamano()];
+		byte[] valores = new byte[cambios.getTamano()];
+
+		for (int k = 0; k < cambios.getTamano(); k++) {
+			if (cambios.getEstado(k) == EstadoDeCasilla.descubierta) {
+				casillas[total] = cambios.getFila(k) * n + cambios.getColumna(k);
+				valores[total] = (byte) cambios.getValor(k);
+				total++;
+			}
+		}
+		if (total == 0) {
+			return null;
+		}
+
+		byte[] estados = new byte[total];
+		Arrays.fill(estados, (byte) EstadoDeCasilla.descubierta.ordinal());
+		return new EventoDeJuego(Tipo.casillasDescubiertas, n, Arrays.copyOf(casillas, total), estados,
+				Arrays.copyOf(valores, total), total);
+	}
+
+	/**
+	 * Une dos eventos {@link Tipo#casillasDescubiertas} en uno solo, con las
+	 * casillas de <b>anterior</b> seguidas de las de <b>siguiente</b>.
+	 *
+	 * @param anterior  Evento con las casillas descubiertas primero.
+	 * @param siguiente Evento con las casillas descubiertas después.
+	 * @return Evento creado.
+	 */
+	static EventoDeJuego unir(EventoDeJuego anterior, EventoDeJuego siguiente) {
+		assert (anterior.tipo == Tipo.casillasDescubiertas && siguiente.tipo == Tipo.casillasDescubiertas)
+				: "solo se pueden unir eventos de casillas descubiertas";
+
+		int total = anterior.casillas.length + siguiente.casillas.length;
+		int[] casillas = Arrays.copyOf(anterior.casillas, total);
+		byte[] estados = Arrays.copyOf(anterior.estados, total);
+		byte[] valores = Arrays.copyOf(anterior.valores, total);
+		System.arraycopy(siguiente.casillas, 0, casillas, anterior.casillas.length, siguiente.casillas.length);
+		System.arraycopy(siguiente.estados, 0, estados, anterior.casillas.length, siguiente.casillas.length);
+		System.arraycopy(siguiente.valores, 0, valores, anterior.casillas.length, siguiente.casillas.length);
+		return new EventoDeJuego(Tipo.casillasDescubiertas, siguiente.n, casillas, estados, valores,
+				anterior.tamano + siguiente.tamano);
+	}
+
+	/**
+	 * Devuelve el tipo del evento.
+	 *
+	 * @return {@link Tipo} del evento.
+	 */
+	public Tipo getTipo() {
+		return tipo;
+	}
+
+	/**
+	 * Devuelve el número de casillas del evento.
+	 *
+	 * @return Número de casillas.
+	 */
+	public int getNumCasillas() {
+		return casillas.length;
+	}
+
+	/**
+	 * Devuelve la fila de la casilla <b>k</b> del evento.
+	 *
+	 * @param k Índice de la casilla, entre 0 y {@link #getNumCasillas()} - 1.
+	 * @return Fila de la casilla.
+	 * @throws IndexOutOfBoundsException Si <b>k</b> está por fuera de las
+	 *                                   casillas.
+	 */
+	public int getFila(int k) throws IndexOutOfBoundsException {
+		return casillas[k] / n;
+	}
+
+	/**
+	 * Devuelve la columna de la casilla <b>k</b> del evento.
+	 *
+	 * @param k Índice de la casilla, entre 0 y {@link #getNumCasillas()} - 1.
+	 * @return Columna de la casilla.
+	 * @throws IndexOutOfBoundsException Si <b>k</b> está por fuera de las
+	 *                                   casillas.
+	 */
+	public int getColumna(int k) throws IndexOutOfBoundsException {
+		return casillas[k] % n;
+	}
+
+	/**
+	 * Devuelve el estado de la casilla <b>k</b> del evento.
+	 *
+	 * @param k Índice de la casilla, entre 0 y {@link #getNumCasillas()} - 1.
+	 * @return {@link EstadoDeCasilla}.
+	 * @throws IndexOutOfBoundsException Si <b>k</b> está por fuera de las
+	 *                                   casillas.
+	 */
+	public EstadoDeCasilla getEstado(int k) throws IndexOutOfBoundsException {
+		return ESTADOS[estados[k]];
+	}
+
+	/**
+	 * Devuelve el valor de la casilla <b>k</b> si está descubierta, de lo
+	 * contrario 0.
+	 *
+	 * @param k Índice de la casilla, entre 0 y {@link #getNumCasillas()} - 1.
+	 * @return Valor de la casilla.
+	 * @throws IndexOutOfBoundsException Si <b>k</b> está por fuera de las
+	 *                                   casillas.
+	 */
+	public int getValor(int k) throws IndexOutOfBoundsException {
+		return valores[k];
+	}
+
+	/**
+	 * Devuelve el número de casillas descubiertas, en los eventos
+	 * {@link Tipo#casillasDescubiertas} y {@link Tipo#cascadaTerminada}.
+	 *
+	 * @return Número de casillas descubiertas, o 0 en los demás eventos.
+	 */
+	public int getTamano() {
+		return tamano;
+	}
+}
@@ -18,6 +18,18 @@ import javax.swing.JOptionPane;
 @SuppressWarnings("serial")
 public class GUI extends javax.swing.JFrame {
 
+	/**
+	 * Campos de minas de juegos terminados, que se reutilizan en los juegos
+	 * siguientes del mismo nivel.
+	 */
+	private static final PoolDeCampos POOL = new PoolDeCampos(2);
+
+	/**
+	 * Minas generadas en segundo plano para los niveles del juego y los últimos
+	 * tamaños personalizados.
+	 */
+	private static final PreGenerador PRE_GENERADOR = new PreGenerador(16, 4);
+
 	public CasillaB matrizBotones[][];
 	public CampoDeMinas campoMinas;
 	public int columnasP;
@@ -64,7 +76,9 @@ public class GUI extends javax.swing.JFrame {
 	public void iniciarJuego(int f, int c, int minas) {
 
 		// se inicializa un objeto de la clase CampoDeMinas
-		campoMinas = new CampoDeMinas(f, c, minas);
+		campoMinas = POOL.obtener(f, c, minas);
+		campoMinas.setObservadorDeCambios(this::despejarbotones);
+		campoMinas.setPreGenerador(PRE_GENERADOR);
 		campoMinas.iniciar();
 
 		// Se limpia la interfaz y se le asigna un gridLayout del tamaño correspondiente
@@ -104,12 +118,7 @@ public class GUI extends javax.swing.JFrame {
 						// Si se da click derecho se marca esa casilla como posible mina
 						if (e.getButton() == MouseEvent.BUTTON3) {
 							campoMinas.posibleMina(aux3.getFila(), aux3.getColumna());
-							if (campoMinas.getEstadoDeCasilla(aux3.getFila(),
-									aux3.getColumna()) == CampoDeMinas.EstadoDeCasilla.posibleMina) {
-								aux3.setIcon(new ImageIcon(getClass().getResource("/Imagenes/posibleMina.png")));
-							} else {
-								aux3.setIcon(null);
-							}
+							actualizarContadores();
 
 						}
 
@@ -122,9 +131,24 @@ public class GUI extends javax.swing.JFrame {
 				matrizBotones[i][j] = aux;
 			}
 		}
+		actualizarContadores();
 		this.getContentPane().paintAll(this.getGraphics());
 	}
 
+	/**
+	 * Cierra la ventana y devuelve el campo de minas al pool para el siguiente
+	 * juego.
+	 */
+	@Override
+	public void dispose() {
+		if (campoMinas != null) {
+			campoMinas.setObservadorDeCambios(null);
+			POOL.devolver(campoMinas);
+			campoMinas = null;
+		}
+		super.dispose();
+	}
+
 	/**
 	 * Se toma la casilla x,si es una mina se informa al usuario que perdió si la
 	 * casilla no es una mina, se despejan las casilla correspondientes
@@ -141,8 +165,7 @@ public class GUI extends javax.swing.JFrame {
 			} else {
 				System.exit(0);
 			}
-		}
-		if (campoMinas.getEstado() == CampoDeMinas.Estado.ganado) {
+		} else if (campoMinas.getEstado() == CampoDeMinas.Estado.ganado) {
 			// Informa al jugador de que ha ganado
 			if (JOptionPane.showConfirmDialog(null, "Has completado este nivel,deseas continuar jugando?",
 					"Felicidades!!", JOptionPane.YES_NO_OPTION) == 0) {
@@ -151,8 +174,9 @@ public class GUI extends javax.swing.JFrame {
 				System.exit(0);
 			}
 		} else {
-			// si no se ha ganado ni perdido, se llama al metodo despejar botones
-			despejarbotones();
+			// si no se ha ganado ni perdido, los botones ya se actualizaron con los
+			// cambios de la jugada
+			actualizarContadores();
 		}
 	}
 
@@ -213,48 +237,91 @@ public class GUI extends javax.swing.JFrame {
 			for (int j = 0; j < matrizBotones[i].length; j++) {
 				// Se comprueba si el boton esta decubierto
 				if (campoMinas.getEstadoDeCasilla(i, j) == CampoDeMinas.EstadoDeCasilla.descubierta) {
+					despejarBoton(matrizBotones[i][j], (int) campoMinas.get(i, j));
+				}
+			}
+		}
+		actualizarContadores();
+	}
 
-					// En caso de estar descubierto se comprueba cual es es valor de esa casilla
-					// y se asigna el icono correspondiente
-					CasillaB boton = matrizBotones[i][j];
-					switch ((int) campoMinas.get(i, j)) {
-					case 0:
-						boton.setBackground(Color.decode("#ffffff"));
-						break;
-
-					case 1:
-						boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/1.png")));
-						break;
-
-					case 2:
-						boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/2.png")));
-						break;
-					case 3:
-						boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/3.png")));
-						break;
-					case 4:
-						boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/4.png")));
-						break;
-					case 5:
-						boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/5.png")));
-						break;
-					case 6:
-						boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/6.png")));
-						break;
-					case 7:
-						boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/7.png")));
-						break;
-					case 8:
-						boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/8.png")));
-						break;
+	/**
+	 * Actualiza solo los botones de las casillas que cambiaron en la última jugada.
+	 * Si la jugada terminó el juego no se actualiza nada, pues la ventana se cierra.
+	 * 
+	 * @param cambios Casillas que cambiaron, con su estado y su valor.
+	 */
+	public void despejarbotones(CambiosDeCasillas cambios) {
+		if (cambios.esCompleto()) {
+			return;
+		}
+		for (int k = 0; k < cambios.getTamano(); k++) {
+			CasillaB boton = matrizBotones[cambios.getFila(k)][cambios.getColumna(k)];
+			switch (cambios.getEstado(k)) {
+			case descubierta:
+				despejarBoton(boton, cambios.getValor(k));
+				break;
+			case posibleMina:
+				boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/posibleMina.png")));
+				break;
+			case oculta:
+				boton.setIcon(null);
+				break;
+			}
+		}
+	}
 
-					}
+	/**
+	 * Asigna al boton de una casilla descubierta el icono de su valor.
+	 * 
+	 * @param boton Boton de la casilla.
+	 * @param valor Valor de la casilla.
+	 */
+	private void despejarBoton(CasillaB boton, int valor) {
+		switch (valor) {
+		case 0:
+			boton.setBackground(Color.decode("#ffffff"));
+			break;
+
+		case 1:
+			boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/1.png")));
+			break;
+
+		case 2:
+			boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/2.png")));
+			break;
+		case 3:
+			boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/3.png")));
+			break;
+		case 4:
+			boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/4.png")));
+			break;
+		case 5:
+			boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/5.png")));
+			break;
+		case 6:
+			boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/6.png")));
+			break;
+		case 7:
+			boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/7.png")));
+			break;
+		case 8:
+			boton.setIcon(new ImageIcon(getClass().getResource("/Imagenes/8.png")));
+			break;
 
-				}
-			}
 		}
 	}
 
+	/**
+	 * Muestra en el título de la ventana el progreso del juego: las casillas
+	 * descubiertas y las minas marcadas.
+	 */
+	public void actualizarContadores() {
+		int casillasLibres = campoMinas.getNumFilas() * campoMinas.getNumColumnas() - campoMinas.getNumMinas();
+		this.setTitle(String.format("Buscaminas - Descubiertas: %d/%d - Minas: %d/%d",
+				campoMinas.getCasillasDescubiertas(), casillasLibres, campoMinas.getPosiblesMinas(),
+				campoMinas.getNumMinas()));
+	}
+
 	// Variables declaration - do not modify//GEN-BEGIN:variables
 	// End of variables declaration//GEN-END:variables
 }
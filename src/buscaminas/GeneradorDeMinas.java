@@ -0,0 +1,404 @@
+package buscaminas;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import matricesDispersas.MatrizDeBits;
+
+/**
+ * Clase que se encarga de escoger las posiciones de las minas de un campo de
+ * minas.
+ * <p>
+ * Las casillas se identifican con su índice <code>i * n + j</code>, y las minas
+ * se escogen con el algoritmo de muestreo de Floyd, el cual escoge exactamente
+ * <b>minas</b> casillas diferentes sin tener que repetir ningún intento, por lo
+ * que el tiempo de generación solo depende del número de minas y no de la
+ * densidad del campo. Las minas escogidas se guardan en una
+ * {@link MatrizDeBits}.
+ * <p>
+ * La generación es determinista: el campo solo depende de la semilla y de las
+ * casillas excluidas, y se hace en paralelo por franjas de filas.
+ * 
+ * @author sneyd
+ *
+ * @see CampoDeMinas
+ */
+public class GeneradorDeMinas {
+
+	/**
+	 * Devuelve los índices, ordenados ascendentemente, de las casillas en las que
+	 * no se pueden generar minas al despejar por primera vez la casilla (<b>f</b>,
+	 * <b>c</b>).
+	 * <p>
+	 * Si <b>apertura</b> es <code>true</code>, se excluyen la casilla y sus vecinos
+	 * (siempre que queden suficientes casillas para las minas), de modo que la
+	 * primera casilla despejada sea un 0 y se abra un área del campo. De lo
+	 * contrario solo se excluye la casilla.
+	 * 
+	 * @param m        Número de filas del campo de minas.
+	 * @param n        Número de columnas del campo de minas.
+	 * @param minas    Número de minas del campo de minas.
+	 * @param f        Fila de la primera casilla despejada.
+	 * @param c        Columna de la primera casilla despejada.
+	 * @param apertura Indica si se excluyen también los vecinos de la casilla.
+	 * @return Índices de las casillas excluidas, ordenados ascendentemente.
+	 */
+	public static int[] zonaExcluida(int m, int n, int minas, int f, int c, boolean apertura) {
+		int filaMin, filaMax, colMin, colMax, k;
+		int[] zona;
+
+		if (apertura) {
+			filaMin = Vecindario.desde(f);
+			filaMax = Vecindario.hasta(f, m);
+			colMin = Vecindario.desde(c);
+			colMax = Vecindario.hasta(c, n);
+
+			// si no caben las minas por fuera de la zona, solo se excluye la casilla
+			if (minas <= m * n - (filaMax - filaMin + 1) * (colMax - colMin + 1)) {
+				zona = new int[(filaMax - filaMin + 1) * (colMax - colMin + 1)];
+				k = 0;
+				for (int i = filaMin; i <= filaMax; i++) {
+					for (int j = colMin; j <= colMax; j++) {
+						zona[k++] = i * n + j;
+					}
+				}
+				return zona;
+			}
+		}
+
+		return new int[] { f * n + c };
+	}
+
+	/**
+	 * Número aproximado de casillas de cada franja de filas que se genera por
+	 * separado.
+	 */
+	private static final int CASILLAS_POR_FRANJA = 1 << 16;
+
+	/**
+	 * Número de extracciones hasta el cual la distribución hipergeométrica se
+	 * muestrea simulando la urna.
+	 */
+	private static final int EXTRACCIONES_EN_URNA = 32;
+
+	/**
+	 * Logaritmos de los factoriales pequeños.
+	 */
+	private static final double[] LOG_FACTORIALES = new double[256];
+
+	static {
+		for (int k = 1; k < LOG_FACTORIALES.length; k++) {
+			LOG_FACTORIALES[k] = LOG_FACTORIALES[k - 1] + Math.log(k);
+		}
+	}
+
+	/**
+	 * Escoge <b>minas</b> casillas diferentes del campo de minas, sin escoger
+	 * ninguna de las casillas <b>excluidas</b>, y enciende sus bits en
+	 * <b>destino</b>. El resultado solo depende de la <b>semilla</b>, por lo que la
+	 * misma semilla (y las mismas casillas excluidas) siempre genera el mismo
+	 * campo.
+	 * <p>
+	 * El campo se divide en franjas de filas con cerca de
+	 * {@link #CASILLAS_POR_FRANJA} casillas, y las franjas se reparten en dos
+	 * mitades recursivamente: el número de minas de la primera mitad se escoge con
+	 * la distribución hipergeométrica (como si se sacaran las minas de todas las
+	 * casillas disponibles) y el resto va a la segunda mitad. Dentro de cada
+	 * franja las minas se escogen con el algoritmo de Floyd. Así cada subconjunto
+	 * de casillas tiene la misma probabilidad que al escoger las minas de una vez.
+	 * <p>
+	 * Las mitades se generan en paralelo en el {@link ForkJoinPool#commonPool()},
+	 * salvo si el campo cabe en una sola franja, que se escoge en el hilo que
+	 * llama.
+	 * Cada una usa un {@link SplittableRandom} que su padre divide antes de
+	 * repartirlas, de modo que los números que recibe no dependen del número de
+	 * hilos ni del orden en que se ejecuten. Como las franjas son filas completas,
+	 * cada una escribe palabras diferentes de <b>destino</b>.
+	 * 
+	 * @param minas     Número de minas a escoger.
+	 * @param excluidas Índices de las casillas excluidas, ordenados
+	 *                  ascendentemente.
+	 * @param semilla   Semilla con la que se escogen las minas.
+	 * @param destino   {@link MatrizDeBits} vacía, del tamaño del campo de minas,
+	 *                  en la que se encienden las casillas con minas.
+	 */
+	public static void generar(int minas, int[] excluidas, long semilla, MatrizDeBits destino) {
+		int m = destino.getNumFilas();
+		int n = destino.getNumColumnas();
+		int filasPorFranja = Math.max(1, CASILLAS_POR_FRANJA / n);
+		int franjas = (m + filasPorFranja - 1) / filasPorFranja;
+		int[] disponibles = new int[franjas + 1];
+
+		// casillas disponibles acumuladas hasta cada franja
+		int e = 0;
+		for (int f = 0; f < franjas; f++) {
+			int hasta = Math.min((f + 1) * filasPorFranja, m) * n;
+			int excluidasEnFranja = 0;
+			while (e < excluidas.length && excluidas[e] < hasta) {
+				excluidasEnFranja++;
+				e++;
+			}
+			disponibles[f + 1] = disponibles[f] + (hasta - f * filasPorFranja * n) - excluidasEnFranja;
+		}
+
+		assert (0 <= minas && minas <= disponibles[franjas]) : "no hay suficientes casillas para las minas";
+
+		// si es una sola franja no se reparte nada, y se escoge en este hilo
+		if (franjas == 1) {
+			escogerEnFranja(0, minas, new SplittableRandom(semilla), filasPorFranja, excluidas, destino);
+			return;
+		}
+
+		ForkJoinPool.commonPool().invoke(new Reparto(0, franjas, minas, new SplittableRandom(semilla),
+				filasPorFranja, disponibles, excluidas, destino));
+	}
+
+	/**
+	 * Tarea que reparte las minas de un rango de franjas entre sus dos mitades, o
+	 * las escoge si el rango es una sola franja.
+	 */
+	private static class Reparto extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int desde, hasta, minas;
+		private final SplittableRandom rand;
+		private final int filasPorFranja;
+		private final int[] disponibles;
+		private final int[] excluidas;
+		private final MatrizDeBits destino;
+
+		Reparto(int desde, int hasta, int minas, SplittableRandom rand, int filasPorFranja, int[] disponibles,
+				int[] excluidas, MatrizDeBits destino) {
+			this.desde = desde;
+			this.hasta = hasta;
+			this.minas = minas;
+			this.rand = rand;
+			this.filasPorFranja = filasPorFranja;
+			this.disponibles = disponibles;
+			this.excluidas = excluidas;
+			this.destino = destino;
+		}
+
+		@Override
+		protected void compute() {
+			if (hasta - desde == 1) {
+				escogerEnFranja(desde, minas, rand, filasPorFranja, excluidas, destino);
+				return;
+			}
+
+			int mitad = (desde + hasta) >>> 1;
+			int enPrimera = hipergeometrica(rand, disponibles[hasta] - disponibles[desde], minas,
+					disponibles[mitad] - disponibles[desde]);
+
+			// los generadores de las mitades se dividen siempre en el mismo orden
+			SplittableRandom randPrimera = rand.split();
+			SplittableRandom randSegunda = rand.split();
+			invokeAll(
+					new Reparto(desde, mitad, enPrimera, randPrimera, filasPorFranja, disponibles, excluidas,
+							destino),
+					new Reparto(mitad, hasta, minas - enPrimera, randSegunda, filasPorFranja, disponibles,
+							excluidas, destino));
+		}
+	}
+
+	/**
+	 * Deriva una semilla nueva a partir de <b>semilla</b>, mezclando sus bits, para
+	 * generar una secuencia reproducible de tableros.
+	 * 
+	 * @param semilla Semilla anterior.
+	 * @return Semilla siguiente.
+	 */
+	public static long siguienteSemilla(long semilla) {
+		long z = semilla + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Escoge con el algoritmo de Floyd <b>minas</b> casillas diferentes de la
+	 * franja <b>f</b>, sin escoger casillas excluidas.
+	 * <p>
+	 * Los índices se escogen en el rango de las casillas disponibles de la franja,
+	 * y cada índice se traslada a la casilla que le corresponde saltando las
+	 * casillas excluidas. Como el traslado no repite casillas, el mismo
+	 * <b>destino</b> sirve para saber si un índice ya fue escogido.
+	 * 
+	 * @param f              Franja.
+	 * @param minas          Número de minas de la franja.
+	 * @param rand           {@link SplittableRandom} de la franja.
+	 * @param filasPorFranja Número de filas de cada franja.
+	 * @param excluidas      Índices de las casillas excluidas, ordenados
+	 *                       ascendentemente.
+	 * @param destino        {@link MatrizDeBits} en la que se encienden las
+	 *                       casillas con minas.
+	 */
+	private static void escogerEnFranja(int f, int minas, SplittableRandom rand, int filasPorFranja,
+			int[] excluidas, MatrizDeBits destino) {
+		int n = destino.getNumColumnas();
+		int inicio = f * filasPorFranja * n;
+		int fin = Math.min((f + 1) * filasPorFranja, destino.getNumFilas()) * n;
+		int primera, ultima;
+
+		// casillas excluidas de la franja, relativas a su inicio
+		primera = 0;
+		while (primera < excluidas.length && excluidas[primera] < inicio) {
+			primera++;
+		}
+		ultima = primera;
+		while (ultima < excluidas.length && excluidas[ultima] < fin) {
+			ultima++;
+		}
+		int[] excluidasEnFranja = new int[ultima - primera];
+		for (int k = primera; k < ultima; k++) {
+			excluidasEnFranja[k - primera] = excluidas[k] - inicio;
+		}
+
+		int disponibles = fin - inicio - excluidasEnFranja.length;
+
+		// algoritmo de Floyd: cada iteración escoge exactamente una casilla nueva
+		for (int t = disponibles - minas; t < disponibles; t++) {
+			int casilla = inicio + trasladar(rand.nextInt(t + 1), excluidasEnFranja);
+			if (destino.get(casilla / n, casilla % n)) {
+				casilla = inicio + trasladar(t, excluidasEnFranja);
+			}
+			destino.set(casilla / n, casilla % n, true);
+		}
+	}
+
+	/**
+	 * Muestrea la distribución hipergeométrica: el número de éxitos al sacar sin
+	 * reemplazo <b>extracciones</b> elementos de un total de <b>total</b>, de los
+	 * cuales <b>exitos</b> son éxitos.
+	 * <p>
+	 * Con pocas extracciones se simula la urna. De lo contrario se invierte la
+	 * distribución empezando por la moda y alternando hacia ambos lados, con las
+	 * probabilidades calculadas como razones entre valores vecinos, por lo que el
+	 * número de pasos es del orden de la desviación estándar.
+	 * 
+	 * @param rand         {@link SplittableRandom} a usar.
+	 * @param total        Número total de elementos.
+	 * @param exitos       Número de éxitos.
+	 * @param extracciones Número de elementos que se sacan.
+	 * @return Número de éxitos sacados.
+	 */
+	static int hipergeometrica(SplittableRandom rand, int total, int exitos, int extracciones) {
+		int menor = Math.max(0, extracciones - (total - exitos));
+		int mayor = Math.min(exitos, extracciones);
+
+		if (menor == mayor) {
+			return menor;
+		}
+
+		// se simula la urna
+		if (extracciones <= EXTRACCIONES_EN_URNA) {
+			int sacados = 0, quedan = exitos;
+			for (int k = 0; k < extracciones; k++) {
+				if (rand.nextInt(total - k) < quedan) {
+					sacados++;
+					quedan--;
+				}
+			}
+			return sacados;
+		}
+
+		int moda = (int) ((long) (extracciones + 1) * (exitos + 1) / (total + 2));
+		moda = Math.max(menor, Math.min(mayor, moda));
+		double pModa = Math.exp(logCombinaciones(exitos, moda)
+				+ logCombinaciones(total - exitos, extracciones - moda) - logCombinaciones(total, extracciones));
+		double u = rand.nextDouble() - pModa;
+		int abajo = moda, arriba = moda;
+		double pAbajo = pModa, pArriba = pModa;
+
+		while (u > 0) {
+			if (arriba < mayor) {
+				pArriba *= razon(total, exitos, extracciones, arriba);
+				arriba++;
+				u -= pArriba;
+				if (u <= 0) {
+					return arriba;
+				}
+			}
+			if (abajo > menor) {
+				abajo--;
+				pAbajo /= razon(total, exitos, extracciones, abajo);
+				u -= pAbajo;
+				if (u <= 0) {
+					return abajo;
+				}
+			}
+
+			// solo por errores de redondeo
+			if (arriba == mayor && abajo == menor) {
+				return moda;
+			}
+		}
+		return moda;
+	}
+
+	/**
+	 * Razón entre las probabilidades de sacar <code>x + 1</code> y <b>x</b>
+	 * éxitos en la distribución hipergeométrica.
+	 * 
+	 * @param total        Número total de elementos.
+	 * @param exitos       Número de éxitos.
+	 * @param extracciones Número de elementos que se sacan.
+	 * @param x            Número de éxitos.
+	 * @return <code>P(x + 1) / P(x)</code>.
+	 */
+	private static double razon(int total, int exitos, int extracciones, int x) {
+		return (double) (exitos - x) * (extracciones - x) / ((double) (x + 1) * (total - exitos - extracciones + x + 1));
+	}
+
+	/**
+	 * Logaritmo natural de las combinaciones de <b>n</b> en <b>k</b>.
+	 * 
+	 * @param n Número de elementos.
+	 * @param k Número de elementos escogidos.
+	 * @return <code>ln(n! / (k! (n - k)!))</code>.
+	 */
+	static double logCombinaciones(int n, int k) {
+		return logFactorial(n) - logFactorial(k) - logFactorial(n - k);
+	}
+
+	/**
+	 * Logaritmo natural de <b>n</b>!, de la tabla si <b>n</b> es pequeño o con la
+	 * serie de Stirling si no.
+	 * 
+	 * @param n Número.
+	 * @return <code>ln(n!)</code>.
+	 */
+	private static double logFactorial(int n) {
+		if (n < LOG_FACTORIALES.length) {
+			return LOG_FACTORIALES[n];
+		}
+		double x = n;
+		double inverso = 1.0 / x;
+		double inverso2 = inverso * inverso;
+		return x * Math.log(x) - x + 0.5 * Math.log(2 * Math.PI * x)
+				+ inverso * (1.0 / 12 - inverso2 * (1.0 / 360 - inverso2 / 1260));
+	}
+
+	/**
+	 * Traslada el índice <b>r</b>, contado sin las casillas excluidas, al índice
+	 * de la casilla que le corresponde en el campo de minas.
+	 * 
+	 * @param r         Índice sin contar las casillas excluidas.
+	 * @param excluidas Índices de las casillas excluidas, ordenados
+	 *                  ascendentemente.
+	 * @return Índice de la casilla en el campo de minas.
+	 */
+	private static int trasladar(int r, int[] excluidas) {
+		// cada casilla excluida antes de la posición actual la corre una casilla
+		for (int e : excluidas) {
+			if (e <= r) {
+				r++;
+			} else {
+				break;
+			}
+		}
+		return r;
+	}
+}
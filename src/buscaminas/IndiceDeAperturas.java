@@ -0,0 +1,300 @@
+package buscaminas;
+
+import java.util.Arrays;
+
+import matricesDispersas.MatrizDeBits;
+
+/**
+ * Clase que guarda las aperturas de un campo de minas, calculadas una sola vez
+ * al generarlo.
+ * <p>
+ * Una apertura es una región conectada (incluyendo las diagonales) de casillas
+ * con valor 0, junto con los números que la rodean. Es exactamente lo que se
+ * descubre al despejar cualquiera de sus ceros, por lo que con este índice no
+ * es necesario calcular la cascada al momento de despejar.
+ * <p>
+ * Las regiones se etiquetan con una estructura de conjuntos disjuntos
+ * (<i>union-find</i>) en una sola pasada por filas. Luego las casillas de cada
+ * apertura se guardan juntas en {@link #casillas}: primero sus ceros y luego su
+ * borde, y la apertura <b>r</b> ocupa las posiciones
+ * <code>[inicio[r], inicio[r + 1])</code>. Un número puede pertenecer al borde
+ * de varias aperturas.
+ * 
+ * @author sneyd
+ *
+ * @see CampoDeMinas
+ */
+public class IndiceDeAperturas {
+
+	/**
+	 * Número de columnas del campo de minas.
+	 */
+	private final int n;
+
+	/**
+	 * Apertura de cada casilla con valor 0, en la posición <code>i * n + j</code>,
+	 * o <b>-1</b> si la casilla no es un 0.
+	 */
+	private int[] aperturaDeCasilla;
+
+	/**
+	 * Posición en {@link #casillas} en la que empieza cada apertura. Tiene una
+	 * posición más que el número de aperturas.
+	 */
+	private int[] inicio;
+
+	/**
+	 * Número de ceros de cada apertura. Los ceros de la apertura <b>r</b> ocupan
+	 * las primeras <code>ceros[r]</code> posiciones de la apertura.
+	 */
+	private int[] ceros;
+
+	/**
+	 * Índices <code>i * n + j</code> de las casillas de todas las aperturas.
+	 */
+	private int[] casillas;
+
+	/**
+	 * Constructor. Calcula las aperturas del campo de minas con las minas
+	 * entregadas.
+	 * 
+	 * @param minas {@link MatrizDeBits} con las minas del campo.
+	 */
+	public IndiceDeAperturas(MatrizDeBits minas) {
+		this.n = minas.getNumColumnas();
+		recalcular(minas);
+	}
+
+	/**
+	 * Vuelve a calcular las aperturas con otras <b>minas</b> del mismo tamaño,
+	 * para un nuevo tablero. Se reutilizan el arreglo de la apertura de cada
+	 * casilla y, si alcanza, el de las casillas de las aperturas.
+	 * 
+	 * @param minas {@link MatrizDeBits} con las minas del campo, del mismo tamaño
+	 *              que las anteriores.
+	 */
+	public void recalcular(MatrizDeBits minas) {
+		int m, total, numAperturas;
+		int[] padre, orden, marca;
+		byte[] fila;
+
+		m = minas.getNumFilas();
+		total = m * n;
+
+		assert (minas.getNumColumnas() == n && (aperturaDeCasilla == null || aperturaDeCasilla.length == total))
+				: "las minas deben tener el mismo tamaño que las anteriores";
+
+		// se unen los ceros con sus vecinos ya visitados: izquierdo y los tres de
+		// arriba. 'padre' vale -1 en las casillas que no son 0
+		padre = this.aperturaDeCasilla != null ? this.aperturaDeCasilla : new int[total];
+		fila = new byte[n];
+		for (int i = 0; i < m; i++) {
+			ContadorDeVecinos.contarFila(minas, i, fila);
+			for (int j = 0; j < n; j++) {
+				int c = i * n + j;
+				if (fila[j] != 0) {
+					padre[c] = -1;
+					continue;
+				}
+				padre[c] = c;
+				if (j > 0 && padre[c - 1] >= 0) {
+					unir(padre, c, c - 1);
+				}
+				if (i > 0) {
+					for (int jj = Vecindario.desde(j); jj <= Vecindario.hasta(j, n); jj++) {
+						if (padre[c - n + jj - j] >= 0) {
+							unir(padre, c, c - n + jj - j);
+						}
+					}
+				}
+			}
+		}
+
+		// como la raíz de cada conjunto es su menor casilla, el padre de una casilla
+		// nunca es mayor que ella, y en una pasada en orden cada casilla puede
+		// apuntar directo a su raíz. Luego se numeran las aperturas en el orden en
+		// que aparecen sus raíces, y se cuentan sus ceros
+		this.aperturaDeCasilla = padre;
+		orden = new int[total];
+		numAperturas = 0;
+		for (int c = 0; c < total; c++) {
+			if (padre[c] == c) {
+				orden[c] = numAperturas++;
+			} else if (padre[c] >= 0) {
+				padre[c] = padre[padre[c]];
+			}
+		}
+		this.ceros = new int[numAperturas];
+		for (int c = 0; c < total; c++) {
+			if (padre[c] >= 0) {
+				padre[c] = orden[padre[c]];
+				this.ceros[padre[c]]++;
+			}
+		}
+
+		// se agrupan los ceros por apertura, 'orden' pasa a guardar los ceros
+		int[] posicion = new int[numAperturas + 1];
+		for (int r = 0; r < numAperturas; r++) {
+			posicion[r + 1] = posicion[r] + this.ceros[r];
+		}
+		int[] siguiente = posicion.clone();
+		for (int c = 0; c < total; c++) {
+			if (aperturaDeCasilla[c] >= 0) {
+				orden[siguiente[aperturaDeCasilla[c]]++] = c;
+			}
+		}
+
+		// se cuenta el borde de cada apertura, marcando cada casilla con la última
+		// apertura que la contó para no repetirla
+		marca = new int[total];
+		this.inicio = new int[numAperturas + 1];
+		for (int r = 0; r < numAperturas; r++) {
+			this.inicio[r + 1] = this.inicio[r] + this.ceros[r] + recorrerBorde(orden, posicion, r, marca, null, 0);
+		}
+
+		// se llenan las casillas de cada apertura
+		if (this.casillas == null || this.casillas.length < this.inicio[numAperturas]) {
+			this.casillas = new int[this.inicio[numAperturas]];
+		}
+		Arrays.fill(marca, 0);
+		for (int r = 0; r < numAperturas; r++) {
+			System.arraycopy(orden, posicion[r], this.casillas, this.inicio[r], this.ceros[r]);
+			recorrerBorde(orden, posicion, r, marca, this.casillas, this.inicio[r] + this.ceros[r]);
+		}
+	}
+
+	/**
+	 * Recorre los vecinos de los ceros de la apertura <b>r</b> que no son ceros,
+	 * o sea, su borde, sin repetirlos.
+	 * 
+	 * @param orden    Ceros agrupados por apertura.
+	 * @param posicion Posición en <b>orden</b> de los ceros de cada apertura.
+	 * @param r        Apertura a recorrer.
+	 * @param marca    Última apertura (más uno) que recorrió cada casilla.
+	 * @param destino  Arreglo en el que se guarda el borde, o <code>null</code>
+	 *                 para solo contarlo.
+	 * @param desde    Posición de <b>destino</b> en la que se guarda el borde.
+	 * @return Número de casillas del borde.
+	 */
+	private int recorrerBorde(int[] orden, int[] posicion, int r, int[] marca, int[] destino, int desde) {
+		int m = aperturaDeCasilla.length / n;
+		int count = 0;
+
+		for (int p = posicion[r]; p < posicion[r + 1]; p++) {
+			int i = orden[p] / n;
+			int j = orden[p] % n;
+			for (int ii = Vecindario.desde(i); ii <= Vecindario.hasta(i, m); ii++) {
+				for (int jj = Vecindario.desde(j); jj <= Vecindario.hasta(j, n); jj++) {
+					int c = ii * n + jj;
+					if (aperturaDeCasilla[c] < 0 && marca[c] != r + 1) {
+						marca[c] = r + 1;
+						if (destino != null) {
+							destino[desde + count] = c;
+						}
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Busca la raíz del conjunto de la casilla <b>c</b>, acortando el camino.
+	 * 
+	 * @param padre Padre de cada casilla en los conjuntos disjuntos.
+	 * @param c     Casilla a buscar.
+	 * @return Raíz del conjunto.
+	 */
+	private static int buscar(int[] padre, int c) {
+		while (padre[c] != c) {
+			padre[c] = padre[padre[c]];
+			c = padre[c];
+		}
+		return c;
+	}
+
+	/**
+	 * Une los conjuntos de las casillas <b>a</b> y <b>b</b>, dejando como raíz la
+	 * menor, para que la raíz sea siempre la primera casilla del conjunto en orden
+	 * por filas.
+	 * 
+	 * @param padre Padre de cada casilla en los conjuntos disjuntos.
+	 * @param a     Primera casilla.
+	 * @param b     Segunda casilla.
+	 */
+	private static void unir(int[] padre, int a, int b) {
+		a = buscar(padre, a);
+		b = buscar(padre, b);
+		if (a < b) {
+			padre[b] = a;
+		} else if (b < a) {
+			padre[a] = b;
+		}
+	}
+
+	/**
+	 * Retorna el número de aperturas del campo de minas.
+	 * 
+	 * @return Número de aperturas.
+	 */
+	public int getNumAperturas() {
+		return this.ceros.length;
+	}
+
+	/**
+	 * Retorna la apertura a la que pertenece el 0 en la posición (<b>i</b>,
+	 * <b>j</b>).
+	 * 
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return Apertura de la casilla, o <b>-1</b> si la casilla no es un 0.
+	 */
+	public int getApertura(int i, int j) {
+		return this.aperturaDeCasilla[i * n + j];
+	}
+
+	/**
+	 * Retorna el número de casillas de la apertura <b>r</b>, contando sus ceros y
+	 * su borde.
+	 * 
+	 * @param r Apertura.
+	 * @return Número de casillas que se descubren al despejar la apertura.
+	 */
+	public int getTamano(int r) {
+		return this.inicio[r + 1] - this.inicio[r];
+	}
+
+	/**
+	 * Retorna el número de ceros de la apertura <b>r</b>.
+	 * 
+	 * @param r Apertura.
+	 * @return Número de ceros de la apertura.
+	 */
+	public int getNumCeros(int r) {
+		return this.ceros[r];
+	}
+
+	/**
+	 * Retorna la posición de la primera casilla de la apertura <b>r</b>, para
+	 * usarse con {@link #getCasilla(int)}.
+	 * 
+	 * @param r Apertura.
+	 * @return Posición de la primera casilla de la apertura.
+	 */
+	public int getInicio(int r) {
+		return this.inicio[r];
+	}
+
+	/**
+	 * Retorna el índice <code>i * n + j</code> de la casilla en la posición
+	 * <b>k</b>. Las casillas de la apertura <b>r</b> están en las posiciones
+	 * <code>[getInicio(r), getInicio(r) + getTamano(r))</code>.
+	 * 
+	 * @param k Posición de la casilla.
+	 * @return Índice de la casilla.
+	 */
+	public int getCasilla(int k) {
+		return this.casillas[k];
+	}
+}
@@ -0,0 +1,483 @@
+package buscaminas;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import matricesDispersas.MatrizDeBits;
+
+/**
+ * Clase inmutable con las métricas de dificultad de un campo de minas, que
+ * dependen solo de sus minas: <br>
+ * - 3BV (<i>Bechtel's Board Benchmark Value</i>): el número mínimo de clics
+ * izquierdos para despejar el campo. Es el número de aperturas más el número de
+ * casillas sin mina que no pertenecen a ninguna apertura. <br>
+ * - El número de aperturas y el tamaño de cada una, contando sus ceros y su
+ * borde como en {@link IndiceDeAperturas}. <br>
+ * - El número de islas: regiones conectadas (incluyendo las diagonales) de
+ * números que no tocan ninguna apertura, y que se deben despejar una a una.
+ * <p>
+ * Las métricas se calculan en dos pasadas por filas, sin recorrer las
+ * aperturas: en la primera se cuentan los números de cada fila con
+ * {@link ContadorDeVecinos} y se etiquetan los ceros con conjuntos disjuntos
+ * (<i>union-find</i>) como en {@link IndiceDeAperturas}; en la segunda cada
+ * número suma uno al tamaño de las aperturas que toca, o se une a los números
+ * aislados vecinos para formar las islas.
+ * <p>
+ * Para calibrar niveles de dificultad con muchos tableros, los métodos por lotes
+ * calculan las métricas en paralelo en el {@link ForkJoinPool} común, y cada
+ * tarea reutiliza sus arreglos entre los tableros que le tocan.
+ *
+ * @author sneyd
+ *
+ * @see CampoDeMinas#getMetricas()
+ */
+public class MetricasDeTablero {
+
+	/**
+	 * Número de tableros que calcula cada tarea de un lote, sin dividirse más.
+	 */
+	private static final int TABLEROS_POR_TAREA = 64;
+
+	/**
+	 * 3BV del campo de minas.
+	 */
+	private final int tresBV;
+
+	/**
+	 * Número de casillas de cada apertura, contando sus ceros y su borde.
+	 */
+	private final int[] tamanos;
+
+	/**
+	 * Número de islas de números aislados.
+	 */
+	private final int islas;
+
+	/**
+	 * Número de casillas sin mina que no pertenecen a ninguna apertura.
+	 */
+	private final int aisladas;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param tamanos  Número de casillas de cada apertura.
+	 * @param islas    Número de islas.
+	 * @param aisladas Número de casillas que no pertenecen a ninguna apertura.
+	 */
+	private MetricasDeTablero(int[] tamanos, int islas, int aisladas) {
+		this.tresBV = tamanos.length + aisladas;
+		this.tamanos = tamanos;
+		this.islas = islas;
+		this.aisladas = aisladas;
+	}
+
+	/**
+	 * Calcula las métricas del campo de minas con las minas entregadas.
+	 *
+	 * @param minas {@link MatrizDeBits} con las minas del campo.
+	 * @return Métricas del campo.
+	 */
+	public static MetricasDeTablero calcular(MatrizDeBits minas) {
+		return new Calculadora(minas.getNumFilas(), minas.getNumColumnas()).calcular(minas);
+	}
+
+	/**
+	 * Calcula las métricas de un {@link TableroGenerado}.
+	 *
+	 * @param tablero Tablero generado.
+	 * @return Métricas del tablero.
+	 */
+	public static MetricasDeTablero calcular(TableroGenerado tablero) {
+		MatrizDeBits minas = new MatrizDeBits(tablero.getNumFilas(), tablero.getNumColumnas());
+
+		tablero.copiarEn(minas);
+		return calcular(minas);
+	}
+
+	/**
+	 * Calcula en paralelo las métricas de varios tableros, que pueden ser de
+	 * tamaños diferentes.
+	 *
+	 * @param tableros Tableros generados.
+	 * @return Métricas de cada tablero, en el mismo orden.
+	 */
+	public static MetricasDeTablero[] calcular(TableroGenerado[] tableros) {
+		MetricasDeTablero[] resultado = new MetricasDeTablero[tableros.length];
+
+		ForkJoinPool.commonPool().invoke(new Lote(tableros, null, 0, 0, 0, null, resultado, 0, tableros.length));
+		return resultado;
+	}
+
+	/**
+	 * Genera en paralelo un campo de minas por cada semilla, igual que
+	 * {@link CampoDeMinas} al despejar la casilla (<b>fila</b>, <b>columna</b>), y
+	 * calcula sus métricas. Los campos no se guardan, por lo que sirve para
+	 * calcular millones de tableros.
+	 *
+	 * @param m        Número de filas.
+	 * @param n        Número de columnas.
+	 * @param minas    Número de minas.
+	 * @param semillas Semillas de los campos.
+	 * @param fila     Fila de la primera casilla despejada, o -1 para no excluir
+	 *                 ninguna casilla.
+	 * @param columna  Columna de la primera casilla despejada.
+	 * @param apertura Indica si se excluyen también los vecinos de la casilla.
+	 * @return Métricas de cada campo, en el orden de las semillas.
+	 */
+	public static MetricasDeTablero[] calcular(int m, int n, int minas, long[] semillas, int fila, int columna,
+			boolean apertura) {
+		MetricasDeTablero[] resultado = new MetricasDeTablero[semillas.length];
+		int[] excluidas = fila < 0 ? new int[0] : GeneradorDeMinas.zonaExcluida(m, n, minas, fila, columna, apertura);
+
+		ForkJoinPool.commonPool()
+				.invoke(new Lote(null, semillas, m, n, minas, excluidas, resultado, 0, semillas.length));
+		return resultado;
+	}
+
+	/**
+	 * Tarea que calcula las métricas de un rango de tableros de un lote,
+	 * dividiéndolo en mitades hasta llegar a {@link #TABLEROS_POR_TAREA}. Los
+	 * tableros se toman de {@link #tableros}, o se generan con cada una de las
+	 * {@link #semillas} si <b>tableros</b> es <code>null</code>.
+	 */
+	private static class Lote extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final TableroGenerado[] tableros;
+		private final long[] semillas;
+		private final int m, n, minas;
+		private final int[] excluidas;
+		private final MetricasDeTablero[] resultado;
+		private final int desde, hasta;
+
+		Lote(TableroGenerado[] tableros, long[] semillas, int m, int n, int minas, int[] excluidas,
+				MetricasDeTablero[] resultado, int desde, int hasta) {
+			this.tableros = tableros;
+			this.semillas = semillas;
+			this.m = m;
+			this.n = n;
+			this.minas = minas;
+			this.excluidas = excluidas;
+			this.resultado = resultado;
+			this.desde = desde;
+			this.hasta = hasta;
+		}
+
+		@Override
+		protected void compute() {
+			if (hasta - desde > TABLEROS_POR_TAREA) {
+				int mitad = (desde + hasta) >>> 1;
+				invokeAll(new Lote(tableros, semillas, m, n, minas, excluidas, resultado, desde, mitad),
+						new Lote(tableros, semillas, m, n, minas, excluidas, resultado, mitad, hasta));
+				return;
+			}
+
+			Calculadora calculadora = null;
+			MatrizDeBits mapaDeMinas = null;
+			for (int t = desde; t < hasta; t++) {
+				int filas = tableros == null ? m : tableros[t].getNumFilas();
+				int columnas = tableros == null ? n : tableros[t].getNumColumnas();
+
+				// los arreglos se reutilizan mientras el tamaño no cambie
+				if (calculadora == null || calculadora.m != filas || calculadora.n != columnas) {
+					calculadora = new Calculadora(filas, columnas);
+					mapaDeMinas = new MatrizDeBits(filas, columnas);
+				} else {
+					mapaDeMinas.limpiar();
+				}
+
+				if (tableros == null) {
+					GeneradorDeMinas.generar(minas, excluidas, semillas[t], mapaDeMinas);
+				} else {
+					tableros[t].copiarEn(mapaDeMinas);
+				}
+				resultado[t] = calculadora.calcular(mapaDeMinas);
+			}
+		}
+	}
+
+	/**
+	 * Arreglos de trabajo para calcular las métricas de campos de un mismo tamaño.
+	 */
+	private static class Calculadora {
+
+		/**
+		 * Número de filas y de columnas de los campos.
+		 */
+		private final int m, n;
+
+		/**
+		 * Valor de cada casilla: <b>-1</b> si es una mina, de lo contrario el número
+		 * de minas alrededor.
+		 */
+		private final byte[] valores;
+
+		/**
+		 * Conteos de la fila que se está calculando.
+		 */
+		private final byte[] fila;
+
+		/**
+		 * Padre de cada casilla en los conjuntos disjuntos, de los ceros en la primera
+		 * pasada y de los números aislados en la segunda, o <b>-1</b>.
+		 */
+		private final int[] padre;
+
+		/**
+		 * Apertura de cada 0.
+		 */
+		private final int[] apertura;
+
+		/**
+		 * Número de casillas de cada apertura. Hay como máximo una apertura por cada
+		 * casilla.
+		 */
+		private final int[] tamanos;
+
+		/**
+		 * Última casilla (más uno) que sumó al tamaño de cada apertura, para que un
+		 * número que toca varias veces la misma apertura sume una sola vez.
+		 */
+		private final int[] marca;
+
+		Calculadora(int m, int n) {
+			this.m = m;
+			this.n = n;
+			this.valores = new byte[m * n];
+			this.fila = new byte[n];
+			this.padre = new int[m * n];
+			this.apertura = new int[m * n];
+			this.tamanos = new int[m * n];
+			this.marca = new int[m * n];
+		}
+
+		/**
+		 * Calcula las métricas de un campo con las minas entregadas.
+		 *
+		 * @param minas {@link MatrizDeBits} con las minas del campo.
+		 * @return Métricas del campo.
+		 */
+		MetricasDeTablero calcular(MatrizDeBits minas) {
+			int total = m * n;
+			int numAperturas = 0, islas = 0, aisladas = 0;
+
+			assert minas.getNumFilas() == m && minas.getNumColumnas() == n;
+
+			// primera pasada: se calculan los valores y se unen los ceros con sus vecinos
+			// ya visitados, el izquierdo y los tres de arriba
+			for (int i = 0; i < m; i++) {
+				long palabra = 0L;
+
+				ContadorDeVecinos.contarFila(minas, i, fila);
+				for (int j = 0; j < n; j++) {
+					int c = i * n + j;
+					if ((j & 63) == 0) {
+						palabra = minas.getPalabra(i, j >>> 6);
+					}
+					valores[c] = (palabra & (1L << j)) != 0 ? -1 : fila[j];
+					if (valores[c] != 0) {
+						padre[c] = -1;
+						continue;
+					}
+					enlazar(padre, c, j > 0 && valores[c - 1] == 0 ? c - 1 : -1,
+							i > 0 && j > 0 && valores[c - n - 1] == 0 ? c - n - 1 : -1,
+							i > 0 && valores[c - n] == 0 ? c - n : -1,
+							i > 0 && j < n - 1 && valores[c - n + 1] == 0 ? c - n + 1 : -1);
+				}
+			}
+
+			// se numeran las aperturas en el orden de sus raíces, que son su menor
+			// casilla, y se cuentan sus ceros
+			for (int c = 0; c < total; c++) {
+				if (padre[c] == c) {
+					apertura[c] = numAperturas;
+					tamanos[numAperturas++] = 1;
+				} else if (padre[c] >= 0) {
+					padre[c] = padre[padre[c]];
+					apertura[c] = apertura[padre[c]];
+					tamanos[apertura[c]]++;
+				}
+			}
+
+			// segunda pasada: cada número suma uno a las aperturas diferentes que toca, y
+			// si no toca ninguna se une a los números aislados ya visitados
+			Arrays.fill(marca, 0, numAperturas, 0);
+			for (int i = 0; i < m; i++) {
+				int filaMin = Vecindario.desde(i);
+				int filaMax = Vecindario.hasta(i, m);
+
+				for (int j = 0; j < n; j++) {
+					int c = i * n + j;
+					if (valores[c] <= 0) {
+						continue;
+					}
+
+					boolean borde = false;
+					int colMin = Vecindario.desde(j);
+					int colMax = Vecindario.hasta(j, n);
+					for (int ii = filaMin; ii <= filaMax; ii++) {
+						for (int jj = colMin; jj <= colMax; jj++) {
+							int v = ii * n + jj;
+							if (valores[v] == 0) {
+								borde = true;
+								if (marca[apertura[v]] != c + 1) {
+									marca[apertura[v]] = c + 1;
+									tamanos[apertura[v]]++;
+								}
+							}
+						}
+					}
+					if (borde) {
+						continue;
+					}
+
+					// un número aislado crea una isla, y cada isla vecina que une la quita
+					aisladas++;
+					islas += 1 - enlazar(padre, c, j > 0 && aislada(c - 1) ? c - 1 : -1,
+							i > 0 && j > 0 && aislada(c - n - 1) ? c - n - 1 : -1, i > 0 && aislada(c - n) ? c - n : -1,
+							i > 0 && j < n - 1 && aislada(c - n + 1) ? c - n + 1 : -1);
+				}
+			}
+
+			return new MetricasDeTablero(Arrays.copyOf(tamanos, numAperturas), islas, aisladas);
+		}
+
+		/**
+		 * Indica si la casilla <b>c</b>, ya visitada en la segunda pasada, es un
+		 * número que no toca ninguna apertura.
+		 *
+		 * @param c Casilla.
+		 * @return <code>true</code> si es un número aislado.
+		 */
+		private boolean aislada(int c) {
+			return valores[c] > 0 && padre[c] >= 0;
+		}
+	}
+
+	/**
+	 * Agrega la casilla <b>c</b> a los conjuntos disjuntos, uniéndola con sus
+	 * vecinos ya visitados que son del mismo tipo (o <b>-1</b> si no lo son).
+	 * <p>
+	 * Como los vecinos visitados que se tocan entre sí ya están en el mismo
+	 * conjunto, basta con revisar pocos casos: el vecino de arriba toca a los
+	 * otros tres; el izquierdo toca al de arriba a la izquierda; y solo el de
+	 * arriba a la derecha puede estar en un conjunto diferente al izquierdo.
+	 *
+	 * @param padre           Padre de cada casilla en los conjuntos disjuntos.
+	 * @param c               Casilla nueva.
+	 * @param izquierda       Vecino izquierdo.
+	 * @param arribaIzquierda Vecino de arriba a la izquierda.
+	 * @param arriba          Vecino de arriba.
+	 * @param arribaDerecha   Vecino de arriba a la derecha.
+	 * @return Número de conjuntos diferentes a los que se unió la casilla.
+	 */
+	private static int enlazar(int[] padre, int c, int izquierda, int arribaIzquierda, int arriba,
+			int arribaDerecha) {
+		int primero = izquierda >= 0 ? izquierda : arribaIzquierda;
+
+		if (arriba >= 0) {
+			padre[c] = buscar(padre, arriba);
+			return 1;
+		}
+		if (primero >= 0) {
+			padre[c] = buscar(padre, primero);
+			return arribaDerecha >= 0 && unir(padre, c, arribaDerecha) ? 2 : 1;
+		}
+		if (arribaDerecha >= 0) {
+			padre[c] = buscar(padre, arribaDerecha);
+			return 1;
+		}
+		padre[c] = c;
+		return 0;
+	}
+
+	/**
+	 * Busca la raíz del conjunto de la casilla <b>c</b>, acortando el camino.
+	 *
+	 * @param padre Padre de cada casilla en los conjuntos disjuntos.
+	 * @param c     Casilla a buscar.
+	 * @return Raíz del conjunto.
+	 */
+	static int buscar(int[] padre, int c) {
+		while (padre[c] != c) {
+			padre[c] = padre[padre[c]];
+			c = padre[c];
+		}
+		return c;
+	}
+
+	/**
+	 * Une los conjuntos de las casillas <b>a</b> y <b>b</b>, dejando como raíz la
+	 * menor.
+	 *
+	 * @param padre Padre de cada casilla en los conjuntos disjuntos.
+	 * @param a     Primera casilla.
+	 * @param b     Segunda casilla.
+	 * @return <code>true</code> si estaban en conjuntos diferentes.
+	 */
+	static boolean unir(int[] padre, int a, int b) {
+		a = buscar(padre, a);
+		b = buscar(padre, b);
+		if (a < b) {
+			padre[b] = a;
+		} else if (b < a) {
+			padre[a] = b;
+		}
+		return a != b;
+	}
+
+	/**
+	 * Devuelve el 3BV del campo de minas: el número mínimo de clics izquierdos
+	 * para despejarlo.
+	 *
+	 * @return 3BV.
+	 */
+	public int getTresBV() {
+		return tresBV;
+	}
+
+	/**
+	 * Devuelve el número de aperturas del campo de minas.
+	 *
+	 * @return Número de aperturas.
+	 */
+	public int getNumAperturas() {
+		return tamanos.length;
+	}
+
+	/**
+	 * Devuelve el número de casillas de la apertura <b>r</b>, contando sus ceros y
+	 * su borde. Las aperturas están en el orden por filas de su primer 0.
+	 *
+	 * @param r Apertura, entre 0 y {@link #getNumAperturas()} - 1.
+	 * @return Número de casillas de la apertura.
+	 * @throws IndexOutOfBoundsException Si <b>r</b> está por fuera de las
+	 *                                   aperturas.
+	 */
+	public int getTamanoApertura(int r) throws IndexOutOfBoundsException {
+		return tamanos[r];
+	}
+
+	/**
+	 * Devuelve el número de islas: regiones conectadas de números que no tocan
+	 * ninguna apertura.
+	 *
+	 * @return Número de islas.
+	 */
+	public int getNumIslas() {
+		return islas;
+	}
+
+	/**
+	 * Devuelve el número de casillas sin mina que no pertenecen a ninguna apertura,
+	 * y que se despejan con un clic cada una.
+	 *
+	 * @return Número de casillas aisladas.
+	 */
+	public int getCasillasAisladas() {
+		return aisladas;
+	}
+}
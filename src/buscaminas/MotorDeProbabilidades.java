@@ -0,0 +1,1194 @@
+package buscaminas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import buscaminas.CampoDeMinas.EstadoDeCasilla;
+
+/**
+ * Clase que calcula la probabilidad exacta de que cada casilla oculta de un
+ * campo de minas sea una mina, como ayuda para el jugador o para jugar solo.
+ * <p>
+ * La frontera (las casillas ocultas vecinas de algún número descubierto) se
+ * divide en componentes independientes: dos casillas están en el mismo
+ * componente si algún número las tiene a ambas de vecinas. Para cada
+ * componente se cuentan sus configuraciones válidas por número de minas,
+ * agrupando las casillas que tienen exactamente los mismos números vecinos (que
+ * son intercambiables) y memorizando las asignaciones parciales que dejan igual
+ * a los números que aún no se completan. Los componentes se
+ * combinan entre sí y con el interior (las casillas ocultas sin números
+ * vecinos) pesando cada total de minas <b>K</b> de la frontera con las
+ * combinaciones de las minas restantes en el interior,
+ * <code>C(interior, minas - K)</code>.
+ * <p>
+ * El resultado de cada componente se guarda con una firma de sus casillas y
+ * sus números, por lo que después de una jugada solo se enumeran los
+ * componentes que cambiaron. Se guardan como máximo
+ * {@link #maximoComponentes}, eliminando el que lleva más tiempo sin usarse.
+ * <p>
+ * Un componente con demasiados estados parciales supera el
+ * {@link #presupuesto}, y entonces no se calculan las probabilidades exactas.
+ * Para esos casos, y para las fronteras de más de {@link #FRONTERA_EXACTA}
+ * casillas, las probabilidades se estiman por muestreo en un tiempo máximo con
+ * un {@link MuestreadorDeMinas}, que aprovecha los componentes que sí se
+ * enumeran.
+ * <p>
+ * Todos los métodos están sincronizados, por lo que varios hilos pueden usar el
+ * mismo motor.
+ *
+ * @author sneyd
+ *
+ * @see ProbabilidadesDeMinas
+ */
+public class MotorDeProbabilidades {
+
+	/**
+	 * Firma de un componente de la frontera: el tamaño del campo, sus casillas
+	 * y sus números con las minas que les faltan.
+	 */
+	private static class Firma {
+		private final int[] datos;
+		private final int hash;
+
+		private Firma(int[] datos) {
+			this.datos = datos;
+			this.hash = Arrays.hashCode(datos);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Firma)) {
+				return false;
+			}
+			Firma otra = (Firma) o;
+			return hash == otra.hash && Arrays.equals(datos, otra.datos);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * Configuraciones válidas de un componente de la frontera, o solo sus casillas
+	 * si no se enumeró.
+	 */
+	static class Componente {
+
+		/**
+		 * Índices <code>i * n + j</code> de las casillas, ordenados
+		 * ascendentemente.
+		 */
+		final int[] casillas;
+
+		/**
+		 * Grupo de cada casilla. Las casillas de un grupo tienen los mismos números
+		 * vecinos y la misma probabilidad.
+		 */
+		final int[] grupos;
+
+		/**
+		 * Menor número de minas de una configuración válida.
+		 */
+		final int minimo;
+
+		/**
+		 * Número de configuraciones con <code>minimo + k</code> minas, para cada
+		 * <b>k</b>, o <code>null</code> si el componente no se enumeró.
+		 */
+		final double[] pesos;
+
+		/**
+		 * Número de configuraciones con <code>minimo + k</code> minas en las que
+		 * cada casilla del grupo <b>g</b> es una mina, en <code>minas[g][k]</code>.
+		 */
+		final double[][] minas;
+
+		private Componente(int[] casillas, int[] grupos, int minimo, double[] pesos, double[][] minas) {
+			this.casillas = casillas;
+			this.grupos = grupos;
+			this.minimo = minimo;
+			this.pesos = pesos;
+			this.minas = minas;
+		}
+
+		/**
+		 * Constructor de un componente sin enumerar.
+		 *
+		 * @param casillas Casillas del componente, ordenadas ascendentemente.
+		 */
+		private Componente(int[] casillas) {
+			this(casillas, null, 0, null, null);
+		}
+	}
+
+	/**
+	 * Código de una casilla oculta o marcada en {@link #celdas}. Las casillas
+	 * descubiertas guardan su valor, entre -1 y 8.
+	 */
+	static final byte OCULTA = 9;
+
+	/**
+	 * Número máximo de casillas de la frontera con el que
+	 * {@link #calcular(VistaDeCampo, int, long, double)} intenta el cálculo
+	 * exacto. Con más casillas, combinar los componentes sería demasiado lento.
+	 */
+	public static final int FRONTERA_EXACTA = 1000;
+
+	/**
+	 * Número máximo de casillas de los componentes que se enumeran después del
+	 * tiempo de enumeración de una estimación, con a lo más
+	 * {@link #PRESUPUESTO_TARDIO} estados parciales. Los componentes pequeños se
+	 * enumeran igual, pues cuestan poco y el muestreo mezcla mucho mejor sorteando
+	 * su número de minas que sus casillas.
+	 */
+	private static final int CASILLAS_TARDIAS = 64;
+
+	/**
+	 * Número máximo de estados parciales de los componentes que se enumeran
+	 * después del tiempo de enumeración de una estimación.
+	 */
+	private static final long PRESUPUESTO_TARDIO = 1024;
+
+	/**
+	 * Combinaciones de <b>s</b> en <b>a</b>, para <b>s</b> de 0 a 8.
+	 */
+	private static final double[][] COMBINACIONES = new double[9][9];
+
+	static {
+		for (int s = 0; s < 9; s++) {
+			COMBINACIONES[s][0] = 1;
+			for (int a = 1; a <= s; a++) {
+				COMBINACIONES[s][a] = COMBINACIONES[s - 1][a - 1] + COMBINACIONES[s - 1][a];
+			}
+		}
+	}
+
+	/**
+	 * Componentes enumerados, en orden de uso (el primero es el que lleva más
+	 * tiempo sin usarse).
+	 */
+	private final LinkedHashMap<Firma, Componente> componentes;
+
+	/**
+	 * Número máximo de componentes guardados.
+	 */
+	private final int maximoComponentes;
+
+	/**
+	 * Número máximo de estados parciales de la enumeración de un componente.
+	 */
+	private final long presupuesto;
+
+	/**
+	 * Número de componentes encontrados en el cache.
+	 */
+	private long aciertos;
+
+	/**
+	 * Número de componentes enumerados.
+	 */
+	private long fallos;
+
+	/**
+	 * Número de componentes que superaron el {@link #presupuesto}.
+	 */
+	private long abandonados;
+
+	// arreglos de trabajo, que se reutilizan mientras el tamaño del campo no cambie
+
+	/**
+	 * Valor de cada casilla descubierta, u {@link #OCULTA}.
+	 */
+	private byte[] celdas;
+
+	/**
+	 * Padre de cada casilla de la frontera en los conjuntos disjuntos de los
+	 * componentes.
+	 */
+	private int[] padre;
+
+	/**
+	 * Número de componente de cada raíz, o índice local de cada casilla al
+	 * enumerar un componente.
+	 */
+	private int[] indice;
+
+	/**
+	 * Indica qué casillas ocultas están en la frontera.
+	 */
+	private boolean[] frontera;
+
+	// resultado de leer una vista
+
+	/**
+	 * Número, seguido de las minas que le faltan, de cada número descubierto con
+	 * vecinos ocultos.
+	 */
+	private int[] restricciones;
+
+	/**
+	 * Número de pares en {@link #restricciones}.
+	 */
+	private int numRestricciones;
+
+	/**
+	 * Número de casillas ocultas.
+	 */
+	private int ocultas;
+
+	/**
+	 * Número de casillas ocultas en la frontera.
+	 */
+	private int enFrontera;
+
+	/**
+	 * Número de minas sin descubrir.
+	 */
+	private int minasRestantes;
+
+	/**
+	 * Constructor de un motor con el cache vacío.
+	 *
+	 * @param maximoComponentes Número máximo de componentes guardados.
+	 * @param presupuesto       Número máximo de estados parciales de la
+	 *                          enumeración de un componente.
+	 */
+	public MotorDeProbabilidades(int maximoComponentes, long presupuesto) {
+		assert maximoComponentes >= 0 && presupuesto > 0;
+		this.componentes = new LinkedHashMap<>(16, 0.75f, true);
+		this.maximoComponentes = maximoComponentes;
+		this.presupuesto = presupuesto;
+	}
+
+	/**
+	 * Calcula las probabilidades de <b>campo</b>, a partir de su última vista
+	 * publicada o, si no publica vistas, de una vista tomada en este momento.
+	 *
+	 * @param campo Campo de minas.
+	 * @return {@link ProbabilidadesDeMinas}, o <code>null</code> si algún
+	 *         componente supera el presupuesto.
+	 */
+	public ProbabilidadesDeMinas calcular(CampoDeMinas campo) {
+		return calcular(vistaDe(campo), campo.getNumMinas());
+	}
+
+	/**
+	 * Calcula las probabilidades de una vista de un campo de minas.
+	 *
+	 * @param vista Vista del campo de minas.
+	 * @param minas Número total de minas del campo.
+	 * @return {@link ProbabilidadesDeMinas}, o <code>null</code> si algún
+	 *         componente supera el presupuesto o si la vista no es consistente con
+	 *         el número de minas.
+	 */
+	public synchronized ProbabilidadesDeMinas calcular(VistaDeCampo vista, int minas) {
+		leer(vista, minas);
+		return calcularExactas(vista.getNumFilas(), vista.getNumColumnas());
+	}
+
+	/**
+	 * Calcula las probabilidades de <b>campo</b> exactamente si su frontera tiene
+	 * como máximo {@link #FRONTERA_EXACTA} casillas y ningún componente supera el
+	 * presupuesto, y si no las estima con
+	 * {@link #estimar(CampoDeMinas, long, double)}.
+	 *
+	 * @param campo        Campo de minas.
+	 * @param tiempoMaximo Tiempo máximo de la estimación, en nanosegundos.
+	 * @param margenMaximo Margen de error con el que se detiene la estimación.
+	 * @return {@link ProbabilidadesDeMinas}, estimadas sin muestras si se acaba
+	 *         el tiempo antes de tomar alguna, o <code>null</code> si la vista no
+	 *         es consistente con el número de minas.
+	 */
+	public ProbabilidadesDeMinas calcular(CampoDeMinas campo, long tiempoMaximo, double margenMaximo) {
+		return calcular(vistaDe(campo), campo.getNumMinas(), tiempoMaximo, margenMaximo);
+	}
+
+	/**
+	 * Calcula las probabilidades de una vista exactamente si su frontera tiene
+	 * como máximo {@link #FRONTERA_EXACTA} casillas y ningún componente supera el
+	 * presupuesto, y si no las estima con
+	 * {@link #estimar(VistaDeCampo, int, long, double)}.
+	 *
+	 * @param vista        Vista del campo de minas.
+	 * @param minas        Número total de minas del campo.
+	 * @param tiempoMaximo Tiempo máximo de la estimación, en nanosegundos, contado
+	 *                     desde la llamada.
+	 * @param margenMaximo Margen de error con el que se detiene la estimación.
+	 * @return {@link ProbabilidadesDeMinas}, estimadas sin muestras si se acaba
+	 *         el tiempo antes de tomar alguna, o <code>null</code> si la vista no
+	 *         es consistente con el número de minas.
+	 */
+	public synchronized ProbabilidadesDeMinas calcular(VistaDeCampo vista, int minas, long tiempoMaximo,
+			double margenMaximo) {
+		ProbabilidadesDeMinas probabilidades = null;
+		long inicio = System.nanoTime();
+
+		leer(vista, minas);
+		if (enFrontera <= FRONTERA_EXACTA) {
+			probabilidades = calcularExactas(vista.getNumFilas(), vista.getNumColumnas());
+		}
+		if (probabilidades == null) {
+			probabilidades = estimarLeidas(vista.getNumFilas(), vista.getNumColumnas(), inicio, tiempoMaximo,
+					margenMaximo);
+		}
+		return probabilidades;
+	}
+
+	/**
+	 * Estima las probabilidades de <b>campo</b> por muestreo, a partir de su
+	 * última vista publicada o, si no publica vistas, de una vista tomada en este
+	 * momento.
+	 *
+	 * @param campo        Campo de minas.
+	 * @param tiempoMaximo Tiempo máximo de la estimación, en nanosegundos.
+	 * @param margenMaximo Margen de error con el que se detiene la estimación.
+	 * @return {@link ProbabilidadesDeMinas} con el margen de error de cada casilla,
+	 *         sin muestras si se acaba el tiempo antes de tomar alguna, o
+	 *         <code>null</code> si no se encuentra ninguna configuración válida.
+	 *
+	 * @see MuestreadorDeMinas
+	 */
+	public ProbabilidadesDeMinas estimar(CampoDeMinas campo, long tiempoMaximo, double margenMaximo) {
+		return estimar(vistaDe(campo), campo.getNumMinas(), tiempoMaximo, margenMaximo);
+	}
+
+	/**
+	 * Estima las probabilidades de una vista de un campo de minas por muestreo.
+	 * Se detiene al pasar <b>tiempoMaximo</b> o cuando el margen de error de todas
+	 * las casillas, con 95% de confianza, es como máximo <b>margenMaximo</b>.
+	 *
+	 * @param vista        Vista del campo de minas.
+	 * @param minas        Número total de minas del campo.
+	 * @param tiempoMaximo Tiempo máximo de la estimación, en nanosegundos, contado
+	 *                     desde la llamada.
+	 * @param margenMaximo Margen de error con el que se detiene la estimación.
+	 * @return {@link ProbabilidadesDeMinas} con el margen de error de cada casilla,
+	 *         sin muestras si se acaba el tiempo antes de tomar alguna, o
+	 *         <code>null</code> si no se encuentra ninguna configuración válida.
+	 *
+	 * @see MuestreadorDeMinas
+	 */
+	public synchronized ProbabilidadesDeMinas estimar(VistaDeCampo vista, int minas, long tiempoMaximo,
+			double margenMaximo) {
+		long inicio = System.nanoTime();
+
+		leer(vista, minas);
+		return estimarLeidas(vista.getNumFilas(), vista.getNumColumnas(), inicio, tiempoMaximo, margenMaximo);
+	}
+
+	/**
+	 * Devuelve la última vista publicada de <b>campo</b> o, si no publica vistas,
+	 * una vista tomada en este momento.
+	 *
+	 * @param campo Campo de minas.
+	 * @return Vista del campo.
+	 */
+	private static VistaDeCampo vistaDe(CampoDeMinas campo) {
+		VistaDeCampo vista = campo.getVista();
+
+		if (vista == null) {
+			vista = VistaDeCampo.de(campo, 0);
+		}
+		return vista;
+	}
+
+	/**
+	 * Lee las casillas de una vista en {@link #celdas}, y marca la frontera y sus
+	 * restricciones.
+	 *
+	 * @param vista Vista del campo de minas.
+	 * @param minas Número total de minas del campo.
+	 */
+	private void leer(VistaDeCampo vista, int minas) {
+		int m = vista.getNumFilas();
+		int n = vista.getNumColumnas();
+		int total = m * n;
+
+		if (celdas == null || celdas.length != total) {
+			celdas = new byte[total];
+			padre = new int[total];
+			indice = new int[total];
+			frontera = new boolean[total];
+		}
+
+		// se leen las casillas; las minas descubiertas se descuentan del total
+		minasRestantes = minas;
+		ocultas = 0;
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				int c = i * n + j;
+				if (vista.getEstadoDeCasilla(i, j) == EstadoDeCasilla.descubierta) {
+					celdas[c] = (byte) vista.getValor(i, j);
+					if (celdas[c] < 0) {
+						minasRestantes--;
+					}
+				} else {
+					celdas[c] = OCULTA;
+					ocultas++;
+				}
+				padre[c] = c;
+				frontera[c] = false;
+			}
+		}
+
+		// cada número con vecinos ocultos es una restricción: une sus vecinos en un
+		// componente y guarda las minas que le faltan
+		restricciones = new int[2 * total];
+		numRestricciones = 0;
+		enFrontera = 0;
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				int c = i * n + j;
+				if (celdas[c] < 0 || celdas[c] == OCULTA) {
+					continue;
+				}
+				int primero = -1;
+				int lado = celdas[c];
+				for (int ii = Vecindario.desde(i); ii <= Vecindario.hasta(i, m); ii++) {
+					for (int jj = Vecindario.desde(j); jj <= Vecindario.hasta(j, n); jj++) {
+						int v = ii * n + jj;
+						if (celdas[v] == OCULTA) {
+							if (!frontera[v]) {
+								frontera[v] = true;
+								enFrontera++;
+							}
+							if (primero < 0) {
+								primero = v;
+							} else {
+								MetricasDeTablero.unir(padre, primero, v);
+							}
+						} else if (celdas[v] < 0) {
+							lado--;
+						}
+					}
+				}
+				if (primero >= 0) {
+					restricciones[2 * numRestricciones] = c;
+					restricciones[2 * numRestricciones + 1] = lado;
+					numRestricciones++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Estima las probabilidades de la vista leída con un
+	 * {@link MuestreadorDeMinas}.
+	 *
+	 * @param m            Número de filas.
+	 * @param n            Número de columnas.
+	 * @param inicio       Tiempo en que empezó el cálculo, de
+	 *                     {@link System#nanoTime()}.
+	 * @param tiempoMaximo Tiempo máximo del cálculo, en nanosegundos.
+	 * @param margenMaximo Margen de error con el que se detiene la estimación.
+	 * @return {@link ProbabilidadesDeMinas}, sin muestras si se acaba el tiempo
+	 *         antes de tomar alguna, o <code>null</code> si no se encuentra
+	 *         ninguna configuración válida.
+	 */
+	private ProbabilidadesDeMinas estimarLeidas(int m, int n, long inicio, long tiempoMaximo,
+			double margenMaximo) {
+		// los componentes se enumeran hasta la mitad del tiempo como máximo, y hasta
+		// tres cuartos si son pequeños; los que no se alcanzan se muestrean, y quedan
+		// en el caché para la próxima vez
+		long fin = inicio + tiempoMaximo;
+		Componente[] partes = componentes(m, n, false, inicio + tiempoMaximo / 2, fin - tiempoMaximo / 4);
+
+		// si ya se acabó el tiempo, no se prepara el muestreo
+		if (System.nanoTime() - fin >= 0) {
+			return MuestreadorDeMinas.sinMuestras(m, n, celdas, ocultas, minasRestantes);
+		}
+		MuestreadorDeMinas muestreador = new MuestreadorDeMinas(m, n, celdas, restricciones, numRestricciones,
+				partes, ocultas - enFrontera, minasRestantes);
+		return muestreador.estimar(fin, margenMaximo);
+	}
+
+	/**
+	 * Calcula exactamente las probabilidades de la vista leída.
+	 *
+	 * @param m Número de filas.
+	 * @param n Número de columnas.
+	 * @return {@link ProbabilidadesDeMinas}, o <code>null</code> si algún
+	 *         componente supera el presupuesto o si la vista no es consistente con
+	 *         el número de minas.
+	 */
+	private ProbabilidadesDeMinas calcularExactas(int m, int n) {
+		Componente[] partes = componentes(m, n, true, 0, 0);
+		if (partes == null) {
+			return null;
+		}
+
+		double[] probabilidades = combinar(partes, m * n, ocultas - enFrontera, minasRestantes);
+		if (probabilidades == null) {
+			return null;
+		}
+		return new ProbabilidadesDeMinas(m, n, probabilidades);
+	}
+
+	/**
+	 * Divide la frontera de la vista leída en componentes, y busca o enumera cada
+	 * uno.
+	 *
+	 * @param m         Número de filas.
+	 * @param n         Número de columnas.
+	 * @param exactos   Indica si todos los componentes deben enumerarse. Si no,
+	 *                  los que superan el presupuesto o no terminan antes del
+	 *                  tiempo <b>fin</b>, los que superan
+	 *                  {@link #CASILLAS_TARDIAS} o {@link #PRESUPUESTO_TARDIO}
+	 *                  después de <b>fin</b> y todos los que no terminan antes
+	 *                  del tiempo <b>finTardio</b> se devuelven sin enumerar.
+	 * @param fin       Tiempo desde el que solo se enumeran componentes pequeños,
+	 *                  de {@link System#nanoTime()}, si no deben enumerarse
+	 *                  todos.
+	 * @param finTardio Tiempo desde el que ya no se enumeran componentes, de
+	 *                  {@link System#nanoTime()}, si no deben enumerarse todos.
+	 * @return Componentes, o <code>null</code> si deben enumerarse todos y alguno
+	 *         supera el presupuesto.
+	 */
+	private Componente[] componentes(int m, int n, boolean exactos, long fin, long finTardio) {
+		int total = m * n;
+
+		// se numeran los componentes y se reparten sus casillas y restricciones
+		int numComponentes = 0;
+		for (int c = 0; c < total; c++) {
+			if (frontera[c] && padre[c] == c) {
+				indice[c] = numComponentes++;
+			}
+		}
+		int[] casillasPorComponente = new int[numComponentes + 1];
+		int[] restriccionesPorComponente = new int[numComponentes + 1];
+		for (int c = 0; c < total; c++) {
+			if (frontera[c]) {
+				casillasPorComponente[indice[MetricasDeTablero.buscar(padre, c)] + 1]++;
+			}
+		}
+		int[] componenteDeRestriccion = new int[numRestricciones];
+		for (int r = 0; r < numRestricciones; r++) {
+			componenteDeRestriccion[r] = indice[MetricasDeTablero.buscar(padre,
+					primerOculto(restricciones[2 * r], m, n))];
+			restriccionesPorComponente[componenteDeRestriccion[r] + 1]++;
+		}
+		for (int k = 0; k < numComponentes; k++) {
+			casillasPorComponente[k + 1] += casillasPorComponente[k];
+			restriccionesPorComponente[k + 1] += restriccionesPorComponente[k];
+		}
+		int[] casillas = new int[enFrontera];
+		int[] lleno = Arrays.copyOf(casillasPorComponente, numComponentes);
+		for (int c = 0; c < total; c++) {
+			if (frontera[c]) {
+				casillas[lleno[indice[MetricasDeTablero.buscar(padre, c)]]++] = c;
+			}
+		}
+		int[] ordenDeRestricciones = new int[numRestricciones];
+		lleno = Arrays.copyOf(restriccionesPorComponente, numComponentes);
+		for (int r = 0; r < numRestricciones; r++) {
+			ordenDeRestricciones[lleno[componenteDeRestriccion[r]]++] = r;
+		}
+
+		// se busca o se enumera cada componente
+		Componente[] partes = new Componente[numComponentes];
+		for (int k = 0; k < numComponentes; k++) {
+			int desde = casillasPorComponente[k];
+			int hasta = casillasPorComponente[k + 1];
+			int rDesde = restriccionesPorComponente[k];
+			int rHasta = restriccionesPorComponente[k + 1];
+			int[] datos = new int[3 + (hasta - desde) + 2 * (rHasta - rDesde)];
+			int d = 0;
+
+			datos[d++] = m;
+			datos[d++] = n;
+			datos[d++] = hasta - desde;
+			for (int x = desde; x < hasta; x++) {
+				datos[d++] = casillas[x];
+			}
+			for (int x = rDesde; x < rHasta; x++) {
+				int r = ordenDeRestricciones[x];
+				datos[d++] = restricciones[2 * r];
+				datos[d++] = restricciones[2 * r + 1];
+			}
+
+			Firma firma = new Firma(datos);
+			partes[k] = componentes.get(firma);
+			if (partes[k] != null) {
+				aciertos++;
+			} else if (!exactos && (System.nanoTime() - finTardio >= 0
+					|| System.nanoTime() - fin >= 0 && hasta - desde > CASILLAS_TARDIAS)) {
+				partes[k] = new Componente(Arrays.copyOfRange(casillas, desde, hasta));
+			} else {
+				// la enumeración se corta en fin, y después de fin solo se enumeran hasta
+				// finTardio los componentes pequeños y con pocos estados. Los que no se
+				// enumeran por el tiempo no cuentan como abandonados
+				boolean tarde = !exactos && System.nanoTime() - fin >= 0;
+				fallos++;
+				long limite = tarde ? Math.min(presupuesto, PRESUPUESTO_TARDIO) : presupuesto;
+				partes[k] = enumerar(datos, m, n, limite, exactos ? 0 : tarde ? finTardio : fin);
+				if (partes[k] == null) {
+					if (exactos || !tarde && System.nanoTime() - fin < 0) {
+						abandonados++;
+					}
+					if (exactos) {
+						return null;
+					}
+					partes[k] = new Componente(Arrays.copyOfRange(casillas, desde, hasta));
+				} else {
+					guardar(firma, partes[k]);
+				}
+			}
+		}
+		return partes;
+	}
+
+	/**
+	 * Devuelve el primer vecino oculto de la casilla <b>c</b>.
+	 *
+	 * @param c Índice de la casilla.
+	 * @param m Número de filas.
+	 * @param n Número de columnas.
+	 * @return Índice del vecino.
+	 */
+	private int primerOculto(int c, int m, int n) {
+		int i = c / n;
+		int j = c % n;
+
+		for (int ii = Vecindario.desde(i); ii <= Vecindario.hasta(i, m); ii++) {
+			for (int jj = Vecindario.desde(j); jj <= Vecindario.hasta(j, n); jj++) {
+				if (celdas[ii * n + jj] == OCULTA) {
+					return ii * n + jj;
+				}
+			}
+		}
+		throw new IllegalStateException();
+	}
+
+	/**
+	 * Guarda un componente, eliminando los que llevan más tiempo sin usarse si se
+	 * supera {@link #maximoComponentes}.
+	 *
+	 * @param firma      Firma del componente.
+	 * @param componente Configuraciones del componente.
+	 */
+	private void guardar(Firma firma, Componente componente) {
+		componentes.put(firma, componente);
+
+		Iterator<Map.Entry<Firma, Componente>> it = componentes.entrySet().iterator();
+		while (componentes.size() > maximoComponentes) {
+			it.next();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Enumera las configuraciones válidas de un componente.
+	 * <p>
+	 * Los grupos de casillas se asignan en orden, y después de asignar los
+	 * primeros <b>t</b> solo importan las minas que les faltan a los números
+	 * activos: los que tienen casillas asignadas y sin asignar. Las asignaciones
+	 * parciales que dejan igual a los números activos se memorizan como un solo
+	 * estado, con sus configuraciones por número de minas. Una pasada hacia
+	 * adelante cuenta los estados alcanzables, y una hacia atrás cuenta las formas
+	 * de completar cada estado y, con ellas, las minas de cada grupo.
+	 *
+	 * @param datos  Firma del componente: filas, columnas, número de casillas,
+	 *               las casillas y los pares (número, minas que le faltan).
+	 * @param m      Número de filas.
+	 * @param n      Número de columnas.
+	 * @param limite Número máximo de estados parciales.
+	 * @param plazo  Tiempo en el que se abandona la enumeración, de
+	 *               {@link System#nanoTime()}, que se revisa mientras se preparan
+	 *               los grupos y antes de asignar cada uno, o 0 si no hay tiempo
+	 *               máximo.
+	 * @return Configuraciones del componente, o <code>null</code> si se supera el
+	 *         <b>limite</b> o el <b>plazo</b>.
+	 */
+	private Componente enumerar(int[] datos, int m, int n, long limite, long plazo) {
+		int numCasillas = datos[2];
+		int numNumeros = (datos.length - 3 - numCasillas) / 2;
+		int[] casillas = Arrays.copyOfRange(datos, 3, 3 + numCasillas);
+
+		for (int x = 0; x < numCasillas; x++) {
+			indice[casillas[x]] = x;
+		}
+
+		// números vecinos de cada casilla, en orden
+		int[][] numerosDeCasilla = new int[numCasillas][8];
+		int[] cuantos = new int[numCasillas];
+		int[] valores = new int[numNumeros];
+		int[] libres = new int[numNumeros];
+		for (int r = 0; r < numNumeros; r++) {
+			if (plazo != 0 && (r & 1023) == 0 && System.nanoTime() - plazo >= 0) {
+				return null;
+			}
+			int c = datos[3 + numCasillas + 2 * r];
+			int i = c / n;
+			int j = c % n;
+			valores[r] = datos[3 + numCasillas + 2 * r + 1];
+			for (int ii = Vecindario.desde(i); ii <= Vecindario.hasta(i, m); ii++) {
+				for (int jj = Vecindario.desde(j); jj <= Vecindario.hasta(j, n); jj++) {
+					if (celdas[ii * n + jj] == OCULTA) {
+						int x = indice[ii * n + jj];
+						numerosDeCasilla[x][cuantos[x]++] = r;
+						libres[r]++;
+					}
+				}
+			}
+		}
+
+		// las casillas con los mismos números vecinos forman un grupo
+		HashMap<Firma, Integer> grupos = new HashMap<>();
+		int[] grupoDeCasilla = new int[numCasillas];
+		for (int x = 0; x < numCasillas; x++) {
+			if (plazo != 0 && (x & 1023) == 0 && System.nanoTime() - plazo >= 0) {
+				return null;
+			}
+			Firma clave = new Firma(Arrays.copyOf(numerosDeCasilla[x], cuantos[x]));
+			Integer g = grupos.get(clave);
+			if (g == null) {
+				g = grupos.size();
+				grupos.put(clave, g);
+			}
+			grupoDeCasilla[x] = g;
+		}
+		int numGrupos = grupos.size();
+		int[][] numerosDeGrupo = new int[numGrupos][];
+		int[] tamanoDeGrupo = new int[numGrupos];
+		for (int x = 0; x < numCasillas; x++) {
+			int g = grupoDeCasilla[x];
+			if (tamanoDeGrupo[g]++ == 0) {
+				numerosDeGrupo[g] = Arrays.copyOf(numerosDeCasilla[x], cuantos[x]);
+			}
+		}
+
+		// los grupos se asignan en orden de anchura desde el primero, para que cada
+		// número se complete pronto y haya pocos activos a la vez
+		int[][] gruposDeNumero = new int[numNumeros][8];
+		int[] gruposPorNumero = new int[numNumeros];
+		for (int g = 0; g < numGrupos; g++) {
+			for (int r : numerosDeGrupo[g]) {
+				gruposDeNumero[r][gruposPorNumero[r]++] = g;
+			}
+		}
+		int[] orden = new int[numGrupos];
+		boolean[] visitado = new boolean[numGrupos];
+		int fin = 0;
+		orden[fin++] = 0;
+		visitado[0] = true;
+		for (int t = 0; t < fin; t++) {
+			for (int r : numerosDeGrupo[orden[t]]) {
+				for (int k = 0; k < gruposPorNumero[r]; k++) {
+					int h = gruposDeNumero[r][k];
+					if (!visitado[h]) {
+						visitado[h] = true;
+						orden[fin++] = h;
+					}
+				}
+			}
+		}
+		assert fin == numGrupos;
+
+		// activos[t] son los números con grupos antes y después de la posición t
+		int[] lados = Arrays.copyOf(valores, numNumeros);
+		int[] primera = new int[numNumeros];
+		int[] ultima = new int[numNumeros];
+		int[] asignados = new int[numGrupos + 1];
+		Arrays.fill(primera, -1);
+		for (int t = 0; t < numGrupos; t++) {
+			for (int r : numerosDeGrupo[orden[t]]) {
+				if (primera[r] < 0) {
+					primera[r] = t;
+				}
+				ultima[r] = t;
+			}
+			asignados[t + 1] = asignados[t] + tamanoDeGrupo[orden[t]];
+		}
+		int[][] activos = new int[numGrupos + 1][];
+		int[] lista = new int[numNumeros];
+		activos[0] = new int[0];
+		for (int t = 0; t < numGrupos; t++) {
+			if (plazo != 0 && System.nanoTime() - plazo >= 0) {
+				return null;
+			}
+			int k = 0;
+			for (int r : activos[t]) {
+				if (ultima[r] > t) {
+					lista[k++] = r;
+				}
+			}
+			for (int r : numerosDeGrupo[orden[t]]) {
+				if (primera[r] == t && ultima[r] > t) {
+					lista[k++] = r;
+				}
+			}
+			activos[t + 1] = Arrays.copyOf(lista, k);
+		}
+
+		// pasada hacia adelante: configuraciones de los grupos anteriores de cada
+		// estado, por número de minas
+		List<HashMap<Firma, double[]>> capas = new ArrayList<>(numGrupos + 1);
+		long estados = 1;
+		capas.add(new HashMap<>());
+		capas.get(0).put(new Firma(new int[0]), new double[] { 1 });
+		for (int t = 0; t < numGrupos; t++) {
+			if (plazo != 0 && System.nanoTime() - plazo >= 0) {
+				return null;
+			}
+			int s = tamanoDeGrupo[orden[t]];
+			int[] numeros = numerosDeGrupo[orden[t]];
+
+			for (int r : numeros) {
+				libres[r] -= s;
+				if (primera[r] == t) {
+					valores[r] = lados[r];
+				}
+			}
+			capas.add(new HashMap<>());
+			for (Map.Entry<Firma, double[]> e : capas.get(t).entrySet()) {
+				double[] antes = e.getValue();
+				leer(e.getKey(), activos[t], valores);
+				for (int a = menor(numeros, valores, libres); a <= mayor(numeros, s, valores); a++) {
+					Firma clave = siguiente(numeros, a, valores, activos[t + 1]);
+					double[] despues = capas.get(t + 1).get(clave);
+					if (despues == null) {
+						if (++estados > limite) {
+							return null;
+						}
+						despues = new double[asignados[t + 1] + 1];
+						capas.get(t + 1).put(clave, despues);
+					}
+					for (int k = 0; k < antes.length; k++) {
+						despues[k + a] += antes[k] * COMBINACIONES[s][a];
+					}
+				}
+			}
+		}
+
+		// pasada hacia atrás: formas de completar cada estado, y minas de cada grupo
+		// en las configuraciones completas que pasan por él
+		double[][] minasDeGrupo = new double[numGrupos][numCasillas + 1];
+		HashMap<Firma, double[]> completas = capas.get(numGrupos);
+		if (!completas.isEmpty()) {
+			completas.put(completas.keySet().iterator().next(), new double[] { 1 });
+		}
+		for (int t = numGrupos - 1; t >= 0; t--) {
+			int g = orden[t];
+			int s = tamanoDeGrupo[g];
+			int[] numeros = numerosDeGrupo[g];
+			HashMap<Firma, double[]> actuales = new HashMap<>();
+
+			// los números que empiezan en t no son activos, y les falta su lado completo
+			for (int r : numeros) {
+				if (primera[r] == t) {
+					valores[r] = lados[r];
+				}
+			}
+			for (Map.Entry<Firma, double[]> e : capas.get(t).entrySet()) {
+				double[] formas = null;
+				double[] minas = null;
+				leer(e.getKey(), activos[t], valores);
+				for (int a = menor(numeros, valores, libres); a <= mayor(numeros, s, valores); a++) {
+					double[] despues = completas.get(siguiente(numeros, a, valores, activos[t + 1]));
+					if (despues == null) {
+						continue;
+					}
+					if (formas == null) {
+						formas = new double[numCasillas - asignados[t] + 1];
+						minas = new double[formas.length];
+					}
+					for (int k = 0; k < despues.length; k++) {
+						formas[k + a] += despues[k] * COMBINACIONES[s][a];
+						minas[k + a] += despues[k] * COMBINACIONES[s][a] * a;
+					}
+				}
+				if (formas != null) {
+					actuales.put(e.getKey(), formas);
+					double[] antes = e.getValue();
+					for (int i = 0; i < antes.length; i++) {
+						if (antes[i] != 0) {
+							for (int k = 0; k < minas.length; k++) {
+								minasDeGrupo[g][i + k] += antes[i] * minas[k];
+							}
+						}
+					}
+				}
+			}
+			for (int r : numeros) {
+				libres[r] += s;
+			}
+			completas = actuales;
+			capas.set(t + 1, null);
+		}
+
+		// el único estado inicial se completa con todas las configuraciones; solo se
+		// guardan los números de minas que tienen alguna
+		double[] todas = completas.isEmpty() ? new double[1] : completas.values().iterator().next();
+		int minimo = 0;
+		int maximo = todas.length - 1;
+		while (minimo < maximo && todas[minimo] == 0) {
+			minimo++;
+		}
+		while (maximo > minimo && todas[maximo] == 0) {
+			maximo--;
+		}
+		double[] pesos = Arrays.copyOfRange(todas, minimo, maximo + 1);
+		double[][] minas = new double[numGrupos][];
+		for (int g = 0; g < numGrupos; g++) {
+			minas[g] = new double[pesos.length];
+			for (int k = 0; k < pesos.length && minimo + k < minasDeGrupo[g].length; k++) {
+				minas[g][k] = minasDeGrupo[g][minimo + k] / tamanoDeGrupo[g];
+			}
+		}
+		return new Componente(casillas, grupoDeCasilla, minimo, pesos, minas);
+	}
+
+	/**
+	 * Copia las minas que les faltan a los números activos de un estado.
+	 *
+	 * @param estado  Estado.
+	 * @param activos Números activos del estado, en orden.
+	 * @param valores Minas que le faltan a cada número, donde se copian.
+	 */
+	private static void leer(Firma estado, int[] activos, int[] valores) {
+		for (int k = 0; k < activos.length; k++) {
+			valores[activos[k]] = estado.datos[k];
+		}
+	}
+
+	/**
+	 * Devuelve el menor número de minas que se le puede asignar a un grupo: lo
+	 * que le falta a cada número vecino menos lo que cabe en sus demás casillas
+	 * libres.
+	 *
+	 * @param numeros Números vecinos del grupo.
+	 * @param valores Minas que le faltan a cada número.
+	 * @param libres  Casillas libres de cada número sin contar las del grupo.
+	 * @return Menor número de minas.
+	 */
+	private static int menor(int[] numeros, int[] valores, int[] libres) {
+		int menor = 0;
+
+		for (int r : numeros) {
+			menor = Math.max(menor, valores[r] - libres[r]);
+		}
+		return menor;
+	}
+
+	/**
+	 * Devuelve el mayor número de minas que se le puede asignar a un grupo: sus
+	 * casillas, sin pasarse de lo que le falta a ningún número vecino.
+	 *
+	 * @param numeros Números vecinos del grupo.
+	 * @param s       Casillas del grupo.
+	 * @param valores Minas que le faltan a cada número.
+	 * @return Mayor número de minas.
+	 */
+	private static int mayor(int[] numeros, int s, int[] valores) {
+		int mayor = s;
+
+		for (int r : numeros) {
+			mayor = Math.min(mayor, valores[r]);
+		}
+		return mayor;
+	}
+
+	/**
+	 * Devuelve el estado que resulta de asignar <b>a</b> minas a un grupo.
+	 *
+	 * @param numeros Números vecinos del grupo.
+	 * @param a       Minas asignadas al grupo.
+	 * @param valores Minas que le faltan a cada número antes de asignar.
+	 * @param activos Números activos del estado siguiente, en orden.
+	 * @return Estado siguiente.
+	 */
+	private static Firma siguiente(int[] numeros, int a, int[] valores, int[] activos) {
+		int[] estado = new int[activos.length];
+
+		for (int r : numeros) {
+			valores[r] -= a;
+		}
+		for (int k = 0; k < activos.length; k++) {
+			estado[k] = valores[activos[k]];
+		}
+		for (int r : numeros) {
+			valores[r] += a;
+		}
+		return new Firma(estado);
+	}
+
+	/**
+	 * Combina los componentes de la frontera con el interior.
+	 *
+	 * @param partes   Componentes de la frontera.
+	 * @param total    Número de casillas del campo.
+	 * @param interior Número de casillas ocultas fuera de la frontera.
+	 * @param minas    Número de minas sin descubrir.
+	 * @return Probabilidad de cada casilla, con {@link Double#NaN} en las
+	 *         descubiertas, o <code>null</code> si no hay ninguna configuración
+	 *         válida.
+	 */
+	private double[] combinar(Componente[] partes, int total, int interior, int minas) {
+		int c = partes.length;
+
+		// prefijos[k] y sufijos[k] son las configuraciones de los componentes antes y
+		// después de k por número de minas, escalados para no desbordarse
+		double[][] prefijos = new double[c + 1][];
+		double[][] sufijos = new double[c + 1][];
+		prefijos[0] = new double[] { 1 };
+		sufijos[c] = new double[] { 1 };
+		for (int k = 0; k < c; k++) {
+			prefijos[k + 1] = convolucion(prefijos[k], partes[k].pesos);
+		}
+		for (int k = c - 1; k >= 0; k--) {
+			sufijos[k] = convolucion(partes[k].pesos, sufijos[k + 1]);
+		}
+
+		// los polinomios empiezan en el mínimo de minas de cada componente, por lo que
+		// el índice K del producto son base + K minas en la frontera
+		int base = 0;
+		for (Componente parte : partes) {
+			base += parte.minimo;
+		}
+		int ultimo = prefijos[c].length - 1;
+
+		// peso del interior para cada total de minas en la frontera, relativo al
+		// mayor
+		double[] interiores = new double[ultimo + 1];
+		double mayor = Double.NEGATIVE_INFINITY;
+		for (int K = 0; K <= ultimo; K++) {
+			int resto = minas - base - K;
+			interiores[K] = resto < 0 || resto > interior ? Double.NEGATIVE_INFINITY
+					: GeneradorDeMinas.logCombinaciones(interior, resto);
+			mayor = Math.max(mayor, interiores[K]);
+		}
+		if (mayor == Double.NEGATIVE_INFINITY) {
+			return null;
+		}
+		for (int K = 0; K <= ultimo; K++) {
+			interiores[K] = Math.exp(interiores[K] - mayor);
+		}
+
+		double[] probabilidades = new double[total];
+		Arrays.fill(probabilidades, Double.NaN);
+
+		// casillas del interior
+		double suma = 0;
+		double minasInterior = 0;
+		for (int K = 0; K <= ultimo; K++) {
+			double peso = prefijos[c][K] * interiores[K];
+			suma += peso;
+			minasInterior += peso * (minas - base - K);
+		}
+		if (suma == 0) {
+			return null;
+		}
+		double interna = interior == 0 ? 0 : minasInterior / suma / interior;
+		for (int x = 0; x < total; x++) {
+			if (celdas[x] == OCULTA && !frontera[x]) {
+				probabilidades[x] = interna;
+			}
+		}
+
+		// casillas de cada componente: sus configuraciones se pesan con las de los
+		// demás componentes y el interior
+		for (int k = 0; k < c; k++) {
+			Componente parte = partes[k];
+			double[] otros = convolucion(prefijos[k], sufijos[k + 1]);
+			double[] resto = new double[parte.pesos.length];
+			double z = 0;
+			for (int a = 0; a < resto.length; a++) {
+				for (int b = 0; b < otros.length; b++) {
+					resto[a] += otros[b] * interiores[a + b];
+				}
+				z += parte.pesos[a] * resto[a];
+			}
+			double[] deGrupo = new double[parte.minas.length];
+			for (int g = 0; g < deGrupo.length; g++) {
+				for (int a = 0; a < resto.length; a++) {
+					deGrupo[g] += parte.minas[g][a] * resto[a];
+				}
+				deGrupo[g] /= z;
+			}
+			for (int x = 0; x < parte.casillas.length; x++) {
+				probabilidades[parte.casillas[x]] = deGrupo[parte.grupos[x]];
+			}
+		}
+		return probabilidades;
+	}
+
+	/**
+	 * Multiplica dos polinomios de configuraciones por número de minas, y escala
+	 * el resultado para que su mayor coeficiente sea 1.
+	 *
+	 * @param a Primer polinomio.
+	 * @param b Segundo polinomio.
+	 * @return Producto escalado.
+	 */
+	private static double[] convolucion(double[] a, double[] b) {
+		double[] c = new double[a.length + b.length - 1];
+		double mayor = 0;
+
+		for (int i = 0; i < a.length; i++) {
+			if (a[i] != 0) {
+				for (int j = 0; j < b.length; j++) {
+					c[i + j] += a[i] * b[j];
+				}
+			}
+		}
+		for (double x : c) {
+			mayor = Math.max(mayor, x);
+		}
+		if (mayor > 0) {
+			for (int i = 0; i < c.length; i++) {
+				c[i] /= mayor;
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Elimina todos los componentes guardados. Las métricas se conservan.
+	 */
+	public synchronized void limpiar() {
+		componentes.clear();
+	}
+
+	/**
+	 * Devuelve el número de componentes guardados.
+	 *
+	 * @return Número de componentes.
+	 */
+	public synchronized int getNumComponentes() {
+		return componentes.size();
+	}
+
+	/**
+	 * Devuelve el número de componentes encontrados en el cache.
+	 *
+	 * @return Número de aciertos.
+	 */
+	public synchronized long getAciertos() {
+		return aciertos;
+	}
+
+	/**
+	 * Devuelve el número de componentes enumerados.
+	 *
+	 * @return Número de fallos.
+	 */
+	public synchronized long getFallos() {
+		return fallos;
+	}
+
+	/**
+	 * Devuelve el número de componentes que superaron el presupuesto.
+	 *
+	 * @return Número de componentes abandonados.
+	 */
+	public synchronized long getAbandonados() {
+		return abandonados;
+	}
+}
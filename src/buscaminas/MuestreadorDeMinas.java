@@ -0,0 +1,1142 @@
+package buscaminas;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Clase que estima por muestreo la probabilidad de que cada casilla oculta de
+ * un campo de minas sea una mina, para las fronteras demasiado grandes para el
+ * cálculo exacto de {@link MotorDeProbabilidades}.
+ * <p>
+ * Varias cadenas de Gibbs avanzan en paralelo en el
+ * {@link ForkJoinPool#commonPool()}, cada una con su propio
+ * {@link SplittableRandom}. De los componentes de la frontera ya enumerados por
+ * el motor solo se muestrea su número de minas: dado el número de minas de los
+ * demás, cada número posible se escoge con probabilidad proporcional a sus
+ * configuraciones por <code>C(interior, minas - K)</code>, donde <b>K</b> es el
+ * total de minas de la frontera, y cada muestra aporta la probabilidad exacta
+ * de cada casilla con ese número de minas. En los componentes que no se pudieron
+ * enumerar se muestrean las minas de cada casilla: en cada paso se escoge un
+ * número y, a veces, otro número que comparte casillas con él, y se vuelven a
+ * sortear las minas de sus casillas ocultas entre todas las asignaciones que
+ * siguen cumpliendo los números, con la probabilidad que les corresponde. El
+ * interior (las casillas ocultas sin números vecinos) no se muestrea: cada
+ * muestra le aporta <code>(minas - K) / interior</code>.
+ * <p>
+ * Cada cadena empieza en una configuración válida distinta, buscada al azar con
+ * retroceso, y descarta su primer recorrido. Las muestras se agrupan en lotes, y
+ * el margen de error de cada casilla sale de la variación entre las medias de
+ * los lotes de todas las cadenas, con la t de Student al 95%. Si las cadenas no
+ * se mezclan bien, sus lotes discrepan y el margen crece.
+ *
+ * @author sneyd
+ *
+ * @see MotorDeProbabilidades#estimar(VistaDeCampo, int, long, double)
+ */
+class MuestreadorDeMinas {
+
+	/**
+	 * Número mínimo de cadenas, aunque haya menos hilos.
+	 */
+	private static final int CADENAS_MINIMAS = 4;
+
+	/**
+	 * Número de muestras de un lote. Se toma una muestra por cada recorrido.
+	 */
+	private static final int MUESTRAS_POR_LOTE = 8;
+
+	/**
+	 * Número de intentos de buscar la configuración inicial de una cadena. Cada
+	 * intento tiene el doble de presupuesto que el anterior.
+	 */
+	private static final int INTENTOS = 6;
+
+	/**
+	 * Número máximo de casillas del bloque que se vuelve a sortear en cada paso.
+	 */
+	private static final int BLOQUE_MAXIMO = 20;
+
+	/**
+	 * Número máximo de números que se prueban para crecer el bloque.
+	 */
+	private static final int NUMEROS_DEL_BLOQUE = 32;
+
+	/**
+	 * Números sin enumerar por cada paso de un recorrido. Un bloque suele tener
+	 * las casillas de varios números.
+	 */
+	private static final int NUMEROS_POR_PASO = 4;
+
+	/**
+	 * Cuantiles 0.975 de la t de Student con 1 a 30 grados de libertad. Con más
+	 * grados se usa el de la normal, 1.96.
+	 */
+	private static final double[] T_95 = { 12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+			2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086, 2.080, 2.074, 2.069, 2.064, 2.060,
+			2.056, 2.052, 2.048, 2.045, 2.042 };
+
+	/**
+	 * Número de filas del campo de minas.
+	 */
+	private final int m;
+
+	/**
+	 * Número de columnas del campo de minas.
+	 */
+	private final int n;
+
+	/**
+	 * Valor de cada casilla descubierta, u {@link MotorDeProbabilidades#OCULTA}.
+	 */
+	private final byte[] celdas;
+
+	/**
+	 * Índices <code>i * n + j</code> de las casillas de la frontera, y la
+	 * variable de cada una. Las casillas de un mismo grupo de un componente
+	 * enumerado comparten variable.
+	 */
+	private final int[] casillas, variables;
+
+	/**
+	 * Número de variables.
+	 */
+	private final int numVariables;
+
+	// componentes enumerados
+
+	/**
+	 * Componentes enumerados.
+	 */
+	private final MotorDeProbabilidades.Componente[] enumerados;
+
+	/**
+	 * Logaritmo del número de configuraciones de cada componente enumerado por
+	 * número de minas, relativo al mayor.
+	 */
+	private final double[][] logPesos;
+
+	/**
+	 * Variable del primer grupo de cada componente enumerado. Los demás grupos le
+	 * siguen.
+	 */
+	private final int[] primeraVariable;
+
+	// componentes sin enumerar
+
+	/**
+	 * Variable de la primera casilla sin enumerar. La casilla sin enumerar
+	 * <b>y</b> tiene la variable <code>primeraCasilla + y</code>.
+	 */
+	private final int primeraCasilla;
+
+	/**
+	 * Minas que le faltan a cada número de los componentes sin enumerar.
+	 */
+	private final int[] lados;
+
+	/**
+	 * Casillas de cada número, desde <code>inicioDeNumero[r]</code> hasta
+	 * <code>inicioDeNumero[r + 1]</code> en {@link #casillasDeNumero}.
+	 */
+	private final int[] inicioDeNumero, casillasDeNumero;
+
+	/**
+	 * Números de cada casilla sin enumerar, desde <code>inicioDeCasilla[x]</code>
+	 * hasta <code>inicioDeCasilla[x + 1]</code> en {@link #numerosDeCasilla}.
+	 */
+	private final int[] inicioDeCasilla, numerosDeCasilla;
+
+	/**
+	 * Números que comparten casillas con cada número, desde
+	 * <code>inicioDeVecinos[r]</code> hasta <code>inicioDeVecinos[r + 1]</code>
+	 * en {@link #vecinos}.
+	 */
+	private final int[] inicioDeVecinos, vecinos;
+
+	/**
+	 * Casillas sin enumerar en orden de anchura por componentes, en el que se
+	 * busca la configuración inicial.
+	 */
+	private final int[] orden;
+
+	/**
+	 * Logaritmo de <code>C(interior, minas - K)</code> para cada número de minas
+	 * <b>K</b> en la frontera, o menos infinito si no es posible.
+	 */
+	private final double[] pesos;
+
+	/**
+	 * Número de casillas ocultas fuera de la frontera.
+	 */
+	private final int interior;
+
+	/**
+	 * Número de minas sin descubrir.
+	 */
+	private final int minas;
+
+	/**
+	 * Constructor. Prepara los componentes de la frontera para el muestreo.
+	 *
+	 * @param m                Número de filas.
+	 * @param n                Número de columnas.
+	 * @param celdas           Valor de cada casilla descubierta, u
+	 *                         {@link MotorDeProbabilidades#OCULTA}.
+	 * @param restricciones    Número, seguido de las minas que le faltan, de cada
+	 *                         número descubierto con vecinos ocultos.
+	 * @param numRestricciones Número de pares en <b>restricciones</b>.
+	 * @param partes           Componentes de la frontera, enumerados o no.
+	 * @param interior         Número de casillas ocultas fuera de la frontera.
+	 * @param minas            Número de minas sin descubrir.
+	 */
+	MuestreadorDeMinas(int m, int n, byte[] celdas, int[] restricciones, int numRestricciones,
+			MotorDeProbabilidades.Componente[] partes, int interior, int minas) {
+		int total = m * n;
+		int numCasillas = 0;
+		int numEnumerados = 0;
+
+		this.m = m;
+		this.n = n;
+		this.celdas = celdas;
+		this.interior = interior;
+		this.minas = minas;
+
+		for (MotorDeProbabilidades.Componente parte : partes) {
+			numCasillas += parte.casillas.length;
+			numEnumerados += parte.pesos != null ? 1 : 0;
+		}
+
+		// variables de los componentes enumerados: una por grupo
+		this.casillas = new int[numCasillas];
+		this.variables = new int[numCasillas];
+		this.enumerados = new MotorDeProbabilidades.Componente[numEnumerados];
+		this.logPesos = new double[numEnumerados][];
+		this.primeraVariable = new int[numEnumerados];
+		int x = 0;
+		int v = 0;
+		int e = 0;
+		for (MotorDeProbabilidades.Componente parte : partes) {
+			if (parte.pesos == null) {
+				continue;
+			}
+			double mayor = 0;
+			int grupos = 0;
+			for (double peso : parte.pesos) {
+				mayor = Math.max(mayor, peso);
+			}
+			enumerados[e] = parte;
+			logPesos[e] = new double[parte.pesos.length];
+			for (int a = 0; a < parte.pesos.length; a++) {
+				logPesos[e][a] = Math.log(parte.pesos[a] / mayor);
+			}
+			primeraVariable[e] = v;
+			for (int y = 0; y < parte.casillas.length; y++) {
+				casillas[x] = parte.casillas[y];
+				variables[x++] = v + parte.grupos[y];
+				grupos = Math.max(grupos, parte.grupos[y] + 1);
+			}
+			v += grupos;
+			e++;
+		}
+
+		// variables de los componentes sin enumerar: una por casilla
+		this.primeraCasilla = v;
+		int[] local = new int[total];
+		Arrays.fill(local, -1);
+		int sueltas = 0;
+		for (MotorDeProbabilidades.Componente parte : partes) {
+			if (parte.pesos != null) {
+				continue;
+			}
+			for (int c : parte.casillas) {
+				local[c] = sueltas++;
+				casillas[x] = c;
+				variables[x++] = v++;
+			}
+		}
+		this.numVariables = v;
+
+		// casillas de cada número sin enumerar: todas sus casillas ocultas están en
+		// el mismo componente
+		int numNumeros = 0;
+		int[] lista = new int[8 * numRestricciones];
+		int[] ladosDeNumero = new int[numRestricciones];
+		int[] inicio = new int[numRestricciones + 1];
+		int k = 0;
+		for (int r = 0; r < numRestricciones; r++) {
+			int c = restricciones[2 * r];
+			int i = c / n;
+			int j = c % n;
+			int desde = k;
+			for (int ii = Vecindario.desde(i); ii <= Vecindario.hasta(i, m); ii++) {
+				for (int jj = Vecindario.desde(j); jj <= Vecindario.hasta(j, n); jj++) {
+					if (celdas[ii * n + jj] == MotorDeProbabilidades.OCULTA) {
+						lista[k++] = local[ii * n + jj];
+					}
+				}
+			}
+
+			// si el número es de un componente enumerado
+			if (k == desde || lista[desde] < 0) {
+				k = desde;
+				continue;
+			}
+			ladosDeNumero[numNumeros] = restricciones[2 * r + 1];
+			inicio[++numNumeros] = k;
+		}
+		this.lados = Arrays.copyOf(ladosDeNumero, numNumeros);
+		this.inicioDeNumero = Arrays.copyOf(inicio, numNumeros + 1);
+		this.casillasDeNumero = Arrays.copyOf(lista, k);
+
+		// números de cada casilla
+		this.inicioDeCasilla = new int[sueltas + 1];
+		this.numerosDeCasilla = new int[k];
+		for (int y : casillasDeNumero) {
+			inicioDeCasilla[y + 1]++;
+		}
+		for (int y = 0; y < sueltas; y++) {
+			inicioDeCasilla[y + 1] += inicioDeCasilla[y];
+		}
+		int[] lleno = Arrays.copyOf(inicioDeCasilla, sueltas);
+		for (int r = 0; r < numNumeros; r++) {
+			for (int t = inicioDeNumero[r]; t < inicioDeNumero[r + 1]; t++) {
+				numerosDeCasilla[lleno[casillasDeNumero[t]]++] = r;
+			}
+		}
+
+		// números vecinos de cada número: como comparten una casilla, están a
+		// distancia 2 o menos, por lo que son como máximo 24
+		this.inicioDeVecinos = new int[numNumeros + 1];
+		int[] marca = new int[numNumeros];
+		lista = new int[24 * numNumeros];
+		k = 0;
+		for (int r = 0; r < numNumeros; r++) {
+			marca[r] = r + 1;
+			for (int t = inicioDeNumero[r]; t < inicioDeNumero[r + 1]; t++) {
+				int y = casillasDeNumero[t];
+				for (int u = inicioDeCasilla[y]; u < inicioDeCasilla[y + 1]; u++) {
+					int s = numerosDeCasilla[u];
+					if (marca[s] != r + 1) {
+						marca[s] = r + 1;
+						lista[k++] = s;
+					}
+				}
+			}
+			this.inicioDeVecinos[r + 1] = k;
+		}
+		this.vecinos = Arrays.copyOf(lista, k);
+
+		// orden de anchura por componentes, para que cada número se complete pronto
+		this.orden = new int[sueltas];
+		boolean[] visitada = new boolean[sueltas];
+		int fin = 0;
+		for (int y = 0; y < sueltas; y++) {
+			if (visitada[y]) {
+				continue;
+			}
+			visitada[y] = true;
+			orden[fin++] = y;
+			for (int t = fin - 1; t < fin; t++) {
+				int z = orden[t];
+				for (int u = inicioDeCasilla[z]; u < inicioDeCasilla[z + 1]; u++) {
+					int r = numerosDeCasilla[u];
+					for (int w = inicioDeNumero[r]; w < inicioDeNumero[r + 1]; w++) {
+						int q = casillasDeNumero[w];
+						if (!visitada[q]) {
+							visitada[q] = true;
+							orden[fin++] = q;
+						}
+					}
+				}
+			}
+		}
+
+		this.pesos = new double[numCasillas + 1];
+		for (int K = 0; K <= numCasillas; K++) {
+			int resto = minas - K;
+			pesos[K] = resto < 0 || resto > interior ? Double.NEGATIVE_INFINITY
+					: GeneradorDeMinas.logCombinaciones(interior, resto);
+		}
+	}
+
+	/**
+	 * Estima las probabilidades. Se detiene al llegar al tiempo <b>fin</b> o
+	 * cuando el margen de error de todas las casillas es como máximo
+	 * <b>margenMaximo</b>. Cada cadena con una configuración válida toma al menos
+	 * una muestra, y revisa el tiempo cada 1024 sorteos, también al buscar la
+	 * configuración inicial, por lo que el tiempo solo se pasa en esos sorteos.
+	 *
+	 * @param fin          Tiempo en el que se detiene, de
+	 *                     {@link System#nanoTime()}.
+	 * @param margenMaximo Margen de error con el que se detiene.
+	 * @return {@link ProbabilidadesDeMinas} con el margen de error de cada casilla;
+	 *         sin muestras, con la densidad de minas en todas las casillas ocultas
+	 *         y margen 1, si se acaba el tiempo antes de que alguna cadena tome una
+	 *         muestra; o <code>null</code> si ninguna cadena encuentra una
+	 *         configuración válida en todos sus intentos.
+	 */
+	ProbabilidadesDeMinas estimar(long fin, double margenMaximo) {
+		// si se acabó el tiempo al preparar el muestreo, no se crean las cadenas
+		if (System.nanoTime() - fin >= 0) {
+			return sinMuestras(m, n, celdas, interior + casillas.length, minas);
+		}
+
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		SplittableRandom semillas = new SplittableRandom();
+		Cadena[] cadenas = new Cadena[Math.max(CADENAS_MINIMAS, pool.getParallelism())];
+
+		for (int w = 0; w < cadenas.length; w++) {
+			cadenas[w] = new Cadena(semillas.split());
+		}
+
+		double[] probabilidades = new double[m * n];
+		double[] margenes = new double[m * n];
+		long muestras;
+		double mayor;
+		do {
+			pool.invoke(new Ronda(cadenas, 0, cadenas.length, fin));
+
+			// cada cadena válida toma al menos una muestra por ronda
+			muestras = 0;
+			for (Cadena cadena : cadenas) {
+				muestras += cadena.muestras;
+			}
+			if (muestras == 0) {
+				return sinTiempo(cadenas) ? sinMuestras(m, n, celdas, interior + casillas.length, minas) : null;
+			}
+			mayor = resumir(cadenas, probabilidades, margenes);
+		} while (mayor > margenMaximo && System.nanoTime() - fin < 0);
+		return new ProbabilidadesDeMinas(m, n, probabilidades, margenes, muestras);
+	}
+
+	/**
+	 * Indica si alguna cadena dejó de buscar su configuración inicial porque se
+	 * acabó el tiempo, y no porque agotó sus intentos.
+	 *
+	 * @param cadenas Cadenas.
+	 * @return <code>true</code> si a alguna se le acabó el tiempo.
+	 */
+	private static boolean sinTiempo(Cadena[] cadenas) {
+		for (Cadena cadena : cadenas) {
+			if (cadena.sinTiempo) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Devuelve una estimación sin muestras: todas las casillas ocultas tienen la
+	 * densidad de minas como probabilidad, con margen de error 1. Es la que se
+	 * entrega si se acaba el tiempo antes de tomar alguna muestra.
+	 *
+	 * @param m       Número de filas.
+	 * @param n       Número de columnas.
+	 * @param celdas  Valor de cada casilla descubierta, u
+	 *                {@link MotorDeProbabilidades#OCULTA}.
+	 * @param ocultas Número de casillas ocultas.
+	 * @param minas   Número de minas sin descubrir.
+	 * @return {@link ProbabilidadesDeMinas} sin muestras.
+	 */
+	static ProbabilidadesDeMinas sinMuestras(int m, int n, byte[] celdas, int ocultas, int minas) {
+		double[] probabilidades = new double[m * n];
+		double[] margenes = new double[m * n];
+		double densidad = (double) minas / Math.max(1, ocultas);
+
+		for (int c = 0; c < m * n; c++) {
+			boolean oculta = celdas[c] == MotorDeProbabilidades.OCULTA;
+			probabilidades[c] = oculta ? densidad : Double.NaN;
+			margenes[c] = oculta ? 1 : Double.NaN;
+		}
+		return new ProbabilidadesDeMinas(m, n, probabilidades, margenes, 0);
+	}
+
+	/**
+	 * Calcula la probabilidad estimada y el margen de error de cada casilla con los
+	 * lotes de todas las cadenas.
+	 *
+	 * @param cadenas        Cadenas.
+	 * @param probabilidades Probabilidad de cada casilla, donde se escribe, con
+	 *                       {@link Double#NaN} en las descubiertas.
+	 * @param margenes       Margen de error de cada casilla, donde se escribe.
+	 * @return Mayor margen de error, o 1 si hay menos de dos lotes.
+	 */
+	private double resumir(Cadena[] cadenas, double[] probabilidades, double[] margenes) {
+		int lotes = 0;
+
+		for (Cadena cadena : cadenas) {
+			lotes += cadena.lotes;
+		}
+		Arrays.fill(probabilidades, Double.NaN);
+		Arrays.fill(margenes, Double.NaN);
+		if (lotes == 0) {
+			return 1;
+		}
+		double t = lotes - 1 <= T_95.length ? T_95[Math.max(lotes - 2, 0)] : 1.96;
+
+		// casillas del interior, que tienen todas la misma probabilidad
+		double suma = 0;
+		double cuadrados = 0;
+		for (Cadena cadena : cadenas) {
+			suma += cadena.sumaInterior;
+			cuadrados += cadena.cuadradosInterior;
+		}
+		double interna = margen(suma, cuadrados, lotes, t);
+		double mayor = interior > 0 ? interna : 0;
+		for (int c = 0; c < celdas.length; c++) {
+			if (celdas[c] == MotorDeProbabilidades.OCULTA) {
+				probabilidades[c] = suma / lotes;
+				margenes[c] = interna;
+			}
+		}
+
+		// variables de la frontera
+		double[] medias = new double[numVariables];
+		double[] errores = new double[numVariables];
+		for (int v = 0; v < numVariables; v++) {
+			suma = 0;
+			cuadrados = 0;
+			for (Cadena cadena : cadenas) {
+				suma += cadena.suma[v];
+				cuadrados += cadena.cuadrados[v];
+			}
+			medias[v] = suma / lotes;
+			errores[v] = margen(suma, cuadrados, lotes, t);
+			mayor = Math.max(mayor, errores[v]);
+		}
+		for (int x = 0; x < casillas.length; x++) {
+			probabilidades[casillas[x]] = medias[variables[x]];
+			margenes[casillas[x]] = errores[variables[x]];
+		}
+		return mayor;
+	}
+
+	/**
+	 * Devuelve el margen de error de una media de lotes.
+	 *
+	 * @param suma      Suma de las medias de los lotes.
+	 * @param cuadrados Suma de los cuadrados de las medias de los lotes.
+	 * @param lotes     Número de lotes.
+	 * @param t         Cuantil de la t de Student.
+	 * @return Margen de error, o 1 si hay menos de dos lotes.
+	 */
+	private static double margen(double suma, double cuadrados, int lotes, double t) {
+		if (lotes < 2) {
+			return 1;
+		}
+		double media = suma / lotes;
+		double varianza = Math.max(0, (cuadrados - lotes * media * media) / (lotes - 1));
+		return Math.min(1, t * Math.sqrt(varianza / lotes));
+	}
+
+	/**
+	 * Tarea que avanza un lote de cada cadena de un rango.
+	 */
+	private static class Ronda extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Cadena[] cadenas;
+		private final int desde, hasta;
+		private final long fin;
+
+		Ronda(Cadena[] cadenas, int desde, int hasta, long fin) {
+			this.cadenas = cadenas;
+			this.desde = desde;
+			this.hasta = hasta;
+			this.fin = fin;
+		}
+
+		@Override
+		protected void compute() {
+			if (hasta - desde > 1) {
+				int mitad = (desde + hasta) >>> 1;
+				invokeAll(new Ronda(cadenas, desde, mitad, fin), new Ronda(cadenas, mitad, hasta, fin));
+				return;
+			}
+			cadenas[desde].lote(fin);
+		}
+	}
+
+	/**
+	 * Cadena de Gibbs con su configuración actual, su generador de números
+	 * aleatorios y sus lotes.
+	 */
+	private class Cadena {
+
+		/**
+		 * Generador de números aleatorios de la cadena.
+		 */
+		private final SplittableRandom rand;
+
+		/**
+		 * Número de minas de cada componente enumerado en la configuración actual.
+		 */
+		private final int[] minasDe;
+
+		/**
+		 * Indica si cada casilla sin enumerar tiene mina en la configuración actual.
+		 */
+		private final boolean[] mina;
+
+		/**
+		 * Número de minas en la frontera en la configuración actual.
+		 */
+		private int K;
+
+		/**
+		 * Indica si la cadena ya buscó su configuración inicial, y si la encontró.
+		 */
+		private boolean iniciada, valida;
+
+		/**
+		 * Indica si se acabó el tiempo antes de encontrar la configuración inicial.
+		 */
+		private boolean sinTiempo;
+
+		/**
+		 * Probabilidad de probar primero con mina cada casilla sin enumerar al
+		 * buscar la configuración inicial.
+		 */
+		private double densidad;
+
+		/**
+		 * Pesos de cada número de minas del componente enumerado que se sortea.
+		 */
+		private final double[] opciones;
+
+		// lotes
+
+		/**
+		 * Suma de la probabilidad de cada variable en las muestras del lote actual.
+		 */
+		private final double[] cuenta;
+
+		/**
+		 * Suma de la probabilidad del interior en las muestras del lote actual.
+		 */
+		private double cuentaInterior;
+
+		/**
+		 * Número de muestras del lote actual.
+		 */
+		private int muestrasDelLote;
+
+		/**
+		 * Suma de las medias de los lotes, y de sus cuadrados, de cada variable.
+		 */
+		private final double[] suma, cuadrados;
+
+		/**
+		 * Suma de las medias de los lotes, y de sus cuadrados, del interior.
+		 */
+		private double sumaInterior, cuadradosInterior;
+
+		/**
+		 * Número de lotes terminados.
+		 */
+		private int lotes;
+
+		/**
+		 * Número de muestras tomadas.
+		 */
+		private long muestras;
+
+		// bloque que se vuelve a sortear en cada paso
+
+		/**
+		 * Casillas del bloque.
+		 */
+		private final int[] bloque = new int[BLOQUE_MAXIMO];
+
+		/**
+		 * Números del bloque (en índices locales) de cada casilla del bloque.
+		 */
+		private final int[][] numerosDelBloque = new int[BLOQUE_MAXIMO][8];
+
+		/**
+		 * Número de números de cada casilla del bloque.
+		 */
+		private final int[] cuantos = new int[BLOQUE_MAXIMO];
+
+		/**
+		 * Minas del bloque, y casillas del bloque sin asignar, de cada número del
+		 * bloque.
+		 */
+		private final int[] falta = new int[8 * BLOQUE_MAXIMO], libres = new int[8 * BLOQUE_MAXIMO];
+
+		/**
+		 * Números con los que se crece el bloque.
+		 */
+		private final int[] cola = new int[NUMEROS_DEL_BLOQUE];
+
+		/**
+		 * Índice local de cada número en el bloque, válido si su sello es el actual.
+		 */
+		private final int[] localDeNumero, selloDeNumero;
+
+		/**
+		 * Sello de cada número, para no repetirlo en la {@link #cola}.
+		 */
+		private final int[] selloDeCola;
+
+		/**
+		 * Sello de cada casilla, para no repetirla en el bloque.
+		 */
+		private final int[] selloDeCasilla;
+
+		/**
+		 * Sello del paso actual.
+		 */
+		private int sello;
+
+		/**
+		 * Suma de los pesos de las asignaciones del bloque vistas, y la asignación
+		 * escogida entre ellas.
+		 */
+		private double pesoTotal;
+		private int escogida;
+
+		Cadena(SplittableRandom rand) {
+			int sueltas = orden.length;
+			int mayor = 0;
+
+			for (double[] log : logPesos) {
+				mayor = Math.max(mayor, log.length);
+			}
+			this.rand = rand;
+			this.minasDe = new int[enumerados.length];
+			this.mina = new boolean[sueltas];
+			this.opciones = new double[mayor];
+			this.cuenta = new double[numVariables];
+			this.suma = new double[numVariables];
+			this.cuadrados = new double[numVariables];
+			this.localDeNumero = new int[lados.length];
+			this.selloDeNumero = new int[lados.length];
+			this.selloDeCola = new int[lados.length];
+			this.selloDeCasilla = new int[sueltas];
+		}
+
+		/**
+		 * Avanza un lote de la cadena, o hasta el tiempo <b>fin</b> si llega antes.
+		 * La primera vez busca la configuración inicial, deteniéndose también en
+		 * <b>fin</b>, y hace un recorrido que se descarta.
+		 *
+		 * @param fin Tiempo en el que se detiene, de {@link System#nanoTime()}.
+		 */
+		void lote(long fin) {
+			if (!iniciada) {
+				iniciada = true;
+				densidad = (double) minas / Math.max(1, interior + casillas.length);
+				for (int intento = 0; intento < INTENTOS && !valida && !sinTiempo; intento++) {
+					sinTiempo = System.nanoTime() - fin >= 0;
+					if (!sinTiempo) {
+						valida = iniciar((64L * orden.length + 4096) << intento, fin);
+					}
+				}
+				if (valida) {
+					recorrer(fin);
+				}
+			}
+			if (!valida) {
+				return;
+			}
+
+			// el lote se corta si se acaba el tiempo, pero toma al menos una muestra
+			while (muestrasDelLote < MUESTRAS_POR_LOTE) {
+				boolean completo = recorrer(fin);
+				if (!completo && muestrasDelLote > 0) {
+					break;
+				}
+				for (int e = 0; e < enumerados.length; e++) {
+					MotorDeProbabilidades.Componente parte = enumerados[e];
+					int a = minasDe[e] - parte.minimo;
+					for (int g = 0; g < parte.minas.length; g++) {
+						cuenta[primeraVariable[e] + g] += parte.minas[g][a] / parte.pesos[a];
+					}
+				}
+				for (int y = 0; y < mina.length; y++) {
+					if (mina[y]) {
+						cuenta[primeraCasilla + y]++;
+					}
+				}
+				cuentaInterior += interior > 0 ? (double) (minas - K) / interior : 0;
+				muestrasDelLote++;
+				muestras++;
+				if (!completo) {
+					break;
+				}
+			}
+
+			// se cierra el lote
+			for (int v = 0; v < numVariables; v++) {
+				double media = cuenta[v] / muestrasDelLote;
+				suma[v] += media;
+				cuadrados[v] += media * media;
+				cuenta[v] = 0;
+			}
+			double media = cuentaInterior / muestrasDelLote;
+			sumaInterior += media;
+			cuadradosInterior += media * media;
+			cuentaInterior = 0;
+			muestrasDelLote = 0;
+			lotes++;
+		}
+
+		/**
+		 * Hace un recorrido: sortea el número de minas de cada componente enumerado,
+		 * y da un paso por cada {@link #NUMEROS_POR_PASO} números sin enumerar. Se
+		 * detiene si llega al tiempo <b>fin</b>, que se revisa cada 1024 sorteos.
+		 *
+		 * @param fin Tiempo en el que se detiene, de {@link System#nanoTime()}.
+		 * @return <code>true</code> si se completó el recorrido.
+		 */
+		private boolean recorrer(long fin) {
+			int pasos = (lados.length + NUMEROS_POR_PASO - 1) / NUMEROS_POR_PASO;
+			int p = 0;
+
+			for (int e = 0; e < enumerados.length; e++, p++) {
+				if ((p & 1023) == 0 && System.nanoTime() - fin >= 0) {
+					return false;
+				}
+				sortear(e);
+			}
+			for (int r = 0; r < pasos; r++, p++) {
+				if ((p & 1023) == 0 && System.nanoTime() - fin >= 0) {
+					return false;
+				}
+				paso();
+			}
+			return true;
+		}
+
+		/**
+		 * Busca una configuración válida: el número de minas de cada componente
+		 * enumerado se sortea según sus configuraciones, y las casillas sin enumerar
+		 * se asignan con {@link #asignar(long, long)}. Si el total de minas de la
+		 * frontera no es posible, se acerca a lo posible moviendo el número de minas
+		 * de los componentes enumerados y, si no basta, se cambia la
+		 * {@link #densidad} para el siguiente intento.
+		 *
+		 * @param presupuesto Número máximo de asignaciones de casillas sin enumerar.
+		 * @param fin         Tiempo en el que se detiene, de
+		 *                    {@link System#nanoTime()}.
+		 * @return <code>true</code> si encontró una configuración con un número de
+		 *         minas posible.
+		 */
+		private boolean iniciar(long presupuesto, long fin) {
+			K = 0;
+			for (int e = 0; e < enumerados.length; e++) {
+				double[] log = logPesos[e];
+				double total = 0;
+				for (int a = 0; a < log.length; a++) {
+					opciones[a] = Math.exp(log[a]);
+					total += opciones[a];
+				}
+				minasDe[e] = enumerados[e].minimo + escoger(log.length, total);
+				K += minasDe[e];
+			}
+			if (!asignar(presupuesto, fin)) {
+				return false;
+			}
+
+			// sobran minas en la frontera, o faltan para el interior
+			for (int e = 0; e < enumerados.length && minas - K < 0; e++) {
+				int menor = enumerados[e].minimo;
+				while (minasDe[e] > menor && minas - K < 0) {
+					minasDe[e]--;
+					K--;
+				}
+			}
+			for (int e = 0; e < enumerados.length && minas - K > interior; e++) {
+				int mayor = enumerados[e].minimo + logPesos[e].length - 1;
+				while (minasDe[e] < mayor && minas - K > interior) {
+					minasDe[e]++;
+					K++;
+				}
+			}
+
+			// si se movió a un número de minas sin configuraciones
+			for (int e = 0; e < enumerados.length; e++) {
+				if (logPesos[e][minasDe[e] - enumerados[e].minimo] == Double.NEGATIVE_INFINITY) {
+					return false;
+				}
+			}
+			if (minas - K < 0) {
+				densidad /= 2;
+			} else if (minas - K > interior) {
+				densidad = (1 + densidad) / 2;
+			}
+			return pesos[K] != Double.NEGATIVE_INFINITY;
+		}
+
+		/**
+		 * Busca con retroceso una asignación de las casillas sin enumerar que cumpla
+		 * sus números, asignándolas en el {@link #orden} y probando primero, al azar,
+		 * con o sin mina según la {@link #densidad}. Suma sus minas a {@link #K}. Se
+		 * detiene si llega al tiempo <b>fin</b>, que se revisa cada 1024
+		 * asignaciones, y entonces marca la cadena {@link #sinTiempo}.
+		 *
+		 * @param presupuesto Número máximo de asignaciones.
+		 * @param fin         Tiempo en el que se detiene, de
+		 *                    {@link System#nanoTime()}.
+		 * @return <code>true</code> si la encontró.
+		 */
+		private boolean asignar(long presupuesto, long fin) {
+			int sueltas = orden.length;
+			int[] faltan = lados.clone();
+			int[] sinAsignar = new int[lados.length];
+			byte[] probadas = new byte[sueltas];
+			boolean[] primero = new boolean[sueltas];
+
+			for (int r = 0; r < lados.length; r++) {
+				sinAsignar[r] = inicioDeNumero[r + 1] - inicioDeNumero[r];
+			}
+			Arrays.fill(mina, false);
+
+			int t = 0;
+			while (t < sueltas) {
+				if (--presupuesto < 0) {
+					return false;
+				}
+				if ((presupuesto & 1023) == 0 && System.nanoTime() - fin >= 0) {
+					sinTiempo = true;
+					return false;
+				}
+				int x = orden[t];
+
+				// si ya se probaron los dos valores se retrocede
+				if (probadas[t] == 2) {
+					probadas[t] = 0;
+					if (--t < 0) {
+						return false;
+					}
+					x = orden[t];
+					for (int u = inicioDeCasilla[x]; u < inicioDeCasilla[x + 1]; u++) {
+						faltan[numerosDeCasilla[u]] += mina[x] ? 1 : 0;
+						sinAsignar[numerosDeCasilla[u]]++;
+					}
+					K -= mina[x] ? 1 : 0;
+					mina[x] = false;
+					continue;
+				}
+				if (probadas[t] == 0) {
+					primero[t] = rand.nextDouble() < densidad;
+				}
+				boolean v = probadas[t]++ == 0 ? primero[t] : !primero[t];
+				int a = v ? 1 : 0;
+
+				boolean cabe = true;
+				for (int u = inicioDeCasilla[x]; u < inicioDeCasilla[x + 1] && cabe; u++) {
+					int r = numerosDeCasilla[u];
+					cabe = faltan[r] - a >= 0 && faltan[r] - a <= sinAsignar[r] - 1;
+				}
+				if (cabe) {
+					for (int u = inicioDeCasilla[x]; u < inicioDeCasilla[x + 1]; u++) {
+						faltan[numerosDeCasilla[u]] -= a;
+						sinAsignar[numerosDeCasilla[u]]--;
+					}
+					mina[x] = v;
+					K += a;
+					t++;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Vuelve a sortear el número de minas del componente enumerado <b>e</b>,
+		 * dado el de los demás. Cada número se escoge con probabilidad proporcional
+		 * a sus configuraciones por <code>C(interior, minas - K)</code>.
+		 *
+		 * @param e Componente enumerado.
+		 */
+		private void sortear(int e) {
+			double[] log = logPesos[e];
+			int base = K - minasDe[e] + enumerados[e].minimo;
+			double mayor = Double.NEGATIVE_INFINITY;
+
+			for (int a = 0; a < log.length; a++) {
+				opciones[a] = log[a] + pesos[base + a];
+				mayor = Math.max(mayor, opciones[a]);
+			}
+			double total = 0;
+			for (int a = 0; a < log.length; a++) {
+				opciones[a] = Math.exp(opciones[a] - mayor);
+				total += opciones[a];
+			}
+
+			// el número actual siempre es posible, por lo que mayor es finito
+			int a = escoger(log.length, total);
+			K = base + a;
+			minasDe[e] = enumerados[e].minimo + a;
+		}
+
+		/**
+		 * Escoge una de las primeras <b>cuantas</b> {@link #opciones} con
+		 * probabilidad proporcional a su peso.
+		 *
+		 * @param cuantas Número de opciones.
+		 * @param total   Suma de sus pesos.
+		 * @return Índice de la opción escogida.
+		 */
+		private int escoger(int cuantas, double total) {
+			double u = rand.nextDouble() * total;
+
+			for (int a = 0; a < cuantas - 1; a++) {
+				u -= opciones[a];
+				if (u < 0 && opciones[a] > 0) {
+					return a;
+				}
+			}
+
+			// la última, o la última con peso si el redondeo se pasa
+			for (int a = cuantas - 1; a > 0; a--) {
+				if (opciones[a] > 0) {
+					return a;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Vuelve a sortear las minas de un bloque de casillas: las de un número al
+		 * azar y las de los números cercanos, en anchura y en orden aleatorio,
+		 * mientras quepan en {@link #BLOQUE_MAXIMO} casillas. Así el bloque puede
+		 * mover a la vez todas las minas de una fila de números. Cada asignación que
+		 * cumple todos los números se escoge con probabilidad proporcional a
+		 * <code>C(interior, minas - K)</code>.
+		 */
+		private void paso() {
+			if (lados.length == 0) {
+				return;
+			}
+
+			// los sellos se reinician antes de desbordarse
+			if (++sello == Integer.MAX_VALUE) {
+				Arrays.fill(selloDeCasilla, 0);
+				Arrays.fill(selloDeNumero, 0);
+				Arrays.fill(selloDeCola, 0);
+				sello = 1;
+			}
+
+			// casillas del bloque, sin repetir
+			int tamano = 0;
+			int minasDelBloque = 0;
+			int enCola = 1;
+			cola[0] = rand.nextInt(lados.length);
+			selloDeCola[cola[0]] = sello;
+			for (int h = 0; h < enCola; h++) {
+				int q = cola[h];
+				int nuevas = 0;
+				for (int t = inicioDeNumero[q]; t < inicioDeNumero[q + 1]; t++) {
+					nuevas += selloDeCasilla[casillasDeNumero[t]] != sello ? 1 : 0;
+				}
+
+				// si el número no cabe, se prueba con los siguientes
+				if (tamano + nuevas > BLOQUE_MAXIMO) {
+					continue;
+				}
+				for (int t = inicioDeNumero[q]; t < inicioDeNumero[q + 1]; t++) {
+					int x = casillasDeNumero[t];
+					if (selloDeCasilla[x] != sello) {
+						selloDeCasilla[x] = sello;
+						bloque[tamano++] = x;
+						minasDelBloque += mina[x] ? 1 : 0;
+					}
+				}
+
+				// vecinos del número, empezando en uno al azar
+				int grado = inicioDeVecinos[q + 1] - inicioDeVecinos[q];
+				int primero = grado > 0 ? rand.nextInt(grado) : 0;
+				for (int u = 0; u < grado && enCola < cola.length; u++) {
+					int s = vecinos[inicioDeVecinos[q] + (primero + u) % grado];
+					if (selloDeCola[s] != sello) {
+						selloDeCola[s] = sello;
+						cola[enCola++] = s;
+					}
+				}
+			}
+
+			// números que tocan el bloque: sus casillas fuera del bloque no cambian,
+			// por lo que el bloque debe conservar sus minas en cada número
+			int locales = 0;
+			for (int b = 0; b < tamano; b++) {
+				int x = bloque[b];
+				cuantos[b] = 0;
+				for (int u = inicioDeCasilla[x]; u < inicioDeCasilla[x + 1]; u++) {
+					int q = numerosDeCasilla[u];
+					if (selloDeNumero[q] != sello) {
+						selloDeNumero[q] = sello;
+						localDeNumero[q] = locales;
+						falta[locales] = 0;
+						libres[locales] = 0;
+						locales++;
+					}
+					int l = localDeNumero[q];
+					falta[l] += mina[x] ? 1 : 0;
+					libres[l]++;
+					numerosDelBloque[b][cuantos[b]++] = l;
+				}
+			}
+
+			pesoTotal = 0;
+			escogida = -1;
+			repartir(0, tamano, 0, 0, K - minasDelBloque);
+
+			// la configuración actual siempre es válida, por lo que se escoge alguna
+			for (int b = 0; b < tamano; b++) {
+				boolean v = (escogida >>> b & 1) != 0;
+				if (mina[bloque[b]] != v) {
+					mina[bloque[b]] = v;
+					K += v ? 1 : -1;
+				}
+			}
+		}
+
+		/**
+		 * Recorre las asignaciones válidas de las casillas del bloque desde la
+		 * <b>b</b>, y escoge una con probabilidad proporcional a su peso.
+		 *
+		 * @param b        Casilla del bloque.
+		 * @param tamano   Número de casillas del bloque.
+		 * @param mascara  Minas asignadas a las casillas anteriores, un bit por
+		 *                 casilla.
+		 * @param asignado Número de minas asignadas a las casillas anteriores.
+		 * @param fuera    Minas de la frontera fuera del bloque.
+		 */
+		private void repartir(int b, int tamano, int mascara, int asignado, int fuera) {
+			if (b == tamano) {
+				double peso = Math.exp(pesos[fuera + asignado] - pesos[K]);
+				pesoTotal += peso;
+				if (peso > 0 && rand.nextDouble() * pesoTotal < peso) {
+					escogida = mascara;
+				}
+				return;
+			}
+
+			int[] numeros = numerosDelBloque[b];
+			for (int a = 0; a <= 1; a++) {
+				boolean cabe = true;
+				for (int k = 0; k < cuantos[b] && cabe; k++) {
+					int l = numeros[k];
+					cabe = falta[l] - a >= 0 && falta[l] - a <= libres[l] - 1;
+				}
+				if (!cabe) {
+					continue;
+				}
+				for (int k = 0; k < cuantos[b]; k++) {
+					falta[numeros[k]] -= a;
+					libres[numeros[k]]--;
+				}
+				repartir(b + 1, tamano, mascara | a << b, asignado + a, fuera);
+				for (int k = 0; k < cuantos[b]; k++) {
+					falta[numeros[k]] += a;
+					libres[numeros[k]]++;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package buscaminas;
+
+/**
+ * Interfaz de los objetos que reciben las casillas que cambian en cada jugada
+ * de un {@link CampoDeMinas}, para actualizar solo esas casillas en lugar de
+ * recorrer todo el campo.
+ *
+ * @author sneyd
+ *
+ * @see CampoDeMinas#setObservadorDeCambios(ObservadorDeCambios)
+ */
+@FunctionalInterface
+public interface ObservadorDeCambios {
+
+	/**
+	 * Recibe los cambios de una jugada. El objeto <b>cambios</b> se reutiliza en la
+	 * siguiente jugada, por lo que no se debe guardar.
+	 *
+	 * @param cambios {@link CambiosDeCasillas} de la jugada.
+	 */
+	void casillasCambiadas(CambiosDeCasillas cambios);
+}
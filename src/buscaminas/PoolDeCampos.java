@@ -0,0 +1,120 @@
+package buscaminas;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * Clase que guarda los {@link CampoDeMinas} de juegos terminados para
+ * reutilizarlos en juegos nuevos del mismo tamaño, en lugar de crear otros.
+ * <p>
+ * Un campo devuelto al pool se reinicia con {@link CampoDeMinas#reiniciar(boolean)},
+ * que limpia sus matrices sin liberarlas: los nodos de la matriz dispersa se
+ * guardan para las casillas del siguiente juego. Por cada tamaño se guardan
+ * como máximo {@link #maximoPorTamano} campos.
+ *
+ * @author sneyd
+ *
+ * @see CampoDeMinas
+ */
+public class PoolDeCampos {
+
+	/**
+	 * Tamaño de un campo de minas: filas, columnas y minas.
+	 */
+	private static class Clave {
+		private final int m, n, minas;
+
+		private Clave(int m, int n, int minas) {
+			this.m = m;
+			this.n = n;
+			this.minas = minas;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Clave)) {
+				return false;
+			}
+			Clave otra = (Clave) o;
+			return m == otra.m && n == otra.n && minas == otra.minas;
+		}
+
+		@Override
+		public int hashCode() {
+			return (m * 31 + n) * 31 + minas;
+		}
+	}
+
+	/**
+	 * Campos libres, agrupados por tamaño.
+	 */
+	private final HashMap<Clave, ArrayDeque<CampoDeMinas>> libres;
+
+	/**
+	 * Número máximo de campos libres que se guardan por cada tamaño.
+	 */
+	private final int maximoPorTamano;
+
+	/**
+	 * Constructor de un pool de campos de minas.
+	 *
+	 * @param maximoPorTamano Número máximo de campos libres que se guardan por cada
+	 *                        tamaño.
+	 */
+	public PoolDeCampos(int maximoPorTamano) {
+		assert maximoPorTamano > 0;
+		this.libres = new HashMap<>();
+		this.maximoPorTamano = maximoPorTamano;
+	}
+
+	/**
+	 * Devuelve un campo de minas sin generar del tamaño indicado, reutilizando uno
+	 * libre si lo hay.
+	 *
+	 * @param m     Número de filas.
+	 * @param n     Número de columnas.
+	 * @param minas Número de minas.
+	 * @return Campo de minas listo para {@link CampoDeMinas#iniciar()}.
+	 */
+	public synchronized CampoDeMinas obtener(int m, int n, int minas) {
+		ArrayDeque<CampoDeMinas> campos = libres.get(new Clave(m, n, minas));
+
+		// si no hay campos libres de ese tamaño
+		if (campos == null || campos.isEmpty()) {
+			return new CampoDeMinas(m, n, minas);
+		}
+		return campos.pop();
+	}
+
+	/**
+	 * Devuelve al pool un campo de minas que ya no se usa. El campo se reinicia
+	 * con un tablero nuevo, por lo que no se debe seguir usando después de
+	 * devolverlo.
+	 *
+	 * @param campo Campo de minas a devolver.
+	 */
+	public synchronized void devolver(CampoDeMinas campo) {
+		Clave clave = new Clave(campo.getNumFilas(), campo.getNumColumnas(), campo.getNumMinas());
+		ArrayDeque<CampoDeMinas> campos = libres.computeIfAbsent(clave, k -> new ArrayDeque<>());
+
+		// si ya se guardan suficientes campos de ese tamaño, se descarta
+		if (campos.size() >= maximoPorTamano) {
+			return;
+		}
+		campo.reiniciar(true);
+		campos.push(campo);
+	}
+
+	/**
+	 * Devuelve el número de campos libres del tamaño indicado.
+	 *
+	 * @param m     Número de filas.
+	 * @param n     Número de columnas.
+	 * @param minas Número de minas.
+	 * @return Número de campos libres.
+	 */
+	public synchronized int getLibres(int m, int n, int minas) {
+		ArrayDeque<CampoDeMinas> campos = libres.get(new Clave(m, n, minas));
+		return campos == null ? 0 : campos.size();
+	}
+}
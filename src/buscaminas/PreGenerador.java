@@ -0,0 +1,344 @@
+package buscaminas;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import matricesDispersas.MatrizDeBits;
+
+/**
+ * Clase que genera minas en un hilo de fondo, para que la primera jugada de un
+ * juego nuevo no tenga que esperar a que se generen.
+ * <p>
+ * Por cada tamaño (filas, columnas y minas) se guardan hasta
+ * {@link #tablerosPorTamano} candidatos, generados sin excluir ninguna casilla.
+ * Al despejar la primera casilla, {@link #tomar(int, int, int, int, int, boolean)}
+ * entrega el primer candidato sin minas en la zona excluida de esa casilla, y
+ * descarta los candidatos revisados que sí tienen minas en ella. Así el tablero
+ * entregado tiene la misma distribución que uno generado excluyendo la zona:
+ * es uniforme entre los tableros sin minas en la zona. Un candidato rechazado no
+ * se vuelve a ofrecer, pues los que quedan en la cola después de un rechazo
+ * estarían sesgados.
+ * <p>
+ * Siempre se pregeneran los tamaños de los niveles del juego (9x9 con 10 minas,
+ * 16x16 con 40 y 16x30 con 99). Los demás tamaños se agregan al pedirlos, y se
+ * guardan como máximo {@link #maximoPersonalizados}, eliminando el que lleva más
+ * tiempo sin usarse.
+ * <p>
+ * Todos los métodos están sincronizados, por lo que varios hilos pueden usar el
+ * mismo pregenerador.
+ *
+ * @author sneyd
+ *
+ * @see CampoDeMinas#setPreGenerador(PreGenerador)
+ */
+public class PreGenerador {
+
+	/**
+	 * Tamaño de un campo de minas: filas, columnas y minas.
+	 */
+	private static class Clave {
+		private final int m, n, minas;
+
+		private Clave(int m, int n, int minas) {
+			this.m = m;
+			this.n = n;
+			this.minas = minas;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Clave)) {
+				return false;
+			}
+			Clave otra = (Clave) o;
+			return m == otra.m && n == otra.n && minas == otra.minas;
+		}
+
+		@Override
+		public int hashCode() {
+			return (m * 31 + n) * 31 + minas;
+		}
+	}
+
+	/**
+	 * Tamaños de los niveles del juego: filas, columnas y minas.
+	 */
+	private static final int[][] NIVELES = { { 9, 9, 10 }, { 16, 16, 40 }, { 16, 30, 99 } };
+
+	/**
+	 * Candidatos de cada tamaño, en orden de uso (el primero es el que lleva más
+	 * tiempo sin usarse).
+	 */
+	private final LinkedHashMap<Clave, ArrayDeque<TableroGenerado>> candidatos;
+
+	/**
+	 * Número de candidatos que se pregeneran por cada tamaño.
+	 */
+	private final int tablerosPorTamano;
+
+	/**
+	 * Número máximo de tamaños que no son de los niveles del juego.
+	 */
+	private final int maximoPersonalizados;
+
+	/**
+	 * Hilo de fondo en el que se generan los candidatos.
+	 */
+	private final ExecutorService hilo;
+
+	/**
+	 * Generador de las semillas de los candidatos.
+	 */
+	private final SplittableRandom semillas;
+
+	/**
+	 * Indica si hay una tarea de generación pendiente en el {@link #hilo}.
+	 */
+	private boolean generando;
+
+	/**
+	 * Número de tableros entregados.
+	 */
+	private long aciertos;
+
+	/**
+	 * Número de pedidos sin ningún candidato válido, que se generan al jugar.
+	 */
+	private long fallos;
+
+	/**
+	 * Número de candidatos descartados por tener minas en la zona excluida.
+	 */
+	private long descartados;
+
+	/**
+	 * Constructor. Empieza a pregenerar los tamaños de los niveles del juego.
+	 *
+	 * @param tablerosPorTamano    Número de candidatos por cada tamaño.
+	 * @param maximoPersonalizados Número máximo de tamaños que no son de los
+	 *                             niveles del juego.
+	 */
+	public PreGenerador(int tablerosPorTamano, int maximoPersonalizados) {
+		assert tablerosPorTamano > 0 && maximoPersonalizados >= 0;
+		this.candidatos = new LinkedHashMap<>(16, 0.75f, true);
+		this.tablerosPorTamano = tablerosPorTamano;
+		this.maximoPersonalizados = maximoPersonalizados;
+		this.semillas = new SplittableRandom();
+		this.hilo = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "PreGenerador");
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		});
+
+		synchronized (this) {
+			for (int[] nivel : NIVELES) {
+				this.candidatos.put(new Clave(nivel[0], nivel[1], nivel[2]), new ArrayDeque<>());
+			}
+			programar();
+		}
+	}
+
+	/**
+	 * Empieza a pregenerar un tamaño, si no se estaba pregenerando. Conviene
+	 * llamarlo al crear el campo de minas, para que los candidatos estén listos al
+	 * despejar la primera casilla.
+	 *
+	 * @param m     Número de filas.
+	 * @param n     Número de columnas.
+	 * @param minas Número de minas.
+	 */
+	public synchronized void preparar(int m, int n, int minas) {
+		Clave clave = new Clave(m, n, minas);
+
+		if (candidatos.get(clave) == null) {
+			agregar(clave);
+			programar();
+		}
+	}
+
+	/**
+	 * Entrega un tablero pregenerado sin minas en la zona excluida de la primera
+	 * casilla (<b>f</b>, <b>c</b>), y programa la generación de otro. Si el tamaño
+	 * no se estaba pregenerando, se agrega.
+	 *
+	 * @param m        Número de filas.
+	 * @param n        Número de columnas.
+	 * @param minas    Número de minas.
+	 * @param f        Fila de la primera casilla despejada.
+	 * @param c        Columna de la primera casilla despejada.
+	 * @param apertura Indica si se excluyen también los vecinos de la casilla.
+	 * @return {@link TableroGenerado}, o <code>null</code> si no queda ningún
+	 *         candidato válido.
+	 */
+	public synchronized TableroGenerado tomar(int m, int n, int minas, int f, int c, boolean apertura) {
+		Clave clave = new Clave(m, n, minas);
+		ArrayDeque<TableroGenerado> cola = candidatos.get(clave);
+		TableroGenerado tablero = null;
+
+		if (cola == null) {
+			agregar(clave);
+		} else {
+			int[] zona = GeneradorDeMinas.zonaExcluida(m, n, minas, f, c, apertura);
+
+			// los candidatos revisados se sacan aunque se rechacen
+			while (tablero == null && !cola.isEmpty()) {
+				tablero = cola.poll();
+				if (!tablero.sinMinasEn(zona)) {
+					tablero = null;
+					descartados++;
+				}
+			}
+		}
+
+		if (tablero == null) {
+			fallos++;
+		} else {
+			aciertos++;
+		}
+		programar();
+		return tablero;
+	}
+
+	/**
+	 * Agrega un tamaño a los que se pregeneran, eliminando el tamaño personalizado
+	 * que lleva más tiempo sin usarse si se supera {@link #maximoPersonalizados}.
+	 *
+	 * @param clave Tamaño a agregar.
+	 */
+	private void agregar(Clave clave) {
+		int personalizados = candidatos.size() - NIVELES.length;
+
+		candidatos.put(clave, new ArrayDeque<>());
+		Iterator<Clave> it = candidatos.keySet().iterator();
+		while (personalizados >= maximoPersonalizados && it.hasNext()) {
+			Clave otra = it.next();
+			if (!esNivel(otra)) {
+				it.remove();
+				personalizados--;
+			}
+		}
+	}
+
+	/**
+	 * Indica si un tamaño es de los niveles del juego.
+	 *
+	 * @param clave Tamaño.
+	 * @return <code>true</code> si es un nivel del juego.
+	 */
+	private static boolean esNivel(Clave clave) {
+		for (int[] nivel : NIVELES) {
+			if (clave.m == nivel[0] && clave.n == nivel[1] && clave.minas == nivel[2]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Programa una tarea de generación en el {@link #hilo}, si no hay una
+	 * pendiente.
+	 */
+	private void programar() {
+		if (!generando && !hilo.isShutdown()) {
+			generando = true;
+			hilo.execute(this::generar);
+		}
+	}
+
+	/**
+	 * Tarea del {@link #hilo}: genera candidatos hasta llenar todos los tamaños.
+	 * Las minas se generan fuera del cerrojo, para no detener a
+	 * {@link #tomar(int, int, int, int, int, boolean)}.
+	 */
+	private void generar() {
+		Clave clave;
+		ArrayDeque<TableroGenerado> cola;
+		long semilla;
+
+		while (true) {
+			synchronized (this) {
+				clave = null;
+				cola = null;
+				for (Map.Entry<Clave, ArrayDeque<TableroGenerado>> e : candidatos.entrySet()) {
+					if (e.getValue().size() < tablerosPorTamano) {
+						clave = e.getKey();
+						cola = e.getValue();
+						break;
+					}
+				}
+				if (clave == null || hilo.isShutdown()) {
+					generando = false;
+					return;
+				}
+				semilla = semillas.nextLong();
+			}
+
+			MatrizDeBits mapaDeMinas = new MatrizDeBits(clave.m, clave.n);
+			GeneradorDeMinas.generar(clave.minas, new int[0], semilla, mapaDeMinas);
+			TableroGenerado tablero = new TableroGenerado(mapaDeMinas, clave.minas, semilla, -1, -1, false);
+
+			synchronized (this) {
+				// si el tamaño se eliminó mientras se generaba, la cola ya no está en el mapa
+				// y el candidato se descarta con ella
+				if (cola.size() < tablerosPorTamano) {
+					cola.add(tablero);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Detiene el hilo de fondo. Los candidatos ya generados se pueden seguir
+	 * tomando, pero no se generan más.
+	 */
+	public synchronized void cerrar() {
+		hilo.shutdown();
+	}
+
+	/**
+	 * Devuelve el número de candidatos listos del tamaño entregado.
+	 *
+	 * @param m     Número de filas.
+	 * @param n     Número de columnas.
+	 * @param minas Número de minas.
+	 * @return Número de candidatos, o 0 si el tamaño no se pregenera.
+	 */
+	public synchronized int getNumCandidatos(int m, int n, int minas) {
+		ArrayDeque<TableroGenerado> cola = candidatos.get(new Clave(m, n, minas));
+		return cola == null ? 0 : cola.size();
+	}
+
+	/**
+	 * Devuelve el número de tableros entregados.
+	 *
+	 * @return Número de aciertos.
+	 */
+	public synchronized long getAciertos() {
+		return aciertos;
+	}
+
+	/**
+	 * Devuelve el número de pedidos sin ningún candidato válido.
+	 *
+	 * @return Número de fallos.
+	 */
+	public synchronized long getFallos() {
+		return fallos;
+	}
+
+	/**
+	 * Devuelve el número de candidatos descartados por tener minas en la zona
+	 * excluida.
+	 *
+	 * @return Número de descartados.
+	 */
+	public synchronized long getDescartados() {
+		return descartados;
+	}
+}
@@ -0,0 +1,191 @@
+package buscaminas;
+
+/**
+ * Clase inmutable con la probabilidad de que cada casilla oculta de un campo de
+ * minas sea una mina, dado lo que se ve del campo: los números descubiertos y
+ * el número total de minas. Todos los campos consistentes con lo que se ve se
+ * consideran igual de probables.
+ * <p>
+ * Las casillas marcadas como posibles minas se tratan como ocultas, pues la
+ * marca puede estar equivocada.
+ * <p>
+ * Las probabilidades son exactas o estimadas por muestreo. Las estimadas traen
+ * el margen de error de cada casilla, con 95% de confianza.
+ *
+ * @author sneyd
+ *
+ * @see MotorDeProbabilidades
+ */
+public class ProbabilidadesDeMinas {
+
+	/**
+	 * Número de filas del campo de minas.
+	 */
+	private final int m;
+
+	/**
+	 * Número de columnas del campo de minas.
+	 */
+	private final int n;
+
+	/**
+	 * Probabilidad de cada casilla, por filas. Las casillas descubiertas valen
+	 * {@link Double#NaN}.
+	 */
+	private final double[] probabilidades;
+
+	/**
+	 * Margen de error de cada casilla, por filas, o <code>null</code> si las
+	 * probabilidades son exactas.
+	 */
+	private final double[] margenes;
+
+	/**
+	 * Número de muestras de la estimación, o 0 si las probabilidades son exactas.
+	 */
+	private final long muestras;
+
+	/**
+	 * Índice <code>i * n + j</code> de la casilla oculta con menor probabilidad,
+	 * o -1 si no hay casillas ocultas.
+	 */
+	private final int masSegura;
+
+	/**
+	 * Constructor de probabilidades exactas.
+	 *
+	 * @param m              Número de filas.
+	 * @param n              Número de columnas.
+	 * @param probabilidades Probabilidad de cada casilla, por filas, con
+	 *                       {@link Double#NaN} en las descubiertas. No se copia.
+	 */
+	ProbabilidadesDeMinas(int m, int n, double[] probabilidades) {
+		this(m, n, probabilidades, null, 0);
+	}
+
+	/**
+	 * Constructor de probabilidades estimadas.
+	 *
+	 * @param m              Número de filas.
+	 * @param n              Número de columnas.
+	 * @param probabilidades Probabilidad estimada de cada casilla, por filas, con
+	 *                       {@link Double#NaN} en las descubiertas. No se copia.
+	 * @param margenes       Margen de error de cada casilla, por filas, o
+	 *                       <code>null</code> si las probabilidades son exactas. No
+	 *                       se copia.
+	 * @param muestras       Número de muestras de la estimación.
+	 */
+	ProbabilidadesDeMinas(int m, int n, double[] probabilidades, double[] margenes, long muestras) {
+		assert probabilidades.length == m * n && (margenes == null || margenes.length == m * n);
+		this.m = m;
+		this.n = n;
+		this.probabilidades = probabilidades;
+		this.margenes = margenes;
+		this.muestras = muestras;
+
+		int mejor = -1;
+		for (int c = 0; c < probabilidades.length; c++) {
+			// NaN nunca es menor, por lo que se saltan las descubiertas
+			if (mejor < 0 ? !Double.isNaN(probabilidades[c]) : probabilidades[c] < probabilidades[mejor]) {
+				mejor = c;
+			}
+		}
+		this.masSegura = mejor;
+	}
+
+	/**
+	 * Devuelve la probabilidad de que la casilla en la posición (<b>i</b>,
+	 * <b>j</b>) sea una mina.
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return Probabilidad entre 0 y 1, o {@link Double#NaN} si la casilla está
+	 *         descubierta.
+	 * @throws IndexOutOfBoundsException Si (<b>i</b>, <b>j</b>) está por fuera del
+	 *                                   campo de minas.
+	 */
+	public double getProbabilidad(int i, int j) throws IndexOutOfBoundsException {
+		if (i < 0 || m <= i || j < 0 || n <= j) {
+			throw new IndexOutOfBoundsException();
+		}
+		return probabilidades[i * n + j];
+	}
+
+	/**
+	 * Devuelve el margen de error de la probabilidad de la casilla en la posición
+	 * (<b>i</b>, <b>j</b>): con 95% de confianza, la probabilidad exacta está a
+	 * esa distancia o menos de la estimada.
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return Margen de error, 0 si las probabilidades son exactas, o
+	 *         {@link Double#NaN} si la casilla está descubierta.
+	 * @throws IndexOutOfBoundsException Si (<b>i</b>, <b>j</b>) está por fuera del
+	 *                                   campo de minas.
+	 */
+	public double getMargen(int i, int j) throws IndexOutOfBoundsException {
+		double p = getProbabilidad(i, j);
+
+		// si la casilla está descubierta
+		if (Double.isNaN(p)) {
+			return p;
+		}
+		return margenes == null ? 0 : margenes[i * n + j];
+	}
+
+	/**
+	 * Indica si las probabilidades son exactas o estimadas por muestreo.
+	 *
+	 * @return <code>true</code> si son exactas.
+	 */
+	public boolean esExacta() {
+		return margenes == null;
+	}
+
+	/**
+	 * Devuelve el número de muestras con las que se estimaron las probabilidades.
+	 *
+	 * @return Número de muestras, o 0 si las probabilidades son exactas.
+	 */
+	public long getNumMuestras() {
+		return muestras;
+	}
+
+	/**
+	 * Devuelve la fila de la casilla oculta con menor probabilidad de ser una
+	 * mina. Si hay varias, es la primera por filas.
+	 *
+	 * @return Fila de la casilla, o -1 si no hay casillas ocultas.
+	 */
+	public int getFilaMasSegura() {
+		return masSegura < 0 ? -1 : masSegura / n;
+	}
+
+	/**
+	 * Devuelve la columna de la casilla oculta con menor probabilidad de ser una
+	 * mina. Si hay varias, es la primera por filas.
+	 *
+	 * @return Columna de la casilla, o -1 si no hay casillas ocultas.
+	 */
+	public int getColumnaMasSegura() {
+		return masSegura < 0 ? -1 : masSegura % n;
+	}
+
+	/**
+	 * Retorna el número de filas del campo de minas.
+	 *
+	 * @return Número de filas.
+	 */
+	public int getNumFilas() {
+		return m;
+	}
+
+	/**
+	 * Retorna el número de columnas del campo de minas.
+	 *
+	 * @return Número de columnas.
+	 */
+	public int getNumColumnas() {
+		return n;
+	}
+}
@@ -0,0 +1,709 @@
+package buscaminas;
+
+import java.util.Arrays;
+
+import buscaminas.CampoDeMinas.Estado;
+import buscaminas.CampoDeMinas.EstadoDeCasilla;
+import matricesDispersas.MatrizForma1;
+import matricesDispersas.NodoDoble;
+import matricesDispersas.Tripleta;
+
+/**
+ * Clase que deduce, sin adivinar, qué casillas ocultas de un
+ * {@link CampoDeMinas} son seguras y cuáles son minas, a partir de los números
+ * descubiertos.
+ * <p>
+ * La frontera del campo se guarda como un sistema lineal en una
+ * {@link MatrizForma1} de <code>m * n</code> por <code>m * n</code>: la fila
+ * <b>r</b> es la ecuación del número descubierto en la casilla <b>r</b>, y
+ * tiene un 1 en la columna de cada vecino oculto del que aún no se sabe nada.
+ * Su lado derecho, en {@link #lado}, es el número menos las minas vecinas ya
+ * deducidas. Cada casilla deducida o descubierta se retira de su columna, que
+ * tiene como máximo 8 filas, por lo que cada jugada solo actualiza las
+ * ecuaciones de las casillas que cambiaron, sin reconstruir el sistema.
+ * <p>
+ * Las ecuaciones que cambian se encolan y se revisan con reglas baratas: una
+ * ecuación con lado 0 o igual a su número de casillas, y cada par de ecuaciones
+ * que comparten casillas (lo que incluye el caso en que una es subconjunto de la
+ * otra). Solo cuando estas reglas no deducen nada se aplica eliminación de
+ * Gauss-Jordan dispersa a todas las ecuaciones, junto con la del conteo total
+ * de minas.
+ * <p>
+ * El solucionador recibe las casillas descubiertas como
+ * {@link ObservadorDeCambios}, y {@link #resolver(int, int)} juega solo un campo
+ * completo.
+ *
+ * @author sneyd
+ *
+ * @see CampoDeMinas#jugar(int[], byte[])
+ */
+public class Solucionador implements ObservadorDeCambios {
+
+	/**
+	 * Estado de una casilla de la que aún no se sabe nada.
+	 */
+	private static final byte DESCONOCIDA = 0;
+
+	/**
+	 * Estado de una casilla deducida como segura pero aún oculta.
+	 */
+	private static final byte SEGURA = 1;
+
+	/**
+	 * Estado de una casilla deducida como mina.
+	 */
+	private static final byte MINA = 2;
+
+	/**
+	 * Estado de una casilla descubierta.
+	 */
+	private static final byte DESCUBIERTA = 3;
+
+	/**
+	 * Coeficiente de las casillas en las ecuaciones del {@link #sistema}.
+	 */
+	private static final Integer UNO = 1;
+
+	/**
+	 * Campo de minas que se resuelve.
+	 */
+	private final CampoDeMinas campo;
+
+	/**
+	 * Número de filas y de columnas del campo de minas.
+	 */
+	private final int m, n;
+
+	/**
+	 * Sistema lineal de la frontera: una fila por cada número descubierto y una
+	 * columna por cada casilla oculta desconocida.
+	 */
+	private final MatrizForma1 sistema;
+
+	/**
+	 * Lado derecho de la ecuación de cada casilla descubierta.
+	 */
+	private final int[] lado;
+
+	/**
+	 * Estado de cada casilla para el solucionador: {@link #DESCONOCIDA},
+	 * {@link #SEGURA}, {@link #MINA} o {@link #DESCUBIERTA}.
+	 */
+	private final byte[] estado;
+
+	/**
+	 * Cola circular de ecuaciones que cambiaron y se deben revisar.
+	 */
+	private final int[] cola;
+
+	/**
+	 * Posición del primer elemento de la {@link #cola} y número de elementos.
+	 */
+	private int inicioCola, numEnCola;
+
+	/**
+	 * Indica si cada ecuación está en la {@link #cola}.
+	 */
+	private final boolean[] enCola;
+
+	/**
+	 * Pila de casillas deducidas como seguras. Algunas pueden haberse descubierto
+	 * después de deducirlas.
+	 */
+	private final int[] seguras;
+
+	/**
+	 * Número de elementos de la pila de {@link #seguras}.
+	 */
+	private int numSeguras;
+
+	/**
+	 * Número de casillas deducidas como seguras que aún están ocultas.
+	 */
+	private int pendientes;
+
+	/**
+	 * Número de casillas {@link #DESCONOCIDA}s.
+	 */
+	private int desconocidas;
+
+	/**
+	 * Número de minas que no se han deducido.
+	 */
+	private int minasRestantes;
+
+	/**
+	 * Última revisión en la que se comparó cada ecuación, para comparar cada par
+	 * una sola vez por revisión.
+	 */
+	private final int[] marca;
+
+	/**
+	 * Número de la revisión actual de {@link #marca}.
+	 */
+	private int revision;
+
+	/**
+	 * Arreglos auxiliares de a lo sumo 8 casillas o ecuaciones.
+	 */
+	private final int[] filaA = new int[8], filaB = new int[8], vecinas = new int[8], soloA = new int[8],
+			soloB = new int[8], columna = new int[8];
+
+	/**
+	 * Constructor. Crea el sistema con las casillas ya descubiertas del
+	 * <b>campo</b>, si las hay.
+	 *
+	 * @param campo Campo de minas a resolver.
+	 */
+	public Solucionador(CampoDeMinas campo) {
+		this.campo = campo;
+		this.m = campo.getNumFilas();
+		this.n = campo.getNumColumnas();
+		this.sistema = new MatrizForma1(m * n, m * n, 0);
+		this.lado = new int[m * n];
+		this.estado = new byte[m * n];
+		this.cola = new int[m * n];
+		this.enCola = new boolean[m * n];
+		this.seguras = new int[m * n];
+		this.marca = new int[m * n];
+		this.desconocidas = m * n;
+		this.minasRestantes = campo.getNumMinas();
+
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				if (campo.getEstadoDeCasilla(i, j) == EstadoDeCasilla.descubierta) {
+					descubrir(i * n + j, ((Number) campo.get(i, j)).intValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Agrega al sistema las casillas descubiertas en una jugada. Los cambios de un
+	 * juego terminado se ignoran.
+	 *
+	 * @param cambios {@link CambiosDeCasillas} de la jugada.
+	 */
+	@Override
+	public void casillasCambiadas(CambiosDeCasillas cambios) {
+		if (cambios.esCompleto()) {
+			return;
+		}
+		for (int k = 0; k < cambios.getTamano(); k++) {
+			if (cambios.getEstado(k) == EstadoDeCasilla.descubierta) {
+				descubrir(cambios.getFila(k) * n + cambios.getColumna(k), cambios.getValor(k));
+			}
+		}
+	}
+
+	/**
+	 * Juega el campo de minas sin adivinar: despeja la casilla (<b>f</b>,
+	 * <b>c</b>) y luego, por lotes, todas las casillas deducidas como seguras,
+	 * hasta ganar o hasta que no se pueda deducir ninguna.
+	 * <p>
+	 * El solucionador queda como {@link ObservadorDeCambios} del campo, que debe
+	 * estar iniciado.
+	 *
+	 * @param f Fila de la primera casilla a despejar.
+	 * @param c Columna de la primera casilla a despejar.
+	 * @return <code>true</code> si se ganó el juego.
+	 */
+	public boolean resolver(int f, int c) {
+		campo.setObservadorDeCambios(this);
+		campo.tocarCasilla(f, c);
+
+		while (campo.getEstado() == Estado.iniciado) {
+			deducir();
+			if (pendientes == 0) {
+				break;
+			}
+
+			// se despejan de una vez todas las casillas seguras que siguen ocultas
+			int[] jugadas = new int[3 * pendientes];
+			int k = 0;
+			while (numSeguras > 0) {
+				int x = seguras[--numSeguras];
+				if (estado[x] == SEGURA) {
+					jugadas[k++] = CampoDeMinas.TOCAR;
+					jugadas[k++] = x / n;
+					jugadas[k++] = x % n;
+				}
+			}
+			campo.jugar(jugadas, null);
+		}
+		return campo.getEstado() == Estado.ganado;
+	}
+
+	/**
+	 * Deduce todas las casillas seguras y minas que se pueda. Se detiene en cuanto
+	 * hay casillas seguras por despejar, sin llegar a la eliminación de Gauss, ya
+	 * que despejarlas suele dar información más barata.
+	 *
+	 * @return Número de casillas ocultas deducidas como seguras y aún sin
+	 *         despejar.
+	 */
+	public int deducir() {
+		while (true) {
+			propagar();
+			if (aplicarConteoTotal()) {
+				continue;
+			}
+			if (pendientes > 0 || !eliminarGaussJordan()) {
+				return pendientes;
+			}
+		}
+	}
+
+	/**
+	 * Agrega la ecuación de la casilla <b>c</b> descubierta con el <b>valor</b>
+	 * entregado, y retira la casilla de las demás ecuaciones.
+	 *
+	 * @param c     Casilla descubierta.
+	 * @param valor Valor de la casilla.
+	 */
+	private void descubrir(int c, int valor) {
+		int i = c / n;
+		int j = c % n;
+
+		if (estado[c] == DESCUBIERTA || valor < 0) {
+			return;
+		}
+		if (estado[c] == DESCONOCIDA) {
+			desconocidas--;
+			quitarColumna(c, false);
+		} else if (estado[c] == SEGURA) {
+			pendientes--;
+		}
+		estado[c] = DESCUBIERTA;
+
+		lado[c] = valor;
+		for (int ii = Vecindario.desde(i); ii <= Vecindario.hasta(i, m); ii++) {
+			for (int jj = Vecindario.desde(j); jj <= Vecindario.hasta(j, n); jj++) {
+				int x = ii * n + jj;
+				if (estado[x] == MINA) {
+					lado[c]--;
+				} else if (estado[x] == DESCONOCIDA) {
+					sistema.set(c, x, UNO);
+				}
+			}
+		}
+		encolar(c);
+	}
+
+	/**
+	 * Revisa las ecuaciones de la {@link #cola} hasta vaciarla. Cada deducción
+	 * encola las ecuaciones que cambió.
+	 */
+	private void propagar() {
+		while (numEnCola > 0) {
+			int r = cola[inicioCola];
+			inicioCola = (inicioCola + 1) % cola.length;
+			numEnCola--;
+			enCola[r] = false;
+
+			int ka = leerFila(r, filaA);
+			if (ka == 0) {
+				continue;
+			}
+			if (lado[r] == 0 || lado[r] == ka) {
+				for (int t = 0; t < ka; t++) {
+					deducir(filaA[t], lado[r] != 0);
+				}
+				continue;
+			}
+
+			// se compara con cada ecuación que comparte alguna casilla, hasta la primera
+			// que deduzca algo (la ecuación vuelve a la cola al cambiar)
+			revision++;
+			marca[r] = revision;
+			busqueda: for (int t = 0; t < ka; t++) {
+				int kv = leerColumna(filaA[t], vecinas);
+				for (int u = 0; u < kv; u++) {
+					int s = vecinas[u];
+					if (marca[s] != revision) {
+						marca[s] = revision;
+						if (compararEcuaciones(r, ka, s)) {
+							break busqueda;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compara la ecuación <b>r</b>, con casillas A en {@link #filaA}, con la
+	 * ecuación <b>s</b>, con casillas B. Si <code>lado[r] - lado[s]</code> es igual
+	 * al número de casillas de A que no están en B, esas son minas y las de B que
+	 * no están en A son seguras (y al revés).
+	 *
+	 * @param r  Primera ecuación.
+	 * @param ka Número de casillas de la primera ecuación.
+	 * @param s  Segunda ecuación.
+	 * @return <code>true</code> si se dedujo alguna casilla.
+	 */
+	private boolean compararEcuaciones(int r, int ka, int s) {
+		int kb = leerFila(s, filaB);
+		int na = 0, nb = 0, a = 0, b = 0;
+		int d = lado[r] - lado[s];
+
+		// las casillas de cada ecuación están en orden, se mezclan
+		while (a < ka || b < kb) {
+			if (b == kb || (a < ka && filaA[a] < filaB[b])) {
+				soloA[na++] = filaA[a++];
+			} else if (a == ka || filaB[b] < filaA[a]) {
+				soloB[nb++] = filaB[b++];
+			} else {
+				a++;
+				b++;
+			}
+		}
+
+		if (na + nb == 0 || (d != na && -d != nb)) {
+			return false;
+		}
+		boolean minasEnA = d == na;
+		for (int t = 0; t < na; t++) {
+			deducir(soloA[t], minasEnA);
+		}
+		for (int t = 0; t < nb; t++) {
+			deducir(soloB[t], !minasEnA);
+		}
+		return true;
+	}
+
+	/**
+	 * Si las minas restantes son 0, o tantas como las casillas desconocidas, deduce
+	 * todas las casillas desconocidas.
+	 *
+	 * @return <code>true</code> si se dedujo alguna casilla.
+	 */
+	private boolean aplicarConteoTotal() {
+		if (desconocidas == 0 || (minasRestantes != 0 && minasRestantes != desconocidas)) {
+			return false;
+		}
+		boolean minas = minasRestantes != 0;
+		for (int x = 0; x < estado.length; x++) {
+			if (estado[x] == DESCONOCIDA) {
+				deducir(x, minas);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Aplica eliminación de Gauss-Jordan a todas las ecuaciones del sistema, más la
+	 * ecuación del conteo total (la suma de todas las casillas desconocidas es
+	 * {@link #minasRestantes}), cada una como un arreglo ordenado de casillas con
+	 * coeficientes enteros, y revisa
+	 * las ecuaciones reducidas: si el lado es igual a la suma de los coeficientes
+	 * positivos, las casillas con coeficiente positivo son minas y las de negativo
+	 * son seguras, y si es igual a menos la suma de los negativos, al revés.
+	 *
+	 * @return <code>true</code> si se dedujo alguna casilla.
+	 */
+	private boolean eliminarGaussJordan() {
+		int numEcuaciones = 0;
+		int[][] casillas, coeficientes;
+		int[] lados;
+
+		if (desconocidas == 0) {
+			return false;
+		}
+		for (int r = 0; r < estado.length; r++) {
+			if (estado[r] == DESCUBIERTA && numElementos(r) > 0) {
+				numEcuaciones++;
+			}
+		}
+
+		// la última ecuación es la del conteo total
+		numEcuaciones++;
+		casillas = new int[numEcuaciones][];
+		coeficientes = new int[numEcuaciones][];
+		lados = new int[numEcuaciones];
+		numEcuaciones = 0;
+		for (int r = 0; r < estado.length; r++) {
+			if (estado[r] == DESCUBIERTA && numElementos(r) > 0) {
+				int k = leerFila(r, filaA);
+				casillas[numEcuaciones] = Arrays.copyOf(filaA, k);
+				coeficientes[numEcuaciones] = new int[k];
+				Arrays.fill(coeficientes[numEcuaciones], 1);
+				lados[numEcuaciones++] = lado[r];
+			}
+		}
+		casillas[numEcuaciones] = new int[desconocidas];
+		for (int x = 0, k = 0; x < estado.length; x++) {
+			if (estado[x] == DESCONOCIDA) {
+				casillas[numEcuaciones][k++] = x;
+			}
+		}
+		coeficientes[numEcuaciones] = new int[desconocidas];
+		Arrays.fill(coeficientes[numEcuaciones], 1);
+		lados[numEcuaciones++] = minasRestantes;
+
+		// cada ecuación no vacía elimina su primera casilla de todas las demás
+		for (int p = 0; p < numEcuaciones; p++) {
+			if (casillas[p].length == 0) {
+				continue;
+			}
+			int pivote = casillas[p][0];
+			int cp = coeficientes[p][0];
+			for (int q = 0; q < numEcuaciones; q++) {
+				int t = q == p ? -1 : Arrays.binarySearch(casillas[q], pivote);
+				if (t >= 0) {
+					combinar(casillas, coeficientes, lados, q, cp, p, coeficientes[q][t]);
+				}
+			}
+		}
+
+		boolean dedujo = false;
+		for (int q = 0; q < numEcuaciones; q++) {
+			int positivos = 0, negativos = 0;
+			for (int a : coeficientes[q]) {
+				if (a > 0) {
+					positivos += a;
+				} else {
+					negativos -= a;
+				}
+			}
+			if (casillas[q].length > 0 && (lados[q] == positivos || lados[q] == -negativos)) {
+				boolean positivasMinas = lados[q] == positivos;
+				for (int t = 0; t < casillas[q].length; t++) {
+					if (estado[casillas[q][t]] == DESCONOCIDA) {
+						deducir(casillas[q][t], (coeficientes[q][t] > 0) == positivasMinas);
+						dedujo = true;
+					}
+				}
+			}
+		}
+		return dedujo;
+	}
+
+	/**
+	 * Reemplaza la ecuación <b>q</b> por <code>a * q - b * p</code>, dividida por
+	 * el máximo común divisor de sus coeficientes y su lado.
+	 *
+	 * @param casillas     Casillas de cada ecuación, en orden.
+	 * @param coeficientes Coeficientes de cada ecuación.
+	 * @param lados        Lado de cada ecuación.
+	 * @param q            Ecuación a reemplazar.
+	 * @param a            Factor de la ecuación <b>q</b>.
+	 * @param p            Ecuación que se resta.
+	 * @param b            Factor de la ecuación <b>p</b>.
+	 */
+	private static void combinar(int[][] casillas, int[][] coeficientes, int[] lados, int q, int a, int p,
+			int b) {
+		int[] cq = casillas[q], aq = coeficientes[q], cp = casillas[p], ap = coeficientes[p];
+		int[] nuevasCasillas = new int[cq.length + cp.length];
+		int[] nuevosCoeficientes = new int[cq.length + cp.length];
+		int k = 0, x = 0, y = 0;
+		int divisor = Math.abs(a * lados[q] - b * lados[p]);
+
+		while (x < cq.length || y < cp.length) {
+			int casilla, valor;
+			if (y == cp.length || (x < cq.length && cq[x] < cp[y])) {
+				casilla = cq[x];
+				valor = a * aq[x++];
+			} else if (x == cq.length || cp[y] < cq[x]) {
+				casilla = cp[y];
+				valor = -b * ap[y++];
+			} else {
+				casilla = cq[x];
+				valor = a * aq[x++] - b * ap[y++];
+			}
+			if (valor != 0) {
+				nuevasCasillas[k] = casilla;
+				nuevosCoeficientes[k++] = valor;
+				divisor = mcd(divisor, Math.abs(valor));
+			}
+		}
+
+		lados[q] = a * lados[q] - b * lados[p];
+		if (divisor > 1) {
+			for (int t = 0; t < k; t++) {
+				nuevosCoeficientes[t] /= divisor;
+			}
+			lados[q] /= divisor;
+		}
+		casillas[q] = Arrays.copyOf(nuevasCasillas, k);
+		coeficientes[q] = Arrays.copyOf(nuevosCoeficientes, k);
+	}
+
+	/**
+	 * Calcula el máximo común divisor de dos enteros no negativos.
+	 *
+	 * @param a Primer entero.
+	 * @param b Segundo entero.
+	 * @return Máximo común divisor, o 0 si ambos son 0.
+	 */
+	private static int mcd(int a, int b) {
+		while (b != 0) {
+			int t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	/**
+	 * Deduce que la casilla <b>x</b> es una mina o es segura, y la retira de las
+	 * ecuaciones. Si ya se conocía, no hace nada.
+	 *
+	 * @param x    Casilla deducida.
+	 * @param mina <code>true</code> si es una mina.
+	 */
+	private void deducir(int x, boolean mina) {
+		if (estado[x] != DESCONOCIDA) {
+			return;
+		}
+		desconocidas--;
+		if (mina) {
+			estado[x] = MINA;
+			minasRestantes--;
+		} else {
+			estado[x] = SEGURA;
+			seguras[numSeguras++] = x;
+			pendientes++;
+		}
+		quitarColumna(x, mina);
+	}
+
+	/**
+	 * Retira la casilla <b>x</b> de todas las ecuaciones y las encola. Si es una
+	 * mina, se resta de sus lados.
+	 *
+	 * @param x    Casilla a retirar.
+	 * @param mina <code>true</code> si es una mina.
+	 */
+	private void quitarColumna(int x, boolean mina) {
+		int k = leerColumna(x, columna);
+
+		for (int t = 0; t < k; t++) {
+			int r = columna[t];
+			sistema.eliminar(r, x);
+			if (mina) {
+				lado[r]--;
+			}
+			encolar(r);
+		}
+	}
+
+	/**
+	 * Encola la ecuación <b>r</b> si no está en la {@link #cola}.
+	 *
+	 * @param r Ecuación.
+	 */
+	private void encolar(int r) {
+		if (!enCola[r]) {
+			enCola[r] = true;
+			cola[(inicioCola + numEnCola) % cola.length] = r;
+			numEnCola++;
+		}
+	}
+
+	/**
+	 * Copia en <b>destino</b> las casillas de la ecuación <b>r</b>, en orden.
+	 *
+	 * @param r       Ecuación.
+	 * @param destino Arreglo de al menos 8 posiciones.
+	 * @return Número de casillas.
+	 */
+	private int leerFila(int r, int[] destino) {
+		NodoDoble nodoFila = sistema.getNodoCabeza(r);
+		int k = 0;
+
+		for (NodoDoble nodoX = nodoFila.getLd(); nodoX != nodoFila; nodoX = nodoX.getLd()) {
+			destino[k++] = ((Tripleta) nodoX.getD()).getColumna();
+		}
+		return k;
+	}
+
+	/**
+	 * Copia en <b>destino</b> las ecuaciones en las que está la casilla <b>x</b>.
+	 *
+	 * @param x       Casilla.
+	 * @param destino Arreglo de al menos 8 posiciones.
+	 * @return Número de ecuaciones.
+	 */
+	private int leerColumna(int x, int[] destino) {
+		NodoDoble nodoColumna = sistema.getNodoCabeza(x);
+		int k = 0;
+
+		for (NodoDoble nodoX = nodoColumna.getLi(); nodoX != nodoColumna; nodoX = nodoX.getLi()) {
+			destino[k++] = ((Tripleta) nodoX.getD()).getFila();
+		}
+		return k;
+	}
+
+	/**
+	 * Devuelve el número de casillas de la ecuación <b>r</b>, guardado en su nodo
+	 * cabeza.
+	 *
+	 * @param r Ecuación.
+	 * @return Número de casillas.
+	 */
+	private int numElementos(int r) {
+		return ((Tripleta) sistema.getNodoCabeza(r).getD()).getFila();
+	}
+
+	/**
+	 * Indica si la casilla (<b>i</b>, <b>j</b>) se dedujo como segura y sigue
+	 * oculta.
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return <code>true</code> si es segura.
+	 * @throws IndexOutOfBoundsException Si (<b>i</b>, <b>j</b>) está por fuera del
+	 *                                   campo de minas.
+	 */
+	public boolean esSegura(int i, int j) throws IndexOutOfBoundsException {
+		return estado[indice(i, j)] == SEGURA;
+	}
+
+	/**
+	 * Indica si la casilla (<b>i</b>, <b>j</b>) se dedujo como mina.
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return <code>true</code> si es una mina.
+	 * @throws IndexOutOfBoundsException Si (<b>i</b>, <b>j</b>) está por fuera del
+	 *                                   campo de minas.
+	 */
+	public boolean esMina(int i, int j) throws IndexOutOfBoundsException {
+		return estado[indice(i, j)] == MINA;
+	}
+
+	/**
+	 * Devuelve el índice de la casilla (<b>i</b>, <b>j</b>).
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return Índice <code>i * n + j</code>.
+	 * @throws IndexOutOfBoundsException Si (<b>i</b>, <b>j</b>) está por fuera del
+	 *                                   campo de minas.
+	 */
+	private int indice(int i, int j) throws IndexOutOfBoundsException {
+		if (i < 0 || m <= i || j < 0 || n <= j) {
+			throw new IndexOutOfBoundsException();
+		}
+		return i * n + j;
+	}
+
+	/**
+	 * Devuelve el número de casillas deducidas como seguras que siguen ocultas.
+	 *
+	 * @return Número de casillas seguras por despejar.
+	 */
+	public int getSegurasPendientes() {
+		return pendientes;
+	}
+
+	/**
+	 * Devuelve el número de minas que no se han deducido.
+	 *
+	 * @return Minas restantes.
+	 */
+	public int getMinasRestantes() {
+		return minasRestantes;
+	}
+}
@@ -0,0 +1,80 @@
+package buscaminas;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Envoltorio de un suscriptor de los eventos de un {@link CampoDeMinas}, que
+ * guarda las casillas descubiertas que se descartaron porque su buffer estaba
+ * lleno y se las entrega junto con el siguiente evento
+ * {@link EventoDeJuego.Tipo#casillasDescubiertas}. Así un suscriptor lento
+ * pierde eventos intermedios, pero no casillas.
+ * <p>
+ * Las casillas se guardan desde el hilo del juego y se entregan desde el hilo
+ * del suscriptor, por lo que se pasan en un {@link AtomicReference}. No se
+ * entregan eventos adicionales, para respetar lo que pidió el suscriptor.
+ *
+ * @author sneyd
+ *
+ * @see CampoDeMinas#getEventos()
+ */
+class SuscriptorDeEventos implements Flow.Subscriber<EventoDeJuego> {
+
+	/**
+	 * Suscriptor envuelto.
+	 */
+	private final Flow.Subscriber<? super EventoDeJuego> suscriptor;
+
+	/**
+	 * Casillas descubiertas que se descartaron y aún no se han entregado, o
+	 * <code>null</code>.
+	 */
+	private final AtomicReference<EventoDeJuego> pendientes = new AtomicReference<>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param suscriptor Suscriptor a envolver.
+	 */
+	SuscriptorDeEventos(Flow.Subscriber<? super EventoDeJuego> suscriptor) {
+		this.suscriptor = suscriptor;
+	}
+
+	/**
+	 * Guarda las casillas de un evento {@link EventoDeJuego.Tipo#casillasDescubiertas}
+	 * que no cupo en el buffer, para entregarlas con el siguiente.
+	 *
+	 * @param descartado Evento descartado.
+	 */
+	void descartar(EventoDeJuego descartado) {
+		this.pendientes.accumulateAndGet(descartado,
+				(anterior, nuevo) -> anterior == null ? nuevo : EventoDeJuego.unir(anterior, nuevo));
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription suscripcion) {
+		this.suscriptor.onSubscribe(suscripcion);
+	}
+
+	@Override
+	public void onNext(EventoDeJuego evento) {
+		// si hay casillas pendientes se entregan antes de las del evento
+		if (evento.getTipo() == EventoDeJuego.Tipo.casillasDescubiertas) {
+			EventoDeJuego descartadas = this.pendientes.getAndSet(null);
+			if (descartadas != null) {
+				evento = EventoDeJuego.unir(descartadas, evento);
+			}
+		}
+		this.suscriptor.onNext(evento);
+	}
+
+	@Override
+	public void onError(Throwable error) {
+		this.suscriptor.onError(error);
+	}
+
+	@Override
+	public void onComplete() {
+		this.suscriptor.onComplete();
+	}
+}
@@ -0,0 +1,136 @@
+package buscaminas;
+
+import buscaminas.CampoDeMinas.Estado;
+import buscaminas.CampoDeMinas.EstadoDeCasilla;
+
+/**
+ * Interfaz con las operaciones para jugar en un campo de minas, sin importar
+ * cómo se guarden las minas y el estado de las casillas.
+ * <p>
+ * La implementan {@link CampoDeMinas}, que usa matrices dispersas, y
+ * {@link CampoDeMinasBits}, que usa matrices de bits.
+ * 
+ * @author sneyd
+ *
+ */
+public interface TableroDeMinas {
+
+	/**
+	 * Despeja la casilla si está oculta, en caso de que este descubierta, se
+	 * despejan sus vecinos siempre que el número de minas marcadas alrededor de
+	 * esta sea mayor o igual al número de la casilla.
+	 * 
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @throws IndexOutOfBoundsException Si (<b>i</b>, <b>j</b>) está por fuera del
+	 *                                   campo de minas.
+	 */
+	void tocarCasilla(int i, int j) throws IndexOutOfBoundsException;
+
+	/**
+	 * Marca o desmarca la casilla como posible mina, siempre que este oculta.
+	 * 
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @throws IndexOutOfBoundsException Si (<b>i</b>, <b>j</b>) está por fuera del
+	 *                                   campo de minas.
+	 */
+	void posibleMina(int i, int j) throws IndexOutOfBoundsException;
+
+	/**
+	 * Establece el estado del campo de minas como iniciado.
+	 */
+	void iniciar();
+
+	/**
+	 * Oculta todas las casillas nuevamente y establece el estado como
+	 * {@link Estado#noIniciado}.
+	 */
+	void reiniciar();
+
+	/**
+	 * Retorna el estado del campo de minas.
+	 * 
+	 * @return {@link Estado} del campo de minas.
+	 */
+	Estado getEstado();
+
+	/**
+	 * Devuelve el estado de la casilla en la posición (<b>i</b>, <b>j</b>).
+	 * 
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return {@link EstadoDeCasilla}.
+	 */
+	EstadoDeCasilla getEstadoDeCasilla(int i, int j);
+
+	/**
+	 * Devuelve el valor de la casilla en la posición (<b>i</b>, <b>j</b>):
+	 * <b>-1</b> si es una mina, de lo contrario el número de minas alrededor.
+	 * 
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return Valor de la casilla.
+	 */
+	Object get(int i, int j);
+
+	/**
+	 * Retorna el número de filas del campo de minas.
+	 * 
+	 * @return Número de filas.
+	 */
+	int getNumFilas();
+
+	/**
+	 * Retorna el número de columnas del campo de minas.
+	 * 
+	 * @return Número de columnas.
+	 */
+	int getNumColumnas();
+
+	/**
+	 * Devuelve el número de minas que contiene el campo de minas.
+	 * 
+	 * @return Número de minas.
+	 */
+	int getNumMinas();
+
+	/**
+	 * Devuelve el número de casillas marcadas como posibles minas.
+	 * 
+	 * @return Número de posibles minas.
+	 */
+	int getPosiblesMinas();
+
+	/**
+	 * Devuelve el número de casillas descubiertas.
+	 * 
+	 * @return Número de casillas descubiertas.
+	 */
+	int getCasillasDescubiertas();
+
+	/**
+	 * Devuelve el número de casillas ocultas, sin contar las marcadas como
+	 * posibles minas.
+	 * 
+	 * @return Número de casillas ocultas.
+	 */
+	int getCasillasOcultas();
+
+	/**
+	 * Establece si la primera casilla despejada debe abrir un área del campo.
+	 * 
+	 * @param aperturaGarantizada <code>true</code> para no poner minas alrededor
+	 *                            de la primera casilla despejada.
+	 */
+	void setAperturaGarantizada(boolean aperturaGarantizada);
+
+	/**
+	 * Devuelve la semilla con la que se generan las minas. Con la misma semilla,
+	 * el mismo tamaño y la misma primera casilla despejada se genera siempre el
+	 * mismo campo de minas.
+	 * 
+	 * @return Semilla del campo de minas.
+	 */
+	long getSemilla();
+}
@@ -0,0 +1,201 @@
+package buscaminas;
+
+import matricesDispersas.MatrizDeBits;
+
+/**
+ * Clase inmutable con las minas de un campo de minas ya generado, junto con los
+ * parámetros con los que se generó: tamaño, número de minas, semilla, primera
+ * casilla despejada y si se garantizó una apertura.
+ * <p>
+ * Las minas se guardan como las palabras de su {@link MatrizDeBits}, por lo que
+ * un tablero ocupa un bit por casilla. Con un tablero se puede crear un
+ * {@link CampoDeMinas} sin volver a generar las minas.
+ *
+ * @author sneyd
+ *
+ * @see CacheDeTableros
+ * @see CampoDeMinas#CampoDeMinas(TableroGenerado)
+ */
+public class TableroGenerado {
+
+	/**
+	 * Número de filas del campo de minas.
+	 */
+	private final int m;
+
+	/**
+	 * Número de columnas del campo de minas.
+	 */
+	private final int n;
+
+	/**
+	 * Número de minas del campo de minas.
+	 */
+	private final int minas;
+
+	/**
+	 * Semilla con la que se generaron las minas.
+	 */
+	private final long semilla;
+
+	/**
+	 * Fila de la primera casilla despejada, o -1 si se generó sin excluir ninguna
+	 * casilla.
+	 */
+	private final int fila;
+
+	/**
+	 * Columna de la primera casilla despejada, o -1 si se generó sin excluir
+	 * ninguna casilla.
+	 */
+	private final int columna;
+
+	/**
+	 * Indica si se excluyeron también los vecinos de la primera casilla.
+	 */
+	private final boolean aperturaGarantizada;
+
+	/**
+	 * Palabras de la {@link MatrizDeBits} de las minas, por filas.
+	 */
+	private final long[] palabras;
+
+	/**
+	 * Constructor. Copia las minas de <b>mapaDeMinas</b>.
+	 *
+	 * @param mapaDeMinas         Minas generadas.
+	 * @param minas               Número de minas.
+	 * @param semilla             Semilla con la que se generaron las minas.
+	 * @param fila                Fila de la primera casilla despejada.
+	 * @param columna             Columna de la primera casilla despejada.
+	 * @param aperturaGarantizada Indica si se excluyeron también los vecinos de la
+	 *                            primera casilla.
+	 */
+	TableroGenerado(MatrizDeBits mapaDeMinas, int minas, long semilla, int fila, int columna,
+			boolean aperturaGarantizada) {
+		int w = mapaDeMinas.getPalabrasPorFila();
+
+		this.m = mapaDeMinas.getNumFilas();
+		this.n = mapaDeMinas.getNumColumnas();
+		this.minas = minas;
+		this.semilla = semilla;
+		this.fila = fila;
+		this.columna = columna;
+		this.aperturaGarantizada = aperturaGarantizada;
+		this.palabras = new long[m * w];
+		for (int i = 0; i < m; i++) {
+			for (int k = 0; k < w; k++) {
+				this.palabras[i * w + k] = mapaDeMinas.getPalabra(i, k);
+			}
+		}
+	}
+
+	/**
+	 * Copia las minas del tablero en <b>destino</b>.
+	 *
+	 * @param destino {@link MatrizDeBits} del tamaño del tablero.
+	 */
+	void copiarEn(MatrizDeBits destino) {
+		int w = destino.getPalabrasPorFila();
+
+		assert destino.getNumFilas() == m && destino.getNumColumnas() == n;
+		for (int i = 0; i < m; i++) {
+			for (int k = 0; k < w; k++) {
+				destino.setPalabra(i, k, this.palabras[i * w + k]);
+			}
+		}
+	}
+
+	/**
+	 * Indica si ninguna de las <b>casillas</b> tiene mina.
+	 *
+	 * @param casillas Índices <code>i * n + j</code> de las casillas.
+	 * @return <code>true</code> si todas las casillas están libres.
+	 */
+	boolean sinMinasEn(int[] casillas) {
+		int w = (n + 63) >>> 6;
+
+		for (int c : casillas) {
+			int i = c / n;
+			int j = c % n;
+			if ((palabras[i * w + (j >>> 6)] & (1L << j)) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Retorna el número de filas del campo de minas.
+	 *
+	 * @return Número de filas.
+	 */
+	public int getNumFilas() {
+		return m;
+	}
+
+	/**
+	 * Retorna el número de columnas del campo de minas.
+	 *
+	 * @return Número de columnas.
+	 */
+	public int getNumColumnas() {
+		return n;
+	}
+
+	/**
+	 * Devuelve el número de minas del campo de minas.
+	 *
+	 * @return Número de minas.
+	 */
+	public int getNumMinas() {
+		return minas;
+	}
+
+	/**
+	 * Devuelve la semilla con la que se generaron las minas.
+	 *
+	 * @return Semilla.
+	 */
+	public long getSemilla() {
+		return semilla;
+	}
+
+	/**
+	 * Devuelve la fila de la primera casilla despejada.
+	 *
+	 * @return Fila de la primera casilla, o -1 si no se excluyó ninguna casilla.
+	 */
+	public int getFila() {
+		return fila;
+	}
+
+	/**
+	 * Devuelve la columna de la primera casilla despejada.
+	 *
+	 * @return Columna de la primera casilla, o -1 si no se excluyó ninguna
+	 *         casilla.
+	 */
+	public int getColumna() {
+		return columna;
+	}
+
+	/**
+	 * Indica si al generar las minas se excluyeron también los vecinos de la
+	 * primera casilla despejada.
+	 *
+	 * @return <code>true</code> si se garantizó una apertura.
+	 */
+	public boolean getAperturaGarantizada() {
+		return aperturaGarantizada;
+	}
+
+	/**
+	 * Devuelve el número aproximado de bytes que ocupa el tablero.
+	 *
+	 * @return Bytes del tablero.
+	 */
+	public long getBytes() {
+		return 8L * palabras.length + 64;
+	}
+}
@@ -0,0 +1,42 @@
+package buscaminas;
+
+/**
+ * Clase con los límites de la vecindad de 3x3 de una casilla, recortados a los
+ * bordes del campo de minas.
+ * <p>
+ * Para recorrer los vecinos de la casilla (<b>i</b>, <b>j</b>) en un campo de
+ * <b>m</b> filas y <b>n</b> columnas se usa: <br>
+ * <code>for (int ii = Vecindario.desde(i); ii &lt;= Vecindario.hasta(i, m); ii++)</code>
+ * <br>
+ * <code>for (int jj = Vecindario.desde(j); jj &lt;= Vecindario.hasta(j, n); jj++)</code>
+ * <p>
+ * De esta forma nunca se visita una casilla por fuera del campo, y no es
+ * necesario comprobar los índices ni atrapar excepciones dentro del ciclo.
+ * 
+ * @author sneyd
+ *
+ */
+public class Vecindario {
+
+	/**
+	 * Retorna el primer índice de la vecindad de <b>x</b>.
+	 * 
+	 * @param x Fila o columna de la casilla.
+	 * @return <code>x - 1</code>, o 0 si <b>x</b> está en el borde.
+	 */
+	public static int desde(int x) {
+		return x > 0 ? x - 1 : 0;
+	}
+
+	/**
+	 * Retorna el último índice de la vecindad de <b>x</b>.
+	 * 
+	 * @param x      Fila o columna de la casilla.
+	 * @param limite Número de filas o columnas del campo de minas.
+	 * @return <code>x + 1</code>, o <code>limite - 1</code> si <b>x</b> está en el
+	 *         borde.
+	 */
+	public static int hasta(int x, int limite) {
+		return x + 1 < limite ? x + 1 : limite - 1;
+	}
+}
@@ -0,0 +1,284 @@
+package buscaminas;
+
+import java.util.Arrays;
+
+import buscaminas.CampoDeMinas.Estado;
+import buscaminas.CampoDeMinas.EstadoDeCasilla;
+
+/**
+ * Clase inmutable con una vista de un campo de minas en un momento del juego:
+ * su estado, sus contadores y el estado y valor de cada casilla.
+ * <p>
+ * El {@link CampoDeMinas} publica una vista nueva después de cada jugada, y los
+ * hilos que solo leen el campo (para dibujarlo, mostrarlo a espectadores o
+ * calcular ayudas) consultan siempre una vista completa y consistente, sin
+ * tomar cerrojos ni detener el juego.
+ * <p>
+ * Cada fila de casillas se guarda en un arreglo de bytes que nunca cambia
+ * después de publicarse. Una vista nueva copia solo las filas que cambiaron en
+ * la jugada y comparte las demás con la vista anterior.
+ *
+ * @author sneyd
+ *
+ * @see CampoDeMinas#getVista()
+ */
+public class VistaDeCampo {
+
+	/**
+	 * Código de una casilla oculta.
+	 */
+	private static final byte OCULTA = 10;
+
+	/**
+	 * Código de una casilla marcada como posible mina. Los códigos de las casillas
+	 * descubiertas son sus valores, entre -1 y 8.
+	 */
+	private static final byte MARCADA = 11;
+
+	/**
+	 * Número de columnas del campo de minas.
+	 */
+	private final int n;
+
+	/**
+	 * Número de la vista, que aumenta en uno con cada vista publicada.
+	 */
+	private final long version;
+
+	/**
+	 * Estado del campo de minas.
+	 */
+	private final Estado estado;
+
+	/**
+	 * Número de casillas descubiertas.
+	 */
+	private final int casillasDescubiertas;
+
+	/**
+	 * Número de casillas marcadas como posibles minas.
+	 */
+	private final int posiblesMinas;
+
+	/**
+	 * Código de cada casilla, por filas. Las filas se comparten entre vistas y no
+	 * se modifican.
+	 */
+	private final byte[][] filas;
+
+	/**
+	 * Constructor de una vista.
+	 *
+	 * @param n       Número de columnas.
+	 * @param version Número de la vista.
+	 * @param campo   Campo de minas del que se toman el estado y los contadores.
+	 * @param filas   Códigos de las casillas.
+	 */
+	private VistaDeCampo(int n, long version, TableroDeMinas campo, byte[][] filas) {
+		this.n = n;
+		this.version = version;
+		this.estado = campo.getEstado();
+		this.casillasDescubiertas = campo.getCasillasDescubiertas();
+		this.posiblesMinas = campo.getPosiblesMinas();
+		this.filas = filas;
+	}
+
+	/**
+	 * Crea una vista con el estado actual de todas las casillas de <b>campo</b>.
+	 *
+	 * @param campo   Campo de minas.
+	 * @param version Número de la vista.
+	 * @return Vista del campo.
+	 */
+	static VistaDeCampo de(TableroDeMinas campo, long version) {
+		int m = campo.getNumFilas();
+		int n = campo.getNumColumnas();
+		byte[][] filas = new byte[m][n];
+
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				filas[i][j] = codigo(campo.getEstadoDeCasilla(i, j), campo, i, j);
+			}
+		}
+		return new VistaDeCampo(n, version, campo, filas);
+	}
+
+	/**
+	 * Crea una vista de <b>campo</b> con todas sus casillas ocultas. Todas las filas
+	 * comparten el mismo arreglo.
+	 *
+	 * @param campo   Campo de minas.
+	 * @param version Número de la vista.
+	 * @return Vista del campo.
+	 */
+	static VistaDeCampo inicial(TableroDeMinas campo, long version) {
+		byte[] oculta = new byte[campo.getNumColumnas()];
+		byte[][] filas = new byte[campo.getNumFilas()][];
+
+		Arrays.fill(oculta, OCULTA);
+		Arrays.fill(filas, oculta);
+		return new VistaDeCampo(oculta.length, version, campo, filas);
+	}
+
+	/**
+	 * Crea la vista siguiente a esta con el estado y los contadores actuales de
+	 * <b>campo</b>, compartiendo todas las casillas.
+	 *
+	 * @param campo Campo de minas.
+	 * @return Vista siguiente.
+	 */
+	VistaDeCampo conEstado(TableroDeMinas campo) {
+		return new VistaDeCampo(n, version + 1, campo, filas);
+	}
+
+	/**
+	 * Crea la vista siguiente a esta, aplicando los <b>cambios</b> de una jugada
+	 * de <b>campo</b>. Si cambiaron todas las casillas, se crea desde cero con
+	 * {@link #de(TableroDeMinas, long)}.
+	 *
+	 * @param cambios Casillas que cambiaron.
+	 * @param campo   Campo de minas, ya con los cambios aplicados.
+	 * @return Vista siguiente.
+	 */
+	VistaDeCampo siguiente(CambiosDeCasillas cambios, TableroDeMinas campo) {
+		byte[][] nuevas;
+
+		if (cambios.esCompleto()) {
+			return de(campo, version + 1);
+		}
+
+		nuevas = filas.clone();
+		for (int k = 0; k < cambios.getTamano(); k++) {
+			int i = cambios.getFila(k);
+
+			// si la fila aún es compartida con esta vista, se copia
+			if (nuevas[i] == filas[i]) {
+				nuevas[i] = filas[i].clone();
+			}
+			nuevas[i][cambios.getColumna(k)] = codigo(cambios.getEstado(k), cambios.getValor(k));
+		}
+		return new VistaDeCampo(n, version + 1, campo, nuevas);
+	}
+
+	/**
+	 * Devuelve el código de una casilla con el <b>estado</b> entregado.
+	 *
+	 * @param estado {@link EstadoDeCasilla} de la casilla.
+	 * @param campo  Campo de minas, del que se toma el valor si está descubierta.
+	 * @param i      Fila de la casilla.
+	 * @param j      Columna de la casilla.
+	 * @return Código de la casilla.
+	 */
+	private static byte codigo(EstadoDeCasilla estado, TableroDeMinas campo, int i, int j) {
+		return codigo(estado, estado == EstadoDeCasilla.descubierta ? (int) campo.get(i, j) : 0);
+	}
+
+	/**
+	 * Devuelve el código de una casilla con el <b>estado</b> y <b>valor</b>
+	 * entregados.
+	 *
+	 * @param estado {@link EstadoDeCasilla} de la casilla.
+	 * @param valor  Valor de la casilla si está descubierta.
+	 * @return Código de la casilla.
+	 */
+	private static byte codigo(EstadoDeCasilla estado, int valor) {
+		switch (estado) {
+		case oculta:
+			return OCULTA;
+		case posibleMina:
+			return MARCADA;
+		default:
+			return (byte) valor;
+		}
+	}
+
+	/**
+	 * Devuelve el número de la vista. Una vista con número mayor es posterior.
+	 *
+	 * @return Número de la vista.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Retorna el estado del campo de minas en esta vista.
+	 *
+	 * @return {@link Estado} del campo de minas.
+	 */
+	public Estado getEstado() {
+		return estado;
+	}
+
+	/**
+	 * Retorna el número de filas del campo de minas.
+	 *
+	 * @return Número de filas.
+	 */
+	public int getNumFilas() {
+		return filas.length;
+	}
+
+	/**
+	 * Retorna el número de columnas del campo de minas.
+	 *
+	 * @return Número de columnas.
+	 */
+	public int getNumColumnas() {
+		return n;
+	}
+
+	/**
+	 * Devuelve el número de casillas descubiertas en esta vista.
+	 *
+	 * @return Número de casillas descubiertas.
+	 */
+	public int getCasillasDescubiertas() {
+		return casillasDescubiertas;
+	}
+
+	/**
+	 * Devuelve el número de casillas marcadas como posibles minas en esta vista.
+	 *
+	 * @return Número de posibles minas.
+	 */
+	public int getPosiblesMinas() {
+		return posiblesMinas;
+	}
+
+	/**
+	 * Devuelve el estado de la casilla en la posición (<b>i</b>, <b>j</b>).
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return {@link EstadoDeCasilla}.
+	 * @throws IndexOutOfBoundsException Si (<b>i</b>, <b>j</b>) está por fuera del
+	 *                                   campo de minas.
+	 */
+	public EstadoDeCasilla getEstadoDeCasilla(int i, int j) throws IndexOutOfBoundsException {
+		byte c = filas[i][j];
+		if (c == OCULTA) {
+			return EstadoDeCasilla.oculta;
+		}
+		if (c == MARCADA) {
+			return EstadoDeCasilla.posibleMina;
+		}
+		return EstadoDeCasilla.descubierta;
+	}
+
+	/**
+	 * Devuelve el valor de la casilla descubierta en la posición (<b>i</b>,
+	 * <b>j</b>): <b>-1</b> si es una mina, de lo contrario el número de minas
+	 * alrededor. Las casillas que no están descubiertas valen 0.
+	 *
+	 * @param i Fila de la casilla.
+	 * @param j Columna de la casilla.
+	 * @return Valor de la casilla.
+	 * @throws IndexOutOfBoundsException Si (<b>i</b>, <b>j</b>) está por fuera del
+	 *                                   campo de minas.
+	 */
+	public int getValor(int i, int j) throws IndexOutOfBoundsException {
+		byte c = filas[i][j];
+		return c == OCULTA || c == MARCADA ? 0 : c;
+	}
+}
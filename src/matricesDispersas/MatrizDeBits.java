@@ -0,0 +1,207 @@
+package matricesDispersas;
+
+import java.util.Arrays;
+
+/**
+ * Clase que representa una matriz de valores booleanos, guardando cada valor
+ * en un bit.
+ * <p>
+ * Cada fila ocupa {@link #palabrasPorFila} palabras de 64 bits, de modo que una
+ * fila nunca comparte una palabra con otra. El bit de la columna <b>j</b> es el
+ * bit <code>j % 64</code> de la palabra <code>j / 64</code> de la fila.
+ * 
+ * @author sneyd
+ *
+ */
+public class MatrizDeBits {
+
+	/**
+	 * Número de filas de la matriz.
+	 */
+	private final int m;
+
+	/**
+	 * Número de columnas de la matriz.
+	 */
+	private final int n;
+
+	/**
+	 * Número de palabras de 64 bits que ocupa cada fila.
+	 */
+	private final int palabrasPorFila;
+
+	/**
+	 * Palabras de la matriz, ordenadas por filas.
+	 */
+	private final long[] bits;
+
+	/**
+	 * Constructor. Crea una matriz de <b>m</b> filas y <b>n</b> columnas con todos
+	 * sus bits apagados.
+	 * 
+	 * @param m Número de filas de la matriz.
+	 * @param n Número de columnas de la matriz.
+	 */
+	public MatrizDeBits(int m, int n) {
+
+		assert (m > 0 && n > 0) : "m y n deben ser mayores a cero";
+
+		this.m = m;
+		this.n = n;
+		this.palabrasPorFila = (n + 63) >>> 6;
+		this.bits = new long[m * palabrasPorFila];
+	}
+
+	/**
+	 * Retorna el número de filas de la matriz.
+	 * 
+	 * @return {@link #m}.
+	 */
+	public int getNumFilas() {
+		return this.m;
+	}
+
+	/**
+	 * Retorna el número de columnas de la matriz.
+	 * 
+	 * @return {@link #n}.
+	 */
+	public int getNumColumnas() {
+		return this.n;
+	}
+
+	/**
+	 * Retorna el número de palabras de 64 bits que ocupa cada fila.
+	 * 
+	 * @return {@link #palabrasPorFila}.
+	 */
+	public int getPalabrasPorFila() {
+		return this.palabrasPorFila;
+	}
+
+	/**
+	 * Indica si el bit en la posición (<b>i</b>, <b>j</b>) está encendido. No se
+	 * comprueba que (<b>i</b>, <b>j</b>) esté dentro de la matriz.
+	 * 
+	 * @param i Fila del bit.
+	 * @param j Columna del bit.
+	 * @return <code>true</code> si el bit está encendido.
+	 */
+	public boolean get(int i, int j) {
+		return (bits[i * palabrasPorFila + (j >>> 6)] & (1L << j)) != 0;
+	}
+
+	/**
+	 * Enciende o apaga el bit en la posición (<b>i</b>, <b>j</b>). No se comprueba
+	 * que (<b>i</b>, <b>j</b>) esté dentro de la matriz.
+	 * 
+	 * @param i Fila del bit.
+	 * @param j Columna del bit.
+	 * @param v <code>true</code> para encender el bit, <code>false</code> para
+	 *          apagarlo.
+	 */
+	public void set(int i, int j, boolean v) {
+		int w = i * palabrasPorFila + (j >>> 6);
+		if (v) {
+			bits[w] |= 1L << j;
+		} else {
+			bits[w] &= ~(1L << j);
+		}
+	}
+
+	/**
+	 * Retorna la palabra <b>w</b> de la fila <b>i</b>.
+	 * 
+	 * @param i Fila de la palabra.
+	 * @param w Índice de la palabra dentro de la fila.
+	 * @return Palabra con los bits de las columnas <code>[64 * w, 64 * w + 64)</code>.
+	 */
+	public long getPalabra(int i, int w) {
+		return bits[i * palabrasPorFila + w];
+	}
+
+	/**
+	 * Reemplaza la palabra <b>w</b> de la fila <b>i</b>. Los bits de las columnas
+	 * por fuera de la matriz deben quedar apagados.
+	 * 
+	 * @param i       Fila de la palabra.
+	 * @param w       Índice de la palabra dentro de la fila.
+	 * @param palabra Nueva palabra.
+	 */
+	public void setPalabra(int i, int w, long palabra) {
+		bits[i * palabrasPorFila + w] = palabra;
+	}
+
+	/**
+	 * Retorna una máscara con los bits de la última palabra de cada fila que
+	 * están dentro de la matriz.
+	 * 
+	 * @return Máscara de la última palabra de cada fila.
+	 */
+	public long getMascaraFinal() {
+		return (n & 63) == 0 ? -1L : (1L << n) - 1;
+	}
+
+	/**
+	 * Cuenta los bits encendidos alrededor de la posición (<b>i</b>, <b>j</b>),
+	 * sin contar el de la posición, y sin salirse de la matriz.
+	 * 
+	 * @param i Fila de la posición.
+	 * @param j Columna de la posición.
+	 * @return Número de vecinos con el bit encendido, entre 0 y 8.
+	 */
+	public int contarVecinos(int i, int j) {
+		int count = 0;
+		int filaMin = Math.max(i - 1, 0);
+		int filaMax = Math.min(i + 1, m - 1);
+
+		for (int f = filaMin; f <= filaMax; f++) {
+			count += Long.bitCount(ventana(f, j));
+		}
+
+		if (get(i, j)) {
+			count--;
+		}
+		return count;
+	}
+
+	/**
+	 * Retorna los bits de las columnas <b>j</b> - 1, <b>j</b> y <b>j</b> + 1 de la
+	 * fila <b>i</b>, en los tres bits menos significativos. Las columnas que
+	 * están por fuera de la matriz se toman como apagadas.
+	 * 
+	 * @param i Fila de la ventana.
+	 * @param j Columna central de la ventana.
+	 * @return Bits de la ventana.
+	 */
+	public long ventana(int i, int j) {
+		long ventana = get(i, j) ? 2L : 0L;
+		if (j > 0 && get(i, j - 1)) {
+			ventana |= 1L;
+		}
+		if (j + 1 < n && get(i, j + 1)) {
+			ventana |= 4L;
+		}
+		return ventana;
+	}
+
+	/**
+	 * Apaga todos los bits de la matriz.
+	 */
+	public void limpiar() {
+		Arrays.fill(bits, 0L);
+	}
+
+	/**
+	 * Cuenta los bits encendidos de la matriz.
+	 * 
+	 * @return Número de bits encendidos.
+	 */
+	public int contar() {
+		int count = 0;
+		for (long palabra : bits) {
+			count += Long.bitCount(palabra);
+		}
+		return count;
+	}
+}
@@ -1,6 +1,8 @@
 package matricesDispersas;
 
+import java.util.Arrays;
 import java.util.function.BiFunction;
+import java.util.stream.IntStream;
 
 /**
  * Clase que representa una matriz dispersa implementando listas doblemente
@@ -28,6 +30,32 @@ public class MatrizForma1 {
 	 */
 	private final Object nulo;
 
+	/**
+	 * Nodos cabeza de la matriz dispersa, el nodo cabeza <b>k</b> representa la
+	 * fila <b>k</b> y la columna <b>k</b>.
+	 * <p>
+	 * <b>Nota:</b> Este campo se inicializa en {@link #construirNodosCabeza()}.
+	 */
+	private NodoDoble[] cabezas;
+
+	/**
+	 * Último {@link NodoDoble} conectado con {@link #anexar(int, int, Object)} en
+	 * cada fila.
+	 */
+	private NodoDoble[] ultimosPorFila;
+
+	/**
+	 * Último {@link NodoDoble} conectado con {@link #anexar(int, int, Object)} en
+	 * cada columna.
+	 */
+	private NodoDoble[] ultimosPorColumna;
+
+	/**
+	 * Nodos retirados por {@link #limpiar()}, ligados por su liga derecha, que se
+	 * reutilizan al crear nodos nuevos en vez de crear objetos nuevos.
+	 */
+	private NodoDoble reciclados;
+
 	/**
 	 * Constructor. Inicializa el objeto instanciado creando un {@link NodoDoble}
 	 * conteniendo una {@link Tripleta} que describe el tamaño de la matriz
@@ -115,6 +143,8 @@ public class MatrizForma1 {
 
 		NodoDoble ultimo = this.mat;
 
+		this.cabezas = new NodoDoble[max];
+
 		// se crean max * (nodos doble cabeza) y se conectan en forma circular
 		for (int i = 0; i < max; i++) {
 
@@ -129,8 +159,13 @@ public class MatrizForma1 {
 			tripletaT = (Tripleta) ultimo.getD();
 			tripletaT.setValor(nodoX);
 
+			this.cabezas[i] = nodoX;
 			ultimo = nodoX;
 		}
+
+		// inicialmente el último nodo de cada fila y columna es su nodo cabeza
+		this.ultimosPorFila = Arrays.copyOf(this.cabezas, m);
+		this.ultimosPorColumna = Arrays.copyOf(this.cabezas, n);
 	}
 
 	/**
@@ -170,13 +205,8 @@ public class MatrizForma1 {
 		int c = tripletaT.getColumna();
 		Object v = tripletaT.getValor();
 
-		NodoDoble nodoFila = getPrimerNodo();
-
-		// Se ubica en el nodo cabeza correspondiente a la fila del nodo
-		for (int i = 0; i < f; i++) {
-			tripletaT = (Tripleta) nodoFila.getD();
-			nodoFila = (NodoDoble) tripletaT.getValor();
-		}
+		// nodo cabeza correspondiente a la fila del nodo
+		NodoDoble nodoFila = this.cabezas[f];
 
 		NodoDoble antNodoQ = nodoFila;
 		NodoDoble nodoQ = nodoFila.getLd();
@@ -231,13 +261,8 @@ public class MatrizForma1 {
 		int c = tripletaT.getColumna();
 		Object v = tripletaT.getValor();
 
-		NodoDoble nodoColumna = getPrimerNodo();
-
-		// Se ubica en el nodo cabeza correspondiente a la columna del nodo
-		for (int i = 0; i < c; i++) {
-			tripletaT = (Tripleta) nodoColumna.getD();
-			nodoColumna = (NodoDoble) tripletaT.getValor();
-		}
+		// nodo cabeza correspondiente a la columna del nodo
+		NodoDoble nodoColumna = this.cabezas[c];
 
 		NodoDoble antNodoQ = nodoColumna;
 		NodoDoble nodoQ = nodoColumna.getLi();
@@ -295,15 +320,10 @@ public class MatrizForma1 {
 		NodoDoble nodoFila;
 		Tripleta tripletaT;
 
-		nodoFila = getPrimerNodo();
+		// nodo cabeza de la fila 'i'
+		nodoFila = this.cabezas[i];
 		tripletaT = (Tripleta) nodoFila.getD();
 
-		// se ubica en la fila 'i'
-		for (int fila = 0; fila < i; fila++) {
-			nodoFila = (NodoDoble) tripletaT.getValor();
-			tripletaT = (Tripleta) nodoFila.getD();
-		}
-
 		NodoDoble antNodoQ = nodoFila;
 		NodoDoble nodoQ = nodoFila.getLd();
 		tripletaT = (Tripleta) nodoQ.getD();
@@ -340,15 +360,10 @@ public class MatrizForma1 {
 		NodoDoble nodoColumna;
 		Tripleta tripletaT;
 
-		nodoColumna = getPrimerNodo();
+		// nodo cabeza de la columna 'j'
+		nodoColumna = this.cabezas[j];
 		tripletaT = (Tripleta) nodoColumna.getD();
 
-		// se ubica en la columna 'j'
-		for (int columna = 0; columna < j; columna++) {
-			nodoColumna = (NodoDoble) tripletaT.getValor();
-			tripletaT = (Tripleta) nodoColumna.getD();
-		}
-
 		NodoDoble antNodoQ = nodoColumna;
 		NodoDoble nodoQ = nodoColumna.getLi();
 		tripletaT = (Tripleta) nodoQ.getD();
@@ -383,6 +398,21 @@ public class MatrizForma1 {
 		return this.mat;
 	}
 
+	/**
+	 * Retorna el {@link NodoDoble} cabeza de la fila <b>k</b> y de la columna
+	 * <b>k</b>, sin recorrer los nodos cabeza anteriores.
+	 * 
+	 * @param k Fila y columna del nodo cabeza.
+	 * @return {@link NodoDoble} cabeza. Su {@link Tripleta} tiene el número de
+	 *         elementos de la fila en su campo <b>fila</b>, y el de la columna en
+	 *         su campo <b>columna</b>.
+	 * @throws IndexOutOfBoundsException Si <b>k</b> es mayor o igual al máximo
+	 *                                   entre filas y columnas.
+	 */
+	public NodoDoble getNodoCabeza(int k) throws IndexOutOfBoundsException {
+		return this.cabezas[k];
+	}
+
 	/**
 	 * Retorna el primer {@link NodoDoble} cabeza, nodo que corresponde tanto a la
 	 * primera fila, como la primera columna de la matriz dispersa.
@@ -474,15 +504,10 @@ public class MatrizForma1 {
 		assert (0 <= i && i < m && 0 <= j && j < n) : "i, j deben de estar dentro del rango de la matriz";
 
 		NodoDoble nodoFila, nodoX;
-		nodoFila = getPrimerNodo();
+		// nodo cabeza de la fila 'i'
+		nodoFila = this.cabezas[i];
 		Tripleta tripletaT = (Tripleta) nodoFila.getD();
 
-		// se ubica en la fila 'i'
-		for (int fila = 0; fila < i; fila++) {
-			nodoFila = (NodoDoble) tripletaT.getValor();
-			tripletaT = (Tripleta) nodoFila.getD();
-		}
-
 		// busca el primer nodo con columna mayor o igual a 'j'
 		nodoX = nodoFila.getLd();
 		tripletaT = (Tripleta) nodoX.getD();
@@ -522,15 +547,10 @@ public class MatrizForma1 {
 		NodoDoble nodoFila;
 		NodoDoble nodo;
 
-		nodoFila = getPrimerNodo();
+		// nodo cabeza de la fila 'i'
+		nodoFila = this.cabezas[i];
 		tripletaT = (Tripleta) nodoFila.getD();
 
-		// se busca la fila correspondiente
-		for (int fila = 0; fila < i; fila++) {
-			nodoFila = (NodoDoble) tripletaT.getValor();
-			tripletaT = (Tripleta) nodoFila.getD();
-		}
-
 		nodo = nodoFila.getLd();
 		tripletaT = (Tripleta) nodo.getD();
 
@@ -577,9 +597,382 @@ public class MatrizForma1 {
 			return;
 		}
 
-		Tripleta tripletaT = new Tripleta(i, j, v);
-		NodoDoble nodoX = new NodoDoble(tripletaT);
-		conectar(nodoX, true);
+		NodoDoble nodoX = crearNodo(i, j, v);
+		if (conectar(nodoX, true)) {
+			reciclar(nodoX);
+		}
+	}
+
+	/**
+	 * Crea un nodo con los datos entregados y lo conecta al final de su fila y de
+	 * su columna, sin recorrerlas.
+	 * <p>
+	 * Este método sirve para construir la matriz dispersa a partir de sus
+	 * elementos diferentes de {@link #nulo}, entregándolos en orden por filas y,
+	 * dentro de cada fila, en orden por columnas. En ese caso cada nodo se conecta
+	 * en tiempo constante.
+	 * <p>
+	 * Si el nodo no va al final de su fila o de su columna (por ejemplo si se
+	 * entregan desordenados, o si la matriz se modificó con otros métodos), se
+	 * conecta como en {@link #set(int, int, Object)}.
+	 * 
+	 * @param i Fila en donde se asigna el valor <b>v</b>.
+	 * @param j Columna en donde se asigna el valor <b>v</b>.
+	 * @param v Valor que se asigna en la posición (<b>i</b>, <b>j</b>).
+	 */
+	public void anexar(int i, int j, Object v) {
+		int m = getNumFilas();
+		int n = getNumColumnas();
+
+		// se comprueban que los índices están dentro del rango del tamaño de la matriz
+		if ((i < 0 || i >= m) || (j < 0 || j >= n)) {
+			String error = "el índice 'i' debe ser 0 <= i < %d, \n y 'j' debe ser 0 <= j < %d";
+			throw new IndexOutOfBoundsException(String.format(error, m, n));
+		}
+
+		if (v == getNulo()) {
+			eliminar(i, j);
+			return;
+		}
+
+		NodoDoble nodoFila = this.cabezas[i];
+		NodoDoble nodoColumna = this.cabezas[j];
+		NodoDoble ultimoF = this.ultimosPorFila[i];
+		NodoDoble ultimoC = this.ultimosPorColumna[j];
+		NodoDoble nodoX = crearNodo(i, j, v);
+		Tripleta tripletaT;
+
+		// los últimos nodos siguen siéndolo si sus ligas apuntan a los nodos cabeza, y
+		// el nuevo nodo va después de ellos si su columna (o fila) es mayor
+		boolean alFinalDeFila = ultimoF.getLd() == nodoFila
+				&& (ultimoF == nodoFila || ((Tripleta) ultimoF.getD()).getColumna() < j);
+		boolean alFinalDeColumna = ultimoC.getLi() == nodoColumna
+				&& (ultimoC == nodoColumna || ((Tripleta) ultimoC.getD()).getFila() < i);
+
+		if (alFinalDeFila && alFinalDeColumna) {
+
+			// se conecta por filas
+			nodoX.setLd(nodoFila);
+			ultimoF.setLd(nodoX);
+			tripletaT = (Tripleta) nodoFila.getD();
+			tripletaT.setFila(tripletaT.getFila() + 1);
+
+			// se conecta por columnas
+			nodoX.setLi(nodoColumna);
+			ultimoC.setLi(nodoX);
+			tripletaT = (Tripleta) nodoColumna.getD();
+			tripletaT.setColumna(tripletaT.getColumna() + 1);
+		} else if (conectar(nodoX, true)) {
+
+			// ya existía, solo se reemplazó su valor
+			reciclar(nodoX);
+			return;
+		}
+
+		// si el nodo quedó al final de su fila o columna, se guarda como el último
+		if (nodoX.getLd() == nodoFila) {
+			this.ultimosPorFila[i] = nodoX;
+		}
+		if (nodoX.getLi() == nodoColumna) {
+			this.ultimosPorColumna[j] = nodoX;
+		}
+	}
+
+	/**
+	 * Elimina todos los elementos de la matriz dispersa, dejándola como recién
+	 * construida pero sin crear objetos nuevos: los nodos cabeza se conservan y
+	 * los demás nodos se guardan para reutilizarlos al asignar nuevos elementos.
+	 * <p>
+	 * <b>Nota:</b> Los {@link NodoDoble} de la matriz obtenidos antes de limpiarla
+	 * no se deben seguir usando, ya que pueden volver a la matriz con otros datos.
+	 */
+	public void limpiar() {
+		int m = getNumFilas();
+		int n = getNumColumnas();
+
+		// se retiran los nodos de cada fila
+		for (int i = 0; i < m; i++) {
+			NodoDoble nodoFila = this.cabezas[i];
+			NodoDoble nodoX = nodoFila.getLd();
+			while (nodoX != nodoFila) {
+				NodoDoble siguiente = nodoX.getLd();
+				reciclar(nodoX);
+				nodoX = siguiente;
+			}
+		}
+
+		// los nodos cabeza quedan sin elementos
+		for (NodoDoble nodoCabeza : this.cabezas) {
+			nodoCabeza.setLd(nodoCabeza);
+			nodoCabeza.setLi(nodoCabeza);
+			Tripleta tripletaT = (Tripleta) nodoCabeza.getD();
+			tripletaT.setFila(0);
+			tripletaT.setColumna(0);
+		}
+		System.arraycopy(this.cabezas, 0, this.ultimosPorFila, 0, m);
+		System.arraycopy(this.cabezas, 0, this.ultimosPorColumna, 0, n);
+	}
+
+	/**
+	 * Crea un {@link NodoDoble} con la {@link Tripleta} (<b>i</b>, <b>j</b>,
+	 * <b>v</b>), reutilizando uno de los nodos {@link #reciclados} si hay alguno.
+	 * 
+	 * @param i Fila del nodo.
+	 * @param j Columna del nodo.
+	 * @param v Valor del nodo.
+	 * @return {@link NodoDoble} sin conectar.
+	 */
+	private NodoDoble crearNodo(int i, int j, Object v) {
+		NodoDoble nodoX = this.reciclados;
+		if (nodoX == null) {
+			return new NodoDoble(new Tripleta(i, j, v));
+		}
+
+		this.reciclados = nodoX.getLd();
+		nodoX.setLd(null);
+		Tripleta tripletaT = (Tripleta) nodoX.getD();
+		tripletaT.setFila(i);
+		tripletaT.setColumna(j);
+		tripletaT.setValor(v);
+		return nodoX;
+	}
+
+	/**
+	 * Guarda un {@link NodoDoble} que ya no está en la matriz para reutilizarlo.
+	 * 
+	 * @param nodoX {@link NodoDoble} desconectado de la matriz.
+	 */
+	private void reciclar(NodoDoble nodoX) {
+		((Tripleta) nodoX.getD()).setValor(null);
+		nodoX.setLi(null);
+		nodoX.setLd(this.reciclados);
+		this.reciclados = nodoX;
+	}
+
+	/**
+	 * Asigna el valor <b>v</b> a todas las posiciones encendidas en la
+	 * {@link MatrizDeBits} <b>mascara</b>, de una sola vez.
+	 * <p>
+	 * Los nodos se conectan en dos fases, cada una en paralelo: primero cada fila
+	 * se recorre una vez junto con su fila de la máscara, conectando por filas los
+	 * nodos nuevos (o reemplazando el valor de los que ya existen); luego cada
+	 * grupo de 64 columnas se recorre bajando por las filas, conectando por
+	 * columnas los nodos nuevos. Como en cada fase cada fila (o columna) la
+	 * modifica un solo hilo, no se necesita sincronización.
+	 * 
+	 * @param mascara {@link MatrizDeBits} del mismo tamaño que la matriz dispersa,
+	 *                con las posiciones a asignar.
+	 * @param v       Valor a asignar, diferente del {@link #nulo}.
+	 */
+	public void setPorMascara(MatrizDeBits mascara, Object v) {
+		assert (v != getNulo()) : "el valor a asignar no puede ser el nulo de la matriz";
+
+		setPorMascara(mascara, (i, j) -> v);
+	}
+
+	/**
+	 * Asigna a cada posición (<b>i</b>, <b>j</b>) encendida en la
+	 * {@link MatrizDeBits} <b>mascara</b> el valor <code>valores(i, j)</code>, de
+	 * una sola vez, igual que {@link #setPorMascara(MatrizDeBits, Object)}.
+	 * <p>
+	 * La función <b>valores</b> se llama desde varios hilos a la vez, por lo que no
+	 * debe modificar nada compartido.
+	 * 
+	 * @param mascara {@link MatrizDeBits} del mismo tamaño que la matriz dispersa,
+	 *                con las posiciones a asignar.
+	 * @param valores Función que devuelve el valor de cada posición, diferente del
+	 *                {@link #nulo}.
+	 */
+	public void setPorMascara(MatrizDeBits mascara, ValorPorPosicion valores) {
+		setPorMascara(mascara, 0, getNumFilas(), 0, mascara.getPalabrasPorFila(), valores);
+	}
+
+	/**
+	 * Asigna a cada posición (<b>i</b>, <b>j</b>) encendida en la
+	 * {@link MatrizDeBits} <b>mascara</b> el valor <code>valores(i, j)</code>,
+	 * igual que {@link #setPorMascara(MatrizDeBits, ValorPorPosicion)}, pero
+	 * recorriendo solo las filas de <b>filaDesde</b> a <b>filaHasta</b> y las
+	 * palabras de columnas de <b>palabraDesde</b> a <b>palabraHasta</b>, para que
+	 * el trabajo sea proporcional a la zona de la máscara que tiene posiciones
+	 * encendidas y no a toda la matriz.
+	 * 
+	 * @param mascara      {@link MatrizDeBits} del mismo tamaño que la matriz
+	 *                     dispersa, sin posiciones encendidas por fuera de la zona.
+	 * @param filaDesde    Primera fila de la zona.
+	 * @param filaHasta    Fila siguiente a la última de la zona.
+	 * @param palabraDesde Primera palabra de columnas de la zona.
+	 * @param palabraHasta Palabra siguiente a la última de la zona.
+	 * @param valores      Función que devuelve el valor de cada posición,
+	 *                     diferente del {@link #nulo}.
+	 */
+	public void setPorMascara(MatrizDeBits mascara, int filaDesde, int filaHasta, int palabraDesde,
+			int palabraHasta, ValorPorPosicion valores) {
+		int m = getNumFilas();
+		int n = getNumColumnas();
+
+		assert (mascara.getNumFilas() == m && mascara.getNumColumnas() == n)
+				: "la máscara debe tener el mismo tamaño que la matriz";
+		assert (0 <= filaDesde && filaHasta <= m && 0 <= palabraDesde
+				&& palabraHasta <= mascara.getPalabrasPorFila()) : "la zona debe estar dentro de la matriz";
+
+		if (filaDesde >= filaHasta || palabraDesde >= palabraHasta) {
+			return;
+		}
+
+		NodoDoble[][] nuevosPorFila = new NodoDoble[filaHasta - filaDesde][];
+
+		IntStream.range(filaDesde, filaHasta).parallel().forEach(i -> nuevosPorFila[i - filaDesde]
+				= conectarFilaPorMascara(i, mascara, palabraDesde, palabraHasta, valores));
+		IntStream.range(palabraDesde, palabraHasta).parallel()
+				.forEach(k -> conectarColumnasPorMascara(k, filaDesde, nuevosPorFila));
+	}
+
+	/**
+	 * Asigna los <b>valores</b> en las posiciones de la fila <b>i</b> encendidas
+	 * en la <b>mascara</b>, entre las palabras <b>desde</b> y <b>hasta</b>,
+	 * conectando por filas los nodos que no existían.
+	 * 
+	 * @param i       Fila a recorrer.
+	 * @param mascara {@link MatrizDeBits} con las posiciones a asignar.
+	 * @param desde   Primera palabra a recorrer.
+	 * @param hasta   Palabra siguiente a la última a recorrer.
+	 * @param valores Función que devuelve el valor de cada posición.
+	 * @return Nodos creados en la fila, en orden por columnas. Aún no están
+	 *         conectados por columnas.
+	 */
+	private NodoDoble[] conectarFilaPorMascara(int i, MatrizDeBits mascara, int desde, int hasta,
+			ValorPorPosicion valores) {
+		int total = 0, creados = 0;
+
+		for (int k = desde; k < hasta; k++) {
+			total += Long.bitCount(mascara.getPalabra(i, k));
+		}
+		if (total == 0) {
+			return new NodoDoble[0];
+		}
+
+		NodoDoble[] nuevos = new NodoDoble[total];
+		NodoDoble nodoFila = this.cabezas[i];
+		NodoDoble antNodoQ = nodoFila;
+		NodoDoble nodoQ = nodoFila.getLd();
+		Tripleta tripletaT;
+
+		for (int k = desde; k < hasta; k++) {
+			long palabra = mascara.getPalabra(i, k);
+			while (palabra != 0) {
+				int j = k * Long.SIZE + Long.numberOfTrailingZeros(palabra);
+				palabra &= palabra - 1;
+				Object v = valores.valor(i, j);
+
+				// se busca el último nodo con columna menor a 'j'
+				tripletaT = (Tripleta) nodoQ.getD();
+				while (nodoQ != nodoFila && tripletaT.getColumna() < j) {
+					antNodoQ = nodoQ;
+					nodoQ = nodoQ.getLd();
+					tripletaT = (Tripleta) nodoQ.getD();
+				}
+
+				// si ya existe se reemplaza, de lo contrario se conecta entre 'antNodoQ' y
+				// 'nodoQ'
+				if (nodoQ != nodoFila && tripletaT.getColumna() == j) {
+					tripletaT.setValor(v);
+				} else {
+					NodoDoble nodoX = new NodoDoble(new Tripleta(i, j, v));
+					nodoX.setLd(nodoQ);
+					antNodoQ.setLd(nodoX);
+					antNodoQ = nodoX;
+					nuevos[creados++] = nodoX;
+				}
+			}
+		}
+
+		tripletaT = (Tripleta) nodoFila.getD();
+		tripletaT.setFila(tripletaT.getFila() + creados);
+		if (antNodoQ.getLd() == nodoFila) {
+			this.ultimosPorFila[i] = antNodoQ;
+		}
+
+		return creados == total ? nuevos : Arrays.copyOf(nuevos, creados);
+	}
+
+	/**
+	 * Conecta por columnas los nodos creados por
+	 * {@link #conectarFilaPorMascara(int, MatrizDeBits, int, int, ValorPorPosicion)}
+	 * en las columnas de la palabra <b>k</b> (de <code>64 * k</code> a
+	 * <code>64 * k + 63</code>), bajando por las filas con un apuntador por
+	 * columna.
+	 * 
+	 * @param k             Índice de la palabra de columnas.
+	 * @param filaDesde     Fila de los nodos en <code>nuevosPorFila[0]</code>.
+	 * @param nuevosPorFila Nodos creados en cada fila, en orden por columnas.
+	 */
+	private void conectarColumnasPorMascara(int k, int filaDesde, NodoDoble[][] nuevosPorFila) {
+		int desde = k * Long.SIZE;
+		int hasta = Math.min(desde + Long.SIZE, getNumColumnas());
+		NodoDoble[] anteriores = new NodoDoble[hasta - desde];
+		int[] conectados = new int[hasta - desde];
+		Tripleta tripletaT;
+
+		for (int c = desde; c < hasta; c++) {
+			anteriores[c - desde] = this.cabezas[c];
+		}
+
+		for (int f = 0; f < nuevosPorFila.length; f++) {
+			NodoDoble[] nuevos = nuevosPorFila[f];
+			int i = filaDesde + f;
+			int p = primerNodoDesde(nuevos, desde);
+
+			while (p < nuevos.length && ((Tripleta) nuevos[p].getD()).getColumna() < hasta) {
+				NodoDoble nodoX = nuevos[p++];
+				int c = ((Tripleta) nodoX.getD()).getColumna();
+				NodoDoble nodoColumna = this.cabezas[c];
+				NodoDoble antNodoQ = anteriores[c - desde];
+				NodoDoble nodoQ = antNodoQ.getLi();
+
+				// se busca el último nodo con fila menor a 'i'
+				tripletaT = (Tripleta) nodoQ.getD();
+				while (nodoQ != nodoColumna && tripletaT.getFila() < i) {
+					antNodoQ = nodoQ;
+					nodoQ = nodoQ.getLi();
+					tripletaT = (Tripleta) nodoQ.getD();
+				}
+
+				nodoX.setLi(nodoQ);
+				antNodoQ.setLi(nodoX);
+				anteriores[c - desde] = nodoX;
+				conectados[c - desde]++;
+			}
+		}
+
+		for (int c = desde; c < hasta; c++) {
+			tripletaT = (Tripleta) this.cabezas[c].getD();
+			tripletaT.setColumna(tripletaT.getColumna() + conectados[c - desde]);
+			if (anteriores[c - desde].getLi() == this.cabezas[c]) {
+				this.ultimosPorColumna[c] = anteriores[c - desde];
+			}
+		}
+	}
+
+	/**
+	 * Busca con búsqueda binaria el primer nodo de <b>nodos</b> con columna mayor o
+	 * igual a <b>columna</b>.
+	 * 
+	 * @param nodos   Nodos de una misma fila, en orden por columnas.
+	 * @param columna Columna a buscar.
+	 * @return Posición del primer nodo con columna mayor o igual a
+	 *         <b>columna</b>, o <code>nodos.length</code> si no hay ninguno.
+	 */
+	private static int primerNodoDesde(NodoDoble[] nodos, int columna) {
+		int lo = 0, hi = nodos.length;
+		while (lo < hi) {
+			int mitad = (lo + hi) >>> 1;
+			if (((Tripleta) nodos[mitad].getD()).getColumna() < columna) {
+				lo = mitad + 1;
+			} else {
+				hi = mitad;
+			}
+		}
+		return lo;
 	}
 
 	/**
@@ -0,0 +1,23 @@
+package matricesDispersas;
+
+/**
+ * Función que devuelve el valor de la posición (<b>i</b>, <b>j</b>) de una
+ * matriz, recibiendo la fila y la columna como enteros primitivos para no
+ * crear objetos por cada posición.
+ *
+ * @author sneyd
+ *
+ * @see MatrizForma1#setPorMascara(MatrizDeBits, ValorPorPosicion)
+ */
+@FunctionalInterface
+public interface ValorPorPosicion {
+
+	/**
+	 * Devuelve el valor de la posición (<b>i</b>, <b>j</b>).
+	 *
+	 * @param i Fila de la posición.
+	 * @param j Columna de la posición.
+	 * @return Valor de la posición.
+	 */
+	Object valor(int i, int j);
+}
@@ -0,0 +1,99 @@
+package buscaminas;
+
+import java.util.SplittableRandom;
+
+/**
+ * Prueba que compara {@link CampoDeMinasBits} con {@link CampoDeMinas} jugada
+ * por jugada, en campos aleatorios creados con la misma semilla.
+ * <p>
+ * Se ejecuta como programa y lanza un {@link AssertionError} en la primera
+ * diferencia: el estado del juego, los contadores o el estado de alguna
+ * casilla, y al final los valores de todas las casillas.
+ * 
+ * @author sneyd
+ *
+ */
+public class PruebaCampoDeMinasBits {
+
+	/**
+	 * Número de campos a comparar.
+	 */
+	private static final int CAMPOS = 2000;
+
+	/**
+	 * Número máximo de jugadas por campo.
+	 */
+	private static final int JUGADAS = 300;
+
+	public static void main(String[] args) {
+		SplittableRandom azar = new SplittableRandom(args.length > 0 ? Long.parseLong(args[0]) : 1L);
+
+		for (int c = 0; c < CAMPOS; c++) {
+			int m = 1 + azar.nextInt(30);
+			int n = 2 + azar.nextInt(30);
+			int minas = 1 + azar.nextInt(m * n / 4 + 1);
+			long semilla = azar.nextLong();
+			boolean apertura = azar.nextBoolean();
+
+			CampoDeMinas campo = new CampoDeMinas(m, n, minas, semilla);
+			CampoDeMinasBits bits = new CampoDeMinasBits(m, n, minas, semilla);
+			campo.setAperturaGarantizada(apertura);
+			bits.setAperturaGarantizada(apertura);
+			campo.iniciar();
+			bits.iniciar();
+
+			String contexto = m + "x" + n + ", " + minas + " minas, semilla " + semilla;
+			for (int k = 0; k < JUGADAS && campo.getEstado() == CampoDeMinas.Estado.iniciado; k++) {
+				int i = azar.nextInt(m);
+				int j = azar.nextInt(n);
+
+				// una de cada cuatro jugadas marca o desmarca una casilla
+				if (azar.nextInt(4) == 0) {
+					campo.posibleMina(i, j);
+					bits.posibleMina(i, j);
+				} else {
+					campo.tocarCasilla(i, j);
+					bits.tocarCasilla(i, j);
+				}
+				comparar(campo, bits, contexto + ", jugada " + k);
+			}
+
+			// al terminar el juego todas las casillas están descubiertas
+			for (int i = 0; i < m; i++) {
+				for (int j = 0; j < n; j++) {
+					if (campo.getEstado() != CampoDeMinas.Estado.iniciado
+							&& !campo.get(i, j).equals(bits.get(i, j))) {
+						throw new AssertionError(contexto + ": valor de (" + i + ", " + j + ")");
+					}
+				}
+			}
+		}
+		System.out.println("PruebaCampoDeMinasBits: " + CAMPOS + " campos sin diferencias");
+	}
+
+	/**
+	 * Compara el estado visible de los dos campos de minas.
+	 * 
+	 * @param esperado Campo de referencia.
+	 * @param obtenido Campo a comprobar.
+	 * @param contexto Texto que identifica la jugada en el mensaje de error.
+	 */
+	static void comparar(TableroDeMinas esperado, TableroDeMinas obtenido, String contexto) {
+		if (esperado.getEstado() != obtenido.getEstado()) {
+			throw new AssertionError(contexto + ": estado " + obtenido.getEstado() + " en vez de "
+					+ esperado.getEstado());
+		}
+		if (esperado.getCasillasDescubiertas() != obtenido.getCasillasDescubiertas()
+				|| esperado.getPosiblesMinas() != obtenido.getPosiblesMinas()
+				|| esperado.getCasillasOcultas() != obtenido.getCasillasOcultas()) {
+			throw new AssertionError(contexto + ": contadores diferentes");
+		}
+		for (int i = 0; i < esperado.getNumFilas(); i++) {
+			for (int j = 0; j < esperado.getNumColumnas(); j++) {
+				if (esperado.getEstadoDeCasilla(i, j) != obtenido.getEstadoDeCasilla(i, j)) {
+					throw new AssertionError(contexto + ": estado de (" + i + ", " + j + ")");
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package buscaminas;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import buscaminas.CampoDeMinas.Estado;
+import buscaminas.CampoDeMinas.EstadoDeCasilla;
+
+/**
+ * Prueba de {@link CampoDeMinasConcurrente}, en tres partes:
+ * <p>
+ * - Con un solo hilo, se compara jugada por jugada con {@link CampoDeMinas}
+ * en campos aleatorios con la misma semilla, incluyendo marcas antes de la
+ * primera casilla despejada. <br>
+ * - Varios hilos juegan en el mismo campo mientras otro lo reinicia, y al final
+ * los contadores deben coincidir con las casillas. <br>
+ * - Se mide cuántas jugadas por segundo se hacen con 1, 2, 4 y 8 hilos en un
+ * campo grande, repartiendo entre los hilos el mismo número total de jugadas,
+ * y cada hilo juega en toda el área. En una máquina con varios núcleos las
+ * jugadas por segundo deben crecer con los hilos.
+ * <p>
+ * Se ejecuta como programa y lanza un {@link AssertionError} en la primera
+ * diferencia.
+ * 
+ * @author sneyd
+ *
+ */
+public class PruebaCampoDeMinasConcurrente {
+
+	public static void main(String[] args) throws InterruptedException {
+		compararConCampoDeMinas();
+		reiniciarMientrasSeJuega();
+		medirEscalamiento(args.length > 0 ? Integer.parseInt(args[0]) : 8);
+	}
+
+	/**
+	 * Compara {@link CampoDeMinasConcurrente} con {@link CampoDeMinas} con un solo
+	 * hilo. El primer caso marca la casilla (0, 0) y la toca antes de despejar
+	 * otra, por lo que las minas se deben generar con la segunda.
+	 */
+	private static void compararConCampoDeMinas() {
+		SplittableRandom azar = new SplittableRandom(1L);
+
+		for (int c = 0; c < 2000; c++) {
+			CampoDeMinas campo = new CampoDeMinas(9, 9, 10, c);
+			CampoDeMinasConcurrente concurrente = new CampoDeMinasConcurrente(9, 9, 10, c);
+			campo.iniciar();
+			concurrente.iniciar();
+			campo.posibleMina(0, 0);
+			concurrente.posibleMina(0, 0);
+			campo.tocarCasilla(0, 0);
+			concurrente.tocarCasilla(0, 0);
+			campo.tocarCasilla(8, 8);
+			concurrente.tocarCasilla(8, 8);
+			PruebaCampoDeMinasBits.comparar(campo, concurrente, "9x9, semilla " + c);
+		}
+
+		for (int c = 0; c < 1000; c++) {
+			int m = 1 + azar.nextInt(150);
+			int n = 2 + azar.nextInt(150);
+			int minas = 1 + azar.nextInt(m * n / 5 + 1);
+			long semilla = azar.nextLong();
+			boolean apertura = azar.nextBoolean();
+
+			CampoDeMinas campo = new CampoDeMinas(m, n, minas, semilla);
+			CampoDeMinasConcurrente concurrente = new CampoDeMinasConcurrente(m, n, minas, semilla);
+			campo.setAperturaGarantizada(apertura);
+			concurrente.setAperturaGarantizada(apertura);
+			campo.iniciar();
+			concurrente.iniciar();
+
+			String contexto = m + "x" + n + ", " + minas + " minas, semilla " + semilla;
+			for (int k = 0; k < 100 && campo.getEstado() == Estado.iniciado; k++) {
+				int i = azar.nextInt(m);
+				int j = azar.nextInt(n);
+				if (azar.nextInt(4) == 0) {
+					campo.posibleMina(i, j);
+					concurrente.posibleMina(i, j);
+				} else {
+					campo.tocarCasilla(i, j);
+					concurrente.tocarCasilla(i, j);
+				}
+				if (campo.getCasillasDescubiertas() != concurrente.getCasillasDescubiertas()
+						|| campo.getEstado() != concurrente.getEstado()) {
+					throw new AssertionError(contexto + ", jugada " + k);
+				}
+			}
+			PruebaCampoDeMinasBits.comparar(campo, concurrente, contexto);
+		}
+	}
+
+	/**
+	 * Varios hilos tocan y marcan casillas mientras otro reinicia el campo una y
+	 * otra vez. Al terminar, los contadores deben coincidir con las casillas
+	 * descubiertas y marcadas.
+	 * 
+	 * @throws InterruptedException Si se interrumpe la espera de los hilos.
+	 */
+	private static void reiniciarMientrasSeJuega() throws InterruptedException {
+		int m = 500, n = 500;
+		CampoDeMinasConcurrente campo = new CampoDeMinasConcurrente(m, n, 5000, 7L);
+		AtomicBoolean jugando = new AtomicBoolean(true);
+		Thread[] hilos = new Thread[4];
+
+		campo.iniciar();
+		for (int h = 0; h < hilos.length; h++) {
+			SplittableRandom azar = new SplittableRandom(h);
+			hilos[h] = new Thread(() -> {
+				while (jugando.get()) {
+					int i = azar.nextInt(m);
+					int j = azar.nextInt(n);
+					if (azar.nextInt(4) == 0) {
+						campo.posibleMina(i, j);
+					} else {
+						campo.tocarCasilla(i, j);
+					}
+					campo.iniciar();
+				}
+			});
+			hilos[h].start();
+		}
+		for (int r = 0; r < 200; r++) {
+			Thread.sleep(2);
+			campo.reiniciar();
+			campo.iniciar();
+		}
+		jugando.set(false);
+		for (Thread hilo : hilos) {
+			hilo.join();
+		}
+
+		if (campo.getEstado() != Estado.iniciado) {
+			return;
+		}
+		int descubiertas = 0, marcadas = 0;
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				EstadoDeCasilla estado = campo.getEstadoDeCasilla(i, j);
+				if (estado == EstadoDeCasilla.descubierta) {
+					descubiertas++;
+				} else if (estado == EstadoDeCasilla.posibleMina) {
+					marcadas++;
+				}
+			}
+		}
+		if (descubiertas != campo.getCasillasDescubiertas() || marcadas != campo.getPosiblesMinas()) {
+			throw new AssertionError("contadores " + campo.getCasillasDescubiertas() + ", " + campo.getPosiblesMinas()
+					+ " en vez de " + descubiertas + ", " + marcadas);
+		}
+	}
+
+	/**
+	 * Mide las jugadas por segundo con 1, 2, 4... hasta <b>maxHilos</b> hilos,
+	 * después de una medición con un hilo para que se compile el código.
+	 * 
+	 * @param maxHilos Número máximo de hilos.
+	 * @throws InterruptedException Si se interrumpe la espera de los hilos.
+	 */
+	private static void medirEscalamiento(int maxHilos) throws InterruptedException {
+		System.out.println("PruebaCampoDeMinasConcurrente: " + Runtime.getRuntime().availableProcessors()
+				+ " procesadores");
+		medir(1);
+		for (int hilos = 1; hilos <= maxHilos; hilos *= 2) {
+			System.out.printf("%d hilos: %.0f jugadas/s%n", hilos, medir(hilos));
+		}
+	}
+
+	/**
+	 * Mide las jugadas por segundo con <b>hilos</b> hilos, siempre con el mismo
+	 * campo inicial y el mismo total de jugadas. Cada hilo toca casillas al azar
+	 * que no son minas y marca las que sí, consultando el valor de la casilla,
+	 * para que el juego no se pierda.
+	 * 
+	 * @param hilos Número de hilos.
+	 * @return Jugadas por segundo.
+	 * @throws InterruptedException Si se interrumpe la espera de los hilos.
+	 */
+	private static double medir(int hilos) throws InterruptedException {
+		int m = 2048, n = 2048, jugadas = 1 << 20;
+		int jugadasPorHilo = jugadas / hilos;
+		CampoDeMinasConcurrente campo = new CampoDeMinasConcurrente(m, n, m * n / 5, 11L);
+		CountDownLatch inicio = new CountDownLatch(1);
+		Thread[] jugadores = new Thread[hilos];
+
+		campo.iniciar();
+		campo.tocarCasilla(0, 0);
+		for (int h = 0; h < hilos; h++) {
+			SplittableRandom azar = new SplittableRandom(100 + h);
+			jugadores[h] = new Thread(() -> {
+				try {
+					inicio.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int k = 0; k < jugadasPorHilo; k++) {
+					int i = azar.nextInt(m);
+					int j = azar.nextInt(n);
+					if ((int) campo.get(i, j) == -1) {
+						if (campo.getEstadoDeCasilla(i, j) == EstadoDeCasilla.oculta) {
+							campo.posibleMina(i, j);
+						}
+					} else {
+						campo.tocarCasilla(i, j);
+					}
+				}
+			});
+			jugadores[h].start();
+		}
+
+		long t0 = System.nanoTime();
+		inicio.countDown();
+		for (Thread jugador : jugadores) {
+			jugador.join();
+		}
+		double segundos = (System.nanoTime() - t0) / 1e9;
+
+		if (campo.getEstado() == Estado.perdido) {
+			throw new AssertionError("se tocó una mina con " + hilos + " hilos");
+		}
+		return jugadas / segundos;
+	}
+}
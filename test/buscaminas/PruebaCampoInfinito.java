@@ -0,0 +1,155 @@
+package buscaminas;
+
+import java.util.SplittableRandom;
+
+import buscaminas.CampoDeMinas.Estado;
+import buscaminas.CampoDeMinas.EstadoDeCasilla;
+
+/**
+ * Prueba que juega al azar en dos {@link CampoInfinito} con la misma semilla,
+ * uno que guarda todos sus sectores completos y otro que guarda muy pocos, de
+ * modo que sus sectores se compactan y se comprimen una y otra vez. Cada cierto
+ * número de jugadas se recorren todas las casillas que un despeje puede
+ * alcanzar en los dos campos, comparando el estado y el valor de cada casilla,
+ * y se comprueba que los contadores de los dos campos coinciden con lo
+ * recorrido.
+ * <p>
+ * Se ejecuta como programa y lanza un {@link AssertionError} en la primera
+ * diferencia.
+ *
+ * @author sneyd
+ *
+ */
+public class PruebaCampoInfinito {
+
+	/**
+	 * Número de juegos a comparar.
+	 */
+	private static final int JUEGOS = 6;
+
+	/**
+	 * Número de jugadas por juego.
+	 */
+	private static final int JUGADAS = 3000;
+
+	/**
+	 * Número de jugadas entre dos recorridos de la zona de juego.
+	 */
+	private static final int ENTRE_RECORRIDOS = 250;
+
+	/**
+	 * Número de sectores por lado de la zona de juego, centrada en (0, 0).
+	 */
+	private static final int SECTORES = 4;
+
+	/**
+	 * Límite de cascada de los campos. Un despeje no se aleja de la casilla tocada
+	 * más que este número de casillas, así que basta con recorrer la zona de juego
+	 * ampliada en un sector por lado.
+	 */
+	private static final int LIMITE_DE_CASCADA = CampoInfinito.LADO;
+
+	public static void main(String[] args) {
+		SplittableRandom azar = new SplittableRandom(args.length > 0 ? Long.parseLong(args[0]) : 1L);
+		int radio = SECTORES / 2 * CampoInfinito.LADO;
+		int sectoresRecorridos = (SECTORES + 2) * (SECTORES + 2);
+		int recorridos = 0;
+
+		for (int juego = 0; juego < JUEGOS; juego++) {
+			long semilla = azar.nextLong();
+			int minasPorSector = 300 + azar.nextInt(500);
+			CampoInfinito completo = new CampoInfinito(semilla, minasPorSector, sectoresRecorridos, 0,
+					LIMITE_DE_CASCADA);
+			CampoInfinito limitado = new CampoInfinito(semilla, minasPorSector, 1 + azar.nextInt(3),
+					azar.nextInt(4), LIMITE_DE_CASCADA);
+			String contexto = "semilla " + semilla + ", " + minasPorSector + " minas por sector";
+
+			completo.iniciar();
+			limitado.iniciar();
+			completo.tocarCasilla(0, 0);
+			limitado.tocarCasilla(0, 0);
+
+			for (int k = 1; k <= JUGADAS; k++) {
+				int i = azar.nextInt(2 * radio) - radio;
+				int j = azar.nextInt(2 * radio) - radio;
+
+				// casi siempre se marcan las minas y se tocan las demas casillas, para que
+				// el juego avance sin perder
+				boolean marcar = completo.get(i, j) == -1 ? azar.nextInt(50) != 0 : azar.nextInt(20) == 0;
+				if (marcar) {
+					completo.posibleMina(i, j);
+					limitado.posibleMina(i, j);
+				} else {
+					completo.tocarCasilla(i, j);
+					limitado.tocarCasilla(i, j);
+				}
+
+				if (completo.getEstado() != limitado.getEstado()) {
+					throw new AssertionError(contexto + ": estado diferente en la jugada " + k);
+				}
+				if (k % ENTRE_RECORRIDOS == 0 || completo.getEstado() == Estado.perdido) {
+					comparar(completo, limitado, radio + CampoInfinito.LADO, contexto + ", jugada " + k);
+					recorridos++;
+				}
+				if (completo.getEstado() == Estado.perdido) {
+					completo.reiniciar();
+					limitado.reiniciar();
+					completo.iniciar();
+					limitado.iniciar();
+				}
+			}
+			if (limitado.getSectoresComprimidos() == 0) {
+				throw new AssertionError(contexto + ": ningún sector se comprimió");
+			}
+		}
+		System.out.println("PruebaCampoInfinito: " + JUEGOS + " juegos, " + recorridos + " recorridos sin diferencias");
+	}
+
+	/**
+	 * Recorre la zona dada sector por sector, para no generar una y otra vez
+	 * las minas de los sectores que no están en memoria, comparando el estado y el
+	 * valor de cada casilla de los dos campos. Además comprueba que las casillas
+	 * descubiertas y marcadas coinciden con los contadores de ambos campos.
+	 *
+	 * @param completo Campo que guarda todos sus sectores completos.
+	 * @param limitado Campo que compacta y comprime sus sectores.
+	 * @param radio    Mitad del lado de la zona a recorrer.
+	 * @param contexto Descripción del juego para los mensajes de error.
+	 */
+	private static void comparar(CampoInfinito completo, CampoInfinito limitado, int radio, String contexto) {
+		long descubiertas = 0, marcadas = 0;
+
+		for (int si = -radio; si < radio; si += CampoInfinito.LADO) {
+			for (int sj = -radio; sj < radio; sj += CampoInfinito.LADO) {
+				for (int i = si; i < si + CampoInfinito.LADO; i++) {
+					for (int j = sj; j < sj + CampoInfinito.LADO; j++) {
+						EstadoDeCasilla esperado = completo.getEstadoDeCasilla(i, j);
+						EstadoDeCasilla obtenido = limitado.getEstadoDeCasilla(i, j);
+						if (esperado != obtenido) {
+							throw new AssertionError(contexto + ": casilla (" + i + ", " + j + ") " + obtenido
+									+ " en lugar de " + esperado);
+						}
+						if (completo.get(i, j) != limitado.get(i, j)) {
+							throw new AssertionError(contexto + ": valor diferente en (" + i + ", " + j + ")");
+						}
+						if (esperado == EstadoDeCasilla.descubierta) {
+							descubiertas++;
+						} else if (esperado == EstadoDeCasilla.posibleMina) {
+							marcadas++;
+						}
+					}
+				}
+			}
+		}
+
+		// ningun despeje alcanza casillas por fuera de la zona recorrida
+		if (descubiertas != completo.getCasillasDescubiertas() || descubiertas != limitado.getCasillasDescubiertas()) {
+			throw new AssertionError(contexto + ": " + descubiertas + " casillas descubiertas, pero los contadores dicen "
+					+ completo.getCasillasDescubiertas() + " y " + limitado.getCasillasDescubiertas());
+		}
+		if (marcadas != completo.getPosiblesMinas() || marcadas != limitado.getPosiblesMinas()) {
+			throw new AssertionError(contexto + ": " + marcadas + " posibles minas, pero los contadores dicen "
+					+ completo.getPosiblesMinas() + " y " + limitado.getPosiblesMinas());
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package buscaminas;
+
+import matricesDispersas.MatrizDeBits;
+import matricesDispersas.MatrizForma1;
+
+/**
+ * Prueba que compara los números calculados por
+ * {@link ContadorDeVecinos#contarFila(MatrizDeBits, int, byte[])} con los que
+ * se obtenían antes, sumando 1 en la matriz dispersa a las casillas alrededor de
+ * cada mina (el antiguo <code>sumarACasilla</code> de {@link CampoDeMinas}), y
+ * mide el tiempo de ambos en un campo grande.
+ * <p>
+ * Se ejecuta como programa, con el número de filas, el de columnas y la
+ * densidad de minas como argumentos opcionales, y lanza un
+ * {@link AssertionError} en la primera diferencia.
+ *
+ * @author sneyd
+ *
+ */
+public class PruebaContadorDeVecinos {
+
+	/**
+	 * Número de veces que se cuentan los números con el núcleo por filas, para
+	 * medir sin el calentamiento de la máquina virtual.
+	 */
+	private static final int REPETICIONES = 5;
+
+	public static void main(String[] args) {
+		int m = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		int n = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		double densidad = args.length > 2 ? Double.parseDouble(args[2]) : 0.2;
+		int minas = (int) (m * n * densidad);
+
+		MatrizDeBits mapa = new MatrizDeBits(m, n);
+		GeneradorDeMinas.generar(minas, new int[0], 1L, mapa);
+
+		// con el nucleo por filas se guarda el mejor tiempo de las repeticiones
+		byte[][] conteos = new byte[m][n];
+		long mejor = Long.MAX_VALUE;
+		for (int r = 0; r < REPETICIONES; r++) {
+			long inicio = System.nanoTime();
+			for (int i = 0; i < m; i++) {
+				ContadorDeVecinos.contarFila(mapa, i, conteos[i]);
+			}
+			mejor = Math.min(mejor, System.nanoTime() - inicio);
+		}
+
+		// con la matriz dispersa se recorre cada mina una sola vez, como antes
+		long inicio = System.nanoTime();
+		MatrizForma1 numeros = new MatrizForma1(m, n, 0);
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				if (mapa.get(i, j)) {
+					numeros.set(i, j, -1);
+					for (int ii = i - 1; ii <= i + 1; ii++) {
+						for (int jj = j - 1; jj <= j + 1; jj++) {
+							sumarACasilla(numeros, ii, jj);
+						}
+					}
+				}
+			}
+		}
+		long porMina = System.nanoTime() - inicio;
+
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				int esperado = (int) numeros.get(i, j);
+				int obtenido = mapa.get(i, j) ? -1 : conteos[i][j];
+				if (esperado != obtenido) {
+					throw new AssertionError(
+							"casilla (" + i + ", " + j + "): " + obtenido + " en lugar de " + esperado);
+				}
+			}
+		}
+
+		System.out.println("PruebaContadorDeVecinos: " + m + "x" + n + ", " + minas + " minas sin diferencias");
+		System.out.printf("  contarFila:    %10.1f ms%n", mejor / 1e6);
+		System.out.printf("  sumarACasilla: %10.1f ms (%.0f x)%n", porMina / 1e6,
+				(double) porMina / mejor);
+	}
+
+	/**
+	 * Suma 1 a la casilla (<b>i</b>, <b>j</b>) de la matriz dispersa, igual que el
+	 * antiguo <code>sumarACasilla</code>: si la casilla es una mina se deja
+	 * intacta, y si está por fuera de la matriz no se hace nada.
+	 *
+	 * @param numeros Matriz dispersa con las minas y los números.
+	 * @param i       Fila de la casilla.
+	 * @param j       Columna de la casilla.
+	 */
+	private static void sumarACasilla(MatrizForma1 numeros, int i, int j) {
+		// si (i, j) esta por fuera de la matriz
+		if (i < 0 || numeros.getNumFilas() <= i || j < 0 || numeros.getNumColumnas() <= j) {
+			return;
+		}
+
+		int v = (int) numeros.get(i, j);
+		if (v != -1) {
+			numeros.set(i, j, v + 1);
+		}
+	}
+}
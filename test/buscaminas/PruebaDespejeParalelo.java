@@ -0,0 +1,90 @@
+package buscaminas;
+
+import java.util.SplittableRandom;
+
+/**
+ * Prueba que compara el despeje en paralelo de {@link DespejeParalelo} con el
+ * despeje secuencial de {@link CampoDeMinas}, jugando las mismas jugadas en
+ * campos con la misma semilla. Los campos tienen varias teselas por lado, para
+ * que las regiones de ceros crucen sus bordes.
+ * <p>
+ * Se ejecuta como programa y lanza un {@link AssertionError} en la primera
+ * diferencia.
+ * 
+ * @author sneyd
+ *
+ */
+public class PruebaDespejeParalelo {
+
+	/**
+	 * Número de campos aleatorios a comparar.
+	 */
+	private static final int CAMPOS = 200;
+
+	/**
+	 * Número máximo de jugadas por campo.
+	 */
+	private static final int JUGADAS = 60;
+
+	public static void main(String[] args) {
+		SplittableRandom azar = new SplittableRandom(args.length > 0 ? Long.parseLong(args[0]) : 1L);
+
+		// un 0 en el borde inferior de una tesela cuya región sigue en la de abajo
+		int[] jugadas = { CampoDeMinas.MARCAR, 104, 2, CampoDeMinas.TOCAR, 129, 0, CampoDeMinas.MARCAR, 134, 6,
+				CampoDeMinas.TOCAR, 127, 7 };
+		comparar(139, 8, 122, -1250913216232489406L, true, jugadas);
+
+		for (int c = 0; c < CAMPOS; c++) {
+			int m = 1 + azar.nextInt(200);
+			int n = 1 + azar.nextInt(600);
+			int minas = 1 + azar.nextInt(m * n / 8 + 1);
+
+			jugadas = new int[3 * JUGADAS];
+			for (int k = 0; k < jugadas.length; k += 3) {
+				jugadas[k] = azar.nextInt(4) == 0 ? CampoDeMinas.MARCAR : CampoDeMinas.TOCAR;
+				jugadas[k + 1] = azar.nextInt(m);
+				jugadas[k + 2] = azar.nextInt(n);
+			}
+			comparar(m, n, minas, azar.nextLong(), azar.nextBoolean(), jugadas);
+		}
+		System.out.println("PruebaDespejeParalelo: " + (CAMPOS + 1) + " campos sin diferencias");
+	}
+
+	/**
+	 * Juega las <b>jugadas</b> una por una en dos campos iguales, uno con
+	 * despeje paralelo y sin índice de aperturas, y otro con el despeje
+	 * secuencial. Los contadores se comparan después de cada jugada, y el estado
+	 * de las casillas al final.
+	 * 
+	 * @param m        Número de filas.
+	 * @param n        Número de columnas.
+	 * @param minas    Número de minas.
+	 * @param semilla  Semilla de los dos campos.
+	 * @param apertura Si se garantiza una apertura en la primera casilla.
+	 * @param jugadas  Jugadas empaquetadas como en
+	 *                 {@link CampoDeMinas#jugar(int[], byte[])}.
+	 */
+	private static void comparar(int m, int n, int minas, long semilla, boolean apertura, int[] jugadas) {
+		CampoDeMinas secuencial = new CampoDeMinas(m, n, minas, semilla);
+		CampoDeMinas paralelo = new CampoDeMinas(m, n, minas, semilla);
+		secuencial.setAperturaGarantizada(apertura);
+		paralelo.setAperturaGarantizada(apertura);
+		paralelo.setIndiceDeAperturas(false);
+		paralelo.setDespejeParalelo(true);
+		secuencial.iniciar();
+		paralelo.iniciar();
+
+		String contexto = m + "x" + n + ", " + minas + " minas, semilla " + semilla;
+		for (int k = 0; k < jugadas.length && secuencial.getEstado() == CampoDeMinas.Estado.iniciado; k += 3) {
+			int[] jugada = { jugadas[k], jugadas[k + 1], jugadas[k + 2] };
+			secuencial.jugar(jugada, null);
+			paralelo.jugar(jugada, null);
+			if (secuencial.getCasillasDescubiertas() != paralelo.getCasillasDescubiertas()
+					|| secuencial.getEstado() != paralelo.getEstado()) {
+				throw new AssertionError(contexto + ", jugada " + k / 3 + ": " + paralelo.getCasillasDescubiertas()
+						+ " casillas descubiertas en vez de " + secuencial.getCasillasDescubiertas());
+			}
+		}
+		PruebaCampoDeMinasBits.comparar(secuencial, paralelo, contexto);
+	}
+}
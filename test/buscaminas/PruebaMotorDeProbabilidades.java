@@ -0,0 +1,388 @@
+package buscaminas;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import buscaminas.CampoDeMinas.Estado;
+import buscaminas.CampoDeMinas.EstadoDeCasilla;
+
+/**
+ * Prueba de {@link MotorDeProbabilidades} en campos de 6x6 y 8x8 con semillas
+ * fijas, jugando al azar casillas sin mina. Después de cada jugada:
+ * <p>
+ * - Las probabilidades exactas se comparan con las de una enumeración por
+ * fuerza bruta de todas las formas de poner minas en la frontera, pesando cada
+ * una con las combinaciones de las minas restantes en el interior. Deben
+ * coincidir hasta {@link #TOLERANCIA}. <br>
+ * - Cada cierto número de jugadas se estiman las probabilidades por muestreo, y
+ * se cuenta cuántas casillas tienen la probabilidad exacta dentro de su margen
+ * de error. Como el margen es de 95% de confianza, al final deben ser al menos
+ * {@link #COBERTURA_MINIMA} de las casillas. <br>
+ * - Una estimación sin tiempo debe entregar la densidad de minas con margen 1
+ * y sin muestras.
+ * <p>
+ * Se ejecuta como programa y lanza un {@link AssertionError} en la primera
+ * diferencia.
+ *
+ * @author sneyd
+ *
+ */
+public class PruebaMotorDeProbabilidades {
+
+	/**
+	 * Diferencia máxima entre las probabilidades exactas y las de fuerza bruta.
+	 */
+	private static final double TOLERANCIA = 1e-12;
+
+	/**
+	 * Fracción mínima de casillas con la probabilidad exacta dentro del margen de
+	 * error de la estimación.
+	 */
+	private static final double COBERTURA_MINIMA = 0.9;
+
+	/**
+	 * Número de campos de cada tamaño.
+	 */
+	private static final int CAMPOS = 40;
+
+	/**
+	 * Número de jugadas entre dos estimaciones por muestreo.
+	 */
+	private static final int ENTRE_ESTIMACIONES = 10;
+
+	/**
+	 * Tiempo máximo de cada estimación, en nanosegundos.
+	 */
+	private static final long TIEMPO_DE_ESTIMACION = 20_000_000L;
+
+	/**
+	 * Margen de error con el que se detiene cada estimación.
+	 */
+	private static final double MARGEN_DE_ESTIMACION = 0.02;
+
+	/**
+	 * Mayor diferencia encontrada entre las probabilidades exactas y las de fuerza
+	 * bruta.
+	 */
+	private static double diferenciaMaxima;
+
+	/**
+	 * Casillas ocultas estimadas por muestreo, y las que tenían la probabilidad
+	 * exacta dentro de su margen de error.
+	 */
+	private static long casillasEstimadas, casillasCubiertas;
+
+	public static void main(String[] args) {
+		SplittableRandom azar = new SplittableRandom(args.length > 0 ? Long.parseLong(args[0]) : 1L);
+		MotorDeProbabilidades motor = new MotorDeProbabilidades(1024, 1_000_000L);
+		int estados = 0;
+
+		for (int c = 0; c < 2 * CAMPOS; c++) {
+			int lado = c < CAMPOS ? 6 : 8;
+			int minas = lado == 6 ? 5 + azar.nextInt(5) : 9 + azar.nextInt(8);
+			long semilla = azar.nextLong();
+			CampoDeMinas campo = new CampoDeMinas(lado, lado, minas, semilla);
+			String contexto = lado + "x" + lado + ", " + minas + " minas, semilla " + semilla;
+
+			campo.iniciar();
+			campo.tocarCasilla(azar.nextInt(lado), azar.nextInt(lado));
+			for (int jugada = 0; campo.getEstado() == Estado.iniciado; jugada++) {
+				comparar(motor, campo, contexto + ", jugada " + jugada);
+				if (jugada % ENTRE_ESTIMACIONES == 0) {
+					estimar(motor, campo, contexto + ", jugada " + jugada);
+				}
+				estados++;
+				tocarSinMina(campo, azar);
+			}
+		}
+
+		double cobertura = (double) casillasCubiertas / casillasEstimadas;
+		if (cobertura < COBERTURA_MINIMA) {
+			throw new AssertionError("solo " + cobertura + " de las casillas estimadas están dentro del margen");
+		}
+		System.out.println("PruebaMotorDeProbabilidades: " + estados + " estados sin diferencias (hasta "
+				+ diferenciaMaxima + "), cobertura " + cobertura);
+	}
+
+	/**
+	 * Compara las probabilidades exactas del motor con las de fuerza bruta.
+	 *
+	 * @param motor    Motor de probabilidades.
+	 * @param campo    Campo de minas iniciado.
+	 * @param contexto Descripción del estado para los mensajes de error.
+	 */
+	private static void comparar(MotorDeProbabilidades motor, CampoDeMinas campo, String contexto) {
+		int m = campo.getNumFilas();
+		int n = campo.getNumColumnas();
+		ProbabilidadesDeMinas exactas = motor.calcular(campo);
+		double[] esperadas = fuerzaBruta(campo);
+
+		if (exactas == null || !exactas.esExacta()) {
+			throw new AssertionError(contexto + ": no se calcularon probabilidades exactas");
+		}
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				double p = exactas.getProbabilidad(i, j);
+				double esperada = esperadas[i * n + j];
+				if (Double.isNaN(esperada) != Double.isNaN(p)) {
+					throw new AssertionError(contexto + ": (" + i + ", " + j + ") descubierta en solo uno");
+				}
+				if (!Double.isNaN(p)) {
+					double diferencia = Math.abs(p - esperada);
+					diferenciaMaxima = Math.max(diferenciaMaxima, diferencia);
+					if (diferencia > TOLERANCIA) {
+						throw new AssertionError(
+								contexto + ": (" + i + ", " + j + ") vale " + p + " en lugar de " + esperada);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Estima las probabilidades por muestreo y cuenta las casillas cuyo margen de
+	 * error cubre la probabilidad exacta. También comprueba la estimación que se
+	 * entrega cuando no hay tiempo para tomar muestras.
+	 *
+	 * @param motor    Motor de probabilidades.
+	 * @param campo    Campo de minas iniciado.
+	 * @param contexto Descripción del estado para los mensajes de error.
+	 */
+	private static void estimar(MotorDeProbabilidades motor, CampoDeMinas campo, String contexto) {
+		int m = campo.getNumFilas();
+		int n = campo.getNumColumnas();
+		double[] exactas = fuerzaBruta(campo);
+		ProbabilidadesDeMinas estimadas = motor.estimar(campo, TIEMPO_DE_ESTIMACION, MARGEN_DE_ESTIMACION);
+		ProbabilidadesDeMinas sinTiempo = motor.estimar(campo, 0, MARGEN_DE_ESTIMACION);
+		int ocultas = m * n - campo.getCasillasDescubiertas();
+		double densidad = (double) campo.getNumMinas() / ocultas;
+
+		if (estimadas == null || estimadas.esExacta()) {
+			throw new AssertionError(contexto + ": no se estimaron probabilidades");
+		}
+		if (sinTiempo == null || sinTiempo.getNumMuestras() != 0) {
+			throw new AssertionError(contexto + ": la estimación sin tiempo tomó muestras");
+		}
+
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				double p = exactas[i * n + j];
+				if (Double.isNaN(p)) {
+					continue;
+				}
+
+				double margen = estimadas.getMargen(i, j);
+				if (!(0 <= margen && margen <= 1)) {
+					throw new AssertionError(contexto + ": margen " + margen + " en (" + i + ", " + j + ")");
+				}
+				casillasEstimadas++;
+				if (Math.abs(estimadas.getProbabilidad(i, j) - p) <= margen + TOLERANCIA) {
+					casillasCubiertas++;
+				}
+
+				if (sinTiempo.getMargen(i, j) != 1
+						|| Math.abs(sinTiempo.getProbabilidad(i, j) - densidad) > TOLERANCIA) {
+					throw new AssertionError(contexto + ": la estimación sin tiempo en (" + i + ", " + j
+							+ ") no es la densidad con margen 1");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Calcula las probabilidades por fuerza bruta: recorre todas las formas de
+	 * poner minas en las casillas ocultas vecinas de algún número, descartando las
+	 * que incumplen un número, y pesa cada una con las formas de poner las minas
+	 * restantes en las demás casillas ocultas.
+	 *
+	 * @param campo Campo de minas iniciado, sin minas descubiertas.
+	 * @return Probabilidad de cada casilla, por filas, con {@link Double#NaN} en
+	 *         las descubiertas.
+	 */
+	private static double[] fuerzaBruta(CampoDeMinas campo) {
+		int m = campo.getNumFilas();
+		int n = campo.getNumColumnas();
+		int[] frontera = new int[m * n];
+		int enFrontera = 0, interior = 0;
+		boolean[] oculta = new boolean[m * n];
+		boolean[] esFrontera = new boolean[m * n];
+
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				oculta[i * n + j] = campo.getEstadoDeCasilla(i, j) != EstadoDeCasilla.descubierta;
+			}
+		}
+		for (int c = 0; c < m * n; c++) {
+			if (!oculta[c]) {
+				continue;
+			}
+			for (int v : vecinos(c, m, n)) {
+				if (!oculta[v]) {
+					esFrontera[c] = true;
+				}
+			}
+			if (esFrontera[c]) {
+				frontera[enFrontera++] = c;
+			} else {
+				interior++;
+			}
+		}
+
+		// las minas que le faltan a cada número, y sus vecinos ocultos sin asignar
+		int[] faltan = new int[m * n];
+		int[] pendientes = new int[m * n];
+		for (int c = 0; c < m * n; c++) {
+			if (!oculta[c]) {
+				faltan[c] = ((Number) campo.get(c / n, c % n)).intValue();
+				for (int v : vecinos(c, m, n)) {
+					if (oculta[v]) {
+						pendientes[c]++;
+					}
+				}
+			}
+		}
+
+		double[] pesos = new double[m * n];
+		double[] totales = new double[2];
+		enumerar(0, 0, frontera, enFrontera, interior, campo.getNumMinas(), oculta, faltan, pendientes,
+				new boolean[m * n], pesos, totales, m, n);
+
+		double[] probabilidades = new double[m * n];
+		for (int c = 0; c < m * n; c++) {
+			if (!oculta[c]) {
+				probabilidades[c] = Double.NaN;
+			} else if (esFrontera[c]) {
+				probabilidades[c] = pesos[c] / totales[0];
+			} else {
+				probabilidades[c] = totales[1] / totales[0];
+			}
+		}
+		return probabilidades;
+	}
+
+	/**
+	 * Asigna mina o no a la casilla <b>k</b> de la frontera y sigue con la
+	 * siguiente. Al asignar todas, suma el peso de la configuración.
+	 *
+	 * @param k          Índice de la casilla de la frontera a asignar.
+	 * @param puestas    Minas puestas en la frontera.
+	 * @param frontera   Casillas de la frontera.
+	 * @param enFrontera Número de casillas de la frontera.
+	 * @param interior   Número de casillas ocultas fuera de la frontera.
+	 * @param minas      Número total de minas.
+	 * @param oculta     Si cada casilla está oculta.
+	 * @param faltan     Minas que le faltan a cada número.
+	 * @param pendientes Vecinos ocultos sin asignar de cada número.
+	 * @param mina       Si cada casilla de la frontera tiene mina.
+	 * @param pesos      Peso de las configuraciones en que cada casilla tiene mina.
+	 * @param totales    Peso de todas las configuraciones, y el de las minas de una
+	 *                   casilla del interior.
+	 * @param m          Número de filas.
+	 * @param n          Número de columnas.
+	 */
+	private static void enumerar(int k, int puestas, int[] frontera, int enFrontera, int interior, int minas,
+			boolean[] oculta, int[] faltan, int[] pendientes, boolean[] mina, double[] pesos, double[] totales,
+			int m, int n) {
+		if (k == enFrontera) {
+			int resto = minas - puestas;
+			if (resto < 0 || resto > interior) {
+				return;
+			}
+			double peso = combinaciones(interior, resto);
+			totales[0] += peso;
+			if (interior > 0) {
+				totales[1] += peso * resto / interior;
+			}
+			for (int f = 0; f < enFrontera; f++) {
+				if (mina[frontera[f]]) {
+					pesos[frontera[f]] += peso;
+				}
+			}
+			return;
+		}
+
+		int c = frontera[k];
+		int[] numeros = vecinos(c, m, n);
+		for (int valor = 0; valor <= 1; valor++) {
+			boolean valida = true;
+			for (int v : numeros) {
+				if (!oculta[v]) {
+					faltan[v] -= valor;
+					pendientes[v]--;
+					valida &= 0 <= faltan[v] && faltan[v] <= pendientes[v];
+				}
+			}
+			if (valida) {
+				mina[c] = valor == 1;
+				enumerar(k + 1, puestas + valor, frontera, enFrontera, interior, minas, oculta, faltan, pendientes,
+						mina, pesos, totales, m, n);
+				mina[c] = false;
+			}
+			for (int v : numeros) {
+				if (!oculta[v]) {
+					faltan[v] += valor;
+					pendientes[v]++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Devuelve las casillas vecinas de la casilla <b>c</b>, sin incluirla.
+	 *
+	 * @param c Índice <code>i * n + j</code> de la casilla.
+	 * @param m Número de filas.
+	 * @param n Número de columnas.
+	 * @return Índices de los vecinos.
+	 */
+	private static int[] vecinos(int c, int m, int n) {
+		int i = c / n;
+		int j = c % n;
+		int[] vecinos = new int[8];
+		int k = 0;
+
+		for (int ii = Vecindario.desde(i); ii <= Vecindario.hasta(i, m); ii++) {
+			for (int jj = Vecindario.desde(j); jj <= Vecindario.hasta(j, n); jj++) {
+				if (ii != i || jj != j) {
+					vecinos[k++] = ii * n + jj;
+				}
+			}
+		}
+		return Arrays.copyOf(vecinos, k);
+	}
+
+	/**
+	 * Calcula el coeficiente binomial <code>C(a, b)</code>.
+	 *
+	 * @param a Número de elementos.
+	 * @param b Número de elementos escogidos.
+	 * @return Número de combinaciones.
+	 */
+	private static double combinaciones(int a, int b) {
+		double resultado = 1;
+		for (int k = 1; k <= b; k++) {
+			resultado = resultado * (a - b + k) / k;
+		}
+		return resultado;
+	}
+
+	/**
+	 * Toca una casilla oculta al azar que no sea una mina.
+	 *
+	 * @param campo Campo de minas iniciado.
+	 * @param azar  Generador de números aleatorios.
+	 */
+	private static void tocarSinMina(CampoDeMinas campo, SplittableRandom azar) {
+		int m = campo.getNumFilas();
+		int n = campo.getNumColumnas();
+
+		while (true) {
+			int i = azar.nextInt(m);
+			int j = azar.nextInt(n);
+			if (campo.getEstadoDeCasilla(i, j) == EstadoDeCasilla.oculta && ((Number) campo.get(i, j)).intValue() != -1) {
+				campo.tocarCasilla(i, j);
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package buscaminas;
+
+import buscaminas.CampoDeMinas.Estado;
+
+/**
+ * Prueba de {@link Solucionador} en campos de nivel experto (16x30 con 99
+ * minas) con semillas fijas, con y sin apertura garantizada en la primera
+ * casilla. El solucionador no adivina, así que ningún juego se puede perder
+ * después del primer despeje, y las minas que deduce en los juegos en que se
+ * queda sin jugadas deben ser minas. Al final se informa cuántos campos se
+ * jugaron y resolvieron por segundo.
+ * <p>
+ * Se ejecuta como programa, con el número de campos como argumento opcional, y
+ * lanza un {@link AssertionError} en el primer juego perdido.
+ *
+ * @author sneyd
+ *
+ */
+public class PruebaSolucionador {
+
+	/**
+	 * Tamaño y minas de un campo de nivel experto.
+	 */
+	private static final int FILAS = 16, COLUMNAS = 30, MINAS = 99;
+
+	public static void main(String[] args) {
+		int campos = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+		// la primera pasada calienta la maquina virtual y no se informa
+		jugar(campos / 4, false, false);
+		jugar(campos, false, true);
+		jugar(campos, true, true);
+	}
+
+	/**
+	 * Resuelve <b>campos</b> campos de nivel experto, empezando por la casilla del
+	 * centro, e informa el tiempo.
+	 *
+	 * @param campos   Número de campos a jugar.
+	 * @param apertura Si se garantiza una apertura en la primera casilla.
+	 * @param informar Si se imprime el resultado.
+	 */
+	private static void jugar(int campos, boolean apertura, boolean informar) {
+		int resueltos = 0;
+		long inicio = System.nanoTime();
+
+		for (int c = 0; c < campos; c++) {
+			CampoDeMinas campo = new CampoDeMinas(FILAS, COLUMNAS, MINAS, c);
+			campo.setAperturaGarantizada(apertura);
+			campo.iniciar();
+			Solucionador solucionador = new Solucionador(campo);
+
+			if (solucionador.resolver(FILAS / 2, COLUMNAS / 2)) {
+				resueltos++;
+				continue;
+			}
+
+			String contexto = "semilla " + c + (apertura ? " con apertura" : " sin apertura");
+			if (campo.getEstado() != Estado.iniciado) {
+				throw new AssertionError(contexto + ": el juego terminó como " + campo.getEstado());
+			}
+			for (int i = 0; i < FILAS; i++) {
+				for (int j = 0; j < COLUMNAS; j++) {
+					if (solucionador.esMina(i, j) && ((Number) campo.get(i, j)).intValue() != -1) {
+						throw new AssertionError(contexto + ": (" + i + ", " + j + ") se dedujo como mina");
+					}
+				}
+			}
+		}
+
+		double segundos = (System.nanoTime() - inicio) / 1e9;
+		if (informar) {
+			System.out.printf("PruebaSolucionador: %d campos %s apertura, %d resueltos, %.0f campos/s, "
+					+ "%.0f resueltos/s%n", campos, apertura ? "con" : "sin", resueltos, campos / segundos,
+					resueltos / segundos);
+		}
+	}
+}